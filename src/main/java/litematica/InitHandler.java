@@ -13,6 +13,7 @@ import litematica.event.RenderHandler;
 import litematica.gui.ConfigScreen;
 import litematica.input.LitematicaHotkeyProvider;
 import litematica.input.MouseScrollHandlerImpl;
+import litematica.materials.MaterialCache;
 import litematica.network.SchematicSavePacketHandler;
 import litematica.render.infohud.StatusInfoRenderer;
 import litematica.scheduler.ClientTickHandler;
@@ -52,6 +53,8 @@ public class InitHandler implements InitializationHandler
         LitematicaDirectories.getAreaSelectionsBaseDirectory();
         LitematicaDirectories.getSchematicsBaseDirectory();
 
+        MaterialCache.preloadFromFileAsync();
+
         Registry.CLIENT_PACKET_CHANNEL_HANDLER.registerClientChannelHandler(SchematicSavePacketHandler.INSTANCE);
     }
 }
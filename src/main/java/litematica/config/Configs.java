@@ -23,6 +23,7 @@ import malilib.overlay.message.MessageOutput;
 import malilib.util.position.Vec2i;
 import litematica.Reference;
 import litematica.schematic.SchematicSaveSettings.SaveSide;
+import litematica.schematic.container.BlockContainerType;
 import litematica.selection.AreaSelectionType;
 import litematica.selection.ToolSelectionMode;
 import litematica.util.LitematicaDirectories;
@@ -53,12 +54,15 @@ public class Configs
         public static final BooleanConfig DEBUG_MESSAGES                            = new BooleanConfig("debugMessages", false);
         public static final BooleanConfig EASY_PLACE_CLICK_ADJACENT                 = new BooleanConfig("easyPlaceClickAdjacent", false);
         public static final BooleanConfig EASY_PLACE_HOLD_ENABLED                   = new BooleanConfig("easyPlaceHold", false);
+        public static final BooleanConfig EASY_PLACE_PLANNER                        = new BooleanConfig("easyPlacePlanner", false);
+        public static final IntegerConfig EASY_PLACE_PLANNER_RATE                   = new IntegerConfig("easyPlacePlannerRate", 4, 1, 64);
         public static final BooleanConfig EXECUTE_REQUIRE_TOOL                      = new BooleanConfig("executeRequireHoldingTool", true);
         public static final BooleanConfig FIX_RAIL_ROTATION                         = new BooleanConfig("fixRailRotation", true);
         public static final BooleanConfig GENERATE_LOWERCASE_NAMES                  = new BooleanConfig("generateLowerCaseNames", false);
         public static final BooleanConfig LOAD_ENTIRE_SCHEMATICS                    = new BooleanConfig("loadEntireSchematics", false);
         public static final BooleanConfig MATERIAL_LIST_IGNORE_BLOCK_STATE          = new BooleanConfig("materialListIgnoreBlockState", false);
         public static final BooleanConfig MATERIALS_FROM_CONTAINER                  = new BooleanConfig("materialListFromContainer", true);
+        public static final IntegerConfig OFF_HEAP_STORAGE_VOLUME                   = new IntegerConfig("offHeapStorageVolume", 256, 0, 100000);
         public static final IntegerConfig PASTE_COMMAND_INTERVAL                    = new IntegerConfig("pasteCommandInterval", 1, 1, 1000);
         public static final IntegerConfig PASTE_COMMAND_LIMIT                       = new IntegerConfig("pasteCommandLimit", 64, 1, 1000);
         public static final BooleanConfig PICK_BLOCK_AVOID_DAMAGEABLE               = new BooleanConfig("pickBlockAvoidDamageable", true);
@@ -70,11 +74,17 @@ public class Configs
         public static final BooleanConfig RENDER_MATERIALS_IN_GUI                   = new BooleanConfig("renderMaterialListInGuis", true);
         public static final BooleanConfig RENDER_THREAD_NO_TIMEOUT                  = new BooleanConfig("renderThreadNoTimeout", true);
         public static final BooleanConfig REQUIRE_ADJACENT_CHUNKS                   = new BooleanConfig("requireAdjacentChunks", true);
+        public static final IntegerConfig SCHEMATIC_EDIT_UNDO_MEMORY                = new IntegerConfig("schematicEditUndoMemory", 64, 0, 4096);
+        public static final IntegerConfig SCHEMATIC_VCS_KEYFRAME_INTERVAL           = new IntegerConfig("schematicVcsKeyframeInterval", 10, 1, 1000);
+        public static final IntegerConfig SECTIONED_SCHEMATIC_CACHE_SIZE            = new IntegerConfig("sectionedSchematicCacheSize", 8192, 64, 1000000);
         public static final BooleanConfig SHOW_EXTRA_SCHEMATIC_TYPES                = new BooleanConfig("showExtraSchematicTypes", false);
+        public static final IntegerConfig TASK_TIME_BUDGET                          = new IntegerConfig("taskTimeBudget", 20, 1, 1000);
         public static final StringConfig  TOOL_ITEM                                 = new StringConfig( "toolItem", "minecraft:stick");
+        public static final BooleanConfig UNLOAD_UNUSED_SCHEMATICS                  = new BooleanConfig("unloadUnusedSchematics", true);
 
         public static final OptionListConfig<AreaSelectionType>     DEFAULT_AREA_SELECTION_MODE = new OptionListConfig<>("defaultAreaSelectionMode", AreaSelectionType.SIMPLE, AreaSelectionType.VALUES);
         public static final OptionListConfig<ReplaceBehavior>       PASTE_REPLACE_BEHAVIOR      = new OptionListConfig<>("pasteReplaceBehavior", ReplaceBehavior.NONE, ReplaceBehavior.VALUES);
+        public static final OptionListConfig<BlockContainerType>    SCHEMATIC_BLOCK_CONTAINER   = new OptionListConfig<>("schematicBlockContainer", BlockContainerType.TYPE_DEFAULT, BlockContainerType.VALUES);
         public static final OptionListConfig<FileBrowserColumns>    SCHEMATIC_BROWSER_COLUMNS   = new OptionListConfig<>("schematicBrowserColumns", FileBrowserColumns.MTIME, FileBrowserColumns.VALUES);
         public static final OptionListConfig<ToolSelectionMode>     TOOL_SELECTION_MODE         = new OptionListConfig<>("toolSelectionMode", ToolSelectionMode.CORNERS, ToolSelectionMode.VALUES);
 
@@ -91,12 +101,15 @@ public class Configs
                 EASY_PLACE_CLICK_ADJACENT,
                 EASY_PLACE_HOLD_ENABLED,
                 EASY_PLACE_MODE,
+                EASY_PLACE_PLANNER,
+                EASY_PLACE_PLANNER_RATE,
                 EXECUTE_REQUIRE_TOOL,
                 FIX_RAIL_ROTATION,
                 GENERATE_LOWERCASE_NAMES,
                 LOAD_ENTIRE_SCHEMATICS,
                 MATERIAL_LIST_IGNORE_BLOCK_STATE,
                 MATERIALS_FROM_CONTAINER,
+                OFF_HEAP_STORAGE_VOLUME,
                 PASTE_REPLACE_BEHAVIOR,
                 PASTE_COMMAND_INTERVAL,
                 PASTE_COMMAND_LIMIT,
@@ -112,12 +125,18 @@ public class Configs
                 RENDER_MATERIALS_IN_GUI,
                 RENDER_THREAD_NO_TIMEOUT,
                 REQUIRE_ADJACENT_CHUNKS,
+                SCHEMATIC_BLOCK_CONTAINER,
                 SCHEMATIC_BROWSER_COLUMNS,
+                SCHEMATIC_EDIT_UNDO_MEMORY,
+                SCHEMATIC_VCS_KEYFRAME_INTERVAL,
+                SECTIONED_SCHEMATIC_CACHE_SIZE,
                 SHOW_EXTRA_SCHEMATIC_TYPES,
                 SIGN_TEXT_PASTE,
+                TASK_TIME_BUDGET,
                 TOOL_ITEM_ENABLED,
                 TOOL_ITEM,
-                TOOL_SELECTION_MODE
+                TOOL_SELECTION_MODE,
+                UNLOAD_UNUSED_SCHEMATICS
         );
 
         public static final ImmutableList<HotkeyedBooleanConfig> HOTKEYS = ImmutableList.of(
@@ -17,7 +17,9 @@ import litematica.scheduler.TaskScheduler;
 import litematica.scheduler.task.SetSchematicPreviewTask;
 import litematica.schematic.placement.SchematicPlacement;
 import litematica.schematic.placement.SchematicPlacementManager;
+import litematica.schematic.util.SchematicBatchProcessor;
 import litematica.schematic.util.SchematicCreationUtils;
+import litematica.schematic.util.SchematicEditJournal;
 import litematica.schematic.util.SchematicEditUtils;
 import litematica.schematic.util.SchematicPlacingUtils;
 import litematica.selection.AreaSelection;
@@ -272,6 +274,19 @@ public class HotkeyCallbackMisc implements HotkeyCallback
                 return ActionResult.SUCCESS;
             }
         }
+        else if (key == Hotkeys.BATCH_PROCESS_SCHEMATICS.getKeyBind())
+        {
+            if (SchematicBatchProcessor.INSTANCE.isRunning())
+            {
+                SchematicBatchProcessor.INSTANCE.cancel();
+            }
+            else
+            {
+                SchematicBatchProcessor.INSTANCE.startFromJobFile();
+            }
+
+            return ActionResult.SUCCESS;
+        }
         else if (key == Hotkeys.CREATE_SCHEMATIC_IN_MEMORY.getKeyBind())
         {
             return SchematicCreationUtils.saveSchematic(true);
@@ -285,6 +300,16 @@ public class HotkeyCallbackMisc implements HotkeyCallback
             SchematicEditUtils.rebuildAcceptReplacement();
             return ActionResult.SUCCESS;
         }
+        else if (key == Hotkeys.SCHEMATIC_EDIT_REDO.getKeyBind())
+        {
+            SchematicEditJournal.INSTANCE.redo();
+            return ActionResult.SUCCESS;
+        }
+        else if (key == Hotkeys.SCHEMATIC_EDIT_UNDO.getKeyBind())
+        {
+            SchematicEditJournal.INSTANCE.undo();
+            return ActionResult.SUCCESS;
+        }
         else if (key == Hotkeys.SCHEMATIC_VERSION_CYCLE_NEXT.getKeyBind())
         {
             if (DataManager.getSchematicProjectsManager().hasProjectOpen())
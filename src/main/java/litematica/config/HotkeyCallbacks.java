@@ -57,9 +57,12 @@ public class HotkeyCallbacks
         Hotkeys.REFRESH_SCHEMATIC_RENDERER.getKeyBind().setCallback(hotkeyCallbackMisc);
         Hotkeys.ROTATE_PLACEMENT_CW.getKeyBind().setCallback(hotkeyCallbackMisc);
         Hotkeys.ROTATE_PLACEMENT_CCW.getKeyBind().setCallback(hotkeyCallbackMisc);
+        Hotkeys.BATCH_PROCESS_SCHEMATICS.getKeyBind().setCallback(hotkeyCallbackMisc);
         Hotkeys.CREATE_SCHEMATIC_IN_MEMORY.getKeyBind().setCallback(hotkeyCallbackMisc);
         Hotkeys.SAVE_SCHEMATIC_TO_FILE.getKeyBind().setCallback(hotkeyCallbackMisc);
         Hotkeys.SCHEMATIC_EDIT_ACCEPT_REPLACEMENT.getKeyBind().setCallback(hotkeyCallbackMisc);
+        Hotkeys.SCHEMATIC_EDIT_REDO.getKeyBind().setCallback(hotkeyCallbackMisc);
+        Hotkeys.SCHEMATIC_EDIT_UNDO.getKeyBind().setCallback(hotkeyCallbackMisc);
         Hotkeys.SCHEMATIC_VERSION_CYCLE_NEXT.getKeyBind().setCallback(hotkeyCallbackMisc);
         Hotkeys.SCHEMATIC_VERSION_CYCLE_PREVIOUS.getKeyBind().setCallback(hotkeyCallbackMisc);
         Hotkeys.SELECTION_GROW_HOTKEY.getKeyBind().setCallback(hotkeyCallbackMisc);
@@ -9,6 +9,7 @@ import malilib.input.KeyBindSettings;
 public class Hotkeys
 {
     public static final HotkeyConfig ADD_SELECTION_BOX                      = new HotkeyConfig("addSelectionBox",                   "");
+    public static final HotkeyConfig BATCH_PROCESS_SCHEMATICS               = new HotkeyConfig("batchProcessSchematics",            "");
     public static final HotkeyConfig CLONE_SELECTION                        = new HotkeyConfig("cloneSelection",                    "");
     public static final HotkeyConfig CREATE_SCHEMATIC_IN_MEMORY             = new HotkeyConfig("createSchematicInMemory",           "");
     public static final HotkeyConfig DELETE_SELECTION_BOX                   = new HotkeyConfig("deleteSelectionBox",                "");
@@ -50,8 +51,10 @@ public class Hotkeys
     public static final HotkeyConfig SCHEMATIC_EDIT_ACCEPT_REPLACEMENT      = new HotkeyConfig("schematicEditAcceptReplacement",    "");
     public static final HotkeyConfig SCHEMATIC_EDIT_BREAK_ALL               = new HotkeyConfig("schematicEditBreakPlaceAll",        "", KeyBindSettings.INGAME_MODIFIER);
     public static final HotkeyConfig SCHEMATIC_EDIT_BREAK_DIRECTION         = new HotkeyConfig("schematicEditBreakPlaceDirection",  "", KeyBindSettings.INGAME_MODIFIER);
+    public static final HotkeyConfig SCHEMATIC_EDIT_REDO                    = new HotkeyConfig("schematicEditRedo",                 "");
     public static final HotkeyConfig SCHEMATIC_EDIT_REPLACE_ALL             = new HotkeyConfig("schematicEditReplaceAll",           "", KeyBindSettings.INGAME_MODIFIER);
     public static final HotkeyConfig SCHEMATIC_EDIT_REPLACE_DIRECTION       = new HotkeyConfig("schematicEditReplaceDirection",     "", KeyBindSettings.INGAME_MODIFIER);
+    public static final HotkeyConfig SCHEMATIC_EDIT_UNDO                    = new HotkeyConfig("schematicEditUndo",                 "");
     public static final HotkeyConfig SCHEMATIC_VERSION_CYCLE_MODIFIER       = new HotkeyConfig("schematicVersionCycleModifier",     "", KeyBindSettings.INGAME_MODIFIER);
     public static final HotkeyConfig SCHEMATIC_VERSION_CYCLE_NEXT           = new HotkeyConfig("schematicVersionCycleNext",         "");
     public static final HotkeyConfig SCHEMATIC_VERSION_CYCLE_PREVIOUS       = new HotkeyConfig("schematicVersionCyclePrevious",     "");
@@ -81,6 +84,7 @@ public class Hotkeys
 
     public static final List<HotkeyConfig> HOTKEY_LIST = ImmutableList.of(
             ADD_SELECTION_BOX,
+            BATCH_PROCESS_SCHEMATICS,
             CLONE_SELECTION,
             CREATE_SCHEMATIC_IN_MEMORY,
             DELETE_SELECTION_BOX,
@@ -122,8 +126,10 @@ public class Hotkeys
             SCHEMATIC_EDIT_ACCEPT_REPLACEMENT,
             SCHEMATIC_EDIT_BREAK_ALL,
             SCHEMATIC_EDIT_BREAK_DIRECTION,
+            SCHEMATIC_EDIT_REDO,
             SCHEMATIC_EDIT_REPLACE_ALL,
             SCHEMATIC_EDIT_REPLACE_DIRECTION,
+            SCHEMATIC_EDIT_UNDO,
             SCHEMATIC_VERSION_CYCLE_MODIFIER,
             SCHEMATIC_VERSION_CYCLE_NEXT,
             SCHEMATIC_VERSION_CYCLE_PREVIOUS,
@@ -5,8 +5,13 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import javax.annotation.Nullable;
+import com.google.common.hash.HashCode;
 
+import malilib.overlay.message.MessageDispatcher;
+import litematica.config.Configs;
 import litematica.schematic.LoadedSchematic;
+import litematica.schematic.util.SchematicEditJournal;
 
 public class SchematicHolder
 {
@@ -17,6 +22,7 @@ public class SchematicHolder
     public void clearLoadedSchematics()
     {
         this.schematics.clear();
+        SchematicEditJournal.INSTANCE.clear();
     }
 
     public List<LoadedSchematic> getAllOf(Path file)
@@ -49,6 +55,13 @@ public class SchematicHolder
             }
         }
 
+        LoadedSchematic identical = this.getLoadedSchematicWithSameContents(file);
+
+        if (identical != null)
+        {
+            return Optional.of(identical);
+        }
+
         Optional<LoadedSchematic> schematicOpt = LoadedSchematic.tryLoadSchematic(file);
 
         if (schematicOpt.isPresent())
@@ -59,6 +72,55 @@ public class SchematicHolder
         return schematicOpt;
     }
 
+    /**
+     * @return an already loaded, unmodified schematic that was loaded from a file with exactly
+     * the same contents as the given file, or null if there isn't one.
+     * The file contents are only hashed if there is a candidate schematic with the same file size.
+     */
+    @Nullable
+    public LoadedSchematic getLoadedSchematicWithSameContents(Path file)
+    {
+        long fileSize = LoadedSchematic.getFileSize(file);
+        HashCode fileHash = null;
+
+        if (fileSize < 0)
+        {
+            return null;
+        }
+
+        for (LoadedSchematic loadedSchematic : this.schematics)
+        {
+            if (loadedSchematic.getLoadedFileSize() != fileSize)
+            {
+                continue;
+            }
+
+            HashCode hash = loadedSchematic.getContentHash();
+
+            if (hash == null)
+            {
+                continue;
+            }
+
+            if (fileHash == null)
+            {
+                fileHash = LoadedSchematic.hashFile(file);
+
+                if (fileHash == null)
+                {
+                    return null;
+                }
+            }
+
+            if (hash.equals(fileHash))
+            {
+                return loadedSchematic;
+            }
+        }
+
+        return null;
+    }
+
     public void addSchematic(LoadedSchematic loadedSchematic, boolean allowDuplicates)
     {
         if (allowDuplicates || this.schematics.contains(loadedSchematic) == false)
@@ -83,12 +145,35 @@ public class SchematicHolder
         if (this.schematics.remove(loadedSchematic))
         {
             DataManager.getSchematicPlacementManager().removeAllPlacementsOfSchematic(loadedSchematic);
+            SchematicEditJournal.INSTANCE.removeOperationsOf(loadedSchematic);
             return true;
         }
 
         return false;
     }
 
+    /**
+     * Called when a placement stops using the given schematic.
+     * If that was the last placement using it, and the schematic can be loaded again from its file
+     * (or it is a temporary schematic), then the schematic is unloaded to free up the memory.
+     */
+    public void onSchematicReleased(LoadedSchematic loadedSchematic)
+    {
+        if (loadedSchematic.release() == false ||
+            Configs.Generic.UNLOAD_UNUSED_SCHEMATICS.getBooleanValue() == false)
+        {
+            return;
+        }
+
+        if ((loadedSchematic.shouldUnloadWhenUnused() || loadedSchematic.canBeReloadedFromFile()) &&
+            this.schematics.remove(loadedSchematic))
+        {
+            SchematicEditJournal.INSTANCE.removeOperationsOf(loadedSchematic);
+            String name = loadedSchematic.schematic.getMetadata().getSchematicName();
+            MessageDispatcher.generic("litematica.message.info.unused_schematic_unloaded", name);
+        }
+    }
+
     public List<LoadedSchematic> getAllSchematics()
     {
         return this.schematics;
@@ -5,6 +5,7 @@ import javax.annotation.Nullable;
 import net.minecraft.client.multiplayer.WorldClient;
 
 import litematica.data.DataManager;
+import litematica.materials.MaterialCache;
 import litematica.world.SchematicWorldHandler;
 
 public class ClientWorldChangeHandler implements malilib.event.ClientWorldChangeHandler
@@ -17,6 +18,11 @@ public class ClientWorldChangeHandler implements malilib.event.ClientWorldChange
         {
             boolean isDimensionChange = worldAfter != null;
             DataManager.save(isDimensionChange);
+
+            if (isDimensionChange == false)
+            {
+                MaterialCache.saveIfDirty();
+            }
         }
     }
 
@@ -11,9 +11,10 @@ import litematica.data.DataManager;
 import litematica.schematic.LoadedSchematic;
 import litematica.schematic.Schematic;
 import litematica.schematic.SchematicMetadata;
+import litematica.schematic.SchematicSaveSettings.CompressionMode;
 import litematica.schematic.SchematicType;
 import litematica.schematic.placement.SchematicPlacementManager;
-import litematica.schematic.util.SchematicFileUtils;
+import litematica.schematic.util.SchematicSaveService;
 
 public class SaveConvertSchematicScreen extends BaseSaveSchematicScreen
 {
@@ -122,7 +123,17 @@ public class SaveConvertSchematicScreen extends BaseSaveSchematicScreen
             }
         }
 
-        if (SchematicFileUtils.writeToFile(schematic, file, overwrite))
+        // The converted schematic shares the regions with the loaded schematic, so it needs a snapshot
+        if (SchematicSaveService.INSTANCE.saveAsync(schematic, file, overwrite, CompressionMode.STANDARD, true,
+                                                    success -> this.onSchematicWritten(file, success)) == false)
+        {
+            this.onSchematicWritten(file, false);
+        }
+    }
+
+    protected void onSchematicWritten(Path file, boolean success)
+    {
+        if (success)
         {
             this.onSchematicSaved(file);
         }
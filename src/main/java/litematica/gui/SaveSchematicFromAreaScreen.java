@@ -20,7 +20,7 @@ import litematica.schematic.Schematic;
 import litematica.schematic.SchematicSaveSettings;
 import litematica.schematic.SchematicSaveSettings.SaveSide;
 import litematica.schematic.SchematicType;
-import litematica.schematic.util.SchematicFileUtils;
+import litematica.schematic.util.SchematicSaveService;
 import litematica.selection.AreaSelection;
 
 public class SaveSchematicFromAreaScreen extends BaseSaveSchematicScreen
@@ -196,7 +196,7 @@ public class SaveSchematicFromAreaScreen extends BaseSaveSchematicScreen
     protected void saveSchematicOnClient(SchematicSaveSettings settings, Path file, boolean overwrite)
     {
         LocalCreateSchematicTask task = new LocalCreateSchematicTask(this.selection, settings,
-                                                                     sch -> this.writeSchematicToFile(sch, file, overwrite));
+                                                                     sch -> this.writeSchematicToFile(sch, file, overwrite, settings));
 
         TaskScheduler.getServerInstanceIfExistsOrClient().scheduleTask(task, 10);
     }
@@ -205,11 +205,11 @@ public class SaveSchematicFromAreaScreen extends BaseSaveSchematicScreen
     {
         /*
         SchematicSavePacketHandler.INSTANCE.requestSchematicSaveAllAtOnce(this.selection, settings,
-                                                                          sch -> this.writeSchematicToFile(sch, file, overwrite));
+                                                                          sch -> this.writeSchematicToFile(sch, file, overwrite, settings));
         */
     }
 
-    protected void writeSchematicToFile(Schematic schematic, Path file, boolean overwrite)
+    protected void writeSchematicToFile(Schematic schematic, Path file, boolean overwrite, SchematicSaveSettings settings)
     {
         if (this.hasSavableVersions)
         {
@@ -221,7 +221,17 @@ public class SaveSchematicFromAreaScreen extends BaseSaveSchematicScreen
             }
         }
 
-        if (SchematicFileUtils.writeToFile(schematic, file, overwrite))
+        // The newly created schematic isn't accessible from anywhere else, so it doesn't need a snapshot
+        if (SchematicSaveService.INSTANCE.saveAsync(schematic, file, overwrite, settings.compression.getValue(), false,
+                                                    success -> this.onSchematicWritten(schematic, file, success)) == false)
+        {
+            this.onSchematicWritten(schematic, file, false);
+        }
+    }
+
+    protected void onSchematicWritten(Schematic schematic, Path file, boolean success)
+    {
+        if (success)
         {
             this.onSchematicSaved(file);
         }
@@ -64,16 +64,29 @@ public class SchematicBrowserScreen extends BaseSchematicBrowserScreen
 
     protected void loadSchematic()
     {
-        LoadedSchematic loadedSchematic = tryLoadSchematic(this.getListWidget().getEntrySelectionHandler().getLastSelectedEntry());
+        DirectoryEntry entry = this.getListWidget().getEntrySelectionHandler().getLastSelectedEntry();
+
+        // Share an already loaded and unmodified copy of the same schematic data, instead of loading another copy
+        LoadedSchematic loadedSchematic = entry != null && entry.getType() == DirectoryEntryType.FILE ?
+                                          SchematicHolder.INSTANCE.getLoadedSchematicWithSameContents(entry.getFullPath()) : null;
 
-        if (loadedSchematic == null || loadedSchematic.file.isPresent() == false)
+        if (loadedSchematic != null)
         {
-            return;
+            MessageDispatcher.success("litematica.message.info.schematic_already_loaded", entry.getName());
         }
+        else
+        {
+            loadedSchematic = tryLoadSchematic(entry);
+
+            if (loadedSchematic == null || loadedSchematic.file.isPresent() == false)
+            {
+                return;
+            }
 
-        SchematicHolder.INSTANCE.addSchematic(loadedSchematic, true);
-        MessageDispatcher.success("litematica.message.info.schematic_loaded_to_memory",
-                                  loadedSchematic.file.get().getFileName().toString());
+            SchematicHolder.INSTANCE.addSchematic(loadedSchematic, true);
+            MessageDispatcher.success("litematica.message.info.schematic_loaded_to_memory",
+                                      loadedSchematic.file.get().getFileName().toString());
+        }
 
         // Clear the parent after loading as schematic, as presumably in most cases
         // the user would just want to close the screen at that point.
@@ -336,6 +336,7 @@ public class SchematicManagerScreen extends BaseSchematicBrowserScreen
     {
         SchematicMetadata meta = loadedSchematic.schematic.getMetadata();
         String oldName = meta.getSchematicName();
+        boolean onlyMetadataChanged = loadedSchematic.wasModifiedSinceSaved() == false;
 
         meta.setSchematicName(newName);
         meta.setTimeModifiedToNowIfNotRecentlyCreated();
@@ -346,7 +347,7 @@ public class SchematicManagerScreen extends BaseSchematicBrowserScreen
             return true;
         }
 
-        if (SchematicFileUtils.writeToFile(loadedSchematic.schematic, loadedSchematic.file.get(), true))
+        if (SchematicFileUtils.writeMetadataToFile(loadedSchematic.schematic, loadedSchematic.file.get(), onlyMetadataChanged))
         {
             loadedSchematic.clearModifiedSinceSaved();
 
@@ -387,13 +388,14 @@ public class SchematicManagerScreen extends BaseSchematicBrowserScreen
 
         if (Objects.equals(description, meta.getDescription()) == false)
         {
+            boolean onlyMetadataChanged = loadedSchematic.wasModifiedSinceSaved() == false;
             meta.setDescription(description);
             meta.setTimeModifiedToNowIfNotRecentlyCreated();
             loadedSchematic.setModifiedSinceSaved();
 
             if (loadedSchematic.file.isPresent())
             {
-                if (SchematicFileUtils.writeToFile(loadedSchematic.schematic, loadedSchematic.file.get(), true))
+                if (SchematicFileUtils.writeMetadataToFile(loadedSchematic.schematic, loadedSchematic.file.get(), onlyMetadataChanged))
                 {
                     loadedSchematic.clearModifiedSinceSaved();
                     MessageDispatcher.success(2000).translate("litematica.message.info.schematic_manager.description_set");
@@ -416,13 +418,14 @@ public class SchematicManagerScreen extends BaseSchematicBrowserScreen
 
         if (meta.getPreviewImagePixelData() != null)
         {
+            boolean onlyMetadataChanged = loadedSchematic.wasModifiedSinceSaved() == false;
             meta.setPreviewImagePixelData(null);
             meta.setTimeModifiedToNowIfNotRecentlyCreated();
             loadedSchematic.setModifiedSinceSaved();
 
             if (loadedSchematic.file.isPresent())
             {
-                if (SchematicFileUtils.writeToFile(loadedSchematic.schematic, loadedSchematic.file.get(), true))
+                if (SchematicFileUtils.writeMetadataToFile(loadedSchematic.schematic, loadedSchematic.file.get(), onlyMetadataChanged))
                 {
                     loadedSchematic.clearModifiedSinceSaved();
                     MessageDispatcher.success(2000).translate("litematica.message.info.schematic_manager.preview_removed");
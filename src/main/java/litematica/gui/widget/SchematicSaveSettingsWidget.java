@@ -34,6 +34,7 @@ public class SchematicSaveSettingsWidget extends ContainerWidget
     protected final SchematicSaveSettings settings;
 
     protected final OptionListConfigButton saveSideButton;
+    protected final OptionListConfigButton compressionButton;
     protected final BooleanEditWidget saveBlocksWidget;
     protected final BooleanEditWidget saveBlockEntitiesWidget;
     protected final BooleanEditWidget saveBlockTicksWidget;
@@ -58,6 +59,7 @@ public class SchematicSaveSettingsWidget extends ContainerWidget
         this.settings = settings;
 
         this.saveSideButton = new OptionListConfigButton(-1, 16, this.settings.saveSide, "litematica.button.schematic_save.save_side");
+        this.compressionButton = new OptionListConfigButton(-1, 16, this.settings.compression, "litematica.button.schematic_save.compression");
         this.saveBlocksWidget         = new BooleanEditWidget(14, this.settings.saveBlocks,              "litematica.button.schematic_save.save_blocks");
         this.saveBlockEntitiesWidget  = new BooleanEditWidget(14, this.settings.saveBlockEntities,       "litematica.button.schematic_save.save_block_entities");
         this.saveBlockTicksWidget     = new BooleanEditWidget(14, this.settings.saveScheduledBlockTicks, "litematica.button.schematic_save.save_block_ticks");
@@ -101,6 +103,8 @@ public class SchematicSaveSettingsWidget extends ContainerWidget
 
         this.saveSideButton.setHoverInfoRequiresShift(true);
         this.saveSideButton.translateAndAddHoverString(hoverKey);
+        this.compressionButton.setHoverInfoRequiresShift(true);
+        this.compressionButton.translateAndAddHoverString("litematica.hover.button.schematic_save.compression");
         this.saveBlockTicksWidget.setShowAsOffIfDisabled(true);
 
         this.getBackgroundRenderer().getNormalSettings().setEnabledAndColor(true, 0xC0000000);
@@ -113,6 +117,7 @@ public class SchematicSaveSettingsWidget extends ContainerWidget
         super.reAddSubWidgets();
 
         this.addWidget(this.saveSideButton);
+        this.addWidget(this.compressionButton);
         this.addWidget(this.worldSelectionLabel);
         this.addWidget(this.worldSelectionDropdown);
 
@@ -144,7 +149,8 @@ public class SchematicSaveSettingsWidget extends ContainerWidget
         int gap = 1;
 
         this.saveSideButton.setPosition(x, y);
-        this.worldSelectionLabel.setPosition(x, this.saveSideButton.getBottom() + 3);
+        this.compressionButton.setPosition(x, this.saveSideButton.getBottom() + gap);
+        this.worldSelectionLabel.setPosition(x, this.compressionButton.getBottom() + 3);
         this.worldSelectionDropdown.setPosition(x, this.worldSelectionLabel.getBottom());
 
         this.saveBlocksWidget.setPosition(x, this.worldSelectionDropdown.getBottom() + 3);
@@ -91,9 +91,32 @@ public class BaseSchematicEntryWidget extends BaseDataListEntryWidget<LoadedSche
                                             AbstractSchematicInfoWidget.getFormattedDateTime(meta.getTimeModified())));
         }
 
+        lines.add(StringUtils.translate("litematica.hover.schematic_list.memory_use",
+                                        getFormattedHeapSize(loadedSchematic.getEstimatedHeapSize())));
+        lines.add(StringUtils.translate("litematica.hover.schematic_list.placement_count",
+                                        loadedSchematic.getReferenceCount()));
+
         this.getHoverInfoFactory().addStrings(lines);
     }
 
+    public static String getFormattedHeapSize(long bytes)
+    {
+        if (bytes < 1024L)
+        {
+            return bytes + " B";
+        }
+        else if (bytes < 1024L * 1024L)
+        {
+            return String.format(Locale.ROOT, "%.1f KiB", bytes / 1024.0);
+        }
+        else if (bytes < 1024L * 1024L * 1024L)
+        {
+            return String.format(Locale.ROOT, "%.1f MiB", bytes / (1024.0 * 1024.0));
+        }
+
+        return String.format(Locale.ROOT, "%.2f GiB", bytes / (1024.0 * 1024.0 * 1024.0));
+    }
+
     public static boolean schematicSearchFilter(LoadedSchematic entry, List<String> searchTerms)
     {
         String fileName = null;
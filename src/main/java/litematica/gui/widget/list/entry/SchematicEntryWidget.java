@@ -8,6 +8,8 @@ import malilib.gui.widget.button.GenericButton;
 import malilib.gui.widget.list.entry.DataListEntryWidgetData;
 import malilib.listener.EventListener;
 import malilib.overlay.message.MessageDispatcher;
+import malilib.render.text.StyledTextLine;
+import malilib.util.StringUtils;
 import malilib.util.game.wrap.EntityWrap;
 import malilib.util.position.BlockPos;
 import litematica.config.Configs;
@@ -18,6 +20,7 @@ import litematica.gui.SaveConvertSchematicScreen;
 import litematica.gui.util.LitematicaIcons;
 import litematica.schematic.placement.SchematicPlacement;
 import litematica.schematic.placement.SchematicPlacementManager;
+import litematica.schematic.util.SchematicEditJournal;
 import litematica.schematic.util.SchematicFileUtils;
 
 public class SchematicEntryWidget extends BaseSchematicEntryWidget
@@ -32,6 +35,11 @@ public class SchematicEntryWidget extends BaseSchematicEntryWidget
     {
         super(schematic, constructData);
 
+        String name = schematic.schematic.getMetadata().getSchematicName();
+        String heapSize = getFormattedHeapSize(schematic.getEstimatedHeapSize());
+        this.setText(StyledTextLine.parseFirstLine(StringUtils.translate("litematica.label.schematic_list.entry_with_memory_use",
+                                                                         name, heapSize, schematic.getReferenceCount())));
+
         if (this.useIconButtons())
         {
             this.createPlacementButton = createIconButton20x20(LitematicaIcons.PLACEMENT,    this::createPlacement);
@@ -131,6 +139,7 @@ public class SchematicEntryWidget extends BaseSchematicEntryWidget
 
             if (SchematicFileUtils.readFromFile(loadedSchematic.schematic, file))
             {
+                SchematicEditJournal.INSTANCE.removeOperationsOf(loadedSchematic);
                 SchematicPlacementManager manager = DataManager.getSchematicPlacementManager();
                 manager.getAllPlacementsOfSchematic(loadedSchematic).forEach(manager::markChunksForRebuild);
             }
@@ -1,20 +1,31 @@
 package litematica.gui.widget.list.entry;
 
+import java.util.List;
+import com.google.common.collect.ImmutableList;
+
+import malilib.gui.util.ElementOffset;
+import malilib.gui.util.ScreenContext;
 import malilib.gui.widget.button.GenericButton;
 import malilib.gui.widget.list.entry.BaseDataListEntryWidget;
 import malilib.gui.widget.list.entry.DataListEntryWidgetData;
 import malilib.render.text.StyledTextLine;
+import malilib.util.StringUtils;
 import litematica.scheduler.ITask;
+import litematica.scheduler.TaskMetrics;
 import litematica.scheduler.TaskScheduler;
 
 public class TaskEntryWidget extends BaseDataListEntryWidget<ITask>
 {
+    protected final GenericButton priorityButton;
     protected final GenericButton removeButton;
 
     public TaskEntryWidget(ITask data, DataListEntryWidgetData constructData)
     {
         super(data, constructData);
 
+        this.priorityButton = GenericButton.create(20, this::getPriorityButtonLabel, this::cyclePriority);
+        this.priorityButton.translateAndAddHoverString("litematica.hover.button.task_manager.priority");
+
         this.removeButton = GenericButton.create("litematica.gui.button.remove");
         this.removeButton.setActionListener(() -> {
             if (TaskScheduler.getInstanceClient().removeTask(this.getData()) == false)
@@ -26,6 +37,7 @@ public class TaskEntryWidget extends BaseDataListEntryWidget<ITask>
         });
 
         this.setText(StyledTextLine.parseFirstLine(data.getDisplayName()));
+        this.getHoverInfoFactory().setStringListProvider("metrics", this::getMetricsHoverText);
     }
 
     @Override
@@ -33,6 +45,7 @@ public class TaskEntryWidget extends BaseDataListEntryWidget<ITask>
     {
         super.reAddSubWidgets();
 
+        this.addWidget(this.priorityButton);
         this.addWidget(this.removeButton);
     }
 
@@ -43,5 +56,52 @@ public class TaskEntryWidget extends BaseDataListEntryWidget<ITask>
 
         this.removeButton.setRight(this.getRight() - 2);
         this.removeButton.setY(this.getY() + 1);
+
+        this.priorityButton.setRight(this.removeButton.getX() - 2);
+        this.priorityButton.setY(this.getY() + 1);
+    }
+
+    @Override
+    public void renderAt(int x, int y, float z, ScreenContext ctx)
+    {
+        super.renderAt(x, y, z, ctx);
+
+        // The metrics change while the screen is open, so the text is not cached
+        TaskMetrics metrics = this.getData().getMetrics();
+        String text = StringUtils.translate("litematica.label.task_manager.metrics",
+                                            String.format("%.1f", metrics.getWorkUnitsPerSecond()),
+                                            String.format("%.2f", metrics.getAverageExecutionTimeMs()),
+                                            String.format("%.2f", metrics.getMaxExecutionTimeMs()));
+        int textRight = x + this.priorityButton.getX() - this.getX() - 6;
+        int textY = y + ElementOffset.getCenteredElementOffset(this.getHeight(), 8);
+
+        this.renderTextLineRightAligned(textRight, textY, z + 0.0125f, 0xFFFFFFFF, true,
+                                        StyledTextLine.parseFirstLine(text), ctx);
+    }
+
+    protected String getPriorityButtonLabel()
+    {
+        return this.getData().getPriority().getDisplayName();
+    }
+
+    protected void cyclePriority()
+    {
+        ITask task = this.getData();
+        task.setPriority(task.getPriority().cycle());
+    }
+
+    protected List<String> getMetricsHoverText()
+    {
+        TaskMetrics metrics = this.getData().getMetrics();
+        String text = StringUtils.translate("litematica.hover.task_manager.metrics",
+                                            metrics.getExecutionCount(),
+                                            metrics.getWorkUnits(),
+                                            String.format("%.1f", metrics.getWorkUnitsPerSecond()),
+                                            String.format("%.2f", metrics.getAverageExecutionTimeMs()),
+                                            String.format("%.2f", metrics.getMaxExecutionTimeMs()),
+                                            String.format("%.1f", metrics.getTotalExecutionTimeMs()),
+                                            String.format("%.1f", metrics.getStartLatencyMs()));
+
+        return ImmutableList.of(text);
     }
 }
@@ -2,12 +2,24 @@ package litematica.materials;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import javax.annotation.Nullable;
 import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+
+import net.fabricmc.loader.api.FabricLoader;
+import net.fabricmc.loader.api.ModContainer;
+import net.fabricmc.loader.api.metadata.ModMetadata;
 
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockBed;
@@ -26,7 +38,6 @@ import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.CompressedStreamTools;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
-import net.minecraft.nbt.NBTUtil;
 import net.minecraft.world.EnumDifficulty;
 import net.minecraft.world.GameType;
 import net.minecraft.world.World;
@@ -36,6 +47,7 @@ import net.minecraft.world.WorldType;
 import malilib.config.util.ConfigUtils;
 import malilib.util.FileUtils;
 import malilib.util.data.Constants;
+import malilib.util.game.BlockUtils;
 import malilib.util.game.wrap.ItemWrap;
 import malilib.util.game.wrap.NbtWrap;
 import malilib.util.position.BlockPos;
@@ -43,12 +55,17 @@ import malilib.util.position.Vec3i;
 import malilib.util.world.BlockState;
 import litematica.Litematica;
 import litematica.Reference;
+import litematica.schematic.BaseSchematic;
 import litematica.util.WorldUtils;
 import litematica.world.WorldSchematic;
 
 public class MaterialCache
 {
-    private static final MaterialCache INSTANCE = new MaterialCache();
+    public static final int CACHE_FILE_VERSION = 2;
+
+    private static MaterialCache instance;
+    @Nullable private static volatile LoadedCacheData preloadedData;
+    private static boolean preloadStarted;
 
     protected final IdentityHashMap<BlockState, ItemStack> buildItemsForStates = new IdentityHashMap<>();
     protected final IdentityHashMap<BlockState, ItemStack> displayItemsForStates = new IdentityHashMap<>();
@@ -69,19 +86,47 @@ public class MaterialCache
 
     public static MaterialCache getInstance()
     {
-        /*
-        if (INSTANCE.hasReadFromFile == false)
+        if (instance == null)
+        {
+            instance = new MaterialCache();
+        }
+
+        LoadedCacheData data = preloadedData;
+
+        if (data != null)
+        {
+            preloadedData = null;
+            instance.mergeLoadedData(data);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Starts reading the cache file on a background thread, so that the
+     * parsed entries are ready by the time the first material list gets created.
+     * The results are merged into the cache on the next {@link #getInstance()} call.
+     */
+    public static void preloadFromFileAsync()
+    {
+        if (preloadStarted)
         {
-            INSTANCE.readFromFile();
+            return;
         }
-        */
 
-        return INSTANCE;
+        preloadStarted = true;
+
+        Thread thread = new Thread(() -> readCacheFile(getCacheFile()).ifPresent(data -> preloadedData = data),
+                                   "Litematica Material Cache Loader");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     public void clearCache()
     {
         this.buildItemsForStates.clear();
+        this.displayItemsForStates.clear();
+        this.dirty = true;
     }
 
     public ItemStack getRequiredBuildItemForState(BlockState state)
@@ -289,27 +334,44 @@ public class MaterialCache
         }
     }
 
+    protected void mergeLoadedData(LoadedCacheData data)
+    {
+        // Entries that were already resolved during this session take precedence
+        for (Map.Entry<BlockState, ItemStack> entry : data.buildItems.entrySet())
+        {
+            this.buildItemsForStates.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+
+        for (Map.Entry<BlockState, ItemStack> entry : data.displayItems.entrySet())
+        {
+            this.displayItemsForStates.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+
+        this.hasReadFromFile = true;
+    }
+
     protected NBTTagCompound writeToNBT()
     {
         NBTTagCompound nbt = new NBTTagCompound();
 
-        NbtWrap.putTag(nbt, "MaterialCache", this.writeMapToNBT(this.buildItemsForStates));
-        NbtWrap.putTag(nbt, "DisplayMaterialCache", this.writeMapToNBT(this.displayItemsForStates));
+        NbtWrap.putInt(nbt, "Version", CACHE_FILE_VERSION);
+        NbtWrap.putInt(nbt, "MinecraftDataVersion", BaseSchematic.CURRENT_MINECRAFT_DATA_VERSION);
+        NbtWrap.putString(nbt, "ModSet", getModSetFingerprint());
+        NbtWrap.putTag(nbt, "MaterialCache", writeMapToNBT(this.buildItemsForStates));
+        NbtWrap.putTag(nbt, "DisplayMaterialCache", writeMapToNBT(this.displayItemsForStates));
 
         return nbt;
     }
 
-    protected NBTTagList writeMapToNBT(IdentityHashMap<BlockState, ItemStack> map)
+    protected static NBTTagList writeMapToNBT(Map<BlockState, ItemStack> map)
     {
         NBTTagList list = new NBTTagList();
 
         for (Map.Entry<BlockState, ItemStack> entry : map.entrySet())
         {
             NBTTagCompound tag = new NBTTagCompound();
-            NBTTagCompound stateTag = new NBTTagCompound();
-            NBTUtil.writeBlockState(stateTag, entry.getKey().vanillaState());
 
-            NbtWrap.putTag(tag, "Block", stateTag);
+            NbtWrap.putString(tag, "Block", entry.getKey().vanillaState().toString());
             NbtWrap.putTag(tag, "Item", entry.getValue().writeToNBT(new NBTTagCompound()));
 
             NbtWrap.addTag(list, tag);
@@ -318,17 +380,10 @@ public class MaterialCache
         return list;
     }
 
-    protected void readFromNBT(NBTTagCompound nbt)
+    protected static Map<BlockState, ItemStack> readMapFromNBT(NBTTagCompound nbt, String tagName)
     {
-        this.buildItemsForStates.clear();
-        this.displayItemsForStates.clear();
+        Map<BlockState, ItemStack> map = new HashMap<>();
 
-        this.readMapFromNBT(nbt, "MaterialCache", this.buildItemsForStates);
-        this.readMapFromNBT(nbt, "DisplayMaterialCache", this.displayItemsForStates);
-    }
-
-    protected void readMapFromNBT(NBTTagCompound nbt, String tagName, IdentityHashMap<BlockState, ItemStack> map)
-    {
         if (NbtWrap.containsList(nbt, tagName))
         {
             NBTTagList list = NbtWrap.getList(nbt, tagName, Constants.NBT.TAG_COMPOUND);
@@ -338,29 +393,58 @@ public class MaterialCache
             {
                 NBTTagCompound tag = NbtWrap.getCompoundAt(list, i);
 
-                if (NbtWrap.containsCompound(tag, "Block") &&
+                if (NbtWrap.containsString(tag, "Block") &&
                     NbtWrap.containsCompound(tag, "Item"))
                 {
-                    IBlockState state = NBTUtil.readBlockState(NbtWrap.getCompound(tag, "Block"));
+                    Optional<BlockState> stateOpt = BlockUtils.getBlockStateFromString(NbtWrap.getString(tag, "Block"));
 
-                    if (state != null)
+                    if (stateOpt.isPresent())
                     {
                         ItemStack stack = ItemWrap.fromTag(NbtWrap.getCompound(tag, "Item"));
-                        map.put(BlockState.of(state), stack);
+                        map.put(stateOpt.get(), stack);
                     }
                 }
             }
         }
+
+        return map;
+    }
+
+    /**
+     * @return a fingerprint of the currently loaded mods and their versions.
+     * Any change in the mod set can change the items that the block states resolve to,
+     * so the cache file is discarded if this doesn't match.
+     */
+    protected static String getModSetFingerprint()
+    {
+        List<String> mods = new ArrayList<>();
+
+        for (ModContainer container : FabricLoader.getInstance().getAllMods())
+        {
+            ModMetadata meta = container.getMetadata();
+            mods.add(meta.getId() + "@" + meta.getVersion().getFriendlyString());
+        }
+
+        Collections.sort(mods);
+
+        return Hashing.sha1().hashString(String.join(";", mods), StandardCharsets.UTF_8).toString();
     }
 
-    protected Path getCacheDir()
+    protected static boolean isCacheDataValid(NBTTagCompound nbt)
+    {
+        return NbtWrap.getInt(nbt, "Version") == CACHE_FILE_VERSION &&
+               NbtWrap.getInt(nbt, "MinecraftDataVersion") == BaseSchematic.CURRENT_MINECRAFT_DATA_VERSION &&
+               getModSetFingerprint().equals(NbtWrap.getString(nbt, "ModSet"));
+    }
+
+    protected static Path getCacheDir()
     {
         return ConfigUtils.getConfigDirectory().resolve(Reference.MOD_ID);
     }
 
-    protected Path getCacheFile()
+    protected static Path getCacheFile()
     {
-        return this.getCacheDir().resolve("material_cache.nbt");
+        return getCacheDir().resolve("material_cache.nbt");
     }
 
     public boolean writeToFile()
@@ -370,8 +454,9 @@ public class MaterialCache
             return false;
         }
 
-        Path dir = this.getCacheDir();
-        Path file = this.getCacheFile();
+        Path dir = getCacheDir();
+        Path file = getCacheFile();
+        Path tmpFile = dir.resolve(file.getFileName().toString() + ".tmp");
 
         try
         {
@@ -382,9 +467,12 @@ public class MaterialCache
                 return false;
             }
 
-            OutputStream os = Files.newOutputStream(file);
-            CompressedStreamTools.writeCompressed(this.writeToNBT(), os);
-            os.close();
+            try (OutputStream os = Files.newOutputStream(tmpFile))
+            {
+                CompressedStreamTools.writeCompressed(this.writeToNBT(), os);
+            }
+
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
             this.dirty = false;
 
             return true;
@@ -400,30 +488,77 @@ public class MaterialCache
 
     public void readFromFile()
     {
-        Path file = this.getCacheFile();
+        Optional<LoadedCacheData> data = readCacheFile(getCacheFile());
+
+        if (data.isPresent())
+        {
+            this.buildItemsForStates.clear();
+            this.displayItemsForStates.clear();
+            this.mergeLoadedData(data.get());
+            this.dirty = false;
+        }
+    }
+
+    /**
+     * Saves the cache to file, if the cache has been used and has new entries
+     */
+    public static void saveIfDirty()
+    {
+        if (instance != null)
+        {
+            instance.writeToFile();
+        }
+    }
 
+    protected static Optional<LoadedCacheData> readCacheFile(Path file)
+    {
         if (Files.isRegularFile(file) == false || Files.isReadable(file) == false)
         {
-            return;
+            return Optional.empty();
         }
 
         try
         {
-            InputStream is = Files.newInputStream(file);
-            NBTTagCompound nbt = CompressedStreamTools.readCompressed(is);
-            is.close();
+            NBTTagCompound nbt;
+
+            try (InputStream is = Files.newInputStream(file))
+            {
+                nbt = CompressedStreamTools.readCompressed(is);
+            }
+
+            if (nbt == null)
+            {
+                return Optional.empty();
+            }
 
-            if (nbt != null)
+            if (isCacheDataValid(nbt) == false)
             {
-                this.readFromNBT(nbt);
-                this.hasReadFromFile = true;
-                this.dirty = false;
+                Litematica.LOGGER.info("The material list cache file '{}' is out of date, ignoring it",
+                                       file.toAbsolutePath().toString());
+                return Optional.empty();
             }
+
+            return Optional.of(new LoadedCacheData(readMapFromNBT(nbt, "MaterialCache"),
+                                                   readMapFromNBT(nbt, "DisplayMaterialCache")));
         }
         catch (Exception e)
         {
             Litematica.LOGGER.warn("Failed to read the material list cache from file '{}'",
                                    file.toAbsolutePath().toString(), e);
         }
+
+        return Optional.empty();
+    }
+
+    protected static class LoadedCacheData
+    {
+        protected final Map<BlockState, ItemStack> buildItems;
+        protected final Map<BlockState, ItemStack> displayItems;
+
+        protected LoadedCacheData(Map<BlockState, ItemStack> buildItems, Map<BlockState, ItemStack> displayItems)
+        {
+            this.buildItems = buildItems;
+            this.displayItems = displayItems;
+        }
     }
 }
@@ -1,7 +1,9 @@
 package litematica.render;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
@@ -70,6 +72,7 @@ public class OverlayRenderer
     private final Minecraft mc;
     private final Map<SchematicPlacement, ImmutableMap<String, SelectionBox>> placements = new HashMap<>();
     private final List<String> blockInfoLines = new ArrayList<>();
+    private final Map<SchematicVerifier, VerifierHighlightBuffers> verifierHighlightBuffers = new HashMap<>();
     private Color4f colorPos1 = new Color4f(1f, 0.0625f, 0.0625f);
     private Color4f colorPos2 = new Color4f(0.0625f, 0.0625f, 1f);
     private Color4f colorOverlapping = new Color4f(1f, 0.0625f, 1f);
@@ -314,10 +317,17 @@ public class OverlayRenderer
     public void renderSchematicVerifierMismatches(RenderContext ctx, float partialTicks)
     {
         List<SchematicVerifier> activeVerifiers = SchematicVerifierManager.INSTANCE.getActiveVerifiers();
+        boolean useVbo = RenderWrap.useVbo();
+
+        if (this.verifierHighlightBuffers.isEmpty() == false)
+        {
+            this.clearUnusedVerifierHighlightBuffers(useVbo ? activeVerifiers : Collections.emptyList());
+        }
 
         if (activeVerifiers.isEmpty() == false)
         {
             BlockPos cameraPos = EntityWrap.getCameraEntityBlockPos();
+            Entity entity = GameWrap.getCameraEntity();
 
             for (SchematicVerifier verifier : activeVerifiers)
             {
@@ -325,15 +335,99 @@ public class OverlayRenderer
 
                 if (list.isEmpty() == false)
                 {
-                    List<BlockPairTypePosition> posList = verifier.getClosestSelectedPositions(cameraPos);
-                    Entity entity = GameWrap.getCameraEntity();
-                    BlockPairTypePosition lookPos = RayTraceUtils.traceToVerifierResultPositions(posList, entity, 128);
-                    this.renderSchematicMismatches(list, lookPos, partialTicks, ctx);
+                    BlockPairTypePosition lookPos = RayTraceUtils.traceToVerifierResultPositions(verifier, entity, 128);
+
+                    if (useVbo)
+                    {
+                        this.renderSchematicMismatchesCached(verifier, list, lookPos, partialTicks, ctx);
+                    }
+                    else
+                    {
+                        this.renderSchematicMismatches(list, lookPos, partialTicks, ctx);
+                    }
                 }
             }
         }
     }
 
+    private void clearUnusedVerifierHighlightBuffers(List<SchematicVerifier> activeVerifiers)
+    {
+        Iterator<Map.Entry<SchematicVerifier, VerifierHighlightBuffers>> iter = this.verifierHighlightBuffers.entrySet().iterator();
+
+        while (iter.hasNext())
+        {
+            Map.Entry<SchematicVerifier, VerifierHighlightBuffers> entry = iter.next();
+
+            if (activeVerifiers.contains(entry.getKey()) == false)
+            {
+                entry.getValue().deleteGlBuffers();
+                iter.remove();
+            }
+        }
+    }
+
+    private void renderSchematicMismatchesCached(SchematicVerifier verifier,
+                                                 List<BlockPairTypePosition> posList,
+                                                 @Nullable BlockPairTypePosition lookPos,
+                                                 float partialTicks, RenderContext ctx)
+    {
+        VerifierHighlightBuffers buffers = this.verifierHighlightBuffers.computeIfAbsent(verifier, v -> new VerifierHighlightBuffers());
+        boolean connections = Configs.Visuals.VERIFIER_HIGHLIGHT_CONNECTIONS.getBooleanValue();
+        boolean sides = Configs.Visuals.VERIFIER_HIGHLIGHT_SIDES.getBooleanValue();
+        float alpha = (float) Configs.InfoOverlays.VERIFIER_ERROR_HIGHLIGHT_ALPHA.getDoubleValue();
+        Entity entity = GameWrap.getCameraEntity();
+
+        if (buffers.needsRebuild(verifier, connections, sides, alpha))
+        {
+            buffers.rebuild(verifier, posList, connections, sides, alpha);
+        }
+
+        RenderWrap.disableDepthTest();
+        RenderWrap.depthMask(false);
+        RenderWrap.disableLighting();
+        RenderWrap.disableTexture2D();
+
+        RenderWrap.lineWidth(2f);
+        buffers.renderLines(entity, partialTicks, ctx);
+
+        // Only the looked-at highlight is drawn dynamically
+        if (lookPos != null)
+        {
+            RenderWrap.pushMatrix(ctx);
+
+            VertexBuilder lineBuilder = VanillaWrappingVertexBuilder.coloredLines();
+            Color4f color = lookPos.type.getOverlayColor().withAlpha(1f);
+
+            if (connections)
+            {
+                BlockPairTypePosition lastEntry = posList.get(posList.size() - 1);
+                RenderUtils.drawConnectingLineBatchedLines(lastEntry.posLong, lookPos.posLong, false,
+                                                           color, lineBuilder, entity, partialTicks);
+            }
+
+            RenderWrap.lineWidth(6f);
+            RenderUtils.drawBlockBoundingBoxOutlinesBatchedLines(lookPos.posLong, color, 0.002, lineBuilder, entity, partialTicks);
+            lineBuilder.draw();
+
+            RenderWrap.popMatrix(ctx);
+        }
+
+        if (sides)
+        {
+            RenderWrap.enableBlend();
+            RenderWrap.disableCull();
+
+            buffers.renderSides(entity, partialTicks, ctx);
+
+            RenderWrap.disableBlend();
+        }
+
+        RenderWrap.enableTexture2D();
+        RenderWrap.enableCull();
+        RenderWrap.depthMask(true);
+        RenderWrap.enableDepthTest();
+    }
+
     private void renderSchematicMismatches(List<BlockPairTypePosition> posList,
                                            @Nullable BlockPairTypePosition lookPos,
                                            float partialTicks, RenderContext ctx)
@@ -402,10 +496,16 @@ public class OverlayRenderer
             VertexBuilder quadBuilder = VanillaWrappingVertexBuilder.coloredQuads();
             float alpha = (float) Configs.InfoOverlays.VERIFIER_ERROR_HIGHLIGHT_ALPHA.getDoubleValue();
 
+            Color4f[] colors = new Color4f[VerifierResultType.values().length];
+
+            for (VerifierResultType type : VerifierResultType.values())
+            {
+                colors[type.ordinal()] = type.getOverlayColor().withAlpha(alpha);
+            }
+
             for (BlockPairTypePosition entry : posList)
             {
-                Color4f color = entry.type.getOverlayColor();
-                color = new Color4f(color.r, color.g, color.b, alpha);
+                Color4f color = colors[entry.type.ordinal()];
                 RenderUtils.renderAreaSidesBatched(entry.posLong, entry.posLong, color, 0.002, entity, partialTicks, quadBuilder);
             }
 
@@ -498,8 +598,9 @@ public class OverlayRenderer
             for (SchematicVerifier verifier : activeVerifiers)
             {
                 Entity entity = GameWrap.getCameraEntity();
-                List<BlockPairTypePosition> posList = verifier.getClosestSelectedPositions(cameraPos);
-                BlockPairTypePosition lookPos = RayTraceUtils.traceToVerifierResultPositions(posList, entity, 32);
+                // Updates the closest positions list that the trace looks up the positions from, if needed
+                verifier.getClosestSelectedPositions(cameraPos);
+                BlockPairTypePosition lookPos = RayTraceUtils.traceToVerifierResultPositions(verifier, entity, 32);
 
                 if (lookPos != null)
                 {
@@ -515,26 +515,33 @@ public class RenderUtils
 
     /**
      * Assumes a BufferBuilder in the GL_LINES mode has been initialized
+     * @return the number of vertices that were added
      */
-    public static void drawBlockModelOutlinesBatched(IBakedModel model, IBlockState state,
-                                                     BlockPos pos, Color4f color, VertexBuilder builder)
+    public static int drawBlockModelOutlinesBatched(IBakedModel model, IBlockState state,
+                                                    BlockPos pos, Color4f color, VertexBuilder builder)
     {
         long rand = MathUtils.getPositionRandom(pos);
+        int vertices = 0;
 
         for (final EnumFacing side : PositionUtils.ALL_DIRECTIONS)
         {
-            renderModelQuadOutlines(pos, color, model.getQuads(state, side, rand), builder);
+            vertices += renderModelQuadOutlines(pos, color, model.getQuads(state, side, rand), builder);
         }
 
-        renderModelQuadOutlines(pos, color, model.getQuads(state, null, rand), builder);
+        vertices += renderModelQuadOutlines(pos, color, model.getQuads(state, null, rand), builder);
+
+        return vertices;
     }
 
-    private static void renderModelQuadOutlines(BlockPos pos, Color4f color, List<BakedQuad> quads, VertexBuilder builder)
+    private static int renderModelQuadOutlines(BlockPos pos, Color4f color, List<BakedQuad> quads, VertexBuilder builder)
     {
         for (BakedQuad quad : quads)
         {
             renderQuadOutlinesBatched(pos, color, quad.getVertexData(), builder);
         }
+
+        // 4 lines per quad
+        return quads.size() * 8;
     }
 
     private static void renderQuadOutlinesBatched(BlockPos pos, Color4f color, int[] vertexData, VertexBuilder builder)
@@ -566,33 +573,44 @@ public class RenderUtils
         builder.posColor(fx[0], fy[0], fz[0], color);
     }
 
-    public static void drawBlockModelQuadOverlayBatched(IBakedModel model, IBlockState state, BlockPos pos,
-                                                        Color4f color, double expand, VertexBuilder builder)
+    /**
+     * @return the number of vertices that were added
+     */
+    public static int drawBlockModelQuadOverlayBatched(IBakedModel model, IBlockState state, BlockPos pos,
+                                                       Color4f color, double expand, VertexBuilder builder)
     {
         long rand = MathUtils.getPositionRandom(pos);
+        int vertices = 0;
 
         for (final EnumFacing side : PositionUtils.ALL_DIRECTIONS)
         {
-            renderModelQuadOverlayBatched(pos, color, model.getQuads(state, side, rand), builder);
+            vertices += renderModelQuadOverlayBatched(pos, color, model.getQuads(state, side, rand), builder);
         }
 
-        renderModelQuadOverlayBatched(pos, color, model.getQuads(state, null, rand), builder);
+        vertices += renderModelQuadOverlayBatched(pos, color, model.getQuads(state, null, rand), builder);
+
+        return vertices;
     }
 
-    public static void drawBlockModelQuadOverlayBatched(IBakedModel model, IBlockState state,
-                                                        BlockPos pos, Direction side,
-                                                        Color4f color, double expand, long rand, VertexBuilder builder)
+    /**
+     * @return the number of vertices that were added
+     */
+    public static int drawBlockModelQuadOverlayBatched(IBakedModel model, IBlockState state,
+                                                       BlockPos pos, Direction side,
+                                                       Color4f color, double expand, long rand, VertexBuilder builder)
     {
-        renderModelQuadOverlayBatched(pos, color, model.getQuads(state, side.getVanillaDirection(), rand), builder);
+        return renderModelQuadOverlayBatched(pos, color, model.getQuads(state, side.getVanillaDirection(), rand), builder);
     }
 
-    private static void renderModelQuadOverlayBatched(BlockPos pos, Color4f color,
-                                                      List<BakedQuad> quads, VertexBuilder builder)
+    private static int renderModelQuadOverlayBatched(BlockPos pos, Color4f color,
+                                                     List<BakedQuad> quads, VertexBuilder builder)
     {
         for (BakedQuad quad : quads)
         {
             renderModelQuadOverlayBatched(pos, color, quad.getVertexData(), builder);
         }
+
+        return quads.size() * 4;
     }
 
     private static void renderModelQuadOverlayBatched(BlockPos pos, Color4f color,
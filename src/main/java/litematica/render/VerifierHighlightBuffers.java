@@ -0,0 +1,203 @@
+package litematica.render;
+
+import java.util.List;
+import org.lwjgl.opengl.GL11;
+
+import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
+import net.minecraft.client.renderer.vertex.VertexBuffer;
+import net.minecraft.entity.Entity;
+
+import malilib.render.RenderContext;
+import malilib.render.ShapeRenderUtils;
+import malilib.render.buffer.VanillaWrappingVertexBuilder;
+import malilib.render.buffer.VertexBuilder;
+import malilib.util.data.Color4f;
+import malilib.util.game.wrap.EntityWrap;
+import malilib.util.game.wrap.RenderWrap;
+import malilib.util.position.PositionUtils;
+import litematica.schematic.verifier.BlockPairTypePosition;
+import litematica.schematic.verifier.SchematicVerifier;
+import litematica.schematic.verifier.VerifierResultType;
+
+/**
+ * Retained vertex buffers for the schematic verifier mismatch highlights.
+ * The buffers are only rebuilt when the verifier's selected closest positions change,
+ * or when the highlight colors or the related render options change.
+ * The vertices are stored relative to an origin position, so that the buffers
+ * don't need to be rebuilt when the camera moves.
+ */
+public class VerifierHighlightBuffers
+{
+    protected static final double EXPAND = 0.002;
+
+    protected final VertexBuilder lineBuilder = VanillaWrappingVertexBuilder.create(262144, GL11.GL_LINES, DefaultVertexFormats.POSITION_COLOR);
+    protected final VertexBuilder quadBuilder = VanillaWrappingVertexBuilder.create(262144, GL11.GL_QUADS, DefaultVertexFormats.POSITION_COLOR);
+    protected final VertexBuffer lineBuffer = new VertexBuffer(DefaultVertexFormats.POSITION_COLOR);
+    protected final VertexBuffer quadBuffer = new VertexBuffer(DefaultVertexFormats.POSITION_COLOR);
+    protected final int[] builtColors = new int[VerifierResultType.values().length];
+    protected int builtVersion = -1;
+    protected boolean builtConnections;
+    protected boolean builtSides;
+    protected float builtAlpha;
+    protected int originX;
+    protected int originY;
+    protected int originZ;
+
+    public boolean needsRebuild(SchematicVerifier verifier, boolean connections, boolean sides, float alpha)
+    {
+        if (this.builtVersion != verifier.getClosestSelectedPositionsVersion() ||
+            this.builtConnections != connections ||
+            this.builtSides != sides ||
+            this.builtAlpha != alpha)
+        {
+            return true;
+        }
+
+        for (VerifierResultType type : VerifierResultType.values())
+        {
+            if (this.builtColors[type.ordinal()] != type.getOverlayColor().intValue)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public void rebuild(SchematicVerifier verifier, List<BlockPairTypePosition> posList,
+                        boolean connections, boolean sides, float alpha)
+    {
+        VerifierResultType[] types = VerifierResultType.values();
+        Color4f[] lineColors = new Color4f[types.length];
+        Color4f[] sideColors = new Color4f[types.length];
+
+        for (VerifierResultType type : types)
+        {
+            Color4f color = type.getOverlayColor();
+            lineColors[type.ordinal()] = color.withAlpha(1f);
+            sideColors[type.ordinal()] = color.withAlpha(alpha);
+            this.builtColors[type.ordinal()] = color.intValue;
+        }
+
+        long origin = posList.isEmpty() == false ? posList.get(0).posLong : 0L;
+        this.originX = PositionUtils.unpackX(origin);
+        this.originY = PositionUtils.unpackY(origin);
+        this.originZ = PositionUtils.unpackZ(origin);
+
+        VertexBuilder lineBuilder = this.lineBuilder;
+        BlockPairTypePosition prevEntry = null;
+        lineBuilder.start();
+
+        for (BlockPairTypePosition entry : posList)
+        {
+            Color4f color = lineColors[entry.type.ordinal()];
+            this.addBoxEdges(entry.posLong, color, lineBuilder);
+
+            if (connections && prevEntry != null)
+            {
+                this.addConnectingLine(prevEntry.posLong, entry.posLong, color, lineBuilder);
+            }
+
+            prevEntry = entry;
+        }
+
+        uploadVertexBuffer(lineBuilder, this.lineBuffer);
+
+        if (sides)
+        {
+            VertexBuilder quadBuilder = this.quadBuilder;
+            quadBuilder.start();
+
+            for (BlockPairTypePosition entry : posList)
+            {
+                this.addBoxSides(entry.posLong, sideColors[entry.type.ordinal()], quadBuilder);
+            }
+
+            uploadVertexBuffer(quadBuilder, this.quadBuffer);
+        }
+
+        this.builtVersion = verifier.getClosestSelectedPositionsVersion();
+        this.builtConnections = connections;
+        this.builtSides = sides;
+        this.builtAlpha = alpha;
+    }
+
+    public void renderLines(Entity cameraEntity, float partialTicks, RenderContext ctx)
+    {
+        this.renderBuffer(this.lineBuffer, GL11.GL_LINES, cameraEntity, partialTicks, ctx);
+    }
+
+    public void renderSides(Entity cameraEntity, float partialTicks, RenderContext ctx)
+    {
+        if (this.builtSides)
+        {
+            this.renderBuffer(this.quadBuffer, GL11.GL_QUADS, cameraEntity, partialTicks, ctx);
+        }
+    }
+
+    public void deleteGlBuffers()
+    {
+        this.lineBuffer.deleteGlBuffers();
+        this.quadBuffer.deleteGlBuffers();
+    }
+
+    protected void renderBuffer(VertexBuffer buffer, int glMode, Entity cameraEntity, float partialTicks, RenderContext ctx)
+    {
+        double dx = this.originX - EntityWrap.lerpX(cameraEntity, partialTicks);
+        double dy = this.originY - EntityWrap.lerpY(cameraEntity, partialTicks);
+        double dz = this.originZ - EntityWrap.lerpZ(cameraEntity, partialTicks);
+
+        RenderWrap.pushMatrix(ctx);
+        RenderWrap.translate(dx, dy, dz, ctx);
+        RenderWrap.enableClientState(GL11.GL_VERTEX_ARRAY);
+        RenderWrap.enableClientState(GL11.GL_COLOR_ARRAY);
+
+        buffer.bindBuffer();
+        RenderWrap.vertexPointer(3, GL11.GL_FLOAT, 16, 0);
+        RenderWrap.colorPointer(4, GL11.GL_UNSIGNED_BYTE, 16, 12);
+        buffer.drawArrays(glMode);
+
+        RenderWrap.bindBuffer(RenderWrap.GL_ARRAY_BUFFER, 0);
+        RenderWrap.disableClientState(GL11.GL_VERTEX_ARRAY);
+        RenderWrap.disableClientState(GL11.GL_COLOR_ARRAY);
+        RenderWrap.resetColor();
+        RenderWrap.popMatrix(ctx);
+    }
+
+    protected void addBoxEdges(long posLong, Color4f color, VertexBuilder builder)
+    {
+        double minX = PositionUtils.unpackX(posLong) - this.originX - EXPAND;
+        double minY = PositionUtils.unpackY(posLong) - this.originY - EXPAND;
+        double minZ = PositionUtils.unpackZ(posLong) - this.originZ - EXPAND;
+
+        ShapeRenderUtils.renderBoxEdgeLines(minX, minY, minZ, minX + 1 + EXPAND * 2,
+                                            minY + 1 + EXPAND * 2, minZ + 1 + EXPAND * 2, color, builder);
+    }
+
+    protected void addBoxSides(long posLong, Color4f color, VertexBuilder builder)
+    {
+        double minX = PositionUtils.unpackX(posLong) - this.originX - EXPAND;
+        double minY = PositionUtils.unpackY(posLong) - this.originY - EXPAND;
+        double minZ = PositionUtils.unpackZ(posLong) - this.originZ - EXPAND;
+
+        ShapeRenderUtils.renderBoxSideQuads(minX, minY, minZ, minX + 1 + EXPAND * 2,
+                                            minY + 1 + EXPAND * 2, minZ + 1 + EXPAND * 2, color, builder);
+    }
+
+    protected void addConnectingLine(long pos1, long pos2, Color4f color, VertexBuilder builder)
+    {
+        builder.posColor(PositionUtils.unpackX(pos1) - this.originX,
+                         PositionUtils.unpackY(pos1) - this.originY,
+                         PositionUtils.unpackZ(pos1) - this.originZ, color);
+        builder.posColor(PositionUtils.unpackX(pos2) - this.originX,
+                         PositionUtils.unpackY(pos2) - this.originY,
+                         PositionUtils.unpackZ(pos2) - this.originZ, color);
+    }
+
+    protected static void uploadVertexBuffer(VertexBuilder builder, VertexBuffer vertexBuffer)
+    {
+        builder.finishDrawing();
+        builder.reset();
+        vertexBuffer.bufferData(builder.getByteBuffer());
+    }
+}
@@ -24,6 +24,7 @@ import malilib.util.MathUtils;
 import malilib.util.position.BlockPos;
 import malilib.util.position.BlockPos.MutBlockPos;
 import malilib.util.position.Direction;
+import malilib.util.position.LayerRange;
 import litematica.config.Configs;
 import litematica.data.DataManager;
 
@@ -40,6 +41,20 @@ public class BlockModelRendererSchematic extends BlockModelRenderer
 
     public boolean renderModel(IBakedModel modelIn, IBlockState stateIn, BlockPos posIn,
                                IBlockAccess worldIn, VertexBuilder builder)
+    {
+        return this.renderModel(modelIn, stateIn, posIn, worldIn, DataManager.getRenderLayerRange(), null, builder) > 0;
+    }
+
+    /**
+     * Renders the model, and returns the number of quads that were written to the builder.
+     * @param edgeRange if not null, then the sides that are at the edge of this layer range
+     *                  are always rendered, even if the adjacent block would hide them
+     * @param edgeSide if not null, then only the quads on this side of the model are rendered,
+     *                 and only if the adjacent block hides them. These are the quads that
+     *                 need to be rendered when the side is at the edge of the rendered layer range.
+     */
+    public int renderModel(IBakedModel modelIn, IBlockState stateIn, BlockPos posIn, IBlockAccess worldIn,
+                           @Nullable LayerRange edgeRange, @Nullable Direction edgeSide, VertexBuilder builder)
     {
         boolean ao = Minecraft.isAmbientOcclusionEnabled() && stateIn.getLightValue() == 0 && modelIn.isAmbientOcclusion();
         long rand = MathUtils.getPositionRandom(posIn);
@@ -48,11 +63,11 @@ public class BlockModelRendererSchematic extends BlockModelRenderer
         {
             if (ao)
             {
-                return this.renderModelSmooth(modelIn, stateIn, posIn, worldIn, builder, rand);
+                return this.renderModelSmooth(modelIn, stateIn, posIn, worldIn, edgeRange, edgeSide, builder, rand);
             }
             else
             {
-                return this.renderModelFlat(modelIn, stateIn, posIn, worldIn, builder, rand);
+                return this.renderModelFlat(modelIn, stateIn, posIn, worldIn, edgeRange, edgeSide, builder, rand);
             }
         }
         catch (Throwable throwable)
@@ -65,77 +80,105 @@ public class BlockModelRendererSchematic extends BlockModelRenderer
         }
     }
 
-    public boolean renderModelSmooth(IBakedModel modelIn, IBlockState stateIn, BlockPos posIn,
-                                     IBlockAccess worldIn, VertexBuilder builder, long rand)
+    public int renderModelSmooth(IBakedModel modelIn, IBlockState stateIn, BlockPos posIn, IBlockAccess worldIn,
+                                 @Nullable LayerRange edgeRange, @Nullable Direction edgeSide,
+                                 VertexBuilder builder, long rand)
     {
-        boolean renderedSomething = false;
+        int renderedQuads = 0;
         float[] quadBounds = new float[EnumFacing.values().length * 2];
         BitSet bitset = new BitSet(3);
         AmbientOcclusionFace aoFace = new AmbientOcclusionFace();
 
         for (Direction side : Direction.ALL_DIRECTIONS)
         {
+            if (edgeSide != null && side != edgeSide)
+            {
+                continue;
+            }
+
             List<BakedQuad> quads = modelIn.getQuads(stateIn, side.getVanillaDirection(), rand);
 
             if (quads.isEmpty() == false)
             {
-                if (this.shouldRenderModelSide(worldIn, stateIn, posIn, side))
+                if (this.shouldRenderModelSide(worldIn, stateIn, posIn, side, edgeRange, edgeSide))
                 {
                     this.renderQuadsSmooth(stateIn, posIn, worldIn, quads, quadBounds, bitset, aoFace, builder);
-                    renderedSomething = true;
+                    renderedQuads += quads.size();
                 }
             }
         }
 
+        // The general quads don't belong to any side, so they are never culled
+        if (edgeSide != null)
+        {
+            return renderedQuads;
+        }
+
         List<BakedQuad> quads = modelIn.getQuads(stateIn, null, rand);
 
         if (quads.isEmpty() == false)
         {
             this.renderQuadsSmooth(stateIn, posIn, worldIn, quads, quadBounds, bitset, aoFace, builder);
-            renderedSomething = true;
+            renderedQuads += quads.size();
         }
 
-        return renderedSomething;
+        return renderedQuads;
     }
 
-    public boolean renderModelFlat(IBakedModel modelIn, IBlockState stateIn, BlockPos posIn,
-                                   IBlockAccess worldIn, VertexBuilder builder, long rand)
+    public int renderModelFlat(IBakedModel modelIn, IBlockState stateIn, BlockPos posIn, IBlockAccess worldIn,
+                               @Nullable LayerRange edgeRange, @Nullable Direction edgeSide,
+                               VertexBuilder builder, long rand)
     {
-        boolean renderedSomething = false;
+        int renderedQuads = 0;
         BitSet bitset = new BitSet(3);
         BlockPos.MutBlockPos sidePos = new MutBlockPos(posIn);
 
         for (Direction side : Direction.ALL_DIRECTIONS)
         {
+            if (edgeSide != null && side != edgeSide)
+            {
+                continue;
+            }
+
             List<BakedQuad> quads = modelIn.getQuads(stateIn, side.getVanillaDirection(), rand);
 
             if (quads.isEmpty() == false)
             {
-                if (this.shouldRenderModelSide(worldIn, stateIn, posIn, side))
+                if (this.shouldRenderModelSide(worldIn, stateIn, posIn, side, edgeRange, edgeSide))
                 {
                     int lightMapCoords = stateIn.getPackedLightmapCoords(worldIn, sidePos.setOffset(posIn, side));
                     this.renderQuadsFlat(stateIn, posIn, worldIn, lightMapCoords, false, quads, bitset, builder);
-                    renderedSomething = true;
+                    renderedQuads += quads.size();
                 }
             }
         }
 
+        // The general quads don't belong to any side, so they are never culled
+        if (edgeSide != null)
+        {
+            return renderedQuads;
+        }
+
         List<BakedQuad> quads = modelIn.getQuads(stateIn, null, rand);
 
         if (quads.isEmpty() == false)
         {
             this.renderQuadsFlat(stateIn, posIn, worldIn, -1, true, quads, bitset, builder);
-            renderedSomething = true;
+            renderedQuads += quads.size();
         }
 
-        return renderedSomething;
+        return renderedQuads;
     }
 
-    private boolean shouldRenderModelSide(IBlockAccess worldIn, IBlockState stateIn, BlockPos posIn, Direction side)
+    private boolean shouldRenderModelSide(IBlockAccess worldIn, IBlockState stateIn, BlockPos posIn, Direction side,
+                                          @Nullable LayerRange edgeRange, @Nullable Direction edgeSide)
     {
-        return DataManager.getRenderLayerRange().isPositionAtRenderEdgeOnSide(posIn, side) ||
-               (Configs.Visuals.TRANSLUCENT_SCHEMATIC_RENDERING.getBooleanValue() && Configs.Visuals.TRANSLUCENT_INNER_SIDES.getBooleanValue()) ||
-               stateIn.shouldSideBeRendered(worldIn, posIn, side.getVanillaDirection());
+        boolean visible = (edgeRange != null && edgeRange.isPositionAtRenderEdgeOnSide(posIn, side)) ||
+                          (Configs.Visuals.TRANSLUCENT_SCHEMATIC_RENDERING.getBooleanValue() && Configs.Visuals.TRANSLUCENT_INNER_SIDES.getBooleanValue()) ||
+                          stateIn.shouldSideBeRendered(worldIn, posIn, side.getVanillaDirection());
+
+        // For the edge sides only the otherwise hidden sides are rendered
+        return edgeSide != null ? visible == false : visible;
     }
 
     private void renderQuadsSmooth(IBlockState stateIn, BlockPos posIn, IBlockAccess blockAccessIn,
@@ -10,12 +10,18 @@ import litematica.render.schematic.RenderChunkSchematicVbo.OverlayRenderType;
 public abstract class ChunkRenderContainerSchematic extends ChunkRenderContainer
 {
     protected List<RenderChunkSchematicVbo> overlayRenderChunks = new ArrayList<>(128);
+    protected double viewX;
+    protected double viewY;
+    protected double viewZ;
 
     @Override
     public void initialize(double viewEntityXIn, double viewEntityYIn, double viewEntityZIn)
     {
         super.initialize(viewEntityXIn, viewEntityYIn, viewEntityZIn);
 
+        this.viewX = viewEntityXIn;
+        this.viewY = viewEntityYIn;
+        this.viewZ = viewEntityZIn;
         this.overlayRenderChunks.clear();
     }
 
@@ -1,9 +1,12 @@
 package litematica.render.schematic;
 
+import javax.annotation.Nullable;
+
 import net.minecraft.client.renderer.BufferBuilder;
 import net.minecraft.client.renderer.chunk.CompiledChunk;
 import net.minecraft.util.BlockRenderLayer;
 
+import malilib.util.position.Direction;
 import litematica.render.schematic.RenderChunkSchematicVbo.OverlayRenderType;
 
 public class CompiledChunkSchematic extends CompiledChunk
@@ -12,6 +15,9 @@ public class CompiledChunkSchematic extends CompiledChunk
     private final boolean[] overlayLayersStarted = new boolean[OverlayRenderType.COUNT];
     private final BufferBuilder.State[] blockBufferStates = new BufferBuilder.State[BlockRenderLayer.values().length];
     private final BufferBuilder.State[] overlayBufferStates = new BufferBuilder.State[OverlayRenderType.COUNT];
+    private final LayerSliceIndex[] blockSliceIndices = new LayerSliceIndex[BlockRenderLayer.values().length];
+    private final LayerSliceIndex[] overlaySliceIndices = new LayerSliceIndex[OverlayRenderType.COUNT];
+    @Nullable private Direction.Axis sliceAxis;
     private boolean overlayEmpty = true;
 
     public boolean isOverlayEmpty()
@@ -60,6 +66,43 @@ public class CompiledChunkSchematic extends CompiledChunk
         this.overlayBufferStates[type.ordinal()] = state;
     }
 
+    /**
+     * @return the axis along which the geometry was compiled in layer slices,
+     *         or null if the geometry was compiled only for the layer range that was active at the time
+     */
+    @Nullable
+    public Direction.Axis getSliceAxis()
+    {
+        return this.sliceAxis;
+    }
+
+    protected void setSliceAxis(Direction.Axis axis)
+    {
+        this.sliceAxis = axis;
+
+        for (int i = 0; i < this.blockSliceIndices.length; ++i)
+        {
+            this.blockSliceIndices[i] = new LayerSliceIndex();
+        }
+
+        for (int i = 0; i < this.overlaySliceIndices.length; ++i)
+        {
+            this.overlaySliceIndices[i] = new LayerSliceIndex();
+        }
+    }
+
+    @Nullable
+    public LayerSliceIndex getBlockSliceIndex(BlockRenderLayer layer)
+    {
+        return this.blockSliceIndices[layer.ordinal()];
+    }
+
+    @Nullable
+    public LayerSliceIndex getOverlaySliceIndex(OverlayRenderType type)
+    {
+        return this.overlaySliceIndices[type.ordinal()];
+    }
+
     public static final CompiledChunkSchematic EMPTY = new CompiledChunkSchematic() {
         @Override
         public void setLayerUsed(BlockRenderLayer layer)
@@ -84,5 +127,11 @@ public class CompiledChunkSchematic extends CompiledChunk
         {
             throw new UnsupportedOperationException();
         }
+
+        @Override
+        protected void setSliceAxis(Direction.Axis axis)
+        {
+            throw new UnsupportedOperationException();
+        }
     };
 }
@@ -0,0 +1,148 @@
+package litematica.render.schematic;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The vertex ranges of the layer slices in one vertex buffer of a render chunk.
+ * The geometry is written one slice at a time along the layer range axis,
+ * so that any continuous range of layers within the render chunk can be drawn
+ * as one sub-range of the buffer, without recompiling the chunk when the rendered layer range changes.
+ * The block sides that are only visible at the edges of the layer range
+ * (because they are otherwise culled by the adjacent block) are written after
+ * the main geometry, per slice and separately for both edges.
+ */
+public class LayerSliceIndex
+{
+    public static final int SLICE_COUNT = 16;
+
+    private final int[] offsets = new int[Part.COUNT * SLICE_COUNT + 1];
+    private boolean finished;
+
+    /**
+     * Adds the given number of vertices to the given slice.
+     * The vertices must be written to the buffer in the order of the parts and the slices.
+     */
+    public void addVertices(Part part, int slice, int vertexCount)
+    {
+        this.offsets[part.ordinal() * SLICE_COUNT + slice + 1] += vertexCount;
+    }
+
+    /**
+     * Converts the per-slice vertex counts to the start offsets of the slices
+     */
+    public void finish()
+    {
+        if (this.finished == false)
+        {
+            for (int i = 1; i < this.offsets.length; ++i)
+            {
+                this.offsets[i] += this.offsets[i - 1];
+            }
+
+            this.finished = true;
+        }
+    }
+
+    public int getStartVertex(Part part, int slice)
+    {
+        return this.offsets[part.ordinal() * SLICE_COUNT + slice];
+    }
+
+    /**
+     * @return the number of vertices in the given part in the slices from firstSlice to lastSlice (inclusive)
+     */
+    public int getVertexCount(Part part, int firstSlice, int lastSlice)
+    {
+        int base = part.ordinal() * SLICE_COUNT;
+        return this.offsets[base + lastSlice + 1] - this.offsets[base + firstSlice];
+    }
+
+    public int getTotalVertexCount()
+    {
+        return this.offsets[this.offsets.length - 1];
+    }
+
+    /**
+     * Sorts the quads within each slice from back to front, relative to the given
+     * position, which is relative to the render chunk's origin.
+     * The slices themselves keep their order in the buffer, so that the layer ranges can still be drawn.
+     * @param vertexSize the size of one vertex in bytes. The position must be the first element of the vertex format.
+     */
+    public void sortQuads(ByteBuffer buffer, int vertexSize, float x, float y, float z)
+    {
+        for (int i = 0; i < this.offsets.length - 1; ++i)
+        {
+            int quadCount = (this.offsets[i + 1] - this.offsets[i]) / 4;
+
+            if (quadCount > 1)
+            {
+                sortQuads(buffer, this.offsets[i] * vertexSize, quadCount, vertexSize, x, y, z);
+            }
+        }
+    }
+
+    private static void sortQuads(ByteBuffer buffer, int startByte, int quadCount, int vertexSize,
+                                  float x, float y, float z)
+    {
+        final int quadSize = vertexSize * 4;
+        long[] keys = new long[quadCount];
+
+        for (int quad = 0; quad < quadCount; ++quad)
+        {
+            int pos = startByte + quad * quadSize;
+            float cx = 0f;
+            float cy = 0f;
+            float cz = 0f;
+
+            for (int v = 0; v < 4; ++v)
+            {
+                cx += buffer.getFloat(pos    );
+                cy += buffer.getFloat(pos + 4);
+                cz += buffer.getFloat(pos + 8);
+                pos += vertexSize;
+            }
+
+            float dx = cx * 0.25f - x;
+            float dy = cy * 0.25f - y;
+            float dz = cz * 0.25f - z;
+            float distSq = dx * dx + dy * dy + dz * dz;
+
+            // The bit pattern of a non-negative float sorts the same as the float value
+            keys[quad] = ((long) Float.floatToIntBits(distSq) << 32) | quad;
+        }
+
+        Arrays.sort(keys);
+
+        int[] data = new int[quadCount * quadSize / 4];
+
+        for (int i = 0; i < data.length; ++i)
+        {
+            data[i] = buffer.getInt(startByte + i * 4);
+        }
+
+        final int intsPerQuad = quadSize / 4;
+        int pos = startByte;
+
+        // Far to near
+        for (int i = quadCount - 1; i >= 0; --i)
+        {
+            int srcIndex = (int) keys[i] * intsPerQuad;
+
+            for (int j = 0; j < intsPerQuad; ++j)
+            {
+                buffer.putInt(pos, data[srcIndex + j]);
+                pos += 4;
+            }
+        }
+    }
+
+    public enum Part
+    {
+        BLOCKS,
+        MIN_EDGE_SIDES,
+        MAX_EDGE_SIDES;
+
+        public static final int COUNT = 3;
+    }
+}
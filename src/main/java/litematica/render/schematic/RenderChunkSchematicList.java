@@ -22,6 +22,13 @@ public class RenderChunkSchematicList extends RenderChunkSchematicVbo
         this.baseOverlay = this.baseDisplayList + BLOCK_LAYERS;
     }
 
+    @Override
+    protected boolean useLayerSlices()
+    {
+        // Display lists can only be drawn in full
+        return false;
+    }
+
     public int getDisplayList(BlockRenderLayer layer, CompiledChunk compiledChunk)
     {
         return compiledChunk.isLayerEmpty(layer) == false ? this.baseDisplayList + layer.ordinal() : -1;
@@ -1,6 +1,7 @@
 package litematica.render.schematic;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
@@ -50,6 +51,8 @@ import litematica.util.value.OverlayType;
 
 public class RenderChunkSchematicVbo extends RenderChunk
 {
+    private static final BlockRenderLayer[] BLOCK_RENDER_LAYERS = BlockRenderLayer.values();
+
     public static int schematicRenderChunksUpdated;
 
     private final RenderGlobalSchematic renderGlobal;
@@ -60,6 +63,9 @@ public class RenderChunkSchematicVbo extends RenderChunk
     protected final ReentrantLock chunkRenderDataLock;
     protected final BlockPos.MutBlockPos chunkRelPos = new BlockPos.MutBlockPos();
     protected final BlockPos.MutBlockPos overlayTempPos = new BlockPos.MutBlockPos();
+    protected int[] edgeSideBlocks = new int[256];
+    protected IBlockState[] edgeSideStates = new IBlockState[256];
+    protected int edgeSideBlockCount;
     private ChunkCompileTaskGeneratorSchematic compileTask;
 
     private ChunkCacheSchematic schematicWorldView;
@@ -123,6 +129,16 @@ public class RenderChunkSchematicVbo extends RenderChunk
         }
     }
 
+    /**
+     * @return true if the geometry should be compiled in layer slices, so that
+     *         changing the layer range only needs to change the drawn vertex ranges.
+     *         This requires the buffers to support drawing sub-ranges.
+     */
+    protected boolean useLayerSlices()
+    {
+        return true;
+    }
+
     public boolean hasOverlay()
     {
         return this.hasOverlay;
@@ -225,40 +241,26 @@ public class RenderChunkSchematicVbo extends RenderChunk
 
         this.existingOverlays.clear();
         this.hasOverlay = false;
+        boolean useLayerSlices = this.useLayerSlices();
 
         synchronized (this.boxes)
         {
             if (this.boxes.isEmpty() == false &&
                 (this.schematicWorldView.isEmpty() == false || this.clientWorldView.isEmpty() == false) &&
-                 range.intersects(ChunkSectionPos.ofBlockPos(this.getPosition())))
+                (useLayerSlices || range.intersects(ChunkSectionPos.ofBlockPos(this.getPosition()))))
             {
                 ++schematicRenderChunksUpdated;
 
                 boolean[] usedLayers = new boolean[BlockRenderLayer.values().length];
                 VertexBuilderCache buffers = generator.getBufferCache();
-                BlockPos.MutBlockPos posMutable = new BlockPos.MutBlockPos();
 
-                for (IntBoundingBox box : this.boxes)
+                if (useLayerSlices)
                 {
-                    box = range.getClampedBox(box);
-
-                    // The rendered layer(s) don't intersect this sub-volume
-                    if (box == null)
-                    {
-                        continue;
-                    }
-
-                    for (int by = box.minY; by <= box.maxY; ++by)
-                    {
-                        for (int bz = box.minZ; bz <= box.maxZ; ++bz)
-                        {
-                            for (int bx = box.minX; bx <= box.maxX; ++bx)
-                            {
-                                posMutable.set(bx, by, bz);
-                                this.renderBlocksAndOverlay(posMutable, tileEntities, usedLayers, data, buffers);
-                            }
-                        }
-                    }
+                    this.renderLayerSlices(range.getAxis(), tileEntities, usedLayers, data, buffers);
+                }
+                else
+                {
+                    this.renderClampedToLayerRange(range, tileEntities, usedLayers, data, buffers);
                 }
 
                 for (BlockRenderLayer layerTmp : BlockRenderLayer.values())
@@ -307,7 +309,150 @@ public class RenderChunkSchematicVbo extends RenderChunk
         }
     }
 
-    protected void renderBlocksAndOverlay(BlockPos pos, Set<TileEntity> tileEntities, boolean[] usedLayers, CompiledChunkSchematic data, VertexBuilderCache buffers)
+    /**
+     * Renders only the blocks within the current layer range.
+     * The chunk needs to be rebuilt whenever the layer range changes.
+     */
+    protected void renderClampedToLayerRange(LayerRange range, Set<TileEntity> tileEntities, boolean[] usedLayers,
+                                             CompiledChunkSchematic data, VertexBuilderCache buffers)
+    {
+        BlockPos.MutBlockPos posMutable = new BlockPos.MutBlockPos();
+
+        for (IntBoundingBox box : this.boxes)
+        {
+            box = range.getClampedBox(box);
+
+            // The rendered layer(s) don't intersect this sub-volume
+            if (box == null)
+            {
+                continue;
+            }
+
+            for (int by = box.minY; by <= box.maxY; ++by)
+            {
+                for (int bz = box.minZ; bz <= box.maxZ; ++bz)
+                {
+                    for (int bx = box.minX; bx <= box.maxX; ++bx)
+                    {
+                        posMutable.set(bx, by, bz);
+                        this.renderBlocksAndOverlay(posMutable, -1, tileEntities, usedLayers, data, buffers);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Renders all the blocks of the chunk one layer slice at a time along the given axis,
+     * followed by the otherwise hidden block sides that are needed at the edges of the layer range.
+     * The layer range can then be changed without rebuilding the chunk, see {@link LayerSliceIndex}.
+     */
+    protected void renderLayerSlices(Direction.Axis axis, Set<TileEntity> tileEntities, boolean[] usedLayers,
+                                     CompiledChunkSchematic data, VertexBuilderCache buffers)
+    {
+        BlockPos.MutBlockPos posMutable = new BlockPos.MutBlockPos();
+        net.minecraft.util.math.BlockPos origin = this.getPosition();
+        final int originOnAxis = getAxisValue(origin.getX(), origin.getY(), origin.getZ(), axis);
+
+        data.setSliceAxis(axis);
+        this.edgeSideBlockCount = 0;
+
+        for (int slice = 0; slice < LayerSliceIndex.SLICE_COUNT; ++slice)
+        {
+            final int layer = originOnAxis + slice;
+
+            for (IntBoundingBox box : this.boxes)
+            {
+                final int minX = axis == Direction.Axis.X ? Math.max(box.minX, layer) : box.minX;
+                final int minY = axis == Direction.Axis.Y ? Math.max(box.minY, layer) : box.minY;
+                final int minZ = axis == Direction.Axis.Z ? Math.max(box.minZ, layer) : box.minZ;
+                final int maxX = axis == Direction.Axis.X ? Math.min(box.maxX, layer) : box.maxX;
+                final int maxY = axis == Direction.Axis.Y ? Math.min(box.maxY, layer) : box.maxY;
+                final int maxZ = axis == Direction.Axis.Z ? Math.min(box.maxZ, layer) : box.maxZ;
+
+                for (int by = minY; by <= maxY; ++by)
+                {
+                    for (int bz = minZ; bz <= maxZ; ++bz)
+                    {
+                        for (int bx = minX; bx <= maxX; ++bx)
+                        {
+                            posMutable.set(bx, by, bz);
+                            this.renderBlocksAndOverlay(posMutable, slice, tileEntities, usedLayers, data, buffers);
+                        }
+                    }
+                }
+            }
+        }
+
+        Direction minSide = axis == Direction.Axis.X ? Direction.WEST : (axis == Direction.Axis.Y ? Direction.DOWN : Direction.NORTH);
+        this.renderEdgeSides(axis, minSide, LayerSliceIndex.Part.MIN_EDGE_SIDES, usedLayers, data, buffers);
+        this.renderEdgeSides(axis, minSide.getOpposite(), LayerSliceIndex.Part.MAX_EDGE_SIDES, usedLayers, data, buffers);
+
+        for (BlockRenderLayer layer : BLOCK_RENDER_LAYERS)
+        {
+            data.getBlockSliceIndex(layer).finish();
+        }
+
+        for (OverlayRenderType type : OverlayRenderType.values())
+        {
+            data.getOverlaySliceIndex(type).finish();
+        }
+    }
+
+    /**
+     * Renders the block sides facing the given side that are hidden by the adjacent block.
+     * These are needed when the block is at the edge of the rendered layer range.
+     */
+    protected void renderEdgeSides(Direction.Axis axis, Direction side, LayerSliceIndex.Part part, boolean[] usedLayers,
+                                   CompiledChunkSchematic data, VertexBuilderCache buffers)
+    {
+        BlockPos.MutBlockPos posMutable = new BlockPos.MutBlockPos();
+        net.minecraft.util.math.BlockPos origin = this.getPosition();
+
+        for (int i = 0; i < this.edgeSideBlockCount; ++i)
+        {
+            final int packed = this.edgeSideBlocks[i];
+            final int x = packed & 0xF;
+            final int z = (packed >> 4) & 0xF;
+            final int y = (packed >> 8) & 0xF;
+            final int layerIndex = packed >>> 12;
+
+            posMutable.set(origin.getX() + x, origin.getY() + y, origin.getZ() + z);
+            VertexBuilder builder = buffers.getWorldRendererByLayerId(layerIndex);
+            int quads = this.renderGlobal.renderBlock(this.edgeSideStates[i], posMutable, this.schematicWorldView, null, side, builder);
+
+            if (quads > 0)
+            {
+                usedLayers[layerIndex] = true;
+                data.getBlockSliceIndex(BLOCK_RENDER_LAYERS[layerIndex]).addVertices(part, getAxisValue(x, y, z, axis), quads * 4);
+            }
+        }
+    }
+
+    protected void addEdgeSideBlock(BlockPos pos, IBlockState state, int layerIndex)
+    {
+        if (this.edgeSideBlockCount >= this.edgeSideBlocks.length)
+        {
+            this.edgeSideBlocks = Arrays.copyOf(this.edgeSideBlocks, this.edgeSideBlocks.length * 2);
+            this.edgeSideStates = Arrays.copyOf(this.edgeSideStates, this.edgeSideStates.length * 2);
+        }
+
+        int packed = (pos.getX() & 0xF) | ((pos.getZ() & 0xF) << 4) | ((pos.getY() & 0xF) << 8) | (layerIndex << 12);
+        this.edgeSideBlocks[this.edgeSideBlockCount] = packed;
+        this.edgeSideStates[this.edgeSideBlockCount] = state;
+        ++this.edgeSideBlockCount;
+    }
+
+    protected static int getAxisValue(int x, int y, int z, Direction.Axis axis)
+    {
+        return axis == Direction.Axis.X ? x : (axis == Direction.Axis.Y ? y : z);
+    }
+
+    /**
+     * @param slice the layer slice within the chunk, or -1 if the chunk is not compiled in layer slices
+     */
+    protected void renderBlocksAndOverlay(BlockPos pos, int slice, Set<TileEntity> tileEntities, boolean[] usedLayers,
+                                          CompiledChunkSchematic data, VertexBuilderCache buffers)
     {
         IBlockState stateSchematic = this.schematicWorldView.getBlockState(pos);
         IBlockState stateClient    = this.clientWorldView.getBlockState(pos);
@@ -346,7 +491,18 @@ public class RenderChunkSchematicVbo extends RenderChunk
                     this.preRenderBlocks(builder, this.getPosition());
                 }
 
-                usedLayers[layerIndex] |= this.renderGlobal.renderBlock(stateSchematic, pos, this.schematicWorldView, builder);
+                if (slice >= 0)
+                {
+                    // The edge sides are rendered without the layer range, after all the slices
+                    int quads = this.renderGlobal.renderBlock(stateSchematic, pos, this.schematicWorldView, null, null, builder);
+                    usedLayers[layerIndex] |= quads > 0;
+                    data.getBlockSliceIndex(layer).addVertices(LayerSliceIndex.Part.BLOCKS, slice, quads * 4);
+                    this.addEdgeSideBlock(pos, stateSchematic, layerIndex);
+                }
+                else
+                {
+                    usedLayers[layerIndex] |= this.renderGlobal.renderBlock(stateSchematic, pos, this.schematicWorldView, builder);
+                }
             }
         }
 
@@ -357,14 +513,17 @@ public class RenderChunkSchematicVbo extends RenderChunk
 
             if (overlayColor != null)
             {
-                this.renderOverlay(pos, stateSchematic, type, overlayColor, data, buffers);
+                this.renderOverlay(pos, slice, stateSchematic, type, overlayColor, data, buffers);
             }
         }
     }
 
-    protected void renderOverlay(BlockPos pos, IBlockState stateSchematic, OverlayType type, Color4f overlayColor, CompiledChunkSchematic data, VertexBuilderCache buffers)
+    protected void renderOverlay(BlockPos pos, int slice, IBlockState stateSchematic, OverlayType type, Color4f overlayColor,
+                                 CompiledChunkSchematic data, VertexBuilderCache buffers)
     {
         boolean missing = type == OverlayType.MISSING;
+        int quadVertices = 0;
+        int lineVertices = 0;
 
         if (this.overlaySidesEnabled)
         {
@@ -396,7 +555,7 @@ public class RenderChunkSchematicVbo extends RenderChunk
                             stateSchematic.getBlockFaceShape(this.schematicWorldView, pos, side.getVanillaDirection()) != BlockFaceShape.SOLID)
                         {
                             long rand = MathUtils.getPositionRandom(pos);
-                            RenderUtils.drawBlockModelQuadOverlayBatched(bakedModel, stateSchematic, this.chunkRelPos, side, overlayColor, 0, rand, quadBuilder);
+                            quadVertices += RenderUtils.drawBlockModelQuadOverlayBatched(bakedModel, stateSchematic, this.chunkRelPos, side, overlayColor, 0, rand, quadBuilder);
                         }
                     }
                     else
@@ -404,6 +563,7 @@ public class RenderChunkSchematicVbo extends RenderChunk
                         if (type.getRenderPriority() > typeAdj.getRenderPriority())
                         {
                             ShapeRenderUtils.renderBlockPosSideQuad(this.chunkRelPos, side, 0, overlayColor, quadBuilder);
+                            quadVertices += 4;
                         }
                     }
                 }
@@ -414,11 +574,12 @@ public class RenderChunkSchematicVbo extends RenderChunk
                 if (missing && this.overlayModelSides)
                 {
                     IBakedModel bakedModel = this.renderGlobal.getModelForState(stateSchematic);
-                    RenderUtils.drawBlockModelQuadOverlayBatched(bakedModel, stateSchematic, this.chunkRelPos, overlayColor, 0, quadBuilder);
+                    quadVertices += RenderUtils.drawBlockModelQuadOverlayBatched(bakedModel, stateSchematic, this.chunkRelPos, overlayColor, 0, quadBuilder);
                 }
                 else
                 {
                     ShapeRenderUtils.renderBlockPosSideQuads(this.chunkRelPos, 0, overlayColor, quadBuilder);
+                    quadVertices += 6 * 4;
                 }
             }
         }
@@ -468,16 +629,16 @@ public class RenderChunkSchematicVbo extends RenderChunk
                     // FIXME: how to implement this correctly here... >_>
                     if (stateSchematic.isFullCube())
                     {
-                        this.renderOverlayReducedEdges(pos, adjTypes, type, overlayColor, lineBuilder);
+                        lineVertices += this.renderOverlayReducedEdges(pos, adjTypes, type, overlayColor, lineBuilder);
                     }
                     else
                     {
-                        RenderUtils.drawBlockModelOutlinesBatched(bakedModel, stateSchematic, this.chunkRelPos, overlayColor, lineBuilder);
+                        lineVertices += RenderUtils.drawBlockModelOutlinesBatched(bakedModel, stateSchematic, this.chunkRelPos, overlayColor, lineBuilder);
                     }
                 }
                 else
                 {
-                    this.renderOverlayReducedEdges(pos, adjTypes, type, overlayColor, lineBuilder);
+                    lineVertices += this.renderOverlayReducedEdges(pos, adjTypes, type, overlayColor, lineBuilder);
                 }
             }
             else
@@ -486,18 +647,28 @@ public class RenderChunkSchematicVbo extends RenderChunk
                 if (missing && this.overlayModelLines)
                 {
                     IBakedModel bakedModel = this.renderGlobal.getModelForState(stateSchematic);
-                    RenderUtils.drawBlockModelOutlinesBatched(bakedModel, stateSchematic, this.chunkRelPos, overlayColor, lineBuilder);
+                    lineVertices += RenderUtils.drawBlockModelOutlinesBatched(bakedModel, stateSchematic, this.chunkRelPos, overlayColor, lineBuilder);
                 }
                 else
                 {
                     ShapeRenderUtils.renderBlockPosEdgeLines(this.chunkRelPos, 0, overlayColor, lineBuilder);
+                    lineVertices += 12 * 2;
                 }
             }
         }
+
+        if (slice >= 0)
+        {
+            data.getOverlaySliceIndex(OverlayRenderType.QUAD).addVertices(LayerSliceIndex.Part.BLOCKS, slice, quadVertices);
+            data.getOverlaySliceIndex(OverlayRenderType.OUTLINE).addVertices(LayerSliceIndex.Part.BLOCKS, slice, lineVertices);
+        }
     }
 
-    protected void renderOverlayReducedEdges(BlockPos pos, OverlayType[][][] adjTypes, OverlayType typeSelf,
-                                             Color4f overlayColor, VertexBuilder lineBuilder)
+    /**
+     * @return the number of vertices that were added
+     */
+    protected int renderOverlayReducedEdges(BlockPos pos, OverlayType[][][] adjTypes, OverlayType typeSelf,
+                                            Color4f overlayColor, VertexBuilder lineBuilder)
     {
         OverlayType[] neighborTypes = new OverlayType[4];
         Vec3i[] neighborPositions = new Vec3i[4];
@@ -573,6 +744,8 @@ public class RenderChunkSchematicVbo extends RenderChunk
             }
         }
         //System.out.printf("typeSelf: %s, pos: %s, lines: %d\n", typeSelf, pos, lines);
+
+        return lines * 2;
     }
 
     protected OverlayType getOverlayType(IBlockState stateSchematic, IBlockState stateClient)
@@ -676,7 +849,17 @@ public class RenderChunkSchematicVbo extends RenderChunk
     {
         if (layer == BlockRenderLayer.TRANSLUCENT && compiledChunk.isLayerEmpty(layer) == false)
         {
-            builder.sortVertexData(x, y, z);
+            LayerSliceIndex sliceIndex = compiledChunk.getBlockSliceIndex(layer);
+
+            if (sliceIndex != null)
+            {
+                this.sortQuadsPerSlice(sliceIndex, builder, DefaultVertexFormats.BLOCK.getSize(), x, y, z);
+            }
+            else
+            {
+                builder.sortVertexData(x, y, z);
+            }
+
             compiledChunk.setBlockBufferState(layer, builder.getVertexData());
         }
 
@@ -698,13 +881,33 @@ public class RenderChunkSchematicVbo extends RenderChunk
     {
         if (type == OverlayRenderType.QUAD && compiledChunk.isOverlayTypeEmpty(type) == false)
         {
-            builder.sortVertexData(x, y, z);
+            LayerSliceIndex sliceIndex = compiledChunk.getOverlaySliceIndex(type);
+
+            if (sliceIndex != null)
+            {
+                this.sortQuadsPerSlice(sliceIndex, builder, DefaultVertexFormats.POSITION_COLOR.getSize(), x, y, z);
+            }
+            else
+            {
+                builder.sortVertexData(x, y, z);
+            }
+
             compiledChunk.setOverlayBufferState(type, builder.getVertexData());
         }
 
         builder.finishDrawing();
     }
 
+    /**
+     * Sorts the quads within each layer slice, so that the slices stay drawable as ranges
+     */
+    private void sortQuadsPerSlice(LayerSliceIndex sliceIndex, VertexBuilder builder, int vertexSize,
+                                   float x, float y, float z)
+    {
+        net.minecraft.util.math.BlockPos pos = this.getPosition();
+        sliceIndex.sortQuads(builder.getByteBuffer(), vertexSize, x - pos.getX(), y - pos.getY(), z - pos.getZ());
+    }
+
     public ChunkCompileTaskGeneratorSchematic makeCompileTaskChunkSchematic()
     {
         this.getLockCompileTask().lock();
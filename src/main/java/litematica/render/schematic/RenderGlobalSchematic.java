@@ -51,6 +51,7 @@ import malilib.util.game.wrap.GameWrap;
 import malilib.util.game.wrap.RenderWrap;
 import malilib.util.position.BlockPos;
 import malilib.util.position.ChunkSectionPos;
+import malilib.util.position.Direction;
 import malilib.util.position.LayerRange;
 import litematica.data.DataManager;
 import litematica.mixin.IMixinBlockRendererDispatcher;
@@ -664,6 +665,17 @@ public class RenderGlobalSchematic extends RenderGlobal
     }
 
     public boolean renderBlock(IBlockState state, BlockPos pos, IBlockAccess blockAccess, VertexBuilder builder)
+    {
+        return this.renderBlock(state, pos, blockAccess, DataManager.getRenderLayerRange(), null, builder) > 0;
+    }
+
+    /**
+     * Renders the block, and returns the number of quads that were written to the builder.
+     * See {@link BlockModelRendererSchematic#renderModel(IBakedModel, IBlockState, BlockPos, IBlockAccess, LayerRange, Direction, VertexBuilder)}
+     * for the edgeRange and edgeSide arguments.
+     */
+    public int renderBlock(IBlockState state, BlockPos pos, IBlockAccess blockAccess,
+                           @Nullable LayerRange edgeRange, @Nullable Direction edgeSide, VertexBuilder builder)
     {
         try
         {
@@ -671,21 +683,21 @@ public class RenderGlobalSchematic extends RenderGlobal
 
             if (renderType == EnumBlockRenderType.INVISIBLE)
             {
-                return false;
+                return 0;
             }
             else
             {
                 switch (renderType)
                 {
                     case MODEL:
-                        return this.blockModelRenderer.renderModel(this.getModelForState(state), state, pos, blockAccess, builder);
+                        return this.blockModelRenderer.renderModel(this.getModelForState(state), state, pos, blockAccess, edgeRange, edgeSide, builder);
                     case ENTITYBLOCK_ANIMATED:
-                        return false;
+                        return 0;
                     case LIQUID:
                         // TODO FIXME add a custom fluid renderer that uses the VertexBuilder
                         //return this.fluidRenderer.renderFluid(blockAccess, state, pos, builder);
                     default:
-                        return false;
+                        return 0;
                 }
             }
         }
@@ -828,13 +840,20 @@ public class RenderGlobalSchematic extends RenderGlobal
 
             for (RenderChunkSchematicVbo renderChunk : this.renderInfos)
             {
-                List<TileEntity> tiles = renderChunk.getChunkRenderData().getTileEntities();
+                CompiledChunkSchematic compiledChunk = renderChunk.getChunkRenderData();
+                List<TileEntity> tiles = compiledChunk.getTileEntities();
 
                 if (tiles.isEmpty() == false)
                 {
+                    // Chunks compiled in layer slices contain the block entities outside of the layer range too
+                    boolean checkRange = compiledChunk.getSliceAxis() != null;
+
                     for (TileEntity te : tiles)
                     {
-                        TileEntityRendererDispatcher.instance.render(te, partialTicks, -1);
+                        if (checkRange == false || isWithinLayerRange(te, layerRange))
+                        {
+                            TileEntityRendererDispatcher.instance.render(te, partialTicks, -1);
+                        }
                     }
                 }
             }
@@ -843,7 +862,10 @@ public class RenderGlobalSchematic extends RenderGlobal
             {
                 for (TileEntity te : this.setTileEntities)
                 {
-                    TileEntityRendererDispatcher.instance.render(te, partialTicks, -1);
+                    if (isWithinLayerRange(te, layerRange))
+                    {
+                        TileEntityRendererDispatcher.instance.render(te, partialTicks, -1);
+                    }
                 }
             }
 
@@ -874,6 +896,12 @@ public class RenderGlobalSchematic extends RenderGlobal
         }
     }
 
+    private static boolean isWithinLayerRange(TileEntity te, LayerRange range)
+    {
+        net.minecraft.util.math.BlockPos pos = te.getPos();
+        return range.isPositionWithinRange(pos.getX(), pos.getY(), pos.getZ());
+    }
+
     @Override
     public void notifyBlockUpdate(World worldIn, net.minecraft.util.math.BlockPos pos, IBlockState oldState, IBlockState newState, int flags)
     {
@@ -884,6 +912,37 @@ public class RenderGlobalSchematic extends RenderGlobal
         this.markBlocksForUpdate(x - 1, y - 1, z - 1, x + 1, y + 1, z + 1, (flags & 8) != 0);
     }
 
+    /**
+     * Called when the render layer range has changed.
+     * The render chunks that have been compiled in layer slices along the current axis
+     * only need their draw ranges to change, which happens while rendering,
+     * so only the render chunks that were compiled along another axis get marked for a rebuild.
+     * @return false if the render chunks don't use layer slices, in which case
+     *         the affected render chunks need to be rebuilt by the caller
+     */
+    public boolean onLayerRangeChanged(Direction.Axis axis)
+    {
+        if (this.vboEnabled == false)
+        {
+            return false;
+        }
+
+        if (this.viewFrustum != null)
+        {
+            for (RenderChunk renderChunk : this.viewFrustum.renderChunks)
+            {
+                Direction.Axis sliceAxis = ((RenderChunkSchematicVbo) renderChunk).getChunkRenderData().getSliceAxis();
+
+                if (sliceAxis != null && sliceAxis != axis)
+                {
+                    renderChunk.setNeedsUpdate(false);
+                }
+            }
+        }
+
+        return true;
+    }
+
     @Override
     public void markBlockRangeForRenderUpdate(int x1, int y1, int z1, int x2, int y2, int z2)
     {
@@ -1,13 +1,20 @@
 package litematica.render.schematic;
 
+import javax.annotation.Nullable;
 import org.lwjgl.opengl.GL11;
 
+import net.minecraft.client.renderer.GlStateManager;
 import net.minecraft.client.renderer.chunk.RenderChunk;
 import net.minecraft.client.renderer.vertex.VertexBuffer;
 import net.minecraft.util.BlockRenderLayer;
 
+import malilib.config.value.LayerMode;
 import malilib.render.RenderContext;
 import malilib.util.game.wrap.RenderWrap;
+import malilib.util.position.Direction;
+import malilib.util.position.LayerRange;
+import litematica.data.DataManager;
+import litematica.render.schematic.LayerSliceIndex.Part;
 import litematica.render.schematic.RenderChunkSchematicVbo.OverlayRenderType;
 
 public class VboRenderListSchematic extends ChunkRenderContainerSchematic
@@ -17,9 +24,17 @@ public class VboRenderListSchematic extends ChunkRenderContainerSchematic
     {
         if (this.initialized)
         {
+            LayerRange range = DataManager.getRenderLayerRange();
+            boolean sorted = layer == BlockRenderLayer.TRANSLUCENT;
+
             for (RenderChunk renderChunk : this.renderChunks)
             {
-                this.renderBlocks(renderChunk.getVertexBufferByLayer(layer.ordinal()), renderChunk, RenderContext.DUMMY);
+                RenderChunkSchematicVbo schematicRenderChunk = (RenderChunkSchematicVbo) renderChunk;
+                CompiledChunkSchematic compiledChunk = schematicRenderChunk.getChunkRenderData();
+                LayerSliceIndex sliceIndex = compiledChunk.getBlockSliceIndex(layer);
+
+                this.renderBlocks(renderChunk.getVertexBufferByLayer(layer.ordinal()), schematicRenderChunk,
+                                  sliceIndex, compiledChunk.getSliceAxis(), range, sorted, RenderContext.DUMMY);
             }
 
             RenderWrap.bindBuffer(RenderWrap.GL_ARRAY_BUFFER, 0);
@@ -34,9 +49,16 @@ public class VboRenderListSchematic extends ChunkRenderContainerSchematic
     {
         if (this.initialized)
         {
+            LayerRange range = DataManager.getRenderLayerRange();
+            boolean sorted = type == OverlayRenderType.QUAD;
+
             for (RenderChunkSchematicVbo renderChunk : this.overlayRenderChunks)
             {
-                this.renderOverlay(renderChunk.getOverlayVertexBuffer(type), renderChunk, type.getGlMode(), RenderContext.DUMMY);
+                CompiledChunkSchematic compiledChunk = renderChunk.getChunkRenderData();
+                LayerSliceIndex sliceIndex = compiledChunk.getOverlaySliceIndex(type);
+
+                this.renderOverlay(renderChunk.getOverlayVertexBuffer(type), renderChunk, type.getGlMode(),
+                                   sliceIndex, compiledChunk.getSliceAxis(), range, sorted, RenderContext.DUMMY);
             }
 
             RenderWrap.bindBuffer(RenderWrap.GL_ARRAY_BUFFER, 0);
@@ -46,7 +68,9 @@ public class VboRenderListSchematic extends ChunkRenderContainerSchematic
         }
     }
 
-    private void renderBlocks(VertexBuffer vertexBuffer, RenderChunk renderChunk, RenderContext ctx)
+    private void renderBlocks(VertexBuffer vertexBuffer, RenderChunk renderChunk,
+                              @Nullable LayerSliceIndex sliceIndex, @Nullable Direction.Axis sliceAxis,
+                              LayerRange range, boolean sorted, RenderContext ctx)
     {
         RenderWrap.pushMatrix(ctx);
 
@@ -54,12 +78,14 @@ public class VboRenderListSchematic extends ChunkRenderContainerSchematic
         //renderChunk.multModelviewMatrix();
         vertexBuffer.bindBuffer();
         this.setupArrayPointersBlocks();
-        vertexBuffer.drawArrays(GL11.GL_QUADS);
+        this.drawLayerRange(vertexBuffer, renderChunk, GL11.GL_QUADS, sliceIndex, sliceAxis, range, sorted);
 
         RenderWrap.popMatrix(ctx);
     }
 
-    private void renderOverlay(VertexBuffer vertexBuffer, RenderChunk renderChunk, int glMode, RenderContext ctx)
+    private void renderOverlay(VertexBuffer vertexBuffer, RenderChunk renderChunk, int glMode,
+                               @Nullable LayerSliceIndex sliceIndex, @Nullable Direction.Axis sliceAxis,
+                               LayerRange range, boolean sorted, RenderContext ctx)
     {
         RenderWrap.pushMatrix(ctx);
 
@@ -67,11 +93,98 @@ public class VboRenderListSchematic extends ChunkRenderContainerSchematic
         //renderChunk.multModelviewMatrix();
         vertexBuffer.bindBuffer();
         this.setupArrayPointersOverlay();
-        vertexBuffer.drawArrays(glMode);
+        this.drawLayerRange(vertexBuffer, renderChunk, glMode, sliceIndex, sliceAxis, range, sorted);
 
         RenderWrap.popMatrix(ctx);
     }
 
+    /**
+     * Draws the parts of the buffer that are within the current layer range,
+     * if the chunk has been compiled in layer slices along the range's axis.
+     * Otherwise the whole buffer is drawn.
+     * @param sorted if true, then the slices are drawn from back to front, as the quads are only sorted within each slice
+     */
+    private void drawLayerRange(VertexBuffer vertexBuffer, RenderChunk renderChunk, int glMode,
+                                @Nullable LayerSliceIndex sliceIndex, @Nullable Direction.Axis sliceAxis,
+                                LayerRange range, boolean sorted)
+    {
+        // Not compiled in slices, or the axis has changed and the chunk is waiting for a rebuild
+        if (sliceIndex == null || sliceAxis != range.getAxis())
+        {
+            vertexBuffer.drawArrays(glMode);
+            return;
+        }
+
+        net.minecraft.util.math.BlockPos pos = renderChunk.getPosition();
+        final int origin = RenderChunkSchematicVbo.getAxisValue(pos.getX(), pos.getY(), pos.getZ(), sliceAxis);
+        final int min = range.getMinLayerBoundary() - origin;
+        final int max = range.getMaxLayerBoundary() - origin;
+        final int last = LayerSliceIndex.SLICE_COUNT - 1;
+
+        if (max < 0 || min > last)
+        {
+            return;
+        }
+
+        final int firstSlice = Math.max(min, 0);
+        final int lastSlice = Math.min(max, last);
+
+        if (sorted)
+        {
+            double view = sliceAxis == Direction.Axis.X ? this.viewX : (sliceAxis == Direction.Axis.Y ? this.viewY : this.viewZ);
+            int viewSlice = (int) Math.floor(view) - origin;
+            this.drawSlicesBackToFront(sliceIndex, glMode, firstSlice, lastSlice, viewSlice);
+        }
+        else
+        {
+            this.drawSlices(sliceIndex, Part.BLOCKS, glMode, firstSlice, lastSlice);
+        }
+
+        // The otherwise hidden block sides at the edges of the layer range
+        if (range.getLayerMode() != LayerMode.ALL)
+        {
+            if (min >= 0)
+            {
+                this.drawSlices(sliceIndex, Part.MIN_EDGE_SIDES, glMode, firstSlice, firstSlice);
+            }
+
+            if (max <= last)
+            {
+                this.drawSlices(sliceIndex, Part.MAX_EDGE_SIDES, glMode, lastSlice, lastSlice);
+            }
+        }
+    }
+
+    private void drawSlicesBackToFront(LayerSliceIndex sliceIndex, int glMode, int firstSlice, int lastSlice, int viewSlice)
+    {
+        // The slices below the view slice are drawn in ascending order and the slices above it in descending order,
+        // and the slice containing the view position last. The ascending slices are continuous in the buffer.
+        if (viewSlice > firstSlice)
+        {
+            this.drawSlices(sliceIndex, Part.BLOCKS, glMode, firstSlice, Math.min(viewSlice - 1, lastSlice));
+        }
+
+        for (int slice = lastSlice; slice >= firstSlice && slice > viewSlice; --slice)
+        {
+            this.drawSlices(sliceIndex, Part.BLOCKS, glMode, slice, slice);
+        }
+
+        if (viewSlice >= firstSlice && viewSlice <= lastSlice)
+        {
+            this.drawSlices(sliceIndex, Part.BLOCKS, glMode, viewSlice, viewSlice);
+        }
+    }
+
+    private void drawSlices(LayerSliceIndex sliceIndex, Part part, int glMode, int firstSlice, int lastSlice)
+    {
+        int count = sliceIndex.getVertexCount(part, firstSlice, lastSlice);
+
+        if (count > 0)
+        {
+            GlStateManager.glDrawArrays(glMode, sliceIndex.getStartVertex(part, firstSlice), count);
+        }
+    }
+
     private void setupArrayPointersBlocks()
     {
         RenderWrap.vertexPointer(3, GL11.GL_FLOAT, 28, 0);
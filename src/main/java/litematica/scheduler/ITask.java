@@ -44,4 +44,23 @@ public interface ITask
      * @param interval the execution interval in game ticks
      */
     void createTimer(int interval);
+
+    /**
+     * @return the scheduling priority of this task
+     */
+    TaskPriority getPriority();
+
+    void setPriority(TaskPriority priority);
+
+    /**
+     * @return the execution statistics of this task
+     */
+    TaskMetrics getMetrics();
+
+    /**
+     * Sets the {@link System#nanoTime()} time after which the task should return from
+     * {@link #execute()} at the next suitable point, if it does its work in smaller pieces.
+     * Called by the scheduler before each {@link #execute()} call.
+     */
+    void setExecutionDeadline(long deadline);
 }
@@ -0,0 +1,82 @@
+package litematica.scheduler;
+
+/**
+ * Execution time and throughput statistics of one task, collected by the {@link TaskScheduler}.
+ * The work units are whatever the task processes in pieces, for example chunks.
+ * The values are written on the thread running the task, and only read for display purposes.
+ */
+public class TaskMetrics
+{
+    protected final long createdTime = System.nanoTime();
+    protected long firstExecutionTime = -1L;
+    protected long executionCount;
+    protected long totalExecutionTime;
+    protected long maxExecutionTime;
+    protected long workUnits;
+
+    public void onExecuted(long startTime, long duration)
+    {
+        if (this.firstExecutionTime == -1L)
+        {
+            this.firstExecutionTime = startTime;
+        }
+
+        ++this.executionCount;
+        this.totalExecutionTime += duration;
+        this.maxExecutionTime = Math.max(this.maxExecutionTime, duration);
+    }
+
+    public void addWorkUnits(long count)
+    {
+        this.workUnits += count;
+    }
+
+    public long getExecutionCount()
+    {
+        return this.executionCount;
+    }
+
+    public long getWorkUnits()
+    {
+        return this.workUnits;
+    }
+
+    public double getTotalExecutionTimeMs()
+    {
+        return this.totalExecutionTime / 1000000.0;
+    }
+
+    public double getAverageExecutionTimeMs()
+    {
+        return this.executionCount > 0 ? this.totalExecutionTime / (this.executionCount * 1000000.0) : 0.0;
+    }
+
+    public double getMaxExecutionTimeMs()
+    {
+        return this.maxExecutionTime / 1000000.0;
+    }
+
+    /**
+     * @return the time in milliseconds that the task waited between being created and its first execution
+     */
+    public double getStartLatencyMs()
+    {
+        long start = this.firstExecutionTime != -1L ? this.firstExecutionTime : System.nanoTime();
+        return (start - this.createdTime) / 1000000.0;
+    }
+
+    /**
+     * @return the processed work units per second of wall clock time since the first execution
+     */
+    public double getWorkUnitsPerSecond()
+    {
+        if (this.firstExecutionTime == -1L)
+        {
+            return 0.0;
+        }
+
+        double seconds = (System.nanoTime() - this.firstExecutionTime) / 1000000000.0;
+
+        return seconds > 0.0 ? this.workUnits / seconds : 0.0;
+    }
+}
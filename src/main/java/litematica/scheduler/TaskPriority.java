@@ -0,0 +1,38 @@
+package litematica.scheduler;
+
+import malilib.util.StringUtils;
+
+public enum TaskPriority
+{
+    HIGH    (4, "litematica.name.task_priority.high"),
+    NORMAL  (2, "litematica.name.task_priority.normal"),
+    LOW     (1, "litematica.name.task_priority.low");
+
+    private final int weight;
+    private final String translationKey;
+
+    TaskPriority(int weight, String translationKey)
+    {
+        this.weight = weight;
+        this.translationKey = translationKey;
+    }
+
+    /**
+     * @return the relative weight of this priority, when splitting the per-tick time budget between tasks
+     */
+    public int getWeight()
+    {
+        return this.weight;
+    }
+
+    public String getDisplayName()
+    {
+        return StringUtils.translate(this.translationKey);
+    }
+
+    public TaskPriority cycle()
+    {
+        TaskPriority[] values = values();
+        return values[(this.ordinal() + 1) % values.length];
+    }
+}
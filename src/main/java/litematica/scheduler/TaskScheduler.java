@@ -1,12 +1,15 @@
 package litematica.scheduler;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import javax.annotation.Nullable;
 import com.google.common.collect.ImmutableList;
 
 import net.minecraft.client.Minecraft;
 
+import litematica.config.Configs;
+
 public class TaskScheduler
 {
     private static final TaskScheduler INSTANCE_CLIENT = new TaskScheduler();
@@ -53,27 +56,7 @@ public class TaskScheduler
         {
             if (this.tasks.isEmpty() == false)
             {
-                for (int i = 0; i < this.tasks.size(); ++i)
-                {
-                    boolean finished = false;
-                    ITask task = this.tasks.get(i);
-
-                    if (task.shouldRemove())
-                    {
-                        finished = true;
-                    }
-                    else if (task.canExecute() && task.getTimer().tick())
-                    {
-                        finished = task.execute();
-                    }
-
-                    if (finished)
-                    {
-                        task.stop();
-                        this.tasks.remove(i);
-                        --i;
-                    }
-                }
+                this.runDueTasks();
             }
 
             if (this.tasksToAdd.isEmpty() == false)
@@ -83,6 +66,89 @@ public class TaskScheduler
         }
     }
 
+    /**
+     * Runs the tasks that are due on this tick, the highest priority tasks first,
+     * and in a round-robin order within the same priority.
+     * The per-tick time budget is split between the due tasks based on their priority weights,
+     * and any time left unused by a task is shared by the remaining tasks.
+     * The tasks that don't get to run because the budget ran out stay due,
+     * and will be first in line within their priority on the next tick.
+     */
+    private void runDueTasks()
+    {
+        List<ITask> dueTasks = new ArrayList<>();
+        int remainingWeight = 0;
+
+        for (int i = 0; i < this.tasks.size(); ++i)
+        {
+            ITask task = this.tasks.get(i);
+
+            if (task.shouldRemove())
+            {
+                task.stop();
+                this.tasks.remove(i);
+                --i;
+            }
+            else if (task.canExecute() && task.getTimer().tick())
+            {
+                dueTasks.add(task);
+                remainingWeight += task.getPriority().getWeight();
+            }
+        }
+
+        // This is a stable sort, so the round-robin order is kept within each priority
+        dueTasks.sort(Comparator.comparing(ITask::getPriority));
+
+        final long budget = Configs.Generic.TASK_TIME_BUDGET.getIntegerValue() * 1000000L;
+        final long tickStartTime = System.nanoTime();
+
+        for (int i = 0; i < dueTasks.size(); ++i)
+        {
+            ITask task = dueTasks.get(i);
+            int weight = task.getPriority().getWeight();
+            long startTime = System.nanoTime();
+            long remainingTime = budget - (startTime - tickStartTime);
+
+            // The task was removed by one of the previously executed tasks
+            if (this.tasks.contains(task) == false)
+            {
+                remainingWeight -= weight;
+                continue;
+            }
+
+            // At least one task always gets to run on every tick
+            if (remainingTime <= 0 && i > 0)
+            {
+                // Keep the task due for the next tick
+                task.getTimer().setNextDelay(0);
+                continue;
+            }
+
+            task.setExecutionDeadline(startTime + Math.max(remainingTime, 0) * weight / remainingWeight);
+            remainingWeight -= weight;
+
+            boolean finished = task.execute();
+
+            task.getMetrics().onExecuted(startTime, System.nanoTime() - startTime);
+
+            // The task was removed during its own execution
+            if (this.tasks.remove(task) == false)
+            {
+                continue;
+            }
+
+            if (finished)
+            {
+                task.stop();
+            }
+            else
+            {
+                // Move the task to the end of the list, for the round-robin order on the next tick
+                this.tasks.add(task);
+            }
+        }
+    }
+
     private void addNewTasks()
     {
         for (ITask task : this.tasksToAdd)
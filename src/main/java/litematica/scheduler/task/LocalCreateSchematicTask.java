@@ -4,20 +4,27 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.Consumer;
+import javax.annotation.Nullable;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableMap;
 
+import net.minecraft.block.Block;
+import net.minecraft.block.properties.IProperty;
+import net.minecraft.block.state.IBlockState;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.init.Blocks;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 
 import malilib.overlay.message.MessageDispatcher;
 import malilib.util.data.tag.CompoundData;
@@ -48,6 +55,7 @@ import litematica.selection.SelectionBox;
 import litematica.util.PositionUtils;
 import litematica.util.value.SchematicSaveWorldSelection;
 import litematica.util.world.BlockView;
+import litematica.util.world.PendingBlockTickSnapshot;
 import litematica.util.world.VanillaChunkBlockView;
 import litematica.util.world.VanillaChunkFallbackBlockView;
 import litematica.world.SchematicWorldHandler;
@@ -64,7 +72,9 @@ public class LocalCreateSchematicTask extends TaskProcessChunkBase
     protected final Map<String, Map<BlockPos, ScheduledBlockTickData>> blockTickMaps = new HashMap<>();
     protected final Map<String, List<EntityData>> entityLists = new HashMap<>();
     protected final Set<UUID> existingEntities = new HashSet<>();
+    protected final IdentityHashMap<IBlockState, SectionStateEntry> sectionStateCache = new IdentityHashMap<>();
     protected final Consumer<Schematic> schematicListener;
+    @Nullable protected PendingBlockTickSnapshot pendingTickSnapshot;
     protected final boolean obeyIgnoredBlocks;
     protected final boolean obeyIgnoredBlockStates;
     protected final boolean obeyIgnoredEntities;
@@ -169,7 +179,32 @@ public class LocalCreateSchematicTask extends TaskProcessChunkBase
             return new VanillaChunkFallbackBlockView(world1, world2, world1.getChunk(cPos.x, cPos.z), world2.getChunk(cPos.x, cPos.z));
         }
 
-        return new VanillaChunkBlockView(this.world, this.world.getChunk(cPos.x, cPos.z));
+        return new VanillaChunkBlockView(this.world, this.world.getChunk(cPos.x, cPos.z), this.getPendingTickSnapshot());
+    }
+
+    /**
+     * Creates the pending block tick snapshot for the entire area on the first use,
+     * which happens on the thread that runs the task, and then returns the same snapshot.
+     */
+    @Nullable
+    protected PendingBlockTickSnapshot getPendingTickSnapshot()
+    {
+        if (this.settings.saveScheduledBlockTicks.getBooleanValue() == false)
+        {
+            return null;
+        }
+
+        if (this.pendingTickSnapshot == null)
+        {
+            IntBoundingBox area = PositionUtils.getEnclosingBox(this.subRegions.values());
+
+            if (area != null)
+            {
+                this.pendingTickSnapshot = PendingBlockTickSnapshot.create(this.world, area);
+            }
+        }
+
+        return this.pendingTickSnapshot;
     }
 
     protected BlockContainer createBlockContainer(SelectionBox selectionBox)
@@ -198,13 +233,43 @@ public class LocalCreateSchematicTask extends TaskProcessChunkBase
             return;
         }
 
+        int blockEntityCountBefore = blockEntityMapOut.size();
+        int errorCount;
+
+        if (blockView instanceof VanillaChunkBlockView)
+        {
+            errorCount = this.readBlockDataFromChunkSections(container, blockEntityMapOut, box, minCorner,
+                                                             saveBlocks, saveBlockEntities, (VanillaChunkBlockView) blockView);
+        }
+        else
+        {
+            errorCount = this.readBlockDataPerBlock(container, blockEntityMapOut, box, minCorner,
+                                                    saveBlocks, saveBlockEntities, blockView);
+        }
+
+        this.totalBlockEntities += (blockEntityMapOut.size() - blockEntityCountBefore);
+
+        if (errorCount > 0)
+        {
+            MessageDispatcher.warning("litematica.message.warn.schematic_read.failed_to_read_block_entities",
+                                      errorCount, blockEntityMapOut.size());
+        }
+    }
+
+    protected int readBlockDataPerBlock(BlockContainer container,
+                                        Map<BlockPos, CompoundData> blockEntityMapOut,
+                                        IntBoundingBox box,
+                                        BlockPos minCorner,
+                                        boolean saveBlocks,
+                                        boolean saveBlockEntities,
+                                        BlockView blockView)
+    {
         MutBlockPos mutPos = new MutBlockPos();
 
         int minCornerX = minCorner.getX();
         int minCornerY = minCorner.getY();
         int minCornerZ = minCorner.getZ();
         int errorCount = 0;
-        int blockEntityCountBefore = blockEntityMapOut.size();
 
         for (int y = box.minY; y <= box.maxY; y++)
         {
@@ -243,13 +308,123 @@ public class LocalCreateSchematicTask extends TaskProcessChunkBase
             }
         }
 
-        this.totalBlockEntities += (blockEntityMapOut.size() - blockEntityCountBefore);
+        return errorCount;
+    }
 
-        if (errorCount > 0)
+    /**
+     * Reads the blocks directly from the chunk's block storage sections.
+     * Empty sections are skipped, the vanilla states are converted and checked against
+     * the ignore lists only once per unique state, Block#getActualState() is only called
+     * for blocks that have properties which are not stored in the chunk,
+     * and the blocks are written to the container one row at a time.
+     * @return the number of block entities that failed to be read
+     */
+    protected int readBlockDataFromChunkSections(BlockContainer container,
+                                                 Map<BlockPos, CompoundData> blockEntityMapOut,
+                                                 IntBoundingBox box,
+                                                 BlockPos minCorner,
+                                                 boolean saveBlocks,
+                                                 boolean saveBlockEntities,
+                                                 VanillaChunkBlockView blockView)
+    {
+        World world = blockView.getWorld();
+        ExtendedBlockStorage[] sections = blockView.getChunk().getBlockStorageArray();
+        BlockState[] row = new BlockState[16];
+        MutBlockPos mutPos = new MutBlockPos();
+
+        final int minCornerX = minCorner.getX();
+        final int minCornerY = minCorner.getY();
+        final int minCornerZ = minCorner.getZ();
+        final int rowLength = box.maxX - box.minX + 1;
+        final int minSection = Math.max(0, box.minY >> 4);
+        final int maxSection = Math.min(sections.length - 1, box.maxY >> 4);
+        int errorCount = 0;
+
+        for (int sectionY = minSection; sectionY <= maxSection; ++sectionY)
         {
-            MessageDispatcher.warning("litematica.message.warn.schematic_read.failed_to_read_block_entities",
-                                      errorCount, blockEntityMapOut.size());
+            ExtendedBlockStorage section = sections[sectionY];
+
+            // Empty sections only contain air, which never gets saved
+            if (section == Chunk.NULL_BLOCK_STORAGE || section.isEmpty())
+            {
+                continue;
+            }
+
+            final int minY = Math.max(box.minY, sectionY << 4);
+            final int maxY = Math.min(box.maxY, (sectionY << 4) + 15);
+
+            for (int y = minY; y <= maxY; y++)
+            {
+                for (int z = box.minZ; z <= box.maxZ; z++)
+                {
+                    boolean hasBlocks = false;
+
+                    for (int x = box.minX; x <= box.maxX; x++)
+                    {
+                        IBlockState vanillaState = section.get(x & 0xF, y & 0xF, z & 0xF);
+                        SectionStateEntry entry = this.getSectionStateEntry(vanillaState, mutPos);
+                        BlockState state = entry.state;
+                        boolean save = entry.shouldSave;
+
+                        if (entry.hasActualState)
+                        {
+                            mutPos.set(x, y, z);
+                            state = BlockState.of(vanillaState.getActualState(world, mutPos));
+                            save = this.shouldSaveBlock(state, mutPos);
+                        }
+
+                        row[x - box.minX] = save && saveBlocks ? state : null;
+
+                        if (save == false)
+                        {
+                            continue;
+                        }
+
+                        if (saveBlocks)
+                        {
+                            hasBlocks = true;
+                            this.totalBlocks++;
+                        }
+
+                        if (saveBlockEntities && entry.hasBlockEntity)
+                        {
+                            mutPos.set(x, y, z);
+
+                            if (blockView.readBlockEntityToMap(mutPos, minCorner, blockEntityMapOut) == false)
+                            {
+                                errorCount++;
+                            }
+                        }
+                    }
+
+                    if (hasBlocks)
+                    {
+                        container.setBlockStateRow(box.minX - minCornerX, y - minCornerY, z - minCornerZ, row, rowLength);
+                    }
+                }
+            }
         }
+
+        return errorCount;
+    }
+
+    protected SectionStateEntry getSectionStateEntry(IBlockState vanillaState, MutBlockPos mutPos)
+    {
+        SectionStateEntry entry = this.sectionStateCache.get(vanillaState);
+
+        if (entry == null)
+        {
+            Block block = vanillaState.getBlock();
+            BlockState state = BlockState.of(vanillaState);
+            boolean hasActualState = hasNonStoredProperties(block);
+            // The ignore lists are checked per block for the states that depend on the surroundings
+            boolean shouldSave = hasActualState || this.shouldSaveBlock(state, mutPos);
+
+            entry = new SectionStateEntry(state, shouldSave, hasActualState, block.hasTileEntity());
+            this.sectionStateCache.put(vanillaState, entry);
+        }
+
+        return entry;
     }
 
     protected boolean shouldSaveBlock(BlockState state, MutBlockPos mutPos)
@@ -370,6 +545,8 @@ public class LocalCreateSchematicTask extends TaskProcessChunkBase
         {
             String regionName = box.getName();
             BlockContainer container = this.blockContainers.getOrDefault(regionName, this.createBlockContainer(Vec3i.ZERO));
+            container.optimizeStorage();
+
             Map<BlockPos, CompoundData> blockEntityMap = this.blockEntityMaps.getOrDefault(regionName, new HashMap<>());
             Map<BlockPos, ScheduledBlockTickData> blockTickMap = this.blockTickMaps.getOrDefault(regionName, new HashMap<>());
             List<EntityData> entityList = this.entityLists.getOrDefault(regionName, new ArrayList<>());
@@ -416,4 +593,72 @@ public class LocalCreateSchematicTask extends TaskProcessChunkBase
 
         this.notifyListener();
     }
+
+    /**
+     * @return true if the block has any properties that are not stored in the chunk's block storage,
+     * which means that they are only set by Block#getActualState() based on the surroundings
+     */
+    protected static boolean hasNonStoredProperties(Block block)
+    {
+        try
+        {
+            for (IBlockState state : block.getBlockState().getValidStates())
+            {
+                int meta = block.getMetaFromState(state);
+
+                for (IProperty<?> property : state.getPropertyKeys())
+                {
+                    if (isPropertyStored(block, state, property, meta) == false)
+                    {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+        catch (Exception e)
+        {
+            // Assume the worst if some block doesn't handle all of its states
+            return true;
+        }
+    }
+
+    private static <T extends Comparable<T>> boolean isPropertyStored(Block block, IBlockState state,
+                                                                      IProperty<T> property, int meta)
+    {
+        T currentValue = state.getValue(property);
+
+        if (property.getAllowedValues().size() <= 1)
+        {
+            return true;
+        }
+
+        for (T value : property.getAllowedValues())
+        {
+            if (value.equals(currentValue) == false &&
+                block.getMetaFromState(state.withProperty(property, value)) != meta)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    protected static class SectionStateEntry
+    {
+        protected final BlockState state;
+        protected final boolean shouldSave;
+        protected final boolean hasActualState;
+        protected final boolean hasBlockEntity;
+
+        protected SectionStateEntry(BlockState state, boolean shouldSave, boolean hasActualState, boolean hasBlockEntity)
+        {
+            this.state = state;
+            this.shouldSave = shouldSave;
+            this.hasActualState = hasActualState;
+            this.hasBlockEntity = hasBlockEntity;
+        }
+    }
 }
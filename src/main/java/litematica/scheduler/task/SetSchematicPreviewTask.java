@@ -73,13 +73,14 @@ public class SetSchematicPreviewTask extends TaskBase
             int[] pixels = scaled.getRGB(0, 0, previewDimensions, previewDimensions, null, 0, scaled.getWidth());
 
             SchematicMetadata meta = this.schematic.getMetadata();
+            boolean onlyMetadataChanged = this.loadedSchematic.wasModifiedSinceSaved() == false;
             meta.setPreviewImagePixelData(pixels);
             meta.setTimeModifiedToNowIfNotRecentlyCreated();
             this.loadedSchematic.setModifiedSinceSaved();
 
             if (this.loadedSchematic.file.isPresent())
             {
-                SchematicFileUtils.writeToFile(this.schematic, this.loadedSchematic.file.get(), true);
+                SchematicFileUtils.writeMetadataToFile(this.schematic, this.loadedSchematic.file.get(), onlyMetadataChanged);
                 this.loadedSchematic.clearModifiedSinceSaved();
             }
 
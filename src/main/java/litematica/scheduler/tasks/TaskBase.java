@@ -19,12 +19,17 @@ import litematica.render.infohud.IInfoHudRenderer;
 import litematica.render.infohud.InfoHud;
 import litematica.render.infohud.RenderPhase;
 import litematica.scheduler.ITask;
+import litematica.scheduler.TaskMetrics;
+import litematica.scheduler.TaskPriority;
 import litematica.scheduler.TaskTimer;
 import litematica.util.PositionUtils;
 
 public abstract class TaskBase implements ITask, IInfoHudRenderer
 {
     private TaskTimer timer = new TaskTimer(1);
+    private TaskPriority priority = TaskPriority.NORMAL;
+    private final TaskMetrics metrics = new TaskMetrics();
+    private long executionDeadline = Long.MAX_VALUE;
 
     protected final Minecraft mc;
     protected String name = "";
@@ -56,6 +61,39 @@ public abstract class TaskBase implements ITask, IInfoHudRenderer
         this.timer = new TaskTimer(interval);
     }
 
+    @Override
+    public TaskPriority getPriority()
+    {
+        return this.priority;
+    }
+
+    @Override
+    public void setPriority(TaskPriority priority)
+    {
+        this.priority = priority;
+    }
+
+    @Override
+    public TaskMetrics getMetrics()
+    {
+        return this.metrics;
+    }
+
+    @Override
+    public void setExecutionDeadline(long deadline)
+    {
+        this.executionDeadline = deadline;
+    }
+
+    /**
+     * @return true if the task has used up its time slice for this tick,
+     * and should return from execute() and continue on the next execution
+     */
+    protected boolean shouldYield()
+    {
+        return System.nanoTime() >= this.executionDeadline;
+    }
+
     public void disableCompletionMessage()
     {
         this.printCompletionMessage = false;
@@ -1,5 +1,6 @@
 package litematica.scheduler.tasks;
 
+import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.Nullable;
 
@@ -7,8 +8,13 @@ import net.minecraft.block.state.IBlockState;
 import net.minecraft.entity.Entity;
 import net.minecraft.init.Blocks;
 import net.minecraft.inventory.IInventory;
+import net.minecraft.network.play.server.SPacketChunkData;
+import net.minecraft.server.management.PlayerChunkMapEntry;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 
 import malilib.overlay.message.MessageDispatcher;
 import malilib.util.game.wrap.GameWrap;
@@ -96,15 +102,22 @@ public class TaskFillArea extends TaskProcessChunkBase
             GameWrap.sendCommand("/gamerule sendCommandFeedback false");
         }
 
-        for (IntBoundingBox box : this.getBoxesInChunk(pos))
+        if (this.canFillChunkSections())
         {
-            if (this.isClientWorld)
-            {
-                this.fillBoxCommands(box, this.removeEntities);
-            }
-            else
+            this.fillChunkSections(pos, this.getBoxesInChunk(pos), this.removeEntities);
+        }
+        else
+        {
+            for (IntBoundingBox box : this.getBoxesInChunk(pos))
             {
-                this.fillBoxDirect(box, this.removeEntities);
+                if (this.isClientWorld)
+                {
+                    this.fillBoxCommands(box, this.removeEntities);
+                }
+                else
+                {
+                    this.fillBoxDirect(box, this.removeEntities);
+                }
             }
         }
 
@@ -113,13 +126,169 @@ public class TaskFillArea extends TaskProcessChunkBase
         return true;
     }
 
+    /**
+     * The chunk sections can be written to directly in single player, when the fill block
+     * doesn't need a TileEntity, and when there is no replace block that would need to be checked
+     * against the actual state of each existing block.
+     */
+    protected boolean canFillChunkSections()
+    {
+        return this.isClientWorld == false &&
+               this.world instanceof WorldServer &&
+               this.replaceState == null &&
+               this.fillState.getBlock().hasTileEntity() == false;
+    }
+
+    /**
+     * Fills the boxes by writing directly to the chunk's block storage sections,
+     * replacing or clearing whole sections when the boxes cover them entirely.
+     * The TileEntities are removed, and the height map and light are updated once for the chunk,
+     * and then the whole chunk is sent to the clients in one packet.
+     */
+    protected void fillChunkSections(ChunkPos pos, List<IntBoundingBox> boxes, boolean removeEntities)
+    {
+        WorldServer world = (WorldServer) this.world;
+        Chunk chunk = world.getChunk(pos.x, pos.z);
+
+        if (removeEntities)
+        {
+            for (IntBoundingBox box : boxes)
+            {
+                this.removeEntitiesInBox(box);
+            }
+        }
+
+        try
+        {
+            WorldUtils.setShouldPreventBlockUpdates(world, true);
+
+            this.removeTileEntitiesInBoxes(chunk, boxes);
+
+            for (IntBoundingBox box : boxes)
+            {
+                this.fillBoxInChunkSections(chunk, box);
+            }
+
+            // The block light is re-checked gradually by the chunk ticking
+            chunk.generateSkylightMap();
+            chunk.resetRelightChecks();
+            chunk.markDirty();
+        }
+        finally
+        {
+            WorldUtils.setShouldPreventBlockUpdates(world, false);
+        }
+
+        PlayerChunkMapEntry entry = world.getPlayerChunkMap().getEntry(pos.x, pos.z);
+
+        // The full chunk mask is needed for the clients to also clear the removed sections
+        if (entry != null && entry.isSentToPlayers())
+        {
+            entry.sendPacket(new SPacketChunkData(chunk, 65535));
+        }
+    }
+
+    protected void fillBoxInChunkSections(Chunk chunk, IntBoundingBox box)
+    {
+        ExtendedBlockStorage[] sections = chunk.getBlockStorageArray();
+        boolean isAir = this.fillState.getBlock() == Blocks.AIR;
+        boolean coversColumn = (box.maxX - box.minX) == 15 && (box.maxZ - box.minZ) == 15;
+        boolean hasSkyLight = this.world.provider.hasSkyLight();
+        int minSection = Math.max(box.minY >> 4, 0);
+        int maxSection = Math.min(box.maxY >> 4, sections.length - 1);
+
+        for (int sectionY = minSection; sectionY <= maxSection; ++sectionY)
+        {
+            final int sectionMinY = sectionY << 4;
+            final int minY = Math.max(box.minY, sectionMinY) & 0xF;
+            final int maxY = Math.min(box.maxY, sectionMinY + 15) & 0xF;
+            ExtendedBlockStorage section = sections[sectionY];
+
+            if (coversColumn && minY == 0 && maxY == 15)
+            {
+                // A fresh section is cheaper than overwriting and re-counting the old one
+                section = isAir ? Chunk.NULL_BLOCK_STORAGE : new ExtendedBlockStorage(sectionMinY, hasSkyLight);
+                sections[sectionY] = section;
+            }
+            else if (section == Chunk.NULL_BLOCK_STORAGE)
+            {
+                if (isAir)
+                {
+                    continue;
+                }
+
+                section = new ExtendedBlockStorage(sectionMinY, hasSkyLight);
+                sections[sectionY] = section;
+            }
+
+            if (section == Chunk.NULL_BLOCK_STORAGE)
+            {
+                continue;
+            }
+
+            final int minX = box.minX & 0xF;
+            final int minZ = box.minZ & 0xF;
+            final int maxX = box.maxX & 0xF;
+            final int maxZ = box.maxZ & 0xF;
+
+            for (int y = minY; y <= maxY; ++y)
+            {
+                for (int z = minZ; z <= maxZ; ++z)
+                {
+                    for (int x = minX; x <= maxX; ++x)
+                    {
+                        section.set(x, y, z, this.fillState);
+                    }
+                }
+            }
+        }
+    }
+
+    protected void removeTileEntitiesInBoxes(Chunk chunk, List<IntBoundingBox> boxes)
+    {
+        List<TileEntity> toRemove = new ArrayList<>();
+
+        for (TileEntity te : chunk.getTileEntityMap().values())
+        {
+            int x = te.getPos().getX();
+            int y = te.getPos().getY();
+            int z = te.getPos().getZ();
+
+            for (IntBoundingBox box : boxes)
+            {
+                if (x >= box.minX && x <= box.maxX &&
+                    y >= box.minY && y <= box.maxY &&
+                    z >= box.minZ && z <= box.maxZ)
+                {
+                    toRemove.add(te);
+                    break;
+                }
+            }
+        }
+
+        for (TileEntity te : toRemove)
+        {
+            if (te instanceof IInventory)
+            {
+                ((IInventory) te).clear();
+            }
+
+            this.world.removeTileEntity(te.getPos());
+        }
+    }
+
+    protected void removeEntitiesInBox(IntBoundingBox box)
+    {
+        AxisAlignedBB aabb = new AxisAlignedBB(box.minX, box.minY, box.minZ, box.maxX + 1, box.maxY + 1, box.maxZ + 1);
+        List<Entity> entities = this.world.getEntitiesInAABBexcluding(null, aabb, EntityUtils::testNotPlayer);
+        entities.forEach(Entity::setDead);
+    }
+
     protected void fillBoxDirect(IntBoundingBox box, boolean removeEntities)
     {
         if (removeEntities)
         {
-            AxisAlignedBB aabb = new AxisAlignedBB(box.minX, box.minY, box.minZ, box.maxX + 1, box.maxY + 1, box.maxZ + 1);
-            List<Entity> entities = this.world.getEntitiesInAABBexcluding(null, aabb, EntityUtils::testNotPlayer);
-            entities.forEach(Entity::setDead);
+            this.removeEntitiesInBox(box);
         }
 
         try
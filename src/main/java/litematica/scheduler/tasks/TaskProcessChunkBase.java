@@ -63,10 +63,17 @@ public abstract class TaskProcessChunkBase extends TaskBase
                     iter.remove();
                     processed++;
                 }
+
+                // Continue from the remaining chunks on the next execution
+                if (this.shouldYield())
+                {
+                    break;
+                }
             }
 
             if (processed > 0)
             {
+                this.getMetrics().addWorkUnits(processed);
                 this.updateInfoHudLinesMissingChunks(this.requiredChunks);
             }
         }
@@ -20,8 +20,10 @@ import malilib.util.position.BlockPos;
 import malilib.util.position.Vec3d;
 import malilib.util.position.Vec3i;
 import malilib.util.world.BlockState;
+import litematica.schematic.container.AdaptiveBlockContainer;
 import litematica.schematic.container.ArrayBlockContainer;
 import litematica.schematic.container.BlockContainer;
+import litematica.schematic.container.BlockContainerType;
 import litematica.schematic.container.SparseBlockContainer;
 import litematica.schematic.data.EntityData;
 
@@ -65,6 +67,39 @@ public abstract class BaseSchematic implements Schematic
         return this.regions;
     }
 
+    @Override
+    public BaseSchematic createSnapshot()
+    {
+        BaseSchematic snapshot = this.createEmptySchematic();
+        ImmutableMap.Builder<String, SchematicRegion> builder = ImmutableMap.builder();
+
+        for (Map.Entry<String, SchematicRegion> entry : this.regions.entrySet())
+        {
+            builder.put(entry.getKey(), entry.getValue().createSnapshot());
+        }
+
+        snapshot.regions = builder.build();
+        snapshot.enclosingSize = this.enclosingSize;
+        snapshot.minecraftDataVersion = this.minecraftDataVersion;
+        snapshot.metadata.copyFrom(this.metadata);
+        this.copyTypeSpecificDataTo(snapshot);
+
+        return snapshot;
+    }
+
+    /**
+     * @return a new, empty schematic of the same type, for {@link #createSnapshot()}
+     */
+    protected abstract BaseSchematic createEmptySchematic();
+
+    /**
+     * Copies any schematic type specific data, which is not covered by
+     * the common fields, to the given snapshot of this schematic
+     */
+    protected void copyTypeSpecificDataTo(BaseSchematic snapshot)
+    {
+    }
+
     public static boolean isSizeValid(@Nullable Vec3i size)
     {
         return size != null && size.getX() > 0 && size.getY() > 0 && size.getZ() > 0;
@@ -72,6 +107,9 @@ public abstract class BaseSchematic implements Schematic
 
     public static void copyContainerContents(BlockContainer from, BlockContainer to)
     {
+        from = AdaptiveBlockContainer.unwrap(from);
+        to = AdaptiveBlockContainer.unwrap(to);
+
         if ((from instanceof ArrayBlockContainer) && (to instanceof ArrayBlockContainer))
         {
             copyContainerContentsArrayToArray((ArrayBlockContainer) from, (ArrayBlockContainer) to);
@@ -84,9 +122,13 @@ public abstract class BaseSchematic implements Schematic
         {
             copyContainerContentsSparseToArray((SparseBlockContainer) from, (ArrayBlockContainer) to);
         }
+        else
+        {
+            copyContainerContentsGeneric(from, to);
+        }
     }
 
-    public static void copyContainerContentsArrayToArray(ArrayBlockContainer from, ArrayBlockContainer to)
+    public static void copyContainerContentsGeneric(BlockContainer from, BlockContainer to)
     {
         Vec3i sizeFrom = from.getSize();
         Vec3i sizeTo = to.getSize();
@@ -100,14 +142,13 @@ public abstract class BaseSchematic implements Schematic
             {
                 for (int x = 0; x < sizeX; ++x)
                 {
-                    BlockState state = from.getBlockState(x, y, z);
-                    to.setBlockState(x, y, z, state);
+                    to.setBlockState(x, y, z, from.getBlockState(x, y, z));
                 }
             }
         }
     }
 
-    public static void copyContainerContentsSparseToArray(SparseBlockContainer from, ArrayBlockContainer to)
+    public static void copyContainerContentsArrayToArray(ArrayBlockContainer from, ArrayBlockContainer to)
     {
         Vec3i sizeFrom = from.getSize();
         Vec3i sizeTo = to.getSize();
@@ -128,6 +169,27 @@ public abstract class BaseSchematic implements Schematic
         }
     }
 
+    /**
+     * Copies the explicitly stored blocks from the sparse container.
+     * Any positions that don't exist in the sparse container are left untouched
+     * in the target container, so this expects a new (all air) target container.
+     */
+    public static void copyContainerContentsSparseToArray(SparseBlockContainer from, ArrayBlockContainer to)
+    {
+        Vec3i sizeFrom = from.getSize();
+        Vec3i sizeTo = to.getSize();
+        final int sizeX = Math.min(sizeFrom.getX(), sizeTo.getX());
+        final int sizeY = Math.min(sizeFrom.getY(), sizeTo.getY());
+        final int sizeZ = Math.min(sizeFrom.getZ(), sizeTo.getZ());
+
+        from.forEachBlockUnordered((x, y, z, state) -> {
+            if (x < sizeX && y < sizeY && z < sizeZ)
+            {
+                to.setBlockState(x, y, z, state);
+            }
+        });
+    }
+
     public static void copyContainerContentsArrayToSparse(ArrayBlockContainer from, SparseBlockContainer to)
     {
         Vec3i sizeFrom = from.getSize();
@@ -149,6 +211,25 @@ public abstract class BaseSchematic implements Schematic
         }
     }
 
+    /**
+     * @return the given container if it's already an array container,
+     * otherwise a new array container with the contents copied from the given container
+     */
+    public static ArrayBlockContainer getOrConvertToArrayContainer(BlockContainer container)
+    {
+        container = AdaptiveBlockContainer.unwrap(container);
+
+        if (container instanceof ArrayBlockContainer)
+        {
+            return (ArrayBlockContainer) container;
+        }
+
+        ArrayBlockContainer arrayContainer = (ArrayBlockContainer) BlockContainerType.createArrayContainer(container.getSize());
+        copyContainerContents(container, arrayContainer);
+
+        return arrayContainer;
+    }
+
     public static boolean readPaletteFromLitematicaFormatTag(ListData listData,
                                                              Palette<BlockState> palette,
                                                              int dataVersion)
@@ -168,8 +249,12 @@ public abstract class BaseSchematic implements Schematic
 
     public static ListData writePaletteToLitematicaFormatTag(Palette<BlockState> palette)
     {
-        final int size = palette.getSize();
-        List<BlockState> mapping = palette.getMapping();
+        return writePaletteToLitematicaFormatTag(palette.getMapping());
+    }
+
+    public static ListData writePaletteToLitematicaFormatTag(List<BlockState> mapping)
+    {
+        final int size = mapping.size();
         ListData listData = new ListData(Constants.NBT.TAG_COMPOUND);
 
         for (int id = 0; id < size; ++id)
@@ -10,7 +10,6 @@ import javax.annotation.Nullable;
 import com.google.common.collect.ImmutableMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 
-import malilib.overlay.message.MessageDispatcher;
 import malilib.util.ListUtils;
 import malilib.util.data.Constants;
 import malilib.util.data.tag.CompoundData;
@@ -25,7 +24,9 @@ import malilib.util.world.BlockState;
 import litematica.Litematica;
 import litematica.schematic.container.ArrayBlockContainer;
 import litematica.schematic.container.BlockContainer;
+import litematica.schematic.container.LegacyBlockArrayConverter;
 import litematica.schematic.data.EntityData;
+import litematica.schematic.util.SchematicMessages;
 import litematica.util.PositionUtils;
 
 public class IndevWorldSchematic extends BaseSchematic
@@ -41,6 +42,21 @@ public class IndevWorldSchematic extends BaseSchematic
         super(SchematicType.INDEV_WORLD);
     }
 
+    @Override
+    protected IndevWorldSchematic createEmptySchematic()
+    {
+        return new IndevWorldSchematic();
+    }
+
+    @Override
+    protected void copyTypeSpecificDataTo(BaseSchematic snapshot)
+    {
+        IndevWorldSchematic schematic = (IndevWorldSchematic) snapshot;
+        schematic.originalSpawnCoordinatesTag = this.originalSpawnCoordinatesTag != null ? this.originalSpawnCoordinatesTag.copy() : null;
+        schematic.originalEnvironmentTag = this.originalEnvironmentTag != null ? this.originalEnvironmentTag.copy() : null;
+        schematic.originalPlayerEntityTag = this.originalPlayerEntityTag != null ? this.originalPlayerEntityTag.copy() : null;
+    }
+
     @Override
     public boolean read(DataView data)
     {
@@ -65,13 +81,13 @@ public class IndevWorldSchematic extends BaseSchematic
 
         if (beErrorCount > 0)
         {
-            MessageDispatcher.warning("litematica.message.warn.schematic_read.failed_to_read_block_entities",
+            SchematicMessages.warning("litematica.message.warn.schematic_read.failed_to_read_block_entities",
                                       beErrorCount, blockEntityMap.size());
         }
 
         if (entityErrorCount > 0)
         {
-            MessageDispatcher.warning("litematica.message.warn.schematic_read.failed_to_read_entities",
+            SchematicMessages.warning("litematica.message.warn.schematic_read.failed_to_read_entities",
                                       entityErrorCount, entityList.size());
         }
 
@@ -98,7 +114,7 @@ public class IndevWorldSchematic extends BaseSchematic
 
         if (regionCount != 1)
         {
-            MessageDispatcher.error("litematica.message.error.schematic_save.wrong_region_count", regionCount, 1);
+            SchematicMessages.error("litematica.message.error.schematic_save.wrong_region_count", regionCount, 1);
             return Optional.empty();
         }
 
@@ -108,7 +124,7 @@ public class IndevWorldSchematic extends BaseSchematic
         // TODO Are these the real hard limits? Or does it break after 512 horizontal size?
         if (size.getX() > 1024 || size.getY() > 128 || size.getZ() > 1024)
         {
-            MessageDispatcher.error("litematica.message.error.schematic_save.indev.too_large");
+            SchematicMessages.error("litematica.message.error.schematic_save.indev.too_large");
             return Optional.empty();
         }
 
@@ -158,7 +174,7 @@ public class IndevWorldSchematic extends BaseSchematic
 
         if (blockErrorCount > 0)
         {
-            MessageDispatcher.warning("litematica.message.warn.schematic_write.indev_world.block_write_errors",
+            SchematicMessages.warning("litematica.message.warn.schematic_write.indev_world.block_write_errors",
                                       blockErrorCount);
         }
 
@@ -178,20 +194,16 @@ public class IndevWorldSchematic extends BaseSchematic
     protected BlockContainer readBlocks(DataView data, Vec3i size)
     {
         Int2ObjectOpenHashMap<BlockState> mapping = SchematicaSchematic.createRegistryBasedPalette();
-        int safePaletteSize = mapping.size() * 16;  // Max 16 metadata values per block
-        int entryWidthBits = ArrayBlockContainer.getRequiredBitWidth(safePaletteSize);
-        ArrayBlockContainer container = new ArrayBlockContainer(size, entryWidthBits);
-
         DataView mapTag = data.getCompound("Map");
-        this.readBlocksFromTag(mapTag, size, container, mapping);
+        ArrayBlockContainer container = this.readBlocksFromTag(mapTag, size, mapping);
 
-        return container;
+        return container != null ? container : new ArrayBlockContainer(size, 2);
     }
 
-    protected void readBlocksFromTag(DataView data,
-                                     Vec3i size,
-                                     ArrayBlockContainer container,
-                                     Int2ObjectOpenHashMap<BlockState> mapping)
+    @Nullable
+    protected ArrayBlockContainer readBlocksFromTag(DataView data,
+                                                    Vec3i size,
+                                                    Int2ObjectOpenHashMap<BlockState> mapping)
     {
         final int sizeX = size.getX();
         final int sizeY = size.getY();
@@ -202,73 +214,38 @@ public class IndevWorldSchematic extends BaseSchematic
 
         if (numBlocks != blockIdsArr.length)
         {
-            MessageDispatcher.error("litematica.message.error.schematic_read.schematica.schematic.invalid_block_array_size",
+            SchematicMessages.error("litematica.message.error.schematic_read.schematica.schematic.invalid_block_array_size",
                                     blockIdsArr.length, numBlocks, sizeX, sizeY, sizeZ);
-            return;
+            return null;
         }
 
         if (numBlocks != metaArr.length)
         {
-            MessageDispatcher.error("litematica.message.error.schematic_read.schematica.schematic.invalid_metadata_array_size",
+            SchematicMessages.error("litematica.message.error.schematic_read.schematica.schematic.invalid_metadata_array_size",
                                     metaArr.length, numBlocks);
-            return;
+            return null;
         }
 
-        int errorCount = this.readBlocksIndev(blockIdsArr, metaArr, size, container, mapping);
+        // Upper 4 bits of the Data array is meta, lower 4 bits is light
+        char[] keys = LegacyBlockArrayConverter.decodeKeysIndev(blockIdsArr, metaArr);
+        LegacyBlockArrayConverter converter = new LegacyBlockArrayConverter(mapping);
+        ArrayBlockContainer container = converter.createContainer(size, keys);
+        long errorCount = converter.getErrorCount();
 
-        if (errorCount > 0)
+        for (int key : converter.getUnmappedKeys())
         {
-            MessageDispatcher.error("litematica.message.error.schematic_read.schematica.block_errors",
-                                    errorCount, numBlocks);
+            Litematica.LOGGER.warn("IndevWorldSchematic: Failed to read block with id = {}, meta = {}", key >>> 4, key & 0xF);
         }
-    }
 
-    @SuppressWarnings("deprecation")
-    protected int readBlocksIndev(byte[] blockIdsByte,
-                                  byte[] metaArr,
-                                  Vec3i size,
-                                  ArrayBlockContainer container,
-                                  Int2ObjectOpenHashMap<BlockState> mapping)
-    {
-        final int sizeX = size.getX();
-        final int sizeY = size.getY();
-        final int sizeZ = size.getZ();
-        int blockId;
-        int metaValue;
-        int index = 0;
-        int errorCount = 0;
-
-        for (int y = 0; y < sizeY; y++)
+        if (errorCount > 0)
         {
-            for (int z = 0; z < sizeZ; z++)
-            {
-                for (int x = 0; x < sizeX; x++)
-                {
-                    blockId = (blockIdsByte[index] & 0xFF);  // Need to mask because the array type is signed...
-                    metaValue = (metaArr[index] >> 4) & 0xF; // Upper 4 bits is meta, lower 4 bits is light
-
-                    BlockState state = mapping.get(blockId);
-
-                    if (state != null)
-                    {
-                        state = BlockState.of(state.getBlock().getStateFromMeta(metaValue));
-                        container.setBlockState(x, y, z, state);
-                    }
-                    else
-                    {
-                        Litematica.LOGGER.warn("readBlocksIndev: Failed to read block with id = {}, meta = {}", blockId, metaValue);
-                        errorCount++;
-                    }
-
-                    index++;
-                }
-            }
+            SchematicMessages.error("litematica.message.error.schematic_read.schematica.block_errors",
+                                    errorCount, numBlocks);
         }
 
-        return errorCount;
+        return container;
     }
 
-
     protected int readBlockEntitiesIndev(ListData listDataIn, Map<BlockPos, CompoundData> blockEntityMapOut)
     {
         final int size = listDataIn.size();
@@ -353,39 +330,25 @@ public class IndevWorldSchematic extends BaseSchematic
 
     protected int writeBlocksToTag(CompoundData data, Vec3i size, BlockContainer container)
     {
-        final int sizeX = size.getX();
-        final int sizeY = size.getY();
-        final int sizeZ = size.getZ();
-
-        final int numBlocks = sizeX * sizeY * sizeZ;
+        final char[] keys = LegacyBlockArrayConverter.encodeKeys(container);
+        final int numBlocks = keys.length;
         final byte[] blockIdArr = new byte[numBlocks];
         final byte[] metaArr = new byte[numBlocks];
-        int index = 0;
         int errorCount = 0;
 
-        for (int y = 0; y < sizeY; y++)
+        for (int index = 0; index < numBlocks; index++)
         {
-            for (int z = 0; z < sizeZ; z++)
+            int key = keys[index];
+            int blockId = key >>> 4;
+
+            if (blockId <= 255)
+            {
+                blockIdArr[index] = (byte) blockId;
+                metaArr[index] = (byte) ((key & 0xF) << 4);    // upper 4 bits is meta, lower 4 bits is light
+            }
+            else
             {
-                for (int x = 0; x < sizeX; x++)
-                {
-                    BlockState state = container.getBlockState(x, y, z);
-                    int blockId = state.getOldBlockId();
-
-                    if (blockId <= 255)
-                    {
-                        int meta = state.getBlock().getMetaFromState(state.vanillaState()) & 0xF;
-
-                        blockIdArr[index] = (byte) (blockId & 0xFF);
-                        metaArr[index] = (byte) (meta << 4);    // upper 4 bits is meta, lower 4 bits is light
-                    }
-                    else
-                    {
-                        ++errorCount;
-                    }
-
-                    index++;
-                }
+                ++errorCount;
             }
         }
 
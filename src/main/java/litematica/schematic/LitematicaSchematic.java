@@ -1,14 +1,16 @@
 package litematica.schematic;
 
+import java.io.IOException;
+import java.nio.LongBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import javax.annotation.Nullable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
-import malilib.overlay.message.MessageDispatcher;
 import malilib.util.data.Constants;
 import malilib.util.data.tag.CompoundData;
 import malilib.util.data.tag.DataView;
@@ -21,22 +23,44 @@ import malilib.util.position.Vec3d;
 import malilib.util.position.Vec3i;
 import malilib.util.world.ScheduledBlockTickData;
 import litematica.Litematica;
+import litematica.config.Configs;
+import litematica.schematic.container.AdaptiveBlockContainer;
 import litematica.schematic.container.ArrayBlockContainer;
 import litematica.schematic.container.BlockContainer;
+import litematica.schematic.container.BlockContainerType;
+import litematica.schematic.container.LazySectionedBlockContainer;
+import litematica.schematic.container.OffHeapTightIntArray;
+import litematica.schematic.container.PackedIntArray;
+import litematica.schematic.container.PalettedBlockData;
 import litematica.schematic.container.TightLongBackedIntArray;
 import litematica.schematic.data.EntityData;
+import litematica.schematic.util.LitematicaFileReader;
+import litematica.schematic.util.NbtStreamWriter;
+import litematica.schematic.util.SchematicMessages;
+import litematica.schematic.util.SectionedSchematicFile;
 import litematica.util.PositionUtils;
 
 public class LitematicaSchematic extends BaseSchematic
 {
     public static final String FILE_NAME_EXTENSION = "litematic";
     public static final int CURRENT_SCHEMATIC_VERSION = 4;
+    public static final int SECTIONED_SCHEMATIC_VERSION = 5;
+    public static final ImmutableList<Integer> SAVABLE_VERSIONS = ImmutableList.of(CURRENT_SCHEMATIC_VERSION, SECTIONED_SCHEMATIC_VERSION);
+
+    @Nullable protected SectionedSchematicFile.FileSource sectionFileSource;
+    @Nullable protected Map<String, LongBuffer[]> offHeapBlockStates;
 
     public LitematicaSchematic()
     {
         super(SchematicType.LITEMATICA);
     }
 
+    @Override
+    protected LitematicaSchematic createEmptySchematic()
+    {
+        return new LitematicaSchematic();
+    }
+
     @Override
     public boolean read(DataView data)
     {
@@ -51,19 +75,19 @@ public class LitematicaSchematic extends BaseSchematic
         /* This can't happen after the isValid() check
         if (version == -1)
         {
-            MessageDispatcher.error("litematica.error.schematic_read.no_version");
+            SchematicMessages.error("litematica.error.schematic_read.no_version");
         }
         */
 
-        if (version == 0 || version > CURRENT_SCHEMATIC_VERSION)
+        if (version == 0 || version > SECTIONED_SCHEMATIC_VERSION)
         {
-            MessageDispatcher.warning("litematica.error.schematic_read.unknown_schematic_version",
-                                      version, CURRENT_SCHEMATIC_VERSION);
+            SchematicMessages.warning("litematica.error.schematic_read.unknown_schematic_version",
+                                      version, SECTIONED_SCHEMATIC_VERSION);
         }
 
         if (this.minecraftDataVersion > CURRENT_MINECRAFT_DATA_VERSION)
         {
-            MessageDispatcher.warning("litematica.error.schematic_read.future_data_version",
+            SchematicMessages.warning("litematica.error.schematic_read.future_data_version",
                                       this.minecraftDataVersion, CURRENT_MINECRAFT_DATA_VERSION);
         }
 
@@ -74,6 +98,49 @@ public class LitematicaSchematic extends BaseSchematic
         return true;
     }
 
+    /**
+     * Reads a sectioned schematic (version 5), where the data only has the first part of the file,
+     * and the block data sections are read on demand from the given source.
+     * See {@link SectionedSchematicFile}.
+     */
+    public boolean readSectioned(DataView data, SectionedSchematicFile.FileSource source)
+    {
+        this.sectionFileSource = source;
+
+        try
+        {
+            return this.read(data);
+        }
+        finally
+        {
+            this.sectionFileSource = null;
+        }
+    }
+
+    /**
+     * Reads a schematic where the large BlockStates arrays were read directly from the file
+     * into off-heap storage, and left out of the data. See {@link LitematicaFileReader}.
+     * @param blockStates the off-heap block data by region name
+     */
+    public boolean readWithOffHeapBlockStates(DataView data, Map<String, LongBuffer[]> blockStates)
+    {
+        this.offHeapBlockStates = blockStates;
+
+        try
+        {
+            return this.read(data);
+        }
+        finally
+        {
+            this.offHeapBlockStates = null;
+        }
+    }
+
+    public int getMinecraftDataVersion()
+    {
+        return this.minecraftDataVersion;
+    }
+
     @Override
     public Optional<CompoundData> write()
     {
@@ -94,6 +161,77 @@ public class LitematicaSchematic extends BaseSchematic
         return Optional.of(data);
     }
 
+    /**
+     * The schematic is streamed if it has regions large enough for the off-heap storage,
+     * so that their block data is written to the file directly from the off-heap storage
+     */
+    @Override
+    public boolean supportsStreamingWrite()
+    {
+        for (SchematicRegion region : this.getRegions().values())
+        {
+            BlockContainer container = AdaptiveBlockContainer.unwrap(region.getBlockContainer());
+
+            if ((container instanceof ArrayBlockContainer &&
+                 ((ArrayBlockContainer) container).getIntStorage() instanceof OffHeapTightIntArray) ||
+                OffHeapTightIntArray.shouldUseOffHeapStorage(PositionUtils.getAreaVolume(region.getSize())))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Writes the same data as {@link #write()}, but the block data of each region
+     * is written directly to the stream, without building the data tree first
+     */
+    @Override
+    public boolean writeToStream(NbtStreamWriter writer) throws IOException
+    {
+        if (this.getRegions().isEmpty())
+        {
+            SchematicMessages.error("litematica.message.error.schematic_save.no_regions");
+            return false;
+        }
+
+        writer.writeInt("Version", CURRENT_SCHEMATIC_VERSION);
+        writer.writeInt("MinecraftDataVersion", this.minecraftDataVersion);
+        writer.writeCompound("Metadata", this.metadata.write(new CompoundData()));
+        writer.beginCompound("Regions");
+
+        for (Map.Entry<String, SchematicRegion> entry : this.getRegions().entrySet())
+        {
+            SchematicRegion region = entry.getValue();
+            CompoundData regionTag = this.writeRegionTagWithoutBlocks(region);
+
+            // The palette is compacted on the fly, so the ids must come from the same data
+            PalettedBlockData blockData = PalettedBlockData.of(region.getBlockContainer());
+            regionTag.put("BlockStatePalette", writePaletteToLitematicaFormatTag(blockData.getPalette()));
+
+            writer.beginCompound(entry.getKey());
+            writer.writeCompoundContents(regionTag);
+
+            PackedIntArray storage = getAsTightArray(blockData);
+
+            if (storage instanceof OffHeapTightIntArray)
+            {
+                writer.writeLongArray("BlockStates", (OffHeapTightIntArray) storage);
+            }
+            else
+            {
+                writer.writeLongArray("BlockStates", ((TightLongBackedIntArray) storage).getBackingLongArray());
+            }
+
+            writer.endCompound();
+        }
+
+        writer.endCompound();
+
+        return true;
+    }
+
     protected ImmutableMap<String, SchematicRegion> readRegions(DataView data, int version, int mainDataVersion)
     {
         ImmutableMap.Builder<String, SchematicRegion> builder = ImmutableMap.builder();
@@ -104,7 +242,7 @@ public class LitematicaSchematic extends BaseSchematic
         {
             if (regionsTag.contains(regionName, Constants.NBT.TAG_COMPOUND) == false)
             {
-                MessageDispatcher.error("litematica.error.schematic_read.litematica.invalid_tag_in_regions", regionName);
+                SchematicMessages.error("litematica.error.schematic_read.litematica.invalid_tag_in_regions", regionName);
                 continue;
             }
 
@@ -114,7 +252,7 @@ public class LitematicaSchematic extends BaseSchematic
 
             if (regionPos == null || regionSize == null)
             {
-                MessageDispatcher.error("litematica.error.schematic_read.litematica.missing_pos_or_size", regionName);
+                SchematicMessages.error("litematica.error.schematic_read.litematica.missing_pos_or_size", regionName);
                 continue;
             }
 
@@ -139,7 +277,7 @@ public class LitematicaSchematic extends BaseSchematic
             }
             else
             {
-                MessageDispatcher.error("litematica.error.schematic_read.litematica.version_0", regionName);
+                SchematicMessages.error("litematica.error.schematic_read.litematica.version_0", regionName);
             }
 
             if (version >= 3)
@@ -150,49 +288,42 @@ public class LitematicaSchematic extends BaseSchematic
 
             if (entityErrorCount > 0)
             {
-                MessageDispatcher.warning("litematica.message.warn.schematic_read.litematica.entity_errors",
+                SchematicMessages.warning("litematica.message.warn.schematic_read.litematica.entity_errors",
                                           entityErrorCount, entityList.size(), regionName);
             }
 
             if (beErrorCount > 0)
             {
-                MessageDispatcher.warning("litematica.message.warn.schematic_read.litematica.block_entity_errors",
+                SchematicMessages.warning("litematica.message.warn.schematic_read.litematica.block_entity_errors",
                                           beErrorCount, blockEntityMap.size(), regionName);
             }
 
             if (tickErrorCount > 0)
             {
-                MessageDispatcher.warning("litematica.message.warn.schematic_read.litematica.block_tick_errors",
+                SchematicMessages.warning("litematica.message.warn.schematic_read.litematica.block_tick_errors",
                                           tickErrorCount, blockTickMap.size(), regionName);
             }
 
             Vec3i size = PositionUtils.getAbsoluteSize(regionSize);
             ListData paletteTag = regionTag.getList("BlockStatePalette", Constants.NBT.TAG_COMPOUND);
-            int paletteSize = paletteTag.size();
-            long[] blockDataArray = regionTag.getLongArray("BlockStates");
+            int dataVersion = regionTag.getIntOrDefault("DataVersion", mainDataVersion);
+            BlockContainer regionContainer;
 
-            if (blockDataArray == null || blockDataArray.length == 0)
+            if (version >= SECTIONED_SCHEMATIC_VERSION)
             {
-                MessageDispatcher.error("litematica.error.schematic_read.litematica.invalid_block_data_array", regionName);
-                continue;
+                regionContainer = this.readSectionedBlockContainer(regionTag, size, paletteTag, dataVersion, regionName);
             }
-
-            int dataVersion = regionTag.getIntOrDefault("DataVersion", mainDataVersion);
-            ArrayBlockContainer container = createContainerFromData(size, paletteSize, blockDataArray);
-
-            if (container == null)
+            else
             {
-                MessageDispatcher.error("litematica.error.schematic_read.litematica.region_container", regionName);
-                continue;
+                regionContainer = this.readBlockContainer(regionTag, size, paletteTag, dataVersion, regionName);
             }
 
-            if (readPaletteFromLitematicaFormatTag(paletteTag, container.getPalette(), dataVersion) == false)
+            if (regionContainer == null)
             {
-                MessageDispatcher.error("litematica.error.schematic_read.litematica.palette_read_failed", regionName);
                 continue;
             }
 
-            SchematicRegion region = new SchematicRegion(regionPos, regionSize, container, blockEntityMap,
+            SchematicRegion region = new SchematicRegion(regionPos, regionSize, regionContainer, blockEntityMap,
                                                          blockTickMap, entityList, dataVersion);
 
             builder.put(regionName, region);
@@ -201,6 +332,81 @@ public class LitematicaSchematic extends BaseSchematic
         return builder.build();
     }
 
+    @Nullable
+    protected BlockContainer readBlockContainer(DataView regionTag, Vec3i size, ListData paletteTag,
+                                                int dataVersion, String regionName)
+    {
+        int paletteSize = paletteTag.size();
+        LongBuffer[] offHeapData = this.offHeapBlockStates != null ? this.offHeapBlockStates.get(regionName) : null;
+        ArrayBlockContainer container;
+
+        if (offHeapData != null)
+        {
+            container = createContainerFromOffHeapData(size, paletteSize, offHeapData);
+        }
+        else
+        {
+            long[] blockDataArray = regionTag.getLongArray("BlockStates");
+
+            if (blockDataArray == null || blockDataArray.length == 0)
+            {
+                SchematicMessages.error("litematica.error.schematic_read.litematica.invalid_block_data_array", regionName);
+                return null;
+            }
+
+            container = createContainerFromData(size, paletteSize, blockDataArray);
+        }
+
+        if (container == null)
+        {
+            SchematicMessages.error("litematica.error.schematic_read.litematica.region_container", regionName);
+            return null;
+        }
+
+        if (readPaletteFromLitematicaFormatTag(paletteTag, container.getPalette(), dataVersion) == false)
+        {
+            SchematicMessages.error("litematica.error.schematic_read.litematica.palette_read_failed", regionName);
+            return null;
+        }
+
+        if (Configs.Generic.SCHEMATIC_BLOCK_CONTAINER.getValue() == BlockContainerType.ADAPTIVE)
+        {
+            // Allows mostly-air regions to switch to the sparse storage
+            BlockContainer regionContainer = new AdaptiveBlockContainer(container, BlockContainerType::createArrayContainer);
+            regionContainer.optimizeStorage();
+            return regionContainer;
+        }
+
+        return container;
+    }
+
+    @Nullable
+    protected BlockContainer readSectionedBlockContainer(DataView regionTag, Vec3i size, ListData paletteTag,
+                                                         int dataVersion, String regionName)
+    {
+        if (this.sectionFileSource == null)
+        {
+            SchematicMessages.error("litematica.error.schematic_read.litematica.sectioned_without_file", regionName);
+            return null;
+        }
+
+        LazySectionedBlockContainer container = this.sectionFileSource.createContainer(regionTag, size);
+
+        if (container == null)
+        {
+            SchematicMessages.error("litematica.error.schematic_read.litematica.region_container", regionName);
+            return null;
+        }
+
+        if (readPaletteFromLitematicaFormatTag(paletteTag, container.getPalette(), dataVersion) == false)
+        {
+            SchematicMessages.error("litematica.error.schematic_read.litematica.palette_read_failed", regionName);
+            return null;
+        }
+
+        return container;
+    }
+
     protected int readBlockEntities_v2(ListData listDataIn, Map<BlockPos, CompoundData> blockEntityMapOut)
     {
         return this.readBlockEntities(listDataIn, blockEntityMapOut);
@@ -295,32 +501,51 @@ public class LitematicaSchematic extends BaseSchematic
         return errorCount;
     }
 
-    @Nullable
-    public static long[] getAsTightLongBackedArray(BlockContainer container)
+    /**
+     * @return the block data as a long array. This copies the off-heap data to the heap,
+     * so the schematics with off-heap data are written via {@link #writeToStream(NbtStreamWriter)} instead.
+     */
+    public static long[] getAsTightLongBackedArray(PalettedBlockData blockData)
     {
-        if (container instanceof ArrayBlockContainer)
+        PackedIntArray storage = getAsTightArray(blockData);
+
+        if (storage instanceof OffHeapTightIntArray)
         {
-            ArrayBlockContainer arrayContainer = (ArrayBlockContainer) container;
+            return ((OffHeapTightIntArray) storage).toLongArray();
+        }
 
-            if (arrayContainer.getIntStorage() instanceof TightLongBackedIntArray)
-            {
-                return ((TightLongBackedIntArray) arrayContainer.getIntStorage()).getBackingLongArray();
-            }
+        return ((TightLongBackedIntArray) storage).getBackingLongArray();
+    }
+
+    /**
+     * @return the storage of the block data as either a {@link TightLongBackedIntArray}
+     * or an {@link OffHeapTightIntArray}, which both have the layout of the BlockStates array
+     */
+    protected static PackedIntArray getAsTightArray(PalettedBlockData blockData)
+    {
+        PackedIntArray storage = blockData.getStorage();
+
+        if (storage instanceof TightLongBackedIntArray || storage instanceof OffHeapTightIntArray)
+        {
+            return storage;
         }
 
-        int bits = ArrayBlockContainer.getRequiredBitWidth(container.getPalette().getSize());
-        TightLongBackedIntArray storage = new TightLongBackedIntArray(bits, container.getTotalVolume());
-        ArrayBlockContainer arrayContainer = new ArrayBlockContainer(container.getSize(), storage);
-        BaseSchematic.copyContainerContents(container, arrayContainer);
+        final long size = storage.size();
+        PackedIntArray tightStorage = OffHeapTightIntArray.createTightArray(storage.getEntryBitWidth(), size);
 
-        return storage.getBackingLongArray();
+        for (long index = 0; index < size; ++index)
+        {
+            tightStorage.setAt(index, storage.getAt(index));
+        }
+
+        return tightStorage;
     }
 
     protected boolean writeRegions(CompoundData data)
     {
         if (this.getRegions().isEmpty())
         {
-            MessageDispatcher.error("litematica.message.error.schematic_save.no_regions");
+            SchematicMessages.error("litematica.message.error.schematic_save.no_regions");
             return false;
         }
 
@@ -328,45 +553,56 @@ public class LitematicaSchematic extends BaseSchematic
 
         for (Map.Entry<String, SchematicRegion> entry : this.getRegions().entrySet())
         {
-            String regionName = entry.getKey();
             SchematicRegion region = entry.getValue();
-            BlockContainer container = region.getBlockContainer();
+            CompoundData regionTag = this.writeRegionTagWithoutBlocks(region);
 
-            Map<BlockPos, CompoundData> blockEntityMap = region.getBlockEntityMap();
-            Map<BlockPos, ScheduledBlockTickData> blockTicksMap = region.getBlockTickMap();
-            List<EntityData> entityList = region.getEntityList();
+            // The palette is compacted on the fly, so the ids must come from the same data
+            PalettedBlockData blockData = PalettedBlockData.of(region.getBlockContainer());
 
-            CompoundData regionTag = new CompoundData();
+            regionTag.put("BlockStatePalette", writePaletteToLitematicaFormatTag(blockData.getPalette()));
+            regionTag.put("BlockStates", new LongArrayData(getAsTightLongBackedArray(blockData)));
 
-            regionTag.putInt("DataVersion", region.getMinecraftDataVersion());
-            regionTag.put("BlockStatePalette", writePaletteToLitematicaFormatTag(container.getPalette()));
-            regionTag.put("BlockStates", new LongArrayData(getAsTightLongBackedArray(container)));
+            regionsTag.put(entry.getKey(), regionTag);
+        }
 
-            if (blockEntityMap.isEmpty() == false)
-            {
-                regionTag.put("TileEntities", this.getBlockEntitiesAsListData(blockEntityMap));
-            }
+        data.put("Regions", regionsTag);
 
-            if (blockTicksMap.isEmpty() == false)
-            {
-                regionTag.put("PendingBlockTicks", this.writeBlockTicksToListData(blockTicksMap));
-            }
+        return true;
+    }
 
-            // The entity list will not exist, if saveEntities is false when creating the schematic
-            if (entityList.isEmpty() == false)
-            {
-                regionTag.put("Entities", this.getEntitiesAsListData(entityList));
-            }
+    /**
+     * Writes everything in the region except for the block data into a new region tag
+     */
+    public CompoundData writeRegionTagWithoutBlocks(SchematicRegion region)
+    {
+        Map<BlockPos, CompoundData> blockEntityMap = region.getBlockEntityMap();
+        Map<BlockPos, ScheduledBlockTickData> blockTicksMap = region.getBlockTickMap();
+        List<EntityData> entityList = region.getEntityList();
+
+        CompoundData regionTag = new CompoundData();
 
-            regionTag.put("Position", DataTypeUtils.createVec3iTag(region.getRelativePosition()));
-            regionTag.put("Size", DataTypeUtils.createVec3iTag(region.getSize()));
+        regionTag.putInt("DataVersion", region.getMinecraftDataVersion());
 
-            regionsTag.put(regionName, regionTag);
+        if (blockEntityMap.isEmpty() == false)
+        {
+            regionTag.put("TileEntities", this.getBlockEntitiesAsListData(blockEntityMap));
         }
 
-        data.put("Regions", regionsTag);
+        if (blockTicksMap.isEmpty() == false)
+        {
+            regionTag.put("PendingBlockTicks", this.writeBlockTicksToListData(blockTicksMap));
+        }
 
-        return true;
+        // The entity list will not exist, if saveEntities is false when creating the schematic
+        if (entityList.isEmpty() == false)
+        {
+            regionTag.put("Entities", this.getEntitiesAsListData(entityList));
+        }
+
+        regionTag.put("Position", DataTypeUtils.createVec3iTag(region.getRelativePosition()));
+        regionTag.put("Size", DataTypeUtils.createVec3iTag(region.getSize()));
+
+        return regionTag;
     }
 
     protected ListData writeBlockTicksToListData(Map<BlockPos, ScheduledBlockTickData> blockTicksMap)
@@ -403,7 +639,7 @@ public class LitematicaSchematic extends BaseSchematic
 
     public static BlockContainer createDefaultBlockContainer(Vec3i containerSize)
     {
-        TightLongBackedIntArray storage = new TightLongBackedIntArray(2, PositionUtils.getAreaVolume(containerSize));
+        PackedIntArray storage = OffHeapTightIntArray.createTightArray(2, PositionUtils.getAreaVolume(containerSize));
         return new ArrayBlockContainer(containerSize, storage);
     }
 
@@ -488,7 +724,19 @@ public class LitematicaSchematic extends BaseSchematic
 
         try
         {
-            TightLongBackedIntArray storage = new TightLongBackedIntArray(entryWidthBits, volume, blockStates);
+            PackedIntArray storage;
+
+            // Move the loaded data out of the heap for very large regions
+            if (OffHeapTightIntArray.shouldUseOffHeapStorage(volume))
+            {
+                storage = blockStates != null ? OffHeapTightIntArray.fromLongArray(entryWidthBits, volume, blockStates) :
+                                                new OffHeapTightIntArray(entryWidthBits, volume);
+            }
+            else
+            {
+                storage = new TightLongBackedIntArray(entryWidthBits, volume, blockStates);
+            }
+
             return new ArrayBlockContainer(size, storage);
             //container.palette = createPalette(bits, container);
         }
@@ -499,4 +747,34 @@ public class LitematicaSchematic extends BaseSchematic
             return null;
         }
     }
+
+    /**
+     * Creates the container from block data that was read directly to off-heap storage.
+     * If the region is too small for the off-heap storage, then the data is copied to the heap.
+     */
+    @Nullable
+    public static ArrayBlockContainer createContainerFromOffHeapData(Vec3i size, int paletteSize, LongBuffer[] blockStates)
+    {
+        int entryWidthBits = ArrayBlockContainer.getRequiredBitWidth(paletteSize);
+        long volume = PositionUtils.getAreaVolume(size);
+
+        try
+        {
+            OffHeapTightIntArray offHeapStorage = OffHeapTightIntArray.fromSegments(entryWidthBits, volume, blockStates);
+            PackedIntArray storage = offHeapStorage;
+
+            if (OffHeapTightIntArray.shouldUseOffHeapStorage(volume) == false)
+            {
+                storage = new TightLongBackedIntArray(entryWidthBits, volume, offHeapStorage.toLongArray());
+            }
+
+            return new ArrayBlockContainer(size, storage);
+        }
+        catch (Exception e)
+        {
+            Litematica.LOGGER.error("LitematicaSchematic#createContainerFromOffHeapData: volume: {}, entryWidthBits: {}",
+                                    volume, entryWidthBits, e);
+            return null;
+        }
+    }
 }
@@ -1,16 +1,31 @@
 package litematica.schematic;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
+import javax.annotation.Nullable;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 import malilib.util.data.tag.CompoundData;
 import malilib.util.data.tag.util.DataFileUtils;
+import litematica.Litematica;
+import litematica.schematic.util.LitematicaFileReader;
+import litematica.schematic.util.SectionedSchematicFile;
 
 public class LoadedSchematic
 {
     public final Schematic schematic;
     public final Optional<Path> file;
+    protected final long fileSize;
+    protected final long fileModifiedTime;
+    @Nullable protected HashCode contentHash;
     protected boolean modifiedSinceSaved;
+    protected boolean unloadWhenUnused;
+    protected int referenceCount;
 
     public LoadedSchematic(Schematic schematic)
     {
@@ -21,6 +36,8 @@ public class LoadedSchematic
     {
         this.schematic = schematic;
         this.file = file;
+        this.fileSize = file.isPresent() ? getFileSize(file.get()) : -1L;
+        this.fileModifiedTime = file.isPresent() ? getFileModifiedTime(file.get()) : -1L;
     }
 
     public boolean wasModifiedSinceSaved()
@@ -38,6 +55,112 @@ public class LoadedSchematic
         this.modifiedSinceSaved = false;
     }
 
+    /**
+     * @return true if this schematic should be unloaded once the last placement using it is removed,
+     * even if it can't be re-loaded from a file. This is used for the temporary schematics
+     * created by the tools, such as the clone tool.
+     */
+    public boolean shouldUnloadWhenUnused()
+    {
+        return this.unloadWhenUnused;
+    }
+
+    public void setUnloadWhenUnused(boolean unloadWhenUnused)
+    {
+        this.unloadWhenUnused = unloadWhenUnused;
+    }
+
+    /**
+     * @return the number of schematic placements currently using this schematic
+     */
+    public int getReferenceCount()
+    {
+        return this.referenceCount;
+    }
+
+    /**
+     * Called when a placement starts using this schematic
+     */
+    public void retain()
+    {
+        ++this.referenceCount;
+    }
+
+    /**
+     * Called when a placement stops using this schematic
+     * @return true if this was the last reference, ie. nothing is using this schematic anymore
+     */
+    public boolean release()
+    {
+        if (this.referenceCount > 0)
+        {
+            --this.referenceCount;
+            return this.referenceCount == 0;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return true if this schematic has not been modified, and the file it was
+     * loaded from still exists and has not been changed since, so that the schematic
+     * can be loaded again from the file if needed
+     */
+    public boolean canBeReloadedFromFile()
+    {
+        return this.modifiedSinceSaved == false &&
+               this.file.isPresent() &&
+               this.fileSize >= 0 &&
+               getFileSize(this.file.get()) == this.fileSize &&
+               getFileModifiedTime(this.file.get()) == this.fileModifiedTime;
+    }
+
+    /**
+     * @return the size of the file this schematic was loaded from, at the time it was loaded,
+     * or -1 if the schematic was not loaded from a file
+     */
+    public long getLoadedFileSize()
+    {
+        return this.fileSize;
+    }
+
+    /**
+     * @return a hash of the contents of the file this schematic was loaded from,
+     * or null if the schematic has been modified or the file has changed since,
+     * ie. if the hash would not represent the data of this schematic anymore.
+     * The hash is calculated on the first call.
+     */
+    @Nullable
+    public HashCode getContentHash()
+    {
+        if (this.canBeReloadedFromFile() == false)
+        {
+            return null;
+        }
+
+        if (this.contentHash == null)
+        {
+            this.contentHash = hashFile(this.file.get());
+        }
+
+        return this.contentHash;
+    }
+
+    /**
+     * @return the approximate number of bytes that the block data of this schematic takes on the Java heap
+     */
+    public long getEstimatedHeapSize()
+    {
+        long size = 0;
+
+        for (SchematicRegion region : this.schematic.getRegions().values())
+        {
+            size += region.getBlockContainer().getEstimatedHeapSize();
+        }
+
+        return size;
+    }
+
     @Override
     public boolean equals(Object o)
     {
@@ -67,8 +190,68 @@ public class LoadedSchematic
         return result;
     }
 
+    public static long getFileSize(Path file)
+    {
+        try
+        {
+            return Files.size(file);
+        }
+        catch (IOException e)
+        {
+            return -1L;
+        }
+    }
+
+    protected static long getFileModifiedTime(Path file)
+    {
+        try
+        {
+            return Files.getLastModifiedTime(file).toMillis();
+        }
+        catch (IOException e)
+        {
+            return -1L;
+        }
+    }
+
+    @Nullable
+    public static HashCode hashFile(Path file)
+    {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        byte[] buf = new byte[65536];
+
+        try (InputStream is = Files.newInputStream(file))
+        {
+            int length;
+
+            while ((length = is.read(buf)) > 0)
+            {
+                hasher.putBytes(buf, 0, length);
+            }
+
+            return hasher.hash();
+        }
+        catch (IOException e)
+        {
+            Litematica.LOGGER.warn("Failed to hash the schematic file '{}'", file.toAbsolutePath(), e);
+            return null;
+        }
+    }
+
     public static Optional<LoadedSchematic> tryLoadSchematic(Path schematicFile)
     {
+        // The sectioned files only have the block data index in the first part that the NBT reader reads
+        if (SectionedSchematicFile.getSectionDataStart(schematicFile) >= 0)
+        {
+            return SectionedSchematicFile.readFromFile(schematicFile).map(s -> new LoadedSchematic(s, Optional.of(schematicFile)));
+        }
+
+        // The large block data arrays are read directly into off-heap storage
+        if (LitematicaFileReader.shouldReadFile(schematicFile))
+        {
+            return LitematicaFileReader.readFromFile(schematicFile).map(s -> new LoadedSchematic(s, Optional.of(schematicFile)));
+        }
+
         CompoundData data = DataFileUtils.readCompoundDataFromNbtFile(schematicFile);
 
         if (data == null)
@@ -1,11 +1,13 @@
 package litematica.schematic;
 
+import java.io.IOException;
 import java.util.Optional;
 import com.google.common.collect.ImmutableMap;
 
 import malilib.util.data.tag.CompoundData;
 import malilib.util.data.tag.DataView;
 import malilib.util.position.Vec3i;
+import litematica.schematic.util.NbtStreamWriter;
 
 public interface Schematic
 {
@@ -43,6 +45,33 @@ public interface Schematic
      */
     Optional<CompoundData> write();
 
+    /**
+     * Creates a copy of this schematic, which can be written on another thread
+     * while this schematic may still get modified on the main thread.
+     * The copy keeps all the type specific data of this schematic.
+     * @return a snapshot of the current state of this schematic
+     */
+    Schematic createSnapshot();
+
+    /**
+     * @return true if this schematic can be written directly to an output stream via
+     * {@link #writeToStream(NbtStreamWriter)}, without building the entire data tree in memory first
+     */
+    default boolean supportsStreamingWrite()
+    {
+        return false;
+    }
+
+    /**
+     * Writes the contents of the schematic's root compound tag directly to the given writer.
+     * This is only called if {@link #supportsStreamingWrite()} returns true.
+     * @return true if the write succeeded, false if there was an error
+     */
+    default boolean writeToStream(NbtStreamWriter writer) throws IOException
+    {
+        return false;
+    }
+
     /**
      * @return the name of the root tag in the schematic file
      */
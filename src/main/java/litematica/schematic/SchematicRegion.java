@@ -1,5 +1,7 @@
 package litematica.schematic;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -91,4 +93,26 @@ public class SchematicRegion
     {
         return this.minecraftDataVersion;
     }
+
+    /**
+     * Creates a copy of this region for writing it on another thread.
+     * The block container is copied via {@link BlockContainer#createSnapshot()},
+     * and the block entity and entity data is deep copied.
+     */
+    public SchematicRegion createSnapshot()
+    {
+        Map<BlockPos, CompoundData> blockEntities = new HashMap<>(this.blockEntityData.size());
+        List<EntityData> entities = new ArrayList<>(this.entityData.size());
+
+        this.blockEntityData.forEach((pos, data) -> blockEntities.put(pos, data.copy()));
+        this.entityData.forEach(entity -> entities.add(entity.copy()));
+
+        return new SchematicRegion(this.relativePosition,
+                                   this.size,
+                                   this.blockContainer.createSnapshot(),
+                                   blockEntities,
+                                   new HashMap<>(this.blockTickData),
+                                   entities,
+                                   this.minecraftDataVersion);
+    }
 }
@@ -36,6 +36,7 @@ public class SchematicSaveSettings
     public final SimpleBooleanStorageWithDefault obeyIgnoredEntities     = new SimpleBooleanStorageWithDefault(false);
     public final OptionListConfig<SchematicSaveWorldSelection> worldSelection = new OptionListConfig<>("-", SchematicSaveWorldSelection.VANILLA_ONLY, SchematicSaveWorldSelection.VALUES);
     public final OptionListConfig<SaveSide> saveSide = new OptionListConfig<>("-", SaveSide.AUTO, SaveSide.VALUES);
+    public final OptionListConfig<CompressionMode> compression = new OptionListConfig<>("-", CompressionMode.STANDARD, CompressionMode.VALUES);
 
     public final Set<Block> ignoredBlocks = new HashSet<>();
     public final Set<BlockState> ignoredBlockStates = new HashSet<>();
@@ -55,6 +56,7 @@ public class SchematicSaveSettings
 
         newSettings.worldSelection.setValue(this.worldSelection.getValue());
         newSettings.saveSide.setValue(this.saveSide.getValue());
+        newSettings.compression.setValue(this.compression.getValue());
 
         newSettings.obeyIgnoredBlocks.setBooleanValue(this.obeyIgnoredBlocks.getBooleanValue());
         newSettings.obeyIgnoredBlockStates.setBooleanValue(this.obeyIgnoredBlockStates.getBooleanValue());
@@ -98,6 +100,7 @@ public class SchematicSaveSettings
         obj.addProperty("exposed_blocks_only", this.exposedBlocksOnly.getBooleanValue());
         obj.addProperty("world_selection", this.worldSelection.getValue().getName());
         obj.addProperty("save_side", this.saveSide.getValue().getName());
+        obj.addProperty("compression", this.compression.getValue().getName());
 
         obj.addProperty("obey_ignored_blocks", this.obeyIgnoredBlocks.getBooleanValue());
         obj.addProperty("obey_ignored_block_states", this.obeyIgnoredBlockStates.getBooleanValue());
@@ -172,6 +175,7 @@ public class SchematicSaveSettings
 
         this.worldSelection.setValue(SchematicSaveWorldSelection.findValueByName(JsonUtils.getStringOrDefault(obj, "world_selection", ""), SchematicSaveWorldSelection.VALUES));
         this.saveSide.setValue(SaveSide.findValueByName(JsonUtils.getStringOrDefault(obj, "save_side", ""), SaveSide.VALUES));
+        this.compression.setValue(CompressionMode.findValueByName(JsonUtils.getStringOrDefault(obj, "compression", ""), CompressionMode.VALUES));
 
         this.obeyIgnoredBlocks.setBooleanValue(JsonUtils.getBooleanOrDefault(obj, "obey_ignored_blocks", false));
         this.obeyIgnoredBlockStates.setBooleanValue(JsonUtils.getBooleanOrDefault(obj, "obey_ignored_block_states", false));
@@ -234,4 +238,42 @@ public class SchematicSaveSettings
             super(name, translationKey);
         }
     }
+
+    public static class CompressionMode extends BaseOptionListConfigValue
+    {
+        public static final CompressionMode STANDARD = new CompressionMode("standard", "litematica.name.schematic_compression.standard", false, 6);
+        public static final CompressionMode FAST     = new CompressionMode("fast",     "litematica.name.schematic_compression.fast",     true,  1);
+        public static final CompressionMode PARALLEL = new CompressionMode("parallel", "litematica.name.schematic_compression.parallel", true,  6);
+        public static final CompressionMode SMALLEST = new CompressionMode("smallest", "litematica.name.schematic_compression.smallest", true,  9);
+
+        public static final ImmutableList<CompressionMode> VALUES = ImmutableList.of(STANDARD, FAST, PARALLEL, SMALLEST);
+
+        protected final boolean parallel;
+        protected final int level;
+
+        public CompressionMode(String name, String translationKey, boolean parallel, int level)
+        {
+            super(name, translationKey);
+
+            this.parallel = parallel;
+            this.level = level;
+        }
+
+        /**
+         * @return true if the data should be compressed in blocks on multiple threads,
+         * false to use the regular single-threaded gzip stream
+         */
+        public boolean isParallel()
+        {
+            return this.parallel;
+        }
+
+        /**
+         * @return the deflate compression level, 1 - 9
+         */
+        public int getLevel()
+        {
+            return this.level;
+        }
+    }
 }
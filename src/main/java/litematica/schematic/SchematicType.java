@@ -19,6 +19,7 @@ import malilib.util.position.Vec3i;
 import litematica.config.Configs;
 import litematica.schematic.container.BlockContainer;
 import litematica.schematic.container.BlockContainerFactory;
+import litematica.schematic.container.BlockContainerType;
 
 public class SchematicType
 {
@@ -32,6 +33,7 @@ public class SchematicType
         .setExtension(LitematicaSchematic.FILE_NAME_EXTENSION)
         .setExtensionValidator(LitematicaSchematic.FILE_NAME_EXTENSION::equalsIgnoreCase)
         .setDefaultSaveVersion(LitematicaSchematic.CURRENT_SCHEMATIC_VERSION)
+        .setSavableVersions(LitematicaSchematic.SAVABLE_VERSIONS)
         .setSupportsMultipleRegions(true)
         .setHasName(true)
         .build();
@@ -186,6 +188,13 @@ public class SchematicType
 
     public BlockContainer createContainer(Vec3i containerSize)
     {
+        BlockContainerFactory factory = Configs.Generic.SCHEMATIC_BLOCK_CONTAINER.getValue().getFactory();
+
+        if (factory != null)
+        {
+            return factory.create(containerSize);
+        }
+
         return this.containerFactory.create(containerSize);
     }
 
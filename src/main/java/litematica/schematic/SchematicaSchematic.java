@@ -5,10 +5,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import javax.annotation.Nullable;
 import com.google.common.collect.ImmutableMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 
-import malilib.overlay.message.MessageDispatcher;
 import malilib.util.ListUtils;
 import malilib.util.data.Constants;
 import malilib.util.data.Identifier;
@@ -22,7 +22,9 @@ import malilib.util.position.Vec3i;
 import malilib.util.world.BlockState;
 import litematica.schematic.container.ArrayBlockContainer;
 import litematica.schematic.container.BlockContainer;
+import litematica.schematic.container.LegacyBlockArrayConverter;
 import litematica.schematic.data.EntityData;
+import litematica.schematic.util.SchematicMessages;
 import litematica.util.PositionUtils;
 
 public class SchematicaSchematic extends BaseSchematic
@@ -34,6 +36,12 @@ public class SchematicaSchematic extends BaseSchematic
         super(SchematicType.SCHEMATICA);
     }
 
+    @Override
+    protected SchematicaSchematic createEmptySchematic()
+    {
+        return new SchematicaSchematic();
+    }
+
     @Override
     public boolean read(DataView data)
     {
@@ -58,13 +66,13 @@ public class SchematicaSchematic extends BaseSchematic
 
         if (beErrorCount > 0)
         {
-            MessageDispatcher.warning("litematica.message.warn.schematic_read.failed_to_read_block_entities",
+            SchematicMessages.warning("litematica.message.warn.schematic_read.failed_to_read_block_entities",
                                       beErrorCount, blockEntityMap.size());
         }
 
         if (entityErrorCount > 0)
         {
-            MessageDispatcher.warning("litematica.message.warn.schematic_read.failed_to_read_entities",
+            SchematicMessages.warning("litematica.message.warn.schematic_read.failed_to_read_entities",
                                       entityErrorCount, entityList.size());
         }
 
@@ -87,7 +95,7 @@ public class SchematicaSchematic extends BaseSchematic
 
         if (regionCount != 1)
         {
-            MessageDispatcher.error("litematica.message.error.schematic_save.wrong_region_count", regionCount, 1);
+            SchematicMessages.error("litematica.message.error.schematic_save.wrong_region_count", regionCount, 1);
             return Optional.empty();
         }
 
@@ -121,13 +129,9 @@ public class SchematicaSchematic extends BaseSchematic
     protected BlockContainer readBlocks(DataView data, Vec3i size)
     {
         Int2ObjectOpenHashMap<BlockState> mapping = this.readInitialBlockMapping(data);
-        int safePaletteSize = mapping.size() * 16;  // Max 16 metadata values per block
-        int entryWidthBits = ArrayBlockContainer.getRequiredBitWidth(safePaletteSize);
-        ArrayBlockContainer container = new ArrayBlockContainer(size, entryWidthBits);
+        ArrayBlockContainer container = this.readBlocksFromTag(data, size, mapping);
 
-        this.readBlocksFromTag(data, size, container, mapping);
-
-        return container;
+        return container != null ? container : new ArrayBlockContainer(size, 2);
     }
 
     protected Int2ObjectOpenHashMap<BlockState> readInitialBlockMapping(DataView data)
@@ -163,7 +167,7 @@ public class SchematicaSchematic extends BaseSchematic
             if (tag.contains(registryName, Constants.NBT.TAG_SHORT) == false)
             {
                 BaseData val = tag.getData(registryName).orElse(null);
-                MessageDispatcher.error("litematica.message.error.schematic_read.schematica.palette.invalid_tag",
+                SchematicMessages.error("litematica.message.error.schematic_read.schematica.palette.invalid_tag",
                                         registryName, val.getDisplayName(), val);
                 errorCount++;
                 continue;
@@ -173,7 +177,7 @@ public class SchematicaSchematic extends BaseSchematic
 
             if (blockId > 4095)
             {
-                MessageDispatcher.error("litematica.message.error.schematic_read.schematica.palette.invalid_id",
+                SchematicMessages.error("litematica.message.error.schematic_read.schematica.palette.invalid_id",
                                         blockId, registryName, 4095);
                 errorCount++;
                 continue;
@@ -183,7 +187,7 @@ public class SchematicaSchematic extends BaseSchematic
 
             if (state == null)
             {
-                MessageDispatcher.error("litematica.message.error.schematic_read.schematica.palette.invalid_block",
+                SchematicMessages.error("litematica.message.error.schematic_read.schematica.palette.invalid_block",
                                         registryName);
                 errorCount++;
                 continue;
@@ -194,7 +198,7 @@ public class SchematicaSchematic extends BaseSchematic
 
         if (errorCount > 0)
         {
-            MessageDispatcher.error("litematica.message.error.schematic_read.schematica.mapping_errors",
+            SchematicMessages.error("litematica.message.error.schematic_read.schematica.mapping_errors",
                                     errorCount, mapping.size());
         }
 
@@ -217,7 +221,7 @@ public class SchematicaSchematic extends BaseSchematic
             }
             catch (NumberFormatException e)
             {
-                MessageDispatcher.error("litematica.message.error.schematic_read.mcedit2.palette.id_not_number",
+                SchematicMessages.error("litematica.message.error.schematic_read.mcedit2.palette.id_not_number",
                                         numericIdStr, registryName);
                 errorCount++;
                 continue;
@@ -227,7 +231,7 @@ public class SchematicaSchematic extends BaseSchematic
 
             if (state == null)
             {
-                MessageDispatcher.error("litematica.message.error.schematic_read.mcedit2.missing_block_data",
+                SchematicMessages.error("litematica.message.error.schematic_read.mcedit2.missing_block_data",
                                         registryName);
                 errorCount++;
                 continue;
@@ -238,7 +242,7 @@ public class SchematicaSchematic extends BaseSchematic
 
         if (errorCount > 0)
         {
-            MessageDispatcher.error("litematica.message.error.schematic_read.schematica.mapping_errors",
+            SchematicMessages.error("litematica.message.error.schematic_read.schematica.mapping_errors",
                                     errorCount, mapping.size());
         }
 
@@ -258,7 +262,7 @@ public class SchematicaSchematic extends BaseSchematic
 
             if (blockId < 0)
             {
-                MessageDispatcher.error("litematica.message.error.schematic_read.registry_palette.missing_block_data",
+                SchematicMessages.error("litematica.message.error.schematic_read.registry_palette.missing_block_data",
                                         blockId, id);
                 errorCount++;
                 continue;
@@ -269,17 +273,17 @@ public class SchematicaSchematic extends BaseSchematic
 
         if (errorCount > 0)
         {
-            MessageDispatcher.error("litematica.message.error.schematic_read.schematica.mapping_errors",
+            SchematicMessages.error("litematica.message.error.schematic_read.schematica.mapping_errors",
                                     errorCount, mapping.size());
         }
 
         return mapping;
     }
 
-    protected void readBlocksFromTag(DataView data,
-                                     Vec3i size,
-                                     ArrayBlockContainer container,
-                                     Int2ObjectOpenHashMap<BlockState> mapping)
+    @Nullable
+    protected ArrayBlockContainer readBlocksFromTag(DataView data,
+                                                    Vec3i size,
+                                                    Int2ObjectOpenHashMap<BlockState> mapping)
     {
         // This method was implemented based on
         // https://minecraft.wiki/w/Schematic_file_format
@@ -294,155 +298,57 @@ public class SchematicaSchematic extends BaseSchematic
 
         if (numBlocks != blockIdsArr.length)
         {
-            MessageDispatcher.error("litematica.message.error.schematic_read.schematica.schematic.invalid_block_array_size",
+            SchematicMessages.error("litematica.message.error.schematic_read.schematica.schematic.invalid_block_array_size",
                                     blockIdsArr.length, numBlocks, sizeX, sizeY, sizeZ);
-            return;
+            return null;
         }
 
         if (numBlocks != metaArr.length)
         {
-            MessageDispatcher.error("litematica.message.error.schematic_read.schematica.schematic.invalid_metadata_array_size",
+            SchematicMessages.error("litematica.message.error.schematic_read.schematica.schematic.invalid_metadata_array_size",
                                     metaArr.length, numBlocks);
-            return;
+            return null;
         }
 
-        int errorCount;
+        char[] keys;
 
         if (data.contains("AddBlocks", Constants.NBT.TAG_BYTE_ARRAY))
         {
             byte[] addArr = data.getByteArray("AddBlocks");
-            errorCount = this.readBlocks12Bit(blockIdsArr, addArr, metaArr, size, container, mapping);
+            int expectedLength = (int) Math.ceil(numBlocks / 2.0);
+
+            if (addArr.length != expectedLength)
+            {
+                SchematicMessages.error("litematica.message.error.schematic_read.schematica.schematic.invalid_block_add_array_size",
+                                        addArr.length, expectedLength, numBlocks);
+                return null;
+            }
+
+            keys = LegacyBlockArrayConverter.decodeKeys12Bit(blockIdsArr, addArr, metaArr);
         }
         // Old Schematica format
         else if (data.contains("Add", Constants.NBT.TAG_BYTE_ARRAY))
         {
             // FIXME is this array 4 or 8 bits per block?
-            MessageDispatcher.error("litematica.message.error.schematic_read.schematica.old_schematica_format_not_supported");
-            return;
+            SchematicMessages.error("litematica.message.error.schematic_read.schematica.old_schematica_format_not_supported");
+            return null;
         }
         else
         {
-            errorCount = this.readBlocks8Bit(blockIdsArr, metaArr, size, container, mapping);
+            keys = LegacyBlockArrayConverter.decodeKeys8Bit(blockIdsArr, metaArr);
         }
 
+        LegacyBlockArrayConverter converter = new LegacyBlockArrayConverter(mapping);
+        ArrayBlockContainer container = converter.createContainer(size, keys);
+        long errorCount = converter.getErrorCount();
+
         if (errorCount > 0)
         {
-            MessageDispatcher.error("litematica.message.error.schematic_read.schematica.block_errors",
+            SchematicMessages.error("litematica.message.error.schematic_read.schematica.block_errors",
                                     errorCount, numBlocks);
         }
-    }
-
-    @SuppressWarnings("deprecation")
-    protected int readBlocks12Bit(byte[] blockIdsByte,
-                                  byte[] addArr,
-                                  byte[] metaArr,
-                                  Vec3i size,
-                                  ArrayBlockContainer container,
-                                  Int2ObjectOpenHashMap<BlockState> mapping)
-    {
-        final int numBlocks = blockIdsByte.length;
-        int expectedLength = (int) Math.ceil(numBlocks / 2.0);
-
-        if (addArr.length != expectedLength)
-        {
-            MessageDispatcher.error("litematica.message.error.schematic_read.schematica.schematic.invalid_block_add_array_size",
-                                    addArr.length, expectedLength, numBlocks);
-            return -1;
-        }
-
-        final int sizeX = size.getX();
-        final int sizeY = size.getY();
-        final int sizeZ = size.getZ();
-        int blockId;
-        int metaValue;
-        int index = 0;
-        int errorCount = 0;
 
-        for (int y = 0; y < sizeY; y++)
-        {
-            for (int z = 0; z < sizeZ; z++)
-            {
-                for (int x = 0; x < sizeX; x++)
-                {
-                    blockId = (blockIdsByte[index] & 0xFF);    // Need to mask because the array type is signed...
-                    metaValue = metaArr[index] & 0xF;
-
-                    // Add value is 4 -bits per position, so index / 2
-                    int addIndex = index >> 1;
-
-                    // Odd values go to the lower nibble
-                    if ((index & 0x1) != 0)
-                    {
-                        blockId |= ((addArr[addIndex]) & 0x0F) << 8;
-                    }
-                    // Even values go to the higher nibble
-                    else
-                    {
-                        blockId |= ((addArr[addIndex]) & 0xF0) << 4;
-                    }
-
-                    BlockState state = mapping.get(blockId);
-
-                    if (state != null)
-                    {
-                        state = BlockState.of(state.getBlock().getStateFromMeta(metaValue));
-                        container.setBlockState(x, y, z, state);
-                    }
-                    else
-                    {
-                        errorCount++;
-                    }
-
-                    index++;
-                }
-            }
-        }
-
-        return errorCount;
-    }
-
-    @SuppressWarnings("deprecation")
-    protected int readBlocks8Bit(byte[] blockIdsByte,
-                                 byte[] metaArr,
-                                 Vec3i size,
-                                 ArrayBlockContainer container,
-                                 Int2ObjectOpenHashMap<BlockState> mapping)
-    {
-        final int sizeX = size.getX();
-        final int sizeY = size.getY();
-        final int sizeZ = size.getZ();
-        int blockId;
-        int metaValue;
-        int index = 0;
-        int errorCount = 0;
-
-        for (int y = 0; y < sizeY; y++)
-        {
-            for (int z = 0; z < sizeZ; z++)
-            {
-                for (int x = 0; x < sizeX; x++)
-                {
-                    blockId = (blockIdsByte[index] & 0xFF); // Need to mask because the array type is signed...
-                    metaValue = metaArr[index] & 0xF;
-
-                    BlockState state = mapping.get(blockId);
-
-                    if (state != null)
-                    {
-                        state = BlockState.of(state.getBlock().getStateFromMeta(metaValue));
-                        container.setBlockState(x, y, z, state);
-                    }
-                    else
-                    {
-                        errorCount++;
-                    }
-
-                    index++;
-                }
-            }
-        }
-
-        return errorCount;
+        return container;
     }
 
     protected CompoundData writePaletteToTag(Palette<BlockState> palette)
@@ -468,59 +374,44 @@ public class SchematicaSchematic extends BaseSchematic
 
     protected void writeBlocksToTag(CompoundData data, Vec3i size, BlockContainer container)
     {
-        final int sizeX = size.getX();
-        final int sizeY = size.getY();
-        final int sizeZ = size.getZ();
-
-        final int numBlocks = sizeX * sizeY * sizeZ;
+        final char[] keys = LegacyBlockArrayConverter.encodeKeys(container);
+        final int numBlocks = keys.length;
         final int addSize = (int) Math.ceil((double) numBlocks / 2.0);
         final byte[] blockIdArr = new byte[numBlocks];
         final byte[] metaArr = new byte[numBlocks];
         final byte[] addArr = new byte[addSize];
-        int numAdd = 0;
-        int index = 0;
+        boolean hasAdd = false;
 
-        for (int y = 0; y < sizeY; y++)
+        for (int index = 0; index < numBlocks; index++)
         {
-            for (int z = 0; z < sizeZ; z++)
+            int key = keys[index];
+            int blockId = key >>> 4;
+
+            blockIdArr[index] = (byte) (blockId & 0xFF);
+            metaArr[index] = (byte) (key & 0xF);
+
+            // "Add" data, the higher 4-bits of a 12-bit block ID
+            if (blockId > 0xFF)
             {
-                for (int x = 0; x < sizeX; x++)
+                // Odd values go to the lower nibble
+                if ((index & 0x1) != 0)
                 {
-                    BlockState state = container.getBlockState(x, y, z);
-                    int blockId = state.getOldBlockId();
-                    int meta = state.getBlock().getMetaFromState(state.vanillaState());
-                    int add = addArr[index >> 1];
-
-                    blockIdArr[index] = (byte) (blockId & 0xFF);
-                    metaArr[index] = (byte) meta;
-
-                    // "Add" data, the higher 4-bits of a 12-bit block ID
-                    // Odd values go to the lower nibble
-                    if ((index & 0x1) != 0)
-                    {
-                        add |= ((blockId >>> 8) & 0x0F);
-                    }
-                    // Even values go to the higher nibble
-                    else
-                    {
-                        add |= ((blockId >>> 4) & 0xF0);
-                    }
-
-                    if (add != 0)
-                    {
-                        addArr[index >> 1] = (byte) add;
-                        ++numAdd;
-                    }
-
-                    index++;
+                    addArr[index >> 1] |= (byte) ((blockId >>> 8) & 0x0F);
                 }
+                // Even values go to the higher nibble
+                else
+                {
+                    addArr[index >> 1] |= (byte) ((blockId >>> 4) & 0xF0);
+                }
+
+                hasAdd = true;
             }
         }
 
         data.putByteArray("Blocks", blockIdArr);
         data.putByteArray("Data", metaArr);
 
-        if (numAdd > 0)
+        if (hasAdd)
         {
             data.putByteArray("AddBlocks", addArr);
         }
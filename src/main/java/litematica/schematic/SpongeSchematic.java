@@ -9,11 +9,7 @@ import java.util.Set;
 import javax.annotation.Nullable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 
-import malilib.overlay.message.MessageDispatcher;
-import malilib.util.ByteBufUtils;
 import malilib.util.ListUtils;
 import malilib.util.data.Constants;
 import malilib.util.data.palette.Palette;
@@ -32,7 +28,10 @@ import litematica.schematic.container.ArrayBlockContainer;
 import litematica.schematic.container.ArrayBlockContainer.BlockStateConverterResults;
 import litematica.schematic.container.BlockContainer;
 import litematica.schematic.container.PackedIntArray;
+import litematica.schematic.container.PalettedBlockData;
+import litematica.schematic.container.VarIntPackedArrayCodec;
 import litematica.schematic.data.EntityData;
+import litematica.schematic.util.SchematicMessages;
 import litematica.util.PositionUtils;
 
 public class SpongeSchematic extends BaseSchematic
@@ -48,6 +47,18 @@ public class SpongeSchematic extends BaseSchematic
         super(SchematicType.SPONGE);
     }
 
+    @Override
+    protected SpongeSchematic createEmptySchematic()
+    {
+        return new SpongeSchematic();
+    }
+
+    @Override
+    protected void copyTypeSpecificDataTo(BaseSchematic snapshot)
+    {
+        ((SpongeSchematic) snapshot).originalMetadataTag = this.originalMetadataTag.copy();
+    }
+
     @Override
     public boolean read(DataView data)
     {
@@ -63,7 +74,7 @@ public class SpongeSchematic extends BaseSchematic
             return this.readFromTag_v3(data, version);
         }
 
-        MessageDispatcher.error("litematica.message.error.schematic_read.unknown_schematic_version", version, 3);
+        SchematicMessages.error("litematica.message.error.schematic_read.unknown_schematic_version", version, 3);
 
         return false;
     }
@@ -75,7 +86,7 @@ public class SpongeSchematic extends BaseSchematic
 
         if (regionCount != 1)
         {
-            MessageDispatcher.error("litematica.message.error.schematic_save.wrong_region_count", regionCount, 1);
+            SchematicMessages.error("litematica.message.error.schematic_save.wrong_region_count", regionCount, 1);
             return Optional.empty();
         }
 
@@ -218,7 +229,7 @@ public class SpongeSchematic extends BaseSchematic
 
         if (errorCount > 0)
         {
-            MessageDispatcher.warning("litematica.message.warn.schematic_read.failed_to_read_block_entities",
+            SchematicMessages.warning("litematica.message.warn.schematic_read.failed_to_read_block_entities",
                                       errorCount, blockEntityMap.size());
         }
 
@@ -227,7 +238,7 @@ public class SpongeSchematic extends BaseSchematic
 
         if (errorCount > 0)
         {
-            MessageDispatcher.warning("litematica.message.warn.schematic_read.failed_to_read_entities",
+            SchematicMessages.warning("litematica.message.warn.schematic_read.failed_to_read_entities",
                                       errorCount, entityList.size());
         }
 
@@ -267,7 +278,7 @@ public class SpongeSchematic extends BaseSchematic
 
         if (errorCount > 0)
         {
-            MessageDispatcher.warning("litematica.message.warn.schematic_read.failed_to_read_block_entities",
+            SchematicMessages.warning("litematica.message.warn.schematic_read.failed_to_read_block_entities",
                                       errorCount, blockEntityMap.size());
         }
 
@@ -276,7 +287,7 @@ public class SpongeSchematic extends BaseSchematic
 
         if (errorCount > 0)
         {
-            MessageDispatcher.warning("litematica.message.warn.schematic_read.failed_to_read_entities",
+            SchematicMessages.warning("litematica.message.warn.schematic_read.failed_to_read_entities",
                                       errorCount, entityList.size());
         }
 
@@ -304,7 +315,7 @@ public class SpongeSchematic extends BaseSchematic
 
         if (this.readPaletteFromCompound(paletteTag, container.getPalette(), dataVersion) == false)
         {
-            MessageDispatcher.error("litematica.message.error.schematic_read.sponge.failed_to_read_blocks");
+            SchematicMessages.error("litematica.message.error.schematic_read.sponge.failed_to_read_blocks");
             return null;
         }
 
@@ -327,7 +338,7 @@ public class SpongeSchematic extends BaseSchematic
 
         if (this.readPaletteFromCompound(paletteTag, container.getPalette(), dataVersion) == false)
         {
-            MessageDispatcher.error("litematica.message.error.schematic_read.sponge.failed_to_read_blocks");
+            SchematicMessages.error("litematica.message.error.schematic_read.sponge.failed_to_read_blocks");
             return null;
         }
 
@@ -354,14 +365,14 @@ public class SpongeSchematic extends BaseSchematic
             /*
             else
             {
-                MessageDispatcher.warning("litematica.message.error.schematic_read.sponge.palette.unknown_block", key);
+                SchematicMessages.warning("litematica.message.error.schematic_read.sponge.palette.unknown_block", key);
                 state = BlockState.AIR;
             }
             */
 
             if (id < 0 || id >= size)
             {
-                MessageDispatcher.error("litematica.message.error.schematic_read.sponge.palette.invalid_id", id);
+                SchematicMessages.error("litematica.message.error.schematic_read.sponge.palette.invalid_id", id);
                 return false;
             }
 
@@ -500,63 +511,41 @@ public class SpongeSchematic extends BaseSchematic
     }
 
     @Nullable
-    public static byte[] convertPackedIntArrayToVarIntByteArray(ArrayBlockContainer container)
+    public static byte[] convertPackedIntArrayToVarIntByteArray(PalettedBlockData blockData)
     {
-        PackedIntArray bitArray = container.getIntStorage();
-        final int entrySize = ByteBufUtils.getVarIntSize(container.getPalette().getSize() - 1);
+        PackedIntArray bitArray = blockData.getStorage();
+        final int maxValue = blockData.getMaxId();
+        final int entrySize = VarIntPackedArrayCodec.getVarIntSize(maxValue);
         final long volume = bitArray.size();
         final long length = entrySize * volume;
 
         if (length > Integer.MAX_VALUE)
         {
-            MessageDispatcher.error(8000).translate("litematica.message.error.schematic_save.convert_data.sponge_array_size_overflow", length);
+            SchematicMessages.error(8000, "litematica.message.error.schematic_save.convert_data.sponge_array_size_overflow", length);
             return null;
         }
 
-        byte[] arr = new byte[(int) length];
-        ByteBuf buf = Unpooled.wrappedBuffer(arr);
-        buf.writerIndex(0);
-
-        for (int i = 0; i < volume; ++i)
-        {
-            ByteBufUtils.writeVarInt(buf, bitArray.getAt(i));
-        }
-
-        return arr;
-    }
-
-    @Nullable
-    public static byte[] getAsSpongeVarIntByteArray(BlockContainer container)
-    {
-        if (container instanceof ArrayBlockContainer)
-        {
-            ArrayBlockContainer arrayContainer = (ArrayBlockContainer) container;
-            return convertPackedIntArrayToVarIntByteArray(arrayContainer);
-        }
-
-        int bits = ArrayBlockContainer.getRequiredBitWidth(container.getPalette().getSize());
-        AlignedLongBackedIntArray storage = new AlignedLongBackedIntArray(bits, container.getTotalVolume());
-        ArrayBlockContainer arrayContainer = new ArrayBlockContainer(container.getSize(), storage);
-        BaseSchematic.copyContainerContents(container, arrayContainer);
-
-        return convertPackedIntArrayToVarIntByteArray(arrayContainer);
+        return VarIntPackedArrayCodec.encode(bitArray, maxValue);
     }
 
     // Note that the tag passed in will be a nested tag in v3
     protected boolean writeBlockDataToTag(BlockContainer blockContainer, CompoundData tag, int version)
     {
-        byte[] blockData = getAsSpongeVarIntByteArray(blockContainer);
+        // The palette is compacted on the fly, so the ids must come from the same data
+        PalettedBlockData data = PalettedBlockData.of(blockContainer);
+        byte[] blockData = convertPackedIntArrayToVarIntByteArray(data);
 
         if (blockData == null)
         {
             return false;
         }
 
-        CompoundData paletteTag = writeSpongePaletteToTag(blockContainer.getPalette().getMapping());
+        CompoundData paletteTag = writeSpongePaletteToTag(data.getPalette());
         tag.put("Palette", paletteTag);
 
         if (version < 3)
         {
+            tag.putInt("PaletteMax", data.getMaxId());
             tag.putByteArray("BlockData", blockData);
         }
         else
@@ -685,8 +674,6 @@ public class SpongeSchematic extends BaseSchematic
         writeMetadataToTag(rootTag, this.originalMetadataTag, this.metadata);
         this.writeSizeAndVersions(rootTag, size, version);
 
-        rootTag.putInt("PaletteMax", blockContainer.getPalette().getSize() - 1);
-
         if (this.writeBlockDataToTag(blockContainer, rootTag, version) == false)
         {
             return false;
@@ -804,21 +791,15 @@ public class SpongeSchematic extends BaseSchematic
     convertVarIntByteArrayToAlignedLongBackedIntArray(long volume, int entryWidthBits, byte[] blockStates)
     {
         AlignedLongBackedIntArray intArray = new AlignedLongBackedIntArray(entryWidthBits, volume);
-        ByteBuf buf = Unpooled.wrappedBuffer(blockStates);
         long[] blockCounts = new long[1 << entryWidthBits];
 
         try
         {
-            for (long i = 0; i < volume; ++i)
-            {
-                int id = ByteBufUtils.readVarInt(buf);
-                intArray.setAt(i, id);
-                ++blockCounts[id];
-            }
+            VarIntPackedArrayCodec.decode(blockStates, intArray, blockCounts);
         }
         catch (Exception e)
         {
-            MessageDispatcher.error().console(e).translate("litematica.message.error.schematic_convert.copy_block_data_failed");
+            SchematicMessages.error(e, "litematica.message.error.schematic_convert.copy_block_data_failed");
             Litematica.LOGGER.error("SpongeSchematic#convertVarIntByteArrayToAlignedLongBackedIntArray: volume: {}, entryWidthBits: {}, blockStates.length: {}, new backing array length: {}",
                                     volume, entryWidthBits, blockStates.length, intArray.getBackingLongArray().length);
             return null;
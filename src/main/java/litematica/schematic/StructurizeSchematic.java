@@ -8,7 +8,6 @@ import java.util.Optional;
 import javax.annotation.Nullable;
 import com.google.common.collect.ImmutableMap;
 
-import malilib.overlay.message.MessageDispatcher;
 import malilib.util.ListUtils;
 import malilib.util.data.Constants;
 import malilib.util.data.tag.CompoundData;
@@ -25,6 +24,7 @@ import litematica.schematic.container.ArrayBlockContainer.BlockStateConverterRes
 import litematica.schematic.container.BlockContainer;
 import litematica.schematic.container.PackedIntArray;
 import litematica.schematic.data.EntityData;
+import litematica.schematic.util.SchematicMessages;
 import litematica.util.PositionUtils;
 
 public class StructurizeSchematic extends BaseSchematic
@@ -43,6 +43,21 @@ public class StructurizeSchematic extends BaseSchematic
         super(SchematicType.STRUCTURIZE);
     }
 
+    @Override
+    protected StructurizeSchematic createEmptySchematic()
+    {
+        return new StructurizeSchematic();
+    }
+
+    @Override
+    protected void copyTypeSpecificDataTo(BaseSchematic snapshot)
+    {
+        StructurizeSchematic schematic = (StructurizeSchematic) snapshot;
+        schematic.originalMetadataTag = this.originalMetadataTag.copy();
+        schematic.optionalDataTag = this.optionalDataTag.copy();
+        schematic.requiredModsTag = this.requiredModsTag.copy();
+    }
+
     @Override
     public boolean read(DataView data)
     {
@@ -57,19 +72,19 @@ public class StructurizeSchematic extends BaseSchematic
         /* This can't happen after the isValid() check
         if (version == -1)
         {
-            MessageDispatcher.error("litematica.error.schematic_read.no_version");
+            SchematicMessages.error("litematica.error.schematic_read.no_version");
         }
         */
 
         if (version == 0 || version > CURRENT_SCHEMATIC_VERSION)
         {
-            MessageDispatcher.warning("litematica.error.schematic_read.unknown_schematic_version",
+            SchematicMessages.warning("litematica.error.schematic_read.unknown_schematic_version",
                                       version, CURRENT_SCHEMATIC_VERSION);
         }
 
         if (this.minecraftDataVersion > CURRENT_MINECRAFT_DATA_VERSION)
         {
-            MessageDispatcher.warning("litematica.error.schematic_read.future_data_version",
+            SchematicMessages.warning("litematica.error.schematic_read.future_data_version",
                                       this.minecraftDataVersion, CURRENT_MINECRAFT_DATA_VERSION);
         }
 
@@ -83,7 +98,7 @@ public class StructurizeSchematic extends BaseSchematic
 
         if (regionCount != 1)
         {
-            MessageDispatcher.error("litematica.message.error.schematic_save.wrong_region_count", regionCount, 1);
+            SchematicMessages.error("litematica.message.error.schematic_save.wrong_region_count", regionCount, 1);
             return Optional.empty();
         }
 
@@ -91,7 +106,7 @@ public class StructurizeSchematic extends BaseSchematic
         this.metadata.setSchematicVersion(version);
 
         SchematicRegion region = ListUtils.getFirstEntry(this.regions.values());
-        ArrayBlockContainer container = (ArrayBlockContainer) region.getBlockContainer();
+        ArrayBlockContainer container = getOrConvertToArrayContainer(region.getBlockContainer());
         CompoundData data = new CompoundData();
 
         if (version == 1 && this.write_v1(data, region, container, version))
@@ -210,13 +225,13 @@ public class StructurizeSchematic extends BaseSchematic
 
         if (beErrorCount > 0)
         {
-            MessageDispatcher.warning("litematica.message.warn.schematic_read.failed_to_read_block_entities",
+            SchematicMessages.warning("litematica.message.warn.schematic_read.failed_to_read_block_entities",
                                       beErrorCount, blockEntityMap.size());
         }
 
         if (entityErrorCount > 0)
         {
-            MessageDispatcher.warning("litematica.message.warn.schematic_read.failed_to_read_entities",
+            SchematicMessages.warning("litematica.message.warn.schematic_read.failed_to_read_entities",
                                       entityErrorCount, entityList.size());
         }
 
@@ -240,7 +255,7 @@ public class StructurizeSchematic extends BaseSchematic
         if (blockDataArray == null || blockDataArray.length != expectedLength)
         {
             String len = blockDataArray == null ? "<null>" : String.valueOf(blockDataArray.length);
-            MessageDispatcher.error("litematica.error.schematic_read.structurize.invalid_block_data_array", len);
+            SchematicMessages.error("litematica.error.schematic_read.structurize.invalid_block_data_array", len);
             return null;
         }
 
@@ -248,13 +263,13 @@ public class StructurizeSchematic extends BaseSchematic
 
         if (container == null)
         {
-            MessageDispatcher.error("litematica.error.schematic_read.litematica.region_container");
+            SchematicMessages.error("litematica.error.schematic_read.litematica.region_container");
             return null;
         }
 
         if (readPaletteFromLitematicaFormatTag(paletteTag, container.getPalette(), dataVersion) == false)
         {
-            MessageDispatcher.error("litematica.error.schematic_read.palette_read_failed");
+            SchematicMessages.error("litematica.error.schematic_read.palette_read_failed");
             return null;
         }
 
@@ -267,7 +282,7 @@ public class StructurizeSchematic extends BaseSchematic
 
         if (blockDataOpt.isPresent() == false)
         {
-            MessageDispatcher.error("litematica.error.schematic_write.block_write_failed");
+            SchematicMessages.error("litematica.error.schematic_write.block_write_failed");
             return false;
         }
 
@@ -414,7 +429,7 @@ public class StructurizeSchematic extends BaseSchematic
         }
         catch (Exception e)
         {
-            MessageDispatcher.error().console(e).translate("litematica.message.error.schematic_convert.copy_block_data_failed");
+            SchematicMessages.error(e, "litematica.message.error.schematic_convert.copy_block_data_failed");
             Litematica.LOGGER.error("StructurizeSchematic#convertIntArrayOfShortsToPackedLongArray: volume: {}, entryWidthBits: {}, blockStates.length: {}, new backing array length: {}",
                                     volume, entryWidthBits, blockStates.length, intArray.getBackingLongArray().length);
             return null;
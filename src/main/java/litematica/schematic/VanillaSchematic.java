@@ -1,14 +1,15 @@
 package litematica.schematic;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import javax.annotation.Nullable;
 import com.google.common.collect.ImmutableMap;
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 
-import malilib.overlay.message.MessageDispatcher;
 import malilib.util.ListUtils;
 import malilib.util.data.Constants;
 import malilib.util.data.palette.Palette;
@@ -21,10 +22,14 @@ import malilib.util.position.BlockPos;
 import malilib.util.position.Vec3d;
 import malilib.util.position.Vec3i;
 import malilib.util.world.BlockState;
+import litematica.Litematica;
+import litematica.schematic.container.AdaptiveBlockContainer;
 import litematica.schematic.container.BlockContainer;
 import litematica.schematic.container.NonResizingHashMapPalette;
 import litematica.schematic.container.SparseBlockContainer;
 import litematica.schematic.data.EntityData;
+import litematica.schematic.util.NbtStreamWriter;
+import litematica.schematic.util.SchematicMessages;
 import litematica.util.PositionUtils;
 
 public class VanillaSchematic extends BaseSchematic
@@ -36,6 +41,12 @@ public class VanillaSchematic extends BaseSchematic
         super(SchematicType.VANILLA);
     }
 
+    @Override
+    protected VanillaSchematic createEmptySchematic()
+    {
+        return new VanillaSchematic();
+    }
+
     @Override
     public boolean read(DataView data)
     {
@@ -48,13 +59,14 @@ public class VanillaSchematic extends BaseSchematic
         this.metadata = createAndReadMetadata(data).orElse(new SchematicMetadata());
         this.minecraftDataVersion = data.getIntOrDefault("DataVersion", this.metadata.getMinecraftVersion().dataVersion);
 
-        BlockContainer container = new SparseBlockContainer(size);
+        SparseBlockContainer container = new SparseBlockContainer(size);
         Map<BlockPos, CompoundData> blockEntityMap = new HashMap<>();
         int errorCount = this.readBlocks(data, container, blockEntityMap, this.minecraftDataVersion);
+        container.optimizeStorage();
 
         if (errorCount > 0)
         {
-            MessageDispatcher.warning("litematica.message.warn.schematic_read.failed_to_read_blocks",
+            SchematicMessages.warning("litematica.message.warn.schematic_read.failed_to_read_blocks",
                                       errorCount, container.getTotalBlockCount());
         }
 
@@ -63,7 +75,7 @@ public class VanillaSchematic extends BaseSchematic
 
         if (errorCount > 0)
         {
-            MessageDispatcher.warning("litematica.message.warn.schematic_read.failed_to_read_entities",
+            SchematicMessages.warning("litematica.message.warn.schematic_read.failed_to_read_entities",
                                       errorCount, entityList.size());
         }
 
@@ -84,7 +96,7 @@ public class VanillaSchematic extends BaseSchematic
 
         if (regionCount != 1)
         {
-            MessageDispatcher.error("litematica.message.error.schematic_save.wrong_region_count", regionCount, 1);
+            SchematicMessages.error("litematica.message.error.schematic_save.wrong_region_count", regionCount, 1);
             return Optional.empty();
         }
 
@@ -100,6 +112,39 @@ public class VanillaSchematic extends BaseSchematic
         return Optional.of(data);
     }
 
+    @Override
+    public boolean supportsStreamingWrite()
+    {
+        return true;
+    }
+
+    /**
+     * This is called on the save thread, so the region count is only reported by
+     * the save job as a failed write. The save service checks it before queuing the save.
+     */
+    @Override
+    public boolean writeToStream(NbtStreamWriter writer) throws IOException
+    {
+        int regionCount = this.getRegions().size();
+
+        if (regionCount != 1)
+        {
+            Litematica.LOGGER.warn("VanillaSchematic#writeToStream: invalid region count {}, expected 1", regionCount);
+            return false;
+        }
+
+        writer.writeCompound("Metadata", this.metadata.write(new CompoundData()));
+        writer.writeString("author", this.metadata.getAuthor());
+        writer.writeInt("DataVersion", this.minecraftDataVersion);
+        writer.writeIntList("size", this.enclosingSize.getX(), this.enclosingSize.getY(), this.enclosingSize.getZ());
+
+        SchematicRegion region = ListUtils.getFirstEntry(this.getRegions().values());
+        this.writeBlocksToStream(writer, region.getBlockContainer(), region.getBlockEntityMap());
+        this.writeEntitiesToStream(writer, region.getEntityList());
+
+        return true;
+    }
+
     protected int readBlocks(DataView data,
                              BlockContainer container,
                              Map<BlockPos, CompoundData> blockEntityMapOut,
@@ -112,7 +157,7 @@ public class VanillaSchematic extends BaseSchematic
 
         if (readPaletteFromLitematicaFormatTag(paletteData, palette, dataVersion) == false)
         {
-            MessageDispatcher.error("litematica.message.error.schematic_read.vanilla.failed_to_read_palette");
+            SchematicMessages.error("litematica.message.error.schematic_read.vanilla.failed_to_read_palette");
             return -1;
         }
 
@@ -126,7 +171,7 @@ public class VanillaSchematic extends BaseSchematic
 
             if (pos == null)
             {
-                MessageDispatcher.error("litematica.message.error.schematic_read.vanilla.failed_to_read_block_pos");
+                SchematicMessages.error("litematica.message.error.schematic_read.vanilla.failed_to_read_block_pos");
                 errorCount++;
                 continue;
             }
@@ -180,46 +225,9 @@ public class VanillaSchematic extends BaseSchematic
         Palette<BlockState> palette = new NonResizingHashMapPalette<>(1024);
         ListData blockList = new ListData(Constants.NBT.TAG_COMPOUND);
 
-        if (container instanceof SparseBlockContainer)
-        {
-            Long2ObjectOpenHashMap<BlockState> blockMap = ((SparseBlockContainer) container).getBlockMap();
-
-            blockMap.forEach((posLong, state) -> {
-                long pos = posLong.longValue();
-                int x = SparseBlockContainer.getXFromLong(pos);
-                int y = SparseBlockContainer.getYFromLong(pos);
-                int z = SparseBlockContainer.getZFromLong(pos);
-
-                this.writeBlockToList(x, y, z, palette.idFor(state), blockList, blockEntityMap);
-            });
-        }
-        else
-        {
-            Vec3i size = container.getSize();
-            final int sizeX = size.getX();
-            final int sizeY = size.getY();
-            final int sizeZ = size.getZ();
-
-            // TODO add some kind of config to decide if any air should be saved or not
-            long volume = PositionUtils.getAreaVolume(size);
-            BlockState ignore = volume < 100000 ? null : BlockState.AIR;
-
-            for (int y = 0; y < sizeY; ++y)
-            {
-                for (int z = 0; z < sizeZ; ++z)
-                {
-                    for (int x = 0; x < sizeX; ++x)
-                    {
-                        BlockState state = container.getBlockState(x, y, z);
-
-                        if (state != ignore)
-                        {
-                            this.writeBlockToList(x, y, z, palette.idFor(state), blockList, blockEntityMap);
-                        }
-                    }
-                }
-            }
-        }
+        forEachBlockToSave(AdaptiveBlockContainer.unwrap(container), (x, y, z, state) -> {
+            this.writeBlockToList(x, y, z, palette.idFor(state), blockList, blockEntityMap);
+        });
 
         ListData paletteTag = writePaletteToLitematicaFormatTag(palette);
 
@@ -245,6 +253,59 @@ public class VanillaSchematic extends BaseSchematic
         list.add(blockTag);
     }
 
+    /**
+     * Writes the blocks list directly to the stream, without creating the tag for each block first,
+     * and then the palette, which is only complete after all the blocks have been written.
+     */
+    protected void writeBlocksToStream(NbtStreamWriter writer,
+                                       BlockContainer container,
+                                       Map<BlockPos, CompoundData> blockEntityMap) throws IOException
+    {
+        // Use a fresh palette to re-assign fresh increasing IDs without gaps
+        Palette<BlockState> palette = new NonResizingHashMapPalette<>(1024);
+        container = AdaptiveBlockContainer.unwrap(container);
+
+        writer.beginList("blocks", Constants.NBT.TAG_COMPOUND, getBlockCountToSave(container));
+
+        try
+        {
+            forEachBlockToSave(container, (x, y, z, state) -> {
+                try
+                {
+                    this.writeBlockToStream(x, y, z, palette.idFor(state), writer, blockEntityMap);
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+
+        CompoundData paletteData = new CompoundData();
+        paletteData.put("palette", writePaletteToLitematicaFormatTag(palette));
+        writer.writeCompoundContents(paletteData);
+    }
+
+    protected void writeBlockToStream(int x, int y, int z, int stateId, NbtStreamWriter writer,
+                                      Map<BlockPos, CompoundData> blockEntityMap) throws IOException
+    {
+        writer.writeIntList("pos", x, y, z);
+        writer.writeInt("state", stateId);
+
+        CompoundData beTag = blockEntityMap.isEmpty() ? null : blockEntityMap.get(new BlockPos(x, y, z));
+
+        if (beTag != null)
+        {
+            writer.writeCompound("nbt", beTag);
+        }
+
+        writer.endCompound();
+    }
+
     protected void writeEntities(CompoundData data, List<EntityData> entityList)
     {
         ListData list = new ListData(Constants.NBT.TAG_COMPOUND);
@@ -265,6 +326,95 @@ public class VanillaSchematic extends BaseSchematic
         data.put("entities", list);
     }
 
+    protected void writeEntitiesToStream(NbtStreamWriter writer, List<EntityData> entityList) throws IOException
+    {
+        writer.beginList("entities", Constants.NBT.TAG_COMPOUND, entityList.size());
+
+        for (EntityData entityData : entityList)
+        {
+            BlockPos blockPos = BlockPos.ofFloored(entityData.pos);
+            writer.writeDoubleList("pos", entityData.pos.x, entityData.pos.y, entityData.pos.z);
+            writer.writeIntList("blockpos", blockPos.getX(), blockPos.getY(), blockPos.getZ());
+
+            CompoundData entityNbt = entityData.data.copy();
+            entityNbt.remove("Pos");
+            writer.writeCompound("nbt", entityNbt);
+
+            writer.endCompound();
+        }
+    }
+
+    /**
+     * Calls the consumer for each block that should be saved from the given
+     * (unwrapped) container, in the position order (y, z, x).
+     */
+    protected static void forEachBlockToSave(BlockContainer container, SparseBlockContainer.BlockConsumer consumer)
+    {
+        if (container instanceof SparseBlockContainer)
+        {
+            ((SparseBlockContainer) container).forEachBlock(consumer);
+            return;
+        }
+
+        Vec3i size = container.getSize();
+        final int sizeX = size.getX();
+        final int sizeY = size.getY();
+        final int sizeZ = size.getZ();
+        BlockState ignore = getIgnoredBlockState(container);
+
+        for (int y = 0; y < sizeY; ++y)
+        {
+            for (int z = 0; z < sizeZ; ++z)
+            {
+                for (int x = 0; x < sizeX; ++x)
+                {
+                    BlockState state = container.getBlockState(x, y, z);
+
+                    if (state != ignore)
+                    {
+                        consumer.accept(x, y, z, state);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of blocks that {@link #forEachBlockToSave(BlockContainer, SparseBlockContainer.BlockConsumer)}
+     * will visit for the given container
+     */
+    protected static int getBlockCountToSave(BlockContainer container)
+    {
+        if (container instanceof SparseBlockContainer)
+        {
+            return ((SparseBlockContainer) container).getStoredBlockCount();
+        }
+
+        BlockState ignore = getIgnoredBlockState(container);
+
+        if (ignore == null)
+        {
+            return (int) PositionUtils.getAreaVolume(container.getSize());
+        }
+
+        int[] count = new int[1];
+        forEachBlockToSave(container, (x, y, z, state) -> count[0]++);
+
+        return count[0];
+    }
+
+    /**
+     * @return the block state that should not be saved from the given dense container,
+     * or null if all the blocks should be saved
+     */
+    @Nullable
+    protected static BlockState getIgnoredBlockState(BlockContainer container)
+    {
+        // TODO add some kind of config to decide if any air should be saved or not
+        long volume = PositionUtils.getAreaVolume(container.getSize());
+        return volume < 100000 ? null : BlockState.AIR;
+    }
+
     public static Vec3i readSizeFromTag(DataView data)
     {
         return DataTypeUtils.readBlockPosFromListTagOrDefault(data, "size", BlockPos.ORIGIN);
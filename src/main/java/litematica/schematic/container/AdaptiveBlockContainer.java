@@ -0,0 +1,223 @@
+package litematica.schematic.container;
+
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
+import malilib.util.data.palette.Palette;
+import malilib.util.position.Vec3i;
+import malilib.util.world.BlockState;
+import litematica.schematic.BaseSchematic;
+
+/**
+ * A block container that picks its storage based on the fill ratio.
+ * It starts out as a sparse container, and switches over to a dense container
+ * once the number of stored blocks passes the density threshold.
+ * When {@link #optimizeStorage()} is called, a mostly-air dense container
+ * is also converted back to the sparse storage.
+ */
+public class AdaptiveBlockContainer implements BlockContainer
+{
+    public static final double DENSE_THRESHOLD = 0.02;
+    public static final double SPARSE_THRESHOLD = 0.01;
+
+    protected final BlockContainerFactory denseContainerFactory;
+    protected final long denseThresholdCount;
+    protected final long sparseThresholdCount;
+    protected BlockContainer container;
+
+    public AdaptiveBlockContainer(Vec3i size)
+    {
+        this(new SparseBlockContainer(size), BlockContainerType::createArrayContainer);
+    }
+
+    public AdaptiveBlockContainer(BlockContainer container, BlockContainerFactory denseContainerFactory)
+    {
+        long volume = container.getTotalVolume();
+
+        this.container = container;
+        this.denseContainerFactory = denseContainerFactory;
+        this.denseThresholdCount = (long) (volume * DENSE_THRESHOLD);
+        this.sparseThresholdCount = (long) (volume * SPARSE_THRESHOLD);
+    }
+
+    /**
+     * @return the container that is currently used as the actual storage
+     */
+    public BlockContainer getStorageContainer()
+    {
+        return this.container;
+    }
+
+    public boolean isSparse()
+    {
+        return this.container instanceof SparseBlockContainer;
+    }
+
+    @Override
+    public Vec3i getSize()
+    {
+        return this.container.getSize();
+    }
+
+    @Override
+    public long getTotalVolume()
+    {
+        return this.container.getTotalVolume();
+    }
+
+    @Override
+    public long getTotalBlockCount()
+    {
+        return this.container.getTotalBlockCount();
+    }
+
+    @Override
+    public Object2LongOpenHashMap<BlockState> getBlockCountsMap()
+    {
+        return this.container.getBlockCountsMap();
+    }
+
+    @Override
+    public Palette<BlockState> getPalette()
+    {
+        return this.container.getPalette();
+    }
+
+    @Override
+    public long getEstimatedHeapSize()
+    {
+        return this.container.getEstimatedHeapSize();
+    }
+
+    @Override
+    public BlockState getBlockState(int x, int y, int z)
+    {
+        return this.container.getBlockState(x, y, z);
+    }
+
+    @Override
+    public void setBlockState(int x, int y, int z, BlockState state)
+    {
+        this.container.setBlockState(x, y, z, state);
+
+        if (this.container instanceof SparseBlockContainer &&
+            ((SparseBlockContainer) this.container).getStoredBlockCount() > this.denseThresholdCount)
+        {
+            this.convertToDense();
+        }
+    }
+
+    protected void convertToDense()
+    {
+        SparseBlockContainer sparse = (SparseBlockContainer) this.container;
+        BlockContainer dense = this.denseContainerFactory.create(sparse.getSize());
+
+        if (dense instanceof ArrayBlockContainer)
+        {
+            BaseSchematic.copyContainerContentsSparseToArray(sparse, (ArrayBlockContainer) dense);
+        }
+        else
+        {
+            sparse.forEachBlockUnordered(dense::setBlockState);
+        }
+
+        this.container = dense;
+    }
+
+    protected void convertToSparse()
+    {
+        BlockContainer dense = this.container;
+        SparseBlockContainer sparse = new SparseBlockContainer(dense.getSize());
+        Vec3i size = dense.getSize();
+        final int sizeX = size.getX();
+        final int sizeY = size.getY();
+        final int sizeZ = size.getZ();
+
+        for (int y = 0; y < sizeY; ++y)
+        {
+            for (int z = 0; z < sizeZ; ++z)
+            {
+                for (int x = 0; x < sizeX; ++x)
+                {
+                    BlockState state = dense.getBlockState(x, y, z);
+
+                    // Air is implicit in the sparse container
+                    if (state != BlockState.AIR)
+                    {
+                        sparse.setBlockState(x, y, z, state);
+                    }
+                }
+            }
+        }
+
+        this.container = sparse;
+    }
+
+    @Override
+    public long replaceAll(BlockState from, BlockState to)
+    {
+        // Replacing the implicit air in the sparse storage needs to go through
+        // the normal setBlockState() path, so that the storage gets converted when needed
+        if (this.isSparse() && from.equals(BlockState.AIR))
+        {
+            return BlockContainer.super.replaceAll(from, to);
+        }
+
+        return this.container.replaceAll(from, to);
+    }
+
+    @Override
+    public long replaceAllInBox(BlockState from, BlockState to, Vec3i start, Vec3i end,
+                                @Nullable PositionListener listener)
+    {
+        if (this.isSparse() && from.equals(BlockState.AIR))
+        {
+            return BlockContainer.super.replaceAllInBox(from, to, start, end, listener);
+        }
+
+        return this.container.replaceAllInBox(from, to, start, end, listener);
+    }
+
+    @Override
+    public void compactPalette()
+    {
+        this.container.compactPalette();
+    }
+
+    @Override
+    public void optimizeStorage()
+    {
+        if (this.isSparse() == false && this.container.getTotalBlockCount() < this.sparseThresholdCount)
+        {
+            this.convertToSparse();
+        }
+
+        this.container.optimizeStorage();
+    }
+
+    @Override
+    public AdaptiveBlockContainer copy()
+    {
+        return new AdaptiveBlockContainer(this.container.copy(), this.denseContainerFactory);
+    }
+
+    @Override
+    public AdaptiveBlockContainer createSnapshot()
+    {
+        return new AdaptiveBlockContainer(this.container.createSnapshot(), this.denseContainerFactory);
+    }
+
+    /**
+     * @return the actual storage container, if the given container is an adaptive container,
+     * otherwise returns the given container
+     */
+    public static BlockContainer unwrap(BlockContainer container)
+    {
+        if (container instanceof AdaptiveBlockContainer)
+        {
+            return ((AdaptiveBlockContainer) container).getStorageContainer();
+        }
+
+        return container;
+    }
+}
@@ -1,5 +1,9 @@
 package litematica.schematic.container;
 
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
 import malilib.util.data.palette.Palette;
 import malilib.util.data.palette.PaletteResizeHandler;
 import malilib.util.position.Vec3i;
@@ -9,6 +13,8 @@ public class ArrayBlockContainer extends BaseBlockContainer implements PaletteRe
 {
     protected PackedIntArray storage;
     protected boolean checkForFreedIds = true;
+    /** True if the storage is also used by a snapshot, and needs to be copied before modifying it */
+    protected boolean storageShared;
 
     public ArrayBlockContainer(Vec3i size, int entryWidthBits)
     {
@@ -50,10 +56,39 @@ public class ArrayBlockContainer extends BaseBlockContainer implements PaletteRe
     {
         long storageIndex = this.getIndex(x, y, z);
         int valueId = this.palette.idFor(state);
-        this.storage.setAt(storageIndex, valueId);
+        this.getWritableStorage().setAt(storageIndex, valueId);
         this.hasSetBlockCounts = false; // Force a re-count when next queried
     }
 
+    @Override
+    public void setBlockStateRow(int x, int y, int z, BlockState[] states, int length)
+    {
+        long storageIndex = this.getIndex(x, y, z);
+        BlockState lastState = null;
+        int lastId = 0;
+
+        for (int i = 0; i < length; ++i, ++storageIndex)
+        {
+            BlockState state = states[i];
+
+            if (state == null)
+            {
+                continue;
+            }
+
+            if (state != lastState)
+            {
+                lastId = this.palette.idFor(state);
+                lastState = state;
+            }
+
+            // Note: idFor() may resize the storage, so the field has to be read after it
+            this.getWritableStorage().setAt(storageIndex, lastId);
+        }
+
+        this.hasSetBlockCounts = false;
+    }
+
     @Override
     public int onResize(int bits, BlockState state, Palette<BlockState> oldPalette)
     {
@@ -92,20 +127,192 @@ public class ArrayBlockContainer extends BaseBlockContainer implements PaletteRe
         }
 
         this.storage = newArray;
+        this.storageShared = false;
 
         return this.palette.idFor(state);
     }
 
+    @Override
+    public long replaceAll(BlockState from, BlockState to)
+    {
+        int fromId = this.getExistingPaletteId(from);
+
+        if (fromId == -1 || from.equals(to))
+        {
+            return 0;
+        }
+
+        long count = this.getBlockCountForId(fromId);
+        int toId = this.getExistingPaletteId(to);
+
+        // The new state is not in the palette yet, so it can just take over the ID of the old state
+        if (toId == -1)
+        {
+            List<BlockState> mapping = this.palette.getMapping();
+            mapping.set(fromId, to);
+            this.palette = createPalette(this.entryWidthBits, this);
+            this.palette.setMapping(mapping);
+            return count;
+        }
+
+        PackedIntArray storage = this.getWritableStorage();
+        final long size = storage.size();
+
+        for (long index = 0; index < size; ++index)
+        {
+            if (storage.getAt(index) == fromId)
+            {
+                storage.setAt(index, toId);
+            }
+        }
+
+        this.hasSetBlockCounts = false;
+
+        return count;
+    }
+
+    @Override
+    public long replaceAllInBox(BlockState from, BlockState to, Vec3i start, Vec3i end,
+                                @Nullable PositionListener listener)
+    {
+        if (from.equals(to) || this.getExistingPaletteId(from) == -1)
+        {
+            return 0;
+        }
+
+        // This may resize the storage or reuse a freed ID, so the old ID and the storage are fetched after this
+        int toId = this.palette.idFor(to);
+        int fromId = this.getExistingPaletteId(from);
+
+        if (fromId == -1)
+        {
+            return 0;
+        }
+
+        PackedIntArray storage = this.getWritableStorage();
+        final int startX = start.getX();
+        final int endX = end.getX();
+        final int endY = end.getY();
+        final int endZ = end.getZ();
+        long count = 0;
+
+        for (int y = start.getY(); y <= endY; ++y)
+        {
+            for (int z = start.getZ(); z <= endZ; ++z)
+            {
+                long index = this.getIndex(startX, y, z);
+
+                for (int x = startX; x <= endX; ++x, ++index)
+                {
+                    if (storage.getAt(index) == fromId)
+                    {
+                        if (listener != null)
+                        {
+                            listener.onPosition(x, y, z);
+                        }
+
+                        storage.setAt(index, toId);
+                        ++count;
+                    }
+                }
+            }
+        }
+
+        if (count > 0)
+        {
+            this.hasSetBlockCounts = false;
+        }
+
+        return count;
+    }
+
+    @Override
+    public void compactPalette()
+    {
+        long[] counts = this.storage.getValueCounts();
+        final int oldSize = this.palette.getSize();
+        int[] idMap = new int[Math.max(oldSize, counts.length)];
+        List<BlockState> mapping = new ArrayList<>();
+
+        // Keep air as ID 0, like in a newly created container
+        mapping.add(AIR_BLOCK_STATE);
+
+        for (int id = 0; id < oldSize; ++id)
+        {
+            BlockState state = this.palette.getValue(id);
+
+            if (state == null || state.equals(AIR_BLOCK_STATE))
+            {
+                idMap[id] = 0;
+            }
+            else if (id < counts.length && counts[id] > 0)
+            {
+                idMap[id] = mapping.size();
+                mapping.add(state);
+            }
+        }
+
+        int bits = getRequiredBitWidth(mapping.size());
+
+        // Nothing to remove or shrink
+        if (mapping.size() == oldSize && bits == this.entryWidthBits &&
+            AIR_BLOCK_STATE.equals(this.palette.getValue(0)))
+        {
+            return;
+        }
+
+        PackedIntArray oldArray = this.storage;
+        PackedIntArray newArray = oldArray.createNewArray(bits, this.totalVolume);
+        final long size = oldArray.size();
+
+        for (long index = 0; index < size; ++index)
+        {
+            newArray.setAt(index, idMap[oldArray.getAt(index)]);
+        }
+
+        this.entryWidthBits = bits;
+        this.palette = createPalette(bits, this);
+        this.palette.setMapping(mapping);
+        this.storage = newArray;
+        this.storageShared = false;
+        this.hasSetBlockCounts = false;
+    }
+
     protected long getIndex(int x, int y, int z)
     {
         return ((long) y * this.sizeLayer) + (long) z * (long) this.sizeX + (long) x;
     }
 
+    /**
+     * @return the storage for reading. Use {@link #getWritableStorage()} for modifying it,
+     * as the storage may be shared with a snapshot.
+     */
     public PackedIntArray getIntStorage()
     {
         return this.storage;
     }
 
+    /**
+     * @return the storage for modifying it. If the storage is currently
+     * shared with a snapshot, then it is copied first.
+     */
+    protected PackedIntArray getWritableStorage()
+    {
+        if (this.storageShared)
+        {
+            this.storage = this.storage.copy();
+            this.storageShared = false;
+        }
+
+        return this.storage;
+    }
+
+    @Override
+    public long getEstimatedHeapSize()
+    {
+        return super.getEstimatedHeapSize() + this.storage.getHeapSize();
+    }
+
     @Override
     protected void calculateBlockCountsIfNeeded()
     {
@@ -125,6 +332,21 @@ public class ArrayBlockContainer extends BaseBlockContainer implements PaletteRe
         return newContainer;
     }
 
+    /**
+     * The snapshot shares the storage with this container. Whichever container
+     * gets modified first copies the storage at that point.
+     */
+    @Override
+    public ArrayBlockContainer createSnapshot()
+    {
+        ArrayBlockContainer snapshot = new ArrayBlockContainer(this.size, this.storage);
+        snapshot.palette = this.palette.copy(snapshot);
+        snapshot.storageShared = true;
+        this.storageShared = true;
+
+        return snapshot;
+    }
+
     public static int getRequiredBitWidth(int paletteSize)
     {
         return Math.max(MINIMUM_ENTRY_WIDTH, Integer.SIZE - Integer.numberOfLeadingZeros(paletteSize - 1));
@@ -107,6 +107,13 @@ public abstract class BaseBlockContainer implements BlockContainer
         return map;
     }
 
+    @Override
+    public long getEstimatedHeapSize()
+    {
+        // The palette entries are shared references, so only the arrays are counted
+        return this.blockCounts.length * 8L + this.palette.getSize() * 8L;
+    }
+
     public void setBlockCounts(long[] blockCounts)
     {
         final int length = blockCounts.length;
@@ -120,6 +127,32 @@ public abstract class BaseBlockContainer implements BlockContainer
         this.hasSetBlockCounts = true;
     }
 
+    /**
+     * @return the palette ID of the given state, or -1 if the state is not in the palette.
+     * Unlike {@link Palette#idFor(Object)} this will not add the state to the palette.
+     */
+    protected int getExistingPaletteId(BlockState state)
+    {
+        Palette<BlockState> palette = this.getPalette();
+        final int size = palette.getSize();
+
+        for (int id = 0; id < size; ++id)
+        {
+            if (state.equals(palette.getValue(id)))
+            {
+                return id;
+            }
+        }
+
+        return -1;
+    }
+
+    protected long getBlockCountForId(int id)
+    {
+        this.calculateBlockCountsIfNeeded();
+        return id >= 0 && id < this.blockCounts.length ? this.blockCounts[id] : 0;
+    }
+
     protected void setEntryWidthBits(int bitsIn)
     {
         this.entryWidthBits = bitsIn;
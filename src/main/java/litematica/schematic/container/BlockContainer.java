@@ -1,5 +1,6 @@
 package litematica.schematic.container;
 
+import javax.annotation.Nullable;
 import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 
 import malilib.util.data.palette.Palette;
@@ -45,9 +46,148 @@ public interface BlockContainer
      */
     void setBlockState(int x, int y, int z, BlockState state);
 
+    /**
+     * Sets a run of <b>length</b> block states along the x-axis, starting from the given position.
+     * Null entries in the array are skipped, leaving the existing state in those positions.
+     * The palette-based containers can resolve the palette ID once per run of identical states.
+     */
+    default void setBlockStateRow(int x, int y, int z, BlockState[] states, int length)
+    {
+        for (int i = 0; i < length; ++i)
+        {
+            BlockState state = states[i];
+
+            if (state != null)
+            {
+                this.setBlockState(x + i, y, z, state);
+            }
+        }
+    }
+
+    /**
+     * Replaces all occurrences of the block state <b>from</b> with the block state <b>to</b>.
+     * The default implementation checks every position in the container, but
+     * the palette-based containers can do this by just remapping the palette entry.
+     * @return the number of positions that were changed
+     */
+    default long replaceAll(BlockState from, BlockState to)
+    {
+        if (from.equals(to))
+        {
+            return 0;
+        }
+
+        Vec3i size = this.getSize();
+        final int sizeX = size.getX();
+        final int sizeY = size.getY();
+        final int sizeZ = size.getZ();
+        long count = 0;
+
+        for (int y = 0; y < sizeY; ++y)
+        {
+            for (int z = 0; z < sizeZ; ++z)
+            {
+                for (int x = 0; x < sizeX; ++x)
+                {
+                    if (this.getBlockState(x, y, z).equals(from))
+                    {
+                        this.setBlockState(x, y, z, to);
+                        ++count;
+                    }
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Replaces all occurrences of the block state <b>from</b> with the block state <b>to</b>
+     * within the given box. The start and end positions are inclusive, and must be within the container.
+     * The default implementation checks every position through {@link #getBlockState(int, int, int)},
+     * but the palette-based containers can compare the raw palette IDs instead.
+     * @param listener if not null, this gets called for each position that gets changed
+     * @return the number of positions that were changed
+     */
+    default long replaceAllInBox(BlockState from, BlockState to, Vec3i start, Vec3i end,
+                                 @Nullable PositionListener listener)
+    {
+        if (from.equals(to))
+        {
+            return 0;
+        }
+
+        final int endX = end.getX();
+        final int endY = end.getY();
+        final int endZ = end.getZ();
+        long count = 0;
+
+        for (int y = start.getY(); y <= endY; ++y)
+        {
+            for (int z = start.getZ(); z <= endZ; ++z)
+            {
+                for (int x = start.getX(); x <= endX; ++x)
+                {
+                    if (this.getBlockState(x, y, z).equals(from))
+                    {
+                        if (listener != null)
+                        {
+                            listener.onPosition(x, y, z);
+                        }
+
+                        this.setBlockState(x, y, z, to);
+                        ++count;
+                    }
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Removes any palette entries that are not used anymore,
+     * and shrinks the storage bit width if possible.
+     */
+    default void compactPalette()
+    {
+    }
+
+    /**
+     * Called once the container has been fully populated, for example after
+     * creating a schematic from the world or reading one from a file.
+     * This allows the container to switch to a more compact storage layout.
+     */
+    default void optimizeStorage()
+    {
+    }
+
+    /**
+     * @return the approximate number of bytes that the block data of this container takes on the Java heap.
+     * This is only meant for informational purposes, such as showing the memory use of the loaded schematics.
+     */
+    long getEstimatedHeapSize();
+
     /**
      * Creates and returns a copy of this block container
      * @return a copy of this container
      */
     BlockContainer copy();
+
+    /**
+     * Creates a copy of this container for reading it on another thread, while this
+     * container may still get modified on the main thread.
+     * The default implementation is a full copy, but containers can share
+     * their storage with the snapshot until either one is modified.
+     * @return a snapshot of the current contents of this container
+     */
+    default BlockContainer createSnapshot()
+    {
+        return this.copy();
+    }
+
+    interface PositionListener
+    {
+        void onPosition(int x, int y, int z);
+    }
 }
@@ -0,0 +1,43 @@
+package litematica.schematic.container;
+
+import javax.annotation.Nullable;
+import com.google.common.collect.ImmutableList;
+
+import malilib.config.value.BaseOptionListConfigValue;
+import malilib.util.position.Vec3i;
+import litematica.util.PositionUtils;
+
+public class BlockContainerType extends BaseOptionListConfigValue
+{
+    public static final BlockContainerType TYPE_DEFAULT = new BlockContainerType("type_default", "litematica.name.block_container_type.type_default", null);
+    public static final BlockContainerType ARRAY        = new BlockContainerType("array",        "litematica.name.block_container_type.array",        BlockContainerType::createArrayContainer);
+    public static final BlockContainerType SECTIONED    = new BlockContainerType("sectioned",    "litematica.name.block_container_type.sectioned",    SectionedBlockContainer::new);
+    public static final BlockContainerType ADAPTIVE     = new BlockContainerType("adaptive",     "litematica.name.block_container_type.adaptive",     AdaptiveBlockContainer::new);
+
+    public static final ImmutableList<BlockContainerType> VALUES = ImmutableList.of(TYPE_DEFAULT, ARRAY, SECTIONED, ADAPTIVE);
+
+    @Nullable protected final BlockContainerFactory factory;
+
+    public BlockContainerType(String name, String translationKey, @Nullable BlockContainerFactory factory)
+    {
+        super(name, translationKey);
+
+        this.factory = factory;
+    }
+
+    /**
+     * @return the container factory for this container type,
+     * or null if the schematic type's own default container should be used
+     */
+    @Nullable
+    public BlockContainerFactory getFactory()
+    {
+        return this.factory;
+    }
+
+    public static BlockContainer createArrayContainer(Vec3i containerSize)
+    {
+        PackedIntArray storage = OffHeapTightIntArray.createTightArray(2, PositionUtils.getAreaVolume(containerSize));
+        return new ArrayBlockContainer(containerSize, storage);
+    }
+}
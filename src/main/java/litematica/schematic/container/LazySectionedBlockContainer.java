@@ -0,0 +1,637 @@
+package litematica.schematic.container;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+
+import malilib.util.position.Vec3i;
+import malilib.util.world.BlockState;
+import litematica.Litematica;
+import litematica.config.Configs;
+
+/**
+ * A sectioned block container, which reads its sections on demand from a {@link SectionSource},
+ * ie. from a sectioned schematic file, the first time that a block in the section is accessed.
+ * Loaded sections that haven't been modified are evicted again in a clock (second chance) order,
+ * once there are more of them than the configured cache size allows, so only the sections that
+ * are currently in use (for example around the player) stay in memory.
+ * Modified sections are never evicted.
+ * The block counts of the unmodified sections come from the file, so querying the counts
+ * doesn't need to read any of the sections.
+ */
+public class LazySectionedBlockContainer extends SectionedBlockContainer
+{
+    protected final SectionSource source;
+    protected final boolean[] pending;
+    protected final boolean[] dirty;
+    protected final boolean[] referenced;
+    protected final int[] clockRing;
+    protected int clockRingSize;
+    protected int clockHand;
+    /** The block counts of all the not-modified sections */
+    protected long[] cleanBlockCounts;
+
+    /**
+     * @param fileBlockCounts the block counts of the entire container as stored in the file,
+     *                        indexed by the palette IDs
+     */
+    public LazySectionedBlockContainer(Vec3i size, SectionSource source, long[] fileBlockCounts)
+    {
+        super(size);
+
+        final int count = this.sections.length;
+
+        this.source = source;
+        this.pending = new boolean[count];
+        this.dirty = new boolean[count];
+        this.referenced = new boolean[count];
+        this.clockRing = new int[Math.max(1, Math.min(count, Configs.Generic.SECTIONED_SCHEMATIC_CACHE_SIZE.getIntegerValue()))];
+        this.cleanBlockCounts = fileBlockCounts.clone();
+
+        for (int i = 0; i < count; ++i)
+        {
+            this.pending[i] = source.hasSection(i);
+        }
+
+        this.setBlockCounts(fileBlockCounts);
+    }
+
+    public SectionSource getSource()
+    {
+        return this.source;
+    }
+
+    /**
+     * @return true if the given section has not been modified, ie. its data in the source is still current.
+     * Such sections are also all-air if {@link SectionSource#hasSection(int)} returns false for them.
+     */
+    public boolean isSectionUnmodified(int sectionIndex)
+    {
+        return this.dirty[sectionIndex] == false;
+    }
+
+    /**
+     * @return true if the given section is currently loaded in memory
+     */
+    public boolean isSectionLoaded(int sectionIndex)
+    {
+        return this.pending[sectionIndex] == false;
+    }
+
+    /**
+     * @return the block counts indexed by the palette IDs
+     */
+    public long[] getBlockCountsArray()
+    {
+        this.calculateBlockCountsIfNeeded();
+
+        long[] counts = new long[this.palette.getSize()];
+        System.arraycopy(this.blockCounts, 0, counts, 0, Math.min(counts.length, this.blockCounts.length));
+
+        return counts;
+    }
+
+    @Override
+    public BlockState getBlockState(int x, int y, int z)
+    {
+        int sectionIndex = this.getSectionIndex(x >> SECTION_SHIFT, y >> SECTION_SHIFT, z >> SECTION_SHIFT);
+        Section section = this.getOrLoadSection(sectionIndex);
+
+        if (section == null)
+        {
+            return AIR_BLOCK_STATE;
+        }
+
+        BlockState state = this.palette.getValue(section.getGlobalId(x & SECTION_MASK, y & SECTION_MASK, z & SECTION_MASK));
+        return state != null ? state : AIR_BLOCK_STATE;
+    }
+
+    @Override
+    public void setBlockState(int x, int y, int z, BlockState state)
+    {
+        int sectionIndex = this.getSectionIndex(x >> SECTION_SHIFT, y >> SECTION_SHIFT, z >> SECTION_SHIFT);
+        this.getOrLoadSection(sectionIndex);
+        this.markDirty(sectionIndex);
+
+        super.setBlockState(x, y, z, state);
+    }
+
+    @Override
+    public boolean isSectionEmpty(int sectionX, int sectionY, int sectionZ)
+    {
+        return this.getOrLoadSection(this.getSectionIndex(sectionX, sectionY, sectionZ)) == null;
+    }
+
+    @Nullable
+    @Override
+    public BlockState getUniformSectionState(int sectionX, int sectionY, int sectionZ)
+    {
+        this.getOrLoadSection(this.getSectionIndex(sectionX, sectionY, sectionZ));
+        return super.getUniformSectionState(sectionX, sectionY, sectionZ);
+    }
+
+    @Override
+    public long replaceAll(BlockState from, BlockState to)
+    {
+        int fromId = this.getExistingPaletteId(from);
+
+        // Replacing a state that is not in the palette yet only changes the palette,
+        // and replacing air goes through setBlockState(), which loads the sections.
+        // Otherwise all the sections need to be loaded and get modified.
+        if (fromId > 0 && from.equals(to) == false && this.getExistingPaletteId(to) != -1)
+        {
+            final int count = this.sections.length;
+
+            for (int i = 0; i < count; ++i)
+            {
+                this.getOrLoadSection(i);
+                this.markDirty(i);
+            }
+        }
+
+        return super.replaceAll(from, to);
+    }
+
+    /**
+     * The palette is not compacted, because the pending sections in the
+     * source use the palette IDs of the current palette.
+     */
+    @Override
+    public void compactPalette()
+    {
+    }
+
+    @Override
+    protected void calculateBlockCountsIfNeeded()
+    {
+        if (this.hasSetBlockCounts)
+        {
+            return;
+        }
+
+        long[] counts = new long[Math.max(this.palette.getSize(), this.cleanBlockCounts.length)];
+        System.arraycopy(this.cleanBlockCounts, 0, counts, 0, this.cleanBlockCounts.length);
+
+        final int count = this.sections.length;
+
+        for (int i = 0; i < count; ++i)
+        {
+            if (this.dirty[i])
+            {
+                this.addSectionBlockCounts(i, this.sections[i], counts, 1L);
+            }
+        }
+
+        this.setBlockCounts(counts);
+    }
+
+    protected void addSectionBlockCounts(int sectionIndex, @Nullable Section section, long[] counts, long sign)
+    {
+        if (section != null)
+        {
+            if (sign > 0)
+            {
+                section.addBlockCounts(counts);
+            }
+            else
+            {
+                long[] sectionCounts = new long[counts.length];
+                section.addBlockCounts(sectionCounts);
+
+                for (int id = 0; id < sectionCounts.length; ++id)
+                {
+                    counts[id] -= sectionCounts[id];
+                }
+            }
+        }
+        else
+        {
+            counts[0] += sign * this.createSection(sectionIndex).volume;
+        }
+    }
+
+    /**
+     * Marks the section as modified. The section must be loaded before calling this.
+     * The section's current counts are moved out of the clean block counts,
+     * and are counted from the section itself from now on.
+     */
+    protected void markDirty(int sectionIndex)
+    {
+        if (this.dirty[sectionIndex] == false)
+        {
+            if (this.cleanBlockCounts.length < this.palette.getSize())
+            {
+                long[] oldCounts = this.cleanBlockCounts;
+                this.cleanBlockCounts = new long[this.palette.getSize()];
+                System.arraycopy(oldCounts, 0, this.cleanBlockCounts, 0, oldCounts.length);
+            }
+
+            this.addSectionBlockCounts(sectionIndex, this.sections[sectionIndex], this.cleanBlockCounts, -1L);
+            this.dirty[sectionIndex] = true;
+            this.hasSetBlockCounts = false;
+        }
+    }
+
+    @Nullable
+    protected Section getOrLoadSection(int sectionIndex)
+    {
+        Section section = this.sections[sectionIndex];
+
+        if (section != null)
+        {
+            this.referenced[sectionIndex] = true;
+            return section;
+        }
+
+        if (this.pending[sectionIndex] == false)
+        {
+            return null;
+        }
+
+        section = this.readSection(sectionIndex);
+        this.pending[sectionIndex] = false;
+
+        if (section != null)
+        {
+            this.sections[sectionIndex] = section;
+            this.trackLoadedSection(sectionIndex);
+        }
+
+        return section;
+    }
+
+    /**
+     * Reads and decodes the section from the source, without storing it in the container.
+     * @return the section, or null if it's all air or if reading it failed
+     */
+    @Nullable
+    protected Section readSection(int sectionIndex)
+    {
+        try
+        {
+            byte[] data = this.source.readSection(sectionIndex);
+            return decodeSection(this.createSection(sectionIndex), data, this.palette.getSize());
+        }
+        catch (Exception e)
+        {
+            Litematica.LOGGER.warn("LazySectionedBlockContainer: Failed to read section {}", sectionIndex, e);
+        }
+
+        return null;
+    }
+
+    protected Section createSection(int sectionIndex)
+    {
+        int sectionX = sectionIndex % this.sectionCountX;
+        int sectionZ = (sectionIndex / this.sectionCountX) % this.sectionCountZ;
+        int sectionY = sectionIndex / (this.sectionCountX * this.sectionCountZ);
+
+        return this.createSection(sectionX, sectionY, sectionZ);
+    }
+
+    /**
+     * Adds the newly loaded section to the clock ring. If the ring is full,
+     * then the ring is swept until a slot is found whose section is either already
+     * modified (and thus no longer evictable) or has not been accessed since the last sweep.
+     */
+    protected void trackLoadedSection(int sectionIndex)
+    {
+        this.referenced[sectionIndex] = true;
+
+        if (this.clockRingSize < this.clockRing.length)
+        {
+            this.clockRing[this.clockRingSize++] = sectionIndex;
+            return;
+        }
+
+        while (true)
+        {
+            int slot = this.clockHand;
+            int oldIndex = this.clockRing[slot];
+            this.clockHand = (slot + 1) % this.clockRing.length;
+
+            if (this.dirty[oldIndex] == false && this.referenced[oldIndex])
+            {
+                this.referenced[oldIndex] = false;
+                continue;
+            }
+
+            if (this.dirty[oldIndex] == false)
+            {
+                this.sections[oldIndex] = null;
+                this.pending[oldIndex] = this.source.hasSection(oldIndex);
+            }
+
+            this.clockRing[slot] = sectionIndex;
+            return;
+        }
+    }
+
+    /**
+     * Only the modified sections are copied, the copy reads the other sections from the same source.
+     */
+    @Override
+    public LazySectionedBlockContainer copy()
+    {
+        LazySectionedBlockContainer copy = new LazySectionedBlockContainer(this.size, this.source, this.cleanBlockCounts);
+        copy.palette.setMapping(this.palette.getMapping());
+
+        final int count = this.sections.length;
+
+        for (int i = 0; i < count; ++i)
+        {
+            if (this.dirty[i])
+            {
+                Section section = this.sections[i];
+                copy.sections[i] = section != null ? section.copy() : null;
+                copy.pending[i] = false;
+                copy.dirty[i] = true;
+            }
+        }
+
+        copy.hasSetBlockCounts = false;
+
+        return copy;
+    }
+
+    /**
+     * Like {@link #copy()}, but the modified sections are shared with the snapshot
+     * until either container modifies them again.
+     */
+    @Override
+    public LazySectionedBlockContainer createSnapshot()
+    {
+        LazySectionedBlockContainer snapshot = new LazySectionedBlockContainer(this.size, this.source, this.cleanBlockCounts);
+        snapshot.palette.setMapping(this.palette.getMapping());
+
+        final int count = this.sections.length;
+
+        for (int i = 0; i < count; ++i)
+        {
+            if (this.dirty[i])
+            {
+                this.shareSection(snapshot, i);
+                snapshot.pending[i] = false;
+                snapshot.dirty[i] = true;
+            }
+        }
+
+        snapshot.hasSetBlockCounts = false;
+
+        return snapshot;
+    }
+
+    /**
+     * Encodes the given section of the container into the sectioned file format.
+     * The data is the local palette size, the local palette as the file palette IDs,
+     * and if there is more than one entry, the local IDs in the {@link AlignedLongBackedIntArray} layout,
+     * with the smallest possible bit width (min. 1) and in the normal y, z, x index order.
+     * @param fileIds the mapping from the block states to the file palette IDs, with air as ID 0
+     * @return the encoded data, or null if the section only contains air
+     */
+    @Nullable
+    public static byte[] encodeSection(BlockContainer container, int sectionX, int sectionY, int sectionZ,
+                                       Object2IntMap<BlockState> fileIds) throws IOException
+    {
+        Vec3i size = container.getSize();
+        final int startX = sectionX << SECTION_SHIFT;
+        final int startY = sectionY << SECTION_SHIFT;
+        final int startZ = sectionZ << SECTION_SHIFT;
+        final int width  = Math.min(SECTION_SIZE, size.getX() - startX);
+        final int height = Math.min(SECTION_SIZE, size.getY() - startY);
+        final int depth  = Math.min(SECTION_SIZE, size.getZ() - startZ);
+        final int volume = width * height * depth;
+
+        if (container instanceof SectionedBlockContainer)
+        {
+            SectionedBlockContainer sectioned = (SectionedBlockContainer) container;
+
+            if (sectioned instanceof LazySectionedBlockContainer)
+            {
+                int sectionIndex = sectioned.getSectionIndex(sectionX, sectionY, sectionZ);
+                ((LazySectionedBlockContainer) sectioned).getOrLoadSection(sectionIndex);
+            }
+
+            Section section = sectioned.sections[sectioned.getSectionIndex(sectionX, sectionY, sectionZ)];
+
+            if (section == null)
+            {
+                return null;
+            }
+
+            int[] localToFile = new int[Math.max(1, section.localPaletteSize)];
+
+            if (section.isUniform())
+            {
+                localToFile[0] = getFileId(sectioned, section.uniformId, fileIds);
+                return localToFile[0] == 0 ? null : writeSectionData(localToFile, 1, null, volume);
+            }
+
+            for (int i = 0; i < section.localPaletteSize; ++i)
+            {
+                localToFile[i] = getFileId(sectioned, section.localToGlobal[i], fileIds);
+            }
+
+            return writeSectionData(localToFile, section.localPaletteSize, section.storage, volume);
+        }
+
+        Int2IntOpenHashMap fileToLocal = new Int2IntOpenHashMap();
+        fileToLocal.defaultReturnValue(-1);
+        int[] localToFile = new int[16];
+        int[] localIds = new int[volume];
+        int localPaletteSize = 0;
+        BlockState lastState = null;
+        int lastLocalId = 0;
+        int index = 0;
+
+        for (int y = 0; y < height; ++y)
+        {
+            for (int z = 0; z < depth; ++z)
+            {
+                for (int x = 0; x < width; ++x)
+                {
+                    BlockState state = container.getBlockState(startX + x, startY + y, startZ + z);
+
+                    if (state != lastState)
+                    {
+                        int fileId = fileIds.getInt(state);
+                        int localId = fileToLocal.get(fileId);
+
+                        if (localId == -1)
+                        {
+                            localId = localPaletteSize++;
+                            fileToLocal.put(fileId, localId);
+
+                            if (localId >= localToFile.length)
+                            {
+                                int[] oldArr = localToFile;
+                                localToFile = new int[oldArr.length * 2];
+                                System.arraycopy(oldArr, 0, localToFile, 0, oldArr.length);
+                            }
+
+                            localToFile[localId] = fileId;
+                        }
+
+                        lastState = state;
+                        lastLocalId = localId;
+                    }
+
+                    localIds[index++] = lastLocalId;
+                }
+            }
+        }
+
+        if (localPaletteSize == 1)
+        {
+            return localToFile[0] == 0 ? null : writeSectionData(localToFile, 1, null, volume);
+        }
+
+        int bits = getSectionBitWidth(localPaletteSize);
+        AlignedLongBackedIntArray storage = new AlignedLongBackedIntArray(bits, volume);
+
+        for (int i = 0; i < volume; ++i)
+        {
+            storage.setAt(i, localIds[i]);
+        }
+
+        return writeSectionData(localToFile, localPaletteSize, storage, volume);
+    }
+
+    protected static int getFileId(SectionedBlockContainer container, int globalId, Object2IntMap<BlockState> fileIds)
+    {
+        BlockState state = container.palette.getValue(globalId);
+        return fileIds.getInt(state != null ? state : AIR_BLOCK_STATE);
+    }
+
+    protected static int getSectionBitWidth(int localPaletteSize)
+    {
+        return Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(localPaletteSize - 1));
+    }
+
+    protected static byte[] writeSectionData(int[] localToFile, int localPaletteSize,
+                                             @Nullable PackedIntArray storage, int volume) throws IOException
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(4 + localPaletteSize * 4 + (storage != null ? volume : 0));
+        DataOutputStream dos = new DataOutputStream(bos);
+
+        dos.writeInt(localPaletteSize);
+
+        for (int i = 0; i < localPaletteSize; ++i)
+        {
+            dos.writeInt(localToFile[i]);
+        }
+
+        if (localPaletteSize > 1 && storage != null)
+        {
+            int bits = getSectionBitWidth(localPaletteSize);
+            long[] longs;
+
+            if (storage instanceof AlignedLongBackedIntArray && storage.getEntryBitWidth() == bits)
+            {
+                longs = ((AlignedLongBackedIntArray) storage).getBackingLongArray();
+            }
+            else
+            {
+                AlignedLongBackedIntArray arr = new AlignedLongBackedIntArray(bits, volume);
+
+                for (int i = 0; i < volume; ++i)
+                {
+                    arr.setAt(i, storage.getAt(i));
+                }
+
+                longs = arr.getBackingLongArray();
+            }
+
+            for (long value : longs)
+            {
+                dos.writeLong(value);
+            }
+        }
+
+        dos.flush();
+
+        return bos.toByteArray();
+    }
+
+    /**
+     * Decodes the section data written by {@link #encodeSection(BlockContainer, int, int, int, Object2IntMap)}
+     * into the given empty section. The file palette IDs must be the palette IDs of the container.
+     * @return the section, or null if the section only contains air
+     */
+    @Nullable
+    protected static Section decodeSection(Section section, byte[] data, int paletteSize) throws IOException
+    {
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        int localPaletteSize = buf.getInt();
+
+        if (localPaletteSize < 1 || localPaletteSize > section.volume)
+        {
+            throw new IOException("Invalid section palette size " + localPaletteSize);
+        }
+
+        int[] localToGlobal = new int[localPaletteSize];
+
+        for (int i = 0; i < localPaletteSize; ++i)
+        {
+            int id = buf.getInt();
+
+            if (id < 0 || id >= paletteSize)
+            {
+                throw new IOException("Invalid palette ID " + id + " in section data");
+            }
+
+            localToGlobal[i] = id;
+        }
+
+        if (localPaletteSize == 1)
+        {
+            section.uniformId = localToGlobal[0];
+            return section.uniformId != 0 ? section : null;
+        }
+
+        int bits = getSectionBitWidth(localPaletteSize);
+        long[] longs = new long[(section.volume + (64 / bits) - 1) / (64 / bits)];
+        buf.asLongBuffer().get(longs);
+
+        section.storage = new AlignedLongBackedIntArray(bits, section.volume, longs);
+        section.localToGlobal = localToGlobal;
+        section.localPaletteSize = localPaletteSize;
+
+        if (localPaletteSize > Section.MAX_LINEAR_LOOKUP_SIZE)
+        {
+            section.globalToLocal = new Int2IntOpenHashMap(localPaletteSize * 2);
+            section.globalToLocal.defaultReturnValue(-1);
+
+            for (int i = 0; i < localPaletteSize; ++i)
+            {
+                section.globalToLocal.put(localToGlobal[i], i);
+            }
+        }
+
+        return section;
+    }
+
+    /**
+     * The source of the stored section data of a lazy container.
+     * The methods can be called from different threads, for example by the copies
+     * of the container that are being saved on a background thread.
+     */
+    public interface SectionSource
+    {
+        /**
+         * @return true if the section with the given index has stored data,
+         * false if the section only contains air
+         */
+        boolean hasSection(int sectionIndex);
+
+        /**
+         * @return the uncompressed section data, in the format written by
+         * {@link LazySectionedBlockContainer#encodeSection(BlockContainer, int, int, int, Object2IntMap)}
+         */
+        byte[] readSection(int sectionIndex) throws IOException;
+    }
+}
@@ -0,0 +1,278 @@
+package litematica.schematic.container;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import malilib.util.data.palette.Palette;
+import malilib.util.position.Vec3i;
+import malilib.util.world.BlockState;
+import litematica.util.PositionUtils;
+
+/**
+ * Converts between the legacy numeric block id + metadata arrays
+ * (used by the Schematica/MCEdit and Indev formats) and the block containers in bulk.
+ * The block id and metadata of each position are combined into one 16-bit key
+ * (blockId << 4 | meta), which is then mapped via a dense lookup table,
+ * so that each distinct key only needs to be resolved to a block state once,
+ * instead of doing a hash map lookup and a palette lookup for every block.
+ */
+public class LegacyBlockArrayConverter
+{
+    public static final int KEY_COUNT = 1 << 16;
+
+    protected final Int2ObjectOpenHashMap<BlockState> mapping;
+    protected final IntArrayList unmappedKeys = new IntArrayList();
+    protected long errorCount;
+
+    /**
+     * @param mapping the mapping from the legacy block ids to the block states in the file
+     */
+    public LegacyBlockArrayConverter(Int2ObjectOpenHashMap<BlockState> mapping)
+    {
+        this.mapping = mapping;
+    }
+
+    /**
+     * @return the number of blocks that had a block id that was not found in the mapping.
+     * Those positions are left as air.
+     */
+    public long getErrorCount()
+    {
+        return this.errorCount;
+    }
+
+    /**
+     * @return the distinct keys (blockId << 4 | meta) that were not found in the mapping
+     */
+    public IntArrayList getUnmappedKeys()
+    {
+        return this.unmappedKeys;
+    }
+
+    /**
+     * Creates the container with the storage and the palette built directly from the given keys.
+     * The keys must be in the normal container index order (y, z, x).
+     */
+    @SuppressWarnings("deprecation")
+    public ArrayBlockContainer createContainer(Vec3i size, char[] keys)
+    {
+        final int count = keys.length;
+        boolean[] usedKeys = new boolean[KEY_COUNT];
+
+        for (int i = 0; i < count; ++i)
+        {
+            usedKeys[keys[i]] = true;
+        }
+
+        // Resolve each used key to a palette id once. Different keys can map to the same
+        // state (for example unused metadata values), so the states are de-duplicated.
+        int[] keyToId = new int[KEY_COUNT];
+        List<BlockState> paletteList = new ArrayList<>();
+        Object2IntOpenHashMap<BlockState> stateToId = new Object2IntOpenHashMap<>();
+
+        // Keep air as ID 0, like in a newly created container
+        paletteList.add(BaseBlockContainer.AIR_BLOCK_STATE);
+        stateToId.put(BaseBlockContainer.AIR_BLOCK_STATE, 0);
+
+        for (int key = 0; key < KEY_COUNT; ++key)
+        {
+            if (usedKeys[key] == false)
+            {
+                continue;
+            }
+
+            BlockState state = this.mapping.get(key >>> 4);
+
+            if (state == null)
+            {
+                keyToId[key] = -1;
+                this.unmappedKeys.add(key);
+                continue;
+            }
+
+            state = BlockState.of(state.getBlock().getStateFromMeta(key & 0xF));
+
+            if (stateToId.containsKey(state))
+            {
+                keyToId[key] = stateToId.getInt(state);
+            }
+            else
+            {
+                keyToId[key] = paletteList.size();
+                stateToId.put(state, paletteList.size());
+                paletteList.add(state);
+            }
+        }
+
+        int entryWidthBits = ArrayBlockContainer.getRequiredBitWidth(paletteList.size());
+        AlignedLongBackedIntArray storage = new AlignedLongBackedIntArray(entryWidthBits, PositionUtils.getAreaVolume(size));
+        long[] blockCounts = new long[paletteList.size()];
+
+        for (int i = 0; i < count; ++i)
+        {
+            int id = keyToId[keys[i]];
+
+            if (id < 0)
+            {
+                ++this.errorCount;
+                id = 0;
+            }
+
+            // The storage is initially all zeroes (air)
+            if (id != 0)
+            {
+                storage.setAt(i, id);
+            }
+
+            ++blockCounts[id];
+        }
+
+        ArrayBlockContainer container = new ArrayBlockContainer(size, storage);
+        container.getPalette().setMapping(paletteList);
+        container.setBlockCounts(blockCounts);
+
+        return container;
+    }
+
+    /**
+     * Decodes the 8-bit block id array and the metadata array (one value per byte) into keys
+     */
+    public static char[] decodeKeys8Bit(byte[] blockIds, byte[] metaArr)
+    {
+        final int count = blockIds.length;
+        char[] keys = new char[count];
+
+        for (int i = 0; i < count; ++i)
+        {
+            keys[i] = (char) (((blockIds[i] & 0xFF) << 4) | (metaArr[i] & 0xF));
+        }
+
+        return keys;
+    }
+
+    /**
+     * Decodes the 8-bit block id array, the "AddBlocks" nibble array with the upper 4 bits
+     * of the 12-bit block ids, and the metadata array (one value per byte) into keys
+     */
+    public static char[] decodeKeys12Bit(byte[] blockIds, byte[] addArr, byte[] metaArr)
+    {
+        final int count = blockIds.length;
+        char[] keys = new char[count];
+
+        for (int i = 0; i < count; ++i)
+        {
+            int add = addArr[i >> 1];
+
+            // Even indices are in the higher nibble, odd indices are in the lower nibble
+            add = (i & 0x1) != 0 ? (add & 0x0F) : ((add >>> 4) & 0x0F);
+
+            keys[i] = (char) (((((add << 8) | (blockIds[i] & 0xFF))) << 4) | (metaArr[i] & 0xF));
+        }
+
+        return keys;
+    }
+
+    /**
+     * Decodes the Indev format 8-bit block id array and the data array,
+     * which has the metadata in the upper 4 bits and the light value in the lower 4 bits, into keys
+     */
+    public static char[] decodeKeysIndev(byte[] blockIds, byte[] dataArr)
+    {
+        final int count = blockIds.length;
+        char[] keys = new char[count];
+
+        for (int i = 0; i < count; ++i)
+        {
+            keys[i] = (char) (((blockIds[i] & 0xFF) << 4) | ((dataArr[i] >>> 4) & 0xF));
+        }
+
+        return keys;
+    }
+
+    /**
+     * Encodes the blocks of the container into keys (blockId << 4 | meta), in the container index order (y, z, x).
+     * For an array container the keys are calculated only once per palette entry, and then
+     * read directly via the palette ids in the storage.
+     */
+    public static char[] encodeKeys(BlockContainer container)
+    {
+        container = AdaptiveBlockContainer.unwrap(container);
+
+        Vec3i size = container.getSize();
+        final int sizeX = size.getX();
+        final int sizeY = size.getY();
+        final int sizeZ = size.getZ();
+        char[] keys = new char[sizeX * sizeY * sizeZ];
+
+        if (container instanceof ArrayBlockContainer)
+        {
+            PackedIntArray storage = ((ArrayBlockContainer) container).getIntStorage();
+            char[] idToKey = createPaletteKeyTable(container.getPalette());
+            final int tableSize = idToKey.length;
+            final int count = keys.length;
+
+            for (int i = 0; i < count; ++i)
+            {
+                int id = storage.getAt(i);
+                keys[i] = id < tableSize ? idToKey[id] : 0;
+            }
+
+            return keys;
+        }
+
+        BlockState lastState = null;
+        char lastKey = 0;
+        int index = 0;
+
+        for (int y = 0; y < sizeY; y++)
+        {
+            for (int z = 0; z < sizeZ; z++)
+            {
+                for (int x = 0; x < sizeX; x++)
+                {
+                    BlockState state = container.getBlockState(x, y, z);
+
+                    if (state != lastState)
+                    {
+                        lastKey = getKey(state);
+                        lastState = state;
+                    }
+
+                    keys[index++] = lastKey;
+                }
+            }
+        }
+
+        return keys;
+    }
+
+    protected static char[] createPaletteKeyTable(Palette<BlockState> palette)
+    {
+        final int size = palette.getSize();
+        char[] table = new char[size];
+
+        for (int id = 0; id < size; ++id)
+        {
+            table[id] = getKey(palette.getValue(id));
+        }
+
+        return table;
+    }
+
+    protected static char getKey(@Nullable BlockState state)
+    {
+        if (state == null)
+        {
+            return 0;
+        }
+
+        int blockId = state.getOldBlockId();
+        int meta = state.getBlock().getMetaFromState(state.vanillaState()) & 0xF;
+
+        return (char) (((blockId & 0xFFF) << 4) | meta);
+    }
+}
@@ -87,6 +87,12 @@ public abstract class LongArrayBackedIntArray implements PackedIntArray
         return counts;
     }
 
+    @Override
+    public long getHeapSize()
+    {
+        return this.longArray.length * 8L;
+    }
+
     public long[] getBackingLongArray()
     {
         return this.longArray;
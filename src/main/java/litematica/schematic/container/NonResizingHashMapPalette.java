@@ -97,6 +97,14 @@ public class NonResizingHashMapPalette<T> extends BasePalette<T>
     {
         if (id >= 0 && id < this.currentSize)
         {
+            T oldValue = this.values[id];
+
+            // Don't leave a stale reverse mapping pointing to the overridden ID
+            if (oldValue != null && this.valueToIdMap.getInt(oldValue) == id)
+            {
+                this.valueToIdMap.removeInt(oldValue);
+            }
+
             this.values[id] = value;
             this.valueToIdMap.put(value, id);
             return true;
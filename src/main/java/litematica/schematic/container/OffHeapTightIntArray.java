@@ -0,0 +1,400 @@
+package litematica.schematic.container;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import javax.annotation.Nullable;
+
+import malilib.util.MathUtils;
+import litematica.Litematica;
+import litematica.config.Configs;
+import litematica.util.LitematicaDirectories;
+
+/**
+ * A packed int array with the same tightly packed bit layout as {@link TightLongBackedIntArray},
+ * but which is stored outside of the Java heap, in memory mapped temporary files.
+ * This allows keeping very large schematics loaded without a huge heap, and the data
+ * doesn't need to be scanned by the garbage collector. If the memory mapping fails,
+ * then direct buffers are used instead.
+ * The data is split into segments of at most 1 GiB, because a single buffer can't be larger than 2 GiB.
+ * The temporary file is deleted as soon as it has been mapped (or on Windows, once the mapping is released),
+ * and the memory is released when the array is garbage collected.
+ */
+public class OffHeapTightIntArray implements PackedIntArray
+{
+    protected static final int SEGMENT_SHIFT = 27; // 2^27 longs = 1 GiB per segment
+    protected static final int SEGMENT_LENGTH = 1 << SEGMENT_SHIFT;
+    protected static final int SEGMENT_MASK = SEGMENT_LENGTH - 1;
+    /** The number of longs per read or write, when copying the data to or from a stream */
+    protected static final int IO_CHUNK_LENGTH = 8192;
+
+    protected final LongBuffer[] segments;
+    protected final int bitsPerEntry;
+    protected final int maxEntryValue;
+    protected final long arraySize;
+    protected final long longCount;
+
+    public OffHeapTightIntArray(int bitsPerEntry, long arraySize) throws IndexOutOfBoundsException
+    {
+        this(bitsPerEntry, arraySize, null);
+    }
+
+    protected OffHeapTightIntArray(int bitsPerEntry, long arraySize, @Nullable LongBuffer[] segments) throws IndexOutOfBoundsException
+    {
+        if (bitsPerEntry < 1 || bitsPerEntry > 31)
+        {
+            throw new IndexOutOfBoundsException("Invalid bitsPerEntry value: " + bitsPerEntry);
+        }
+
+        this.arraySize = arraySize;
+        this.bitsPerEntry = bitsPerEntry;
+        this.maxEntryValue = (1 << bitsPerEntry) - 1;
+        this.longCount = getRequiredLongCount(bitsPerEntry, arraySize);
+        this.segments = segments != null ? segments : allocateSegments(this.longCount);
+    }
+
+    /**
+     * @return true if the configured volume threshold for the off-heap storage is enabled
+     * and the given volume is above it
+     */
+    public static boolean shouldUseOffHeapStorage(long volume)
+    {
+        long threshold = Configs.Generic.OFF_HEAP_STORAGE_VOLUME.getIntegerValue() * 1000000L;
+        return threshold > 0 && volume > threshold;
+    }
+
+    /**
+     * @return an off-heap array if the given volume is above the configured threshold,
+     * otherwise a normal {@link TightLongBackedIntArray}
+     */
+    public static PackedIntArray createTightArray(int bitsPerEntry, long arraySize)
+    {
+        if (shouldUseOffHeapStorage(arraySize))
+        {
+            return new OffHeapTightIntArray(bitsPerEntry, arraySize);
+        }
+
+        return new TightLongBackedIntArray(bitsPerEntry, arraySize);
+    }
+
+    /**
+     * Creates an off-heap array with the data from the given long array,
+     * which must be in the {@link TightLongBackedIntArray} layout.
+     */
+    public static OffHeapTightIntArray fromLongArray(int bitsPerEntry, long arraySize, long[] array) throws IndexOutOfBoundsException
+    {
+        long requiredLength = getRequiredLongCount(bitsPerEntry, arraySize);
+
+        if (array.length != requiredLength)
+        {
+            String str = String.format("Provided array length (%d) does not match the required length (%d)",
+                                       array.length, requiredLength);
+            throw new IndexOutOfBoundsException(str);
+        }
+
+        OffHeapTightIntArray offHeapArray = new OffHeapTightIntArray(bitsPerEntry, arraySize);
+        int offset = 0;
+
+        for (LongBuffer segment : offHeapArray.segments)
+        {
+            LongBuffer buf = segment.duplicate();
+            buf.clear();
+            int length = buf.remaining();
+            buf.put(array, offset, length);
+            offset += length;
+        }
+
+        return offHeapArray;
+    }
+
+    /**
+     * Creates an array that uses the given segments as its storage, for example
+     * ones from {@link #readSegments(DataInput, long)}. The segments must be
+     * in the {@link TightLongBackedIntArray} layout.
+     */
+    public static OffHeapTightIntArray fromSegments(int bitsPerEntry, long arraySize, LongBuffer[] segments) throws IndexOutOfBoundsException
+    {
+        long requiredLength = getRequiredLongCount(bitsPerEntry, arraySize);
+        long length = 0;
+
+        for (LongBuffer segment : segments)
+        {
+            length += segment.capacity();
+        }
+
+        if (length != requiredLength)
+        {
+            String str = String.format("Provided data length (%d) does not match the required length (%d)",
+                                       length, requiredLength);
+            throw new IndexOutOfBoundsException(str);
+        }
+
+        return new OffHeapTightIntArray(bitsPerEntry, arraySize, segments);
+    }
+
+    /**
+     * Reads the given number of longs from the input directly into new off-heap segments.
+     * The values are read in the big endian order, as in the NBT long array payload.
+     * This is meant for reading the data before the entry bit width and the array size are known,
+     * the array is then created via {@link #fromSegments(int, long, LongBuffer[])}.
+     */
+    public static LongBuffer[] readSegments(DataInput in, long longCount) throws IOException
+    {
+        LongBuffer[] segments = allocateSegments(longCount);
+        byte[] bytes = new byte[IO_CHUNK_LENGTH * 8];
+        LongBuffer chunk = ByteBuffer.wrap(bytes).asLongBuffer();
+
+        for (LongBuffer segment : segments)
+        {
+            LongBuffer dst = segment.duplicate();
+            dst.clear();
+
+            while (dst.hasRemaining())
+            {
+                int count = Math.min(dst.remaining(), IO_CHUNK_LENGTH);
+                in.readFully(bytes, 0, count * 8);
+                chunk.clear();
+                chunk.limit(count);
+                dst.put(chunk);
+            }
+        }
+
+        return segments;
+    }
+
+    protected static long getRequiredLongCount(int bitsPerEntry, long arraySize)
+    {
+        return MathUtils.roundUp(arraySize * bitsPerEntry, 64L) / 64L;
+    }
+
+    protected static LongBuffer[] allocateSegments(long longCount)
+    {
+        int segmentCount = (int) ((longCount + SEGMENT_LENGTH - 1) >>> SEGMENT_SHIFT);
+        LongBuffer[] segments = new LongBuffer[segmentCount];
+
+        try
+        {
+            mapSegments(segments, longCount);
+            return segments;
+        }
+        catch (Exception e)
+        {
+            Litematica.LOGGER.warn("OffHeapTightIntArray: Failed to map a temporary file, using direct buffers instead", e);
+        }
+
+        for (int i = 0; i < segmentCount; ++i)
+        {
+            int length = getSegmentLength(i, longCount);
+            segments[i] = ByteBuffer.allocateDirect(length * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+
+        return segments;
+    }
+
+    protected static void mapSegments(LongBuffer[] segments, long longCount) throws IOException
+    {
+        Path dir = LitematicaDirectories.getOffHeapStorageDirectory();
+        Files.createDirectories(dir);
+        Path file = Files.createTempFile(dir, "blocks_", ".tmp");
+
+        // The mappings stay valid after the channel is closed,
+        // and the file gets deleted once it's not in use anymore
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+                                                          StandardOpenOption.WRITE,
+                                                          StandardOpenOption.DELETE_ON_CLOSE))
+        {
+            for (int i = 0; i < segments.length; ++i)
+            {
+                long position = ((long) i << SEGMENT_SHIFT) * 8L;
+                long length = getSegmentLength(i, longCount) * 8L;
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, length).order(ByteOrder.nativeOrder()).asLongBuffer();
+            }
+        }
+        finally
+        {
+            // The file is normally already deleted on close. This is for when opening the channel failed.
+            // Deleting a still mapped file fails on Windows, where it instead gets deleted once the mapping is released.
+            try
+            {
+                Files.deleteIfExists(file);
+            }
+            catch (IOException ignore) {}
+        }
+    }
+
+    protected static int getSegmentLength(int segmentIndex, long longCount)
+    {
+        return (int) Math.min(SEGMENT_LENGTH, longCount - ((long) segmentIndex << SEGMENT_SHIFT));
+    }
+
+    protected long getLong(long index)
+    {
+        return this.segments[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+    }
+
+    protected void setLong(long index, long value)
+    {
+        this.segments[(int) (index >>> SEGMENT_SHIFT)].put((int) (index & SEGMENT_MASK), value);
+    }
+
+    @Override
+    public long size()
+    {
+        return this.arraySize;
+    }
+
+    @Override
+    public int getEntryBitWidth()
+    {
+        return this.bitsPerEntry;
+    }
+
+    @Override
+    public int getAt(long index)
+    {
+        long startOffset = index * this.bitsPerEntry;
+        long startArrIndex = startOffset >> 6; // startOffset / 64
+        long endArrIndex = ((index + 1L) * this.bitsPerEntry - 1L) >> 6;
+        int startBitOffset = (int) (startOffset & 0x3F); // startOffset % 64
+
+        if (startArrIndex == endArrIndex)
+        {
+            return (int) (this.getLong(startArrIndex) >>> startBitOffset & this.maxEntryValue);
+        }
+        else
+        {
+            int endOffset = 64 - startBitOffset;
+            return (int) ((this.getLong(startArrIndex) >>> startBitOffset | this.getLong(endArrIndex) << endOffset) & this.maxEntryValue);
+        }
+    }
+
+    @Override
+    public void setAt(long index, int value)
+    {
+        long startOffset = index * (long) this.bitsPerEntry;
+        long startArrIndex = startOffset >> 6; // startOffset / 64
+        long endArrIndex = ((index + 1L) * (long) this.bitsPerEntry - 1L) >> 6;
+        int startBitOffset = (int) (startOffset & 0x3F); // startOffset % 64
+        this.setLong(startArrIndex, this.getLong(startArrIndex) & ~((long) this.maxEntryValue << startBitOffset) | (long) (value & this.maxEntryValue) << startBitOffset);
+
+        if (startArrIndex != endArrIndex)
+        {
+            int endOffset = 64 - startBitOffset;
+            int j1 = this.bitsPerEntry - endOffset;
+            this.setLong(endArrIndex, this.getLong(endArrIndex) >>> j1 << j1 | (value & this.maxEntryValue) >> endOffset);
+        }
+    }
+
+    @Override
+    public long[] getValueCounts()
+    {
+        long[] counts = new long[this.maxEntryValue + 1];
+
+        for (long i = 0; i < this.arraySize; ++i)
+        {
+            ++counts[this.getAt(i)];
+        }
+
+        return counts;
+    }
+
+    @Override
+    public long getHeapSize()
+    {
+        // The data is stored outside of the heap
+        return 0;
+    }
+
+    /**
+     * @return the number of longs in the {@link TightLongBackedIntArray} layout of the data
+     */
+    public long getLongCount()
+    {
+        return this.longCount;
+    }
+
+    /**
+     * Writes the data to the output in the {@link TightLongBackedIntArray} layout,
+     * in the big endian order, as in the NBT long array payload.
+     * Only a small chunk of the data is copied to the heap at a time.
+     */
+    public void writeLongs(DataOutput out) throws IOException
+    {
+        byte[] bytes = new byte[IO_CHUNK_LENGTH * 8];
+        LongBuffer chunk = ByteBuffer.wrap(bytes).asLongBuffer();
+
+        for (LongBuffer segment : this.segments)
+        {
+            LongBuffer src = segment.duplicate();
+            src.clear();
+
+            while (src.hasRemaining())
+            {
+                int count = Math.min(src.remaining(), IO_CHUNK_LENGTH);
+                LongBuffer part = src.duplicate();
+                part.limit(part.position() + count);
+                chunk.clear();
+                chunk.put(part);
+                src.position(src.position() + count);
+                out.write(bytes, 0, count * 8);
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the data as a long array in the {@link TightLongBackedIntArray} layout.
+     * This copies all the data to the heap, so the data is written to files via {@link #writeLongs(DataOutput)} instead.
+     * @throws IndexOutOfBoundsException if the data doesn't fit in one long array
+     */
+    public long[] toLongArray() throws IndexOutOfBoundsException
+    {
+        if (this.longCount > Integer.MAX_VALUE)
+        {
+            throw new IndexOutOfBoundsException("Required array length (" + this.longCount + ") is larger than max int value");
+        }
+
+        long[] array = new long[(int) this.longCount];
+        int offset = 0;
+
+        for (LongBuffer segment : this.segments)
+        {
+            LongBuffer buf = segment.duplicate();
+            buf.clear();
+            int length = buf.remaining();
+            buf.get(array, offset, length);
+            offset += length;
+        }
+
+        return array;
+    }
+
+    @Override
+    public OffHeapTightIntArray copy()
+    {
+        OffHeapTightIntArray copy = new OffHeapTightIntArray(this.bitsPerEntry, this.arraySize);
+
+        for (int i = 0; i < this.segments.length; ++i)
+        {
+            LongBuffer src = this.segments[i].duplicate();
+            LongBuffer dst = copy.segments[i].duplicate();
+            src.clear();
+            dst.clear();
+            dst.put(src);
+        }
+
+        return copy;
+    }
+
+    @Override
+    public PackedIntArray createNewArray(int bitsPerEntry, long arraySize)
+    {
+        return new OffHeapTightIntArray(bitsPerEntry, arraySize);
+    }
+}
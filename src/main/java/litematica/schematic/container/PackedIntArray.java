@@ -30,6 +30,14 @@ public interface PackedIntArray
      */
     long[] getValueCounts();
 
+    /**
+     * @return the approximate number of bytes that the data of this array takes on the Java heap
+     */
+    default long getHeapSize()
+    {
+        return (this.size() * this.getEntryBitWidth() + 63L) / 64L * 8L;
+    }
+
     /**
      * @return A copy of this array
      */
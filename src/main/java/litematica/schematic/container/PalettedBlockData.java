@@ -0,0 +1,235 @@
+package litematica.schematic.container;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+
+import malilib.util.data.palette.Palette;
+import malilib.util.position.Vec3i;
+import malilib.util.world.BlockState;
+
+/**
+ * The block data of a container in the form that the palette based file formats write it out:
+ * a compacted palette with air at id 0, and the palette ids of every position in the y, z, x order.
+ * The ids in the storage always refer to the palette list of this object, and not to
+ * the palette of the source container, so the two must always be written out together.
+ * Creating this does not modify the source container.
+ */
+public class PalettedBlockData
+{
+    protected final List<BlockState> palette;
+    protected final PackedIntArray storage;
+
+    protected PalettedBlockData(List<BlockState> palette, PackedIntArray storage)
+    {
+        this.palette = palette;
+        this.storage = storage;
+    }
+
+    public List<BlockState> getPalette()
+    {
+        return this.palette;
+    }
+
+    public PackedIntArray getStorage()
+    {
+        return this.storage;
+    }
+
+    public int getMaxId()
+    {
+        return this.palette.size() - 1;
+    }
+
+    public static PalettedBlockData of(BlockContainer container)
+    {
+        container = AdaptiveBlockContainer.unwrap(container);
+
+        if (container instanceof ArrayBlockContainer)
+        {
+            return fromArrayContainer((ArrayBlockContainer) container);
+        }
+        else if (container instanceof SparseBlockContainer)
+        {
+            return fromSparseContainer((SparseBlockContainer) container);
+        }
+
+        return fromBlockStates(container);
+    }
+
+    /**
+     * Maps the palette ids in the storage of the container directly to the ids of the compacted palette.
+     * The storage of the container is returned as-is if the palette is already compact.
+     */
+    protected static PalettedBlockData fromArrayContainer(ArrayBlockContainer container)
+    {
+        Palette<BlockState> containerPalette = container.getPalette();
+        PackedIntArray oldStorage = container.getIntStorage();
+        long[] counts = oldStorage.getValueCounts();
+        final int oldSize = containerPalette.getSize();
+        int[] idMap = new int[Math.max(oldSize, counts.length)];
+        List<BlockState> mapping = new ArrayList<>();
+
+        mapping.add(BaseBlockContainer.AIR_BLOCK_STATE);
+
+        for (int id = 0; id < oldSize; ++id)
+        {
+            BlockState state = containerPalette.getValue(id);
+
+            if (state == null || state.equals(BaseBlockContainer.AIR_BLOCK_STATE))
+            {
+                idMap[id] = 0;
+            }
+            else if (id < counts.length && counts[id] > 0)
+            {
+                idMap[id] = mapping.size();
+                mapping.add(state);
+            }
+        }
+
+        int bits = ArrayBlockContainer.getRequiredBitWidth(mapping.size());
+
+        if (mapping.size() == oldSize && bits == oldStorage.getEntryBitWidth() &&
+            BaseBlockContainer.AIR_BLOCK_STATE.equals(containerPalette.getValue(0)))
+        {
+            return new PalettedBlockData(mapping, oldStorage);
+        }
+
+        PackedIntArray newStorage = oldStorage.createNewArray(bits, oldStorage.size());
+        final long size = oldStorage.size();
+
+        for (long index = 0; index < size; ++index)
+        {
+            newStorage.setAt(index, idMap[oldStorage.getAt(index)]);
+        }
+
+        return new PalettedBlockData(mapping, newStorage);
+    }
+
+    /**
+     * Builds the palette from the block counts of the container, and then
+     * reads every position through the container to get the new palette ids.
+     * This works for any container type, regardless of how its own palette is laid out.
+     */
+    protected static PalettedBlockData fromBlockStates(BlockContainer container)
+    {
+        Object2IntOpenHashMap<BlockState> idMap = new Object2IntOpenHashMap<>();
+        List<BlockState> mapping = createPaletteFromBlockCounts(container, idMap);
+        Vec3i size = container.getSize();
+        final int sizeX = size.getX();
+        final int sizeY = size.getY();
+        final int sizeZ = size.getZ();
+        long index = 0;
+        int bits = ArrayBlockContainer.getRequiredBitWidth(mapping.size());
+        PackedIntArray storage = OffHeapTightIntArray.createTightArray(bits, container.getTotalVolume());
+
+        for (int y = 0; y < sizeY; ++y)
+        {
+            for (int z = 0; z < sizeZ; ++z)
+            {
+                for (int x = 0; x < sizeX; ++x)
+                {
+                    BlockState state = container.getBlockState(x, y, z);
+                    int id = idMap.getInt(state);
+
+                    // The block counts should cover every state, but don't trust them blindly
+                    if (id == -1)
+                    {
+                        id = mapping.size();
+                        idMap.put(state, id);
+                        mapping.add(state);
+
+                        if (ArrayBlockContainer.getRequiredBitWidth(mapping.size()) > storage.getEntryBitWidth())
+                        {
+                            storage = resizeStorage(storage, storage.getEntryBitWidth() + 1, index);
+                        }
+                    }
+
+                    storage.setAt(index++, id);
+                }
+            }
+        }
+
+        return new PalettedBlockData(mapping, storage);
+    }
+
+    /**
+     * Only writes the stored blocks of the sparse container, since the new storage
+     * already has all positions set to air (id 0).
+     * The ids of the sparse palette are never used directly, since that palette
+     * does not reserve id 0 for air and it may have stale entries.
+     */
+    protected static PalettedBlockData fromSparseContainer(SparseBlockContainer container)
+    {
+        Object2IntOpenHashMap<BlockState> idMap = new Object2IntOpenHashMap<>();
+        List<BlockState> mapping = createPaletteFromBlockCounts(container, idMap);
+        Vec3i size = container.getSize();
+        final long sizeX = size.getX();
+        final long sizeLayer = sizeX * size.getZ();
+        final long volume = container.getTotalVolume();
+        int bits = ArrayBlockContainer.getRequiredBitWidth(mapping.size());
+        PackedIntArray[] storage = new PackedIntArray[] { OffHeapTightIntArray.createTightArray(bits, volume) };
+
+        container.forEachBlockUnordered((x, y, z, state) -> {
+            int id = idMap.getInt(state);
+
+            // The block counts should cover every state, but don't trust them blindly
+            if (id == -1)
+            {
+                id = mapping.size();
+                idMap.put(state, id);
+                mapping.add(state);
+
+                if (ArrayBlockContainer.getRequiredBitWidth(mapping.size()) > storage[0].getEntryBitWidth())
+                {
+                    storage[0] = resizeStorage(storage[0], storage[0].getEntryBitWidth() + 1, volume);
+                }
+            }
+
+            storage[0].setAt((long) y * sizeLayer + (long) z * sizeX + x, id);
+        });
+
+        return new PalettedBlockData(mapping, storage[0]);
+    }
+
+    /**
+     * Creates a palette list with air at id 0, followed by all the states that
+     * have a non-zero block count in the container, and fills the reverse mapping to idMap.
+     */
+    protected static List<BlockState> createPaletteFromBlockCounts(BlockContainer container,
+                                                                   Object2IntOpenHashMap<BlockState> idMap)
+    {
+        List<BlockState> mapping = new ArrayList<>();
+
+        idMap.defaultReturnValue(-1);
+        idMap.put(BaseBlockContainer.AIR_BLOCK_STATE, 0);
+        mapping.add(BaseBlockContainer.AIR_BLOCK_STATE);
+
+        for (Object2LongMap.Entry<BlockState> entry : container.getBlockCountsMap().object2LongEntrySet())
+        {
+            BlockState state = entry.getKey();
+
+            if (state != null && entry.getLongValue() > 0 && idMap.containsKey(state) == false)
+            {
+                idMap.put(state, mapping.size());
+                mapping.add(state);
+            }
+        }
+
+        return mapping;
+    }
+
+    protected static PackedIntArray resizeStorage(PackedIntArray oldStorage, int bits, long usedEntries)
+    {
+        PackedIntArray newStorage = oldStorage.createNewArray(bits, oldStorage.size());
+
+        for (long index = 0; index < usedEntries; ++index)
+        {
+            newStorage.setAt(index, oldStorage.getAt(index));
+        }
+
+        return newStorage;
+    }
+}
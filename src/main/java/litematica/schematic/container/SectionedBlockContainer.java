@@ -0,0 +1,743 @@
+package litematica.schematic.container;
+
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+import malilib.util.position.Vec3i;
+import malilib.util.world.BlockState;
+
+/**
+ * A block container that splits the volume into 16x16x16 sections.
+ * Each section has its own small palette and bit width, which maps into
+ * the container-wide palette. Sections that only contain one block state
+ * don't have any backing storage, and all-air sections are not allocated at all.
+ */
+public class SectionedBlockContainer extends BaseBlockContainer
+{
+    public static final int SECTION_SHIFT = 4;
+    public static final int SECTION_SIZE = 1 << SECTION_SHIFT;
+    protected static final int SECTION_MASK = SECTION_SIZE - 1;
+
+    protected final int sectionCountX;
+    protected final int sectionCountY;
+    protected final int sectionCountZ;
+    protected final Section[] sections;
+    /** The sections that are shared with a snapshot, and need to be copied before modifying them */
+    protected final boolean[] sectionShared;
+
+    public SectionedBlockContainer(Vec3i size)
+    {
+        super(size);
+
+        this.palette = new NonResizingHashMapPalette<>(256);
+        this.palette.idFor(AIR_BLOCK_STATE);
+
+        this.sectionCountX = (this.sizeX + SECTION_MASK) >> SECTION_SHIFT;
+        this.sectionCountY = (this.sizeY + SECTION_MASK) >> SECTION_SHIFT;
+        this.sectionCountZ = (this.sizeZ + SECTION_MASK) >> SECTION_SHIFT;
+        this.sections = new Section[this.sectionCountX * this.sectionCountY * this.sectionCountZ];
+        this.sectionShared = new boolean[this.sections.length];
+    }
+
+    @Override
+    public BlockState getBlockState(int x, int y, int z)
+    {
+        Section section = this.sections[this.getSectionIndex(x >> SECTION_SHIFT, y >> SECTION_SHIFT, z >> SECTION_SHIFT)];
+
+        if (section == null)
+        {
+            return AIR_BLOCK_STATE;
+        }
+
+        BlockState state = this.palette.getValue(section.getGlobalId(x & SECTION_MASK, y & SECTION_MASK, z & SECTION_MASK));
+        return state != null ? state : AIR_BLOCK_STATE;
+    }
+
+    @Override
+    public void setBlockState(int x, int y, int z, BlockState state)
+    {
+        int sectionIndex = this.getSectionIndex(x >> SECTION_SHIFT, y >> SECTION_SHIFT, z >> SECTION_SHIFT);
+        Section section = this.getWritableSection(sectionIndex);
+        int id = this.palette.idFor(state);
+
+        if (section == null)
+        {
+            // Empty sections are implicitly all air
+            if (id == 0)
+            {
+                return;
+            }
+
+            section = this.createSection(x >> SECTION_SHIFT, y >> SECTION_SHIFT, z >> SECTION_SHIFT);
+            this.sections[sectionIndex] = section;
+        }
+
+        section.setGlobalId(x & SECTION_MASK, y & SECTION_MASK, z & SECTION_MASK, id);
+        this.hasSetBlockCounts = false; // Force a re-count when next queried
+    }
+
+    protected Section createSection(int sectionX, int sectionY, int sectionZ)
+    {
+        int width  = Math.min(SECTION_SIZE, this.sizeX - (sectionX << SECTION_SHIFT));
+        int height = Math.min(SECTION_SIZE, this.sizeY - (sectionY << SECTION_SHIFT));
+        int depth  = Math.min(SECTION_SIZE, this.sizeZ - (sectionZ << SECTION_SHIFT));
+
+        return new Section(width, height, depth);
+    }
+
+    /**
+     * @return the section for modifying it. If the section is shared with a snapshot,
+     * then it is first replaced with a copy in this container.
+     */
+    @Nullable
+    protected Section getWritableSection(int sectionIndex)
+    {
+        Section section = this.sections[sectionIndex];
+
+        if (section != null && this.sectionShared[sectionIndex])
+        {
+            section = section.copy();
+            this.sections[sectionIndex] = section;
+        }
+
+        this.sectionShared[sectionIndex] = false;
+
+        return section;
+    }
+
+    /**
+     * Shares the given section with the snapshot container, so that
+     * both containers copy the section before they modify it.
+     */
+    protected void shareSection(SectionedBlockContainer snapshot, int sectionIndex)
+    {
+        Section section = this.sections[sectionIndex];
+        snapshot.sections[sectionIndex] = section;
+
+        if (section != null)
+        {
+            snapshot.sectionShared[sectionIndex] = true;
+            this.sectionShared[sectionIndex] = true;
+        }
+    }
+
+    protected int getSectionIndex(int sectionX, int sectionY, int sectionZ)
+    {
+        return (sectionY * this.sectionCountZ + sectionZ) * this.sectionCountX + sectionX;
+    }
+
+    public Vec3i getSectionCounts()
+    {
+        return new Vec3i(this.sectionCountX, this.sectionCountY, this.sectionCountZ);
+    }
+
+    /**
+     * @return true if the given section has not been allocated, ie. it only contains air
+     */
+    public boolean isSectionEmpty(int sectionX, int sectionY, int sectionZ)
+    {
+        return this.sections[this.getSectionIndex(sectionX, sectionY, sectionZ)] == null;
+    }
+
+    /**
+     * @return the block state that fills the entire given section,
+     * or null if the section contains more than one block state
+     */
+    @Nullable
+    public BlockState getUniformSectionState(int sectionX, int sectionY, int sectionZ)
+    {
+        Section section = this.sections[this.getSectionIndex(sectionX, sectionY, sectionZ)];
+
+        if (section == null)
+        {
+            return AIR_BLOCK_STATE;
+        }
+
+        return section.isUniform() ? this.palette.getValue(section.uniformId) : null;
+    }
+
+    /**
+     * Converts any sections that only contain a single block state into uniform sections,
+     * and drops all-air sections altogether.
+     */
+    public void optimizeSections()
+    {
+        final int count = this.sections.length;
+
+        for (int i = 0; i < count; ++i)
+        {
+            Section section = this.sections[i];
+
+            if (section == null)
+            {
+                continue;
+            }
+
+            if (section.isUniform() == false)
+            {
+                int localId = section.getUniformLocalId();
+
+                if (localId == -1)
+                {
+                    continue;
+                }
+
+                section = this.getWritableSection(i);
+                section.makeUniform(localId);
+            }
+
+            if (section.uniformId == 0)
+            {
+                this.sections[i] = null;
+                this.sectionShared[i] = false;
+            }
+        }
+    }
+
+    @Override
+    public void optimizeStorage()
+    {
+        this.optimizeSections();
+    }
+
+    @Override
+    public long replaceAll(BlockState from, BlockState to)
+    {
+        int fromId = this.getExistingPaletteId(from);
+
+        if (fromId == -1 || from.equals(to))
+        {
+            return 0;
+        }
+
+        // Air is also implicit in all the non-allocated sections
+        if (fromId == 0)
+        {
+            return super.replaceAll(from, to);
+        }
+
+        long count = this.getBlockCountForId(fromId);
+        int toId = this.getExistingPaletteId(to);
+
+        // The new state is not in the palette yet, so it can just take over the ID of the old state
+        if (toId == -1)
+        {
+            this.palette.overrideMapping(fromId, to);
+            return count;
+        }
+
+        final int sectionCount = this.sections.length;
+
+        for (int i = 0; i < sectionCount; ++i)
+        {
+            Section section = this.sections[i];
+
+            if (section != null && section.containsGlobalId(fromId))
+            {
+                this.getWritableSection(i).replaceGlobalId(fromId, toId);
+            }
+        }
+
+        this.hasSetBlockCounts = false;
+
+        return count;
+    }
+
+    @Override
+    public void compactPalette()
+    {
+        this.calculateBlockCountsIfNeeded();
+
+        final int oldSize = this.palette.getSize();
+        int[] idMap = new int[oldSize];
+        NonResizingHashMapPalette<BlockState> newPalette = new NonResizingHashMapPalette<>(Math.max(oldSize, 16));
+        newPalette.idFor(AIR_BLOCK_STATE);
+
+        for (int id = 1; id < oldSize; ++id)
+        {
+            BlockState state = this.palette.getValue(id);
+
+            if (state != null && id < this.blockCounts.length && this.blockCounts[id] > 0)
+            {
+                idMap[id] = newPalette.idFor(state);
+            }
+        }
+
+        final int count = this.sections.length;
+
+        for (int i = 0; i < count; ++i)
+        {
+            Section section = this.getWritableSection(i);
+
+            if (section != null && section.compact(idMap) && section.uniformId == 0)
+            {
+                this.sections[i] = null;
+            }
+        }
+
+        this.palette = newPalette;
+        this.hasSetBlockCounts = false;
+    }
+
+    @Override
+    public long getEstimatedHeapSize()
+    {
+        long size = super.getEstimatedHeapSize() + this.sections.length * 8L;
+
+        for (Section section : this.sections)
+        {
+            if (section != null)
+            {
+                size += section.getEstimatedHeapSize();
+            }
+        }
+
+        return size;
+    }
+
+    @Override
+    protected void calculateBlockCountsIfNeeded()
+    {
+        if (this.hasSetBlockCounts)
+        {
+            return;
+        }
+
+        long[] counts = new long[this.palette.getSize()];
+        long allocatedVolume = 0;
+
+        for (Section section : this.sections)
+        {
+            if (section != null)
+            {
+                section.addBlockCounts(counts);
+                allocatedVolume += section.volume;
+            }
+        }
+
+        // The non-allocated sections are all air
+        counts[0] += this.totalVolume - allocatedVolume;
+
+        this.setBlockCounts(counts);
+    }
+
+    @Override
+    public SectionedBlockContainer copy()
+    {
+        SectionedBlockContainer copy = new SectionedBlockContainer(this.size);
+        copy.palette.setMapping(this.palette.getMapping());
+
+        final int count = this.sections.length;
+
+        for (int i = 0; i < count; ++i)
+        {
+            Section section = this.sections[i];
+            copy.sections[i] = section != null ? section.copy() : null;
+        }
+
+        return copy;
+    }
+
+    /**
+     * The snapshot shares all the sections with this container,
+     * and a section is only copied once either container modifies it.
+     */
+    @Override
+    public SectionedBlockContainer createSnapshot()
+    {
+        SectionedBlockContainer snapshot = new SectionedBlockContainer(this.size);
+        snapshot.palette.setMapping(this.palette.getMapping());
+
+        final int count = this.sections.length;
+
+        for (int i = 0; i < count; ++i)
+        {
+            this.shareSection(snapshot, i);
+        }
+
+        return snapshot;
+    }
+
+    protected static class Section
+    {
+        protected static final int MAX_LINEAR_LOOKUP_SIZE = 16;
+
+        protected final int width;
+        protected final int depth;
+        protected final int volume;
+        protected int uniformId;
+        @Nullable protected PackedIntArray storage;
+        protected int[] localToGlobal = new int[0];
+        protected int localPaletteSize;
+        @Nullable protected Int2IntOpenHashMap globalToLocal;
+
+        protected Section(int width, int height, int depth)
+        {
+            this.width = width;
+            this.depth = depth;
+            this.volume = width * height * depth;
+        }
+
+        public boolean isUniform()
+        {
+            return this.storage == null;
+        }
+
+        protected int getIndex(int x, int y, int z)
+        {
+            return (y * this.depth + z) * this.width + x;
+        }
+
+        public int getGlobalId(int x, int y, int z)
+        {
+            if (this.storage == null)
+            {
+                return this.uniformId;
+            }
+
+            return this.localToGlobal[this.storage.getAt(this.getIndex(x, y, z))];
+        }
+
+        public void setGlobalId(int x, int y, int z, int globalId)
+        {
+            if (this.storage == null)
+            {
+                if (globalId == this.uniformId)
+                {
+                    return;
+                }
+
+                this.convertToPaletted();
+            }
+
+            int localId = this.getOrAddLocalId(globalId);
+            this.storage.setAt(this.getIndex(x, y, z), localId);
+        }
+
+        protected void convertToPaletted()
+        {
+            this.localToGlobal = new int[4];
+            this.localToGlobal[0] = this.uniformId;
+            this.localPaletteSize = 1;
+            this.globalToLocal = null;
+            this.storage = new AlignedLongBackedIntArray(1, this.volume);
+        }
+
+        protected int getOrAddLocalId(int globalId)
+        {
+            if (this.globalToLocal != null)
+            {
+                int localId = this.globalToLocal.get(globalId);
+
+                if (localId != -1)
+                {
+                    return localId;
+                }
+            }
+            else
+            {
+                for (int i = 0; i < this.localPaletteSize; ++i)
+                {
+                    if (this.localToGlobal[i] == globalId)
+                    {
+                        return i;
+                    }
+                }
+            }
+
+            return this.addLocalId(globalId);
+        }
+
+        protected int addLocalId(int globalId)
+        {
+            int localId = this.localPaletteSize++;
+
+            if (localId >= this.localToGlobal.length)
+            {
+                int[] oldArr = this.localToGlobal;
+                this.localToGlobal = new int[oldArr.length * 2];
+                System.arraycopy(oldArr, 0, this.localToGlobal, 0, oldArr.length);
+            }
+
+            this.localToGlobal[localId] = globalId;
+
+            if (this.globalToLocal != null)
+            {
+                this.globalToLocal.put(globalId, localId);
+            }
+            else if (this.localPaletteSize > MAX_LINEAR_LOOKUP_SIZE)
+            {
+                this.globalToLocal = new Int2IntOpenHashMap(this.localPaletteSize * 2);
+                this.globalToLocal.defaultReturnValue(-1);
+
+                for (int i = 0; i < this.localPaletteSize; ++i)
+                {
+                    this.globalToLocal.put(this.localToGlobal[i], i);
+                }
+            }
+
+            PackedIntArray storage = this.storage;
+
+            if (localId > ((1 << storage.getEntryBitWidth()) - 1))
+            {
+                PackedIntArray newStorage = storage.createNewArray(storage.getEntryBitWidth() + 1, this.volume);
+
+                for (int i = 0; i < this.volume; ++i)
+                {
+                    newStorage.setAt(i, storage.getAt(i));
+                }
+
+                this.storage = newStorage;
+            }
+
+            return localId;
+        }
+
+        /**
+         * Drops the backing storage, if the section only contains one block state
+         * @return true if the section is uniform after the call
+         */
+        public boolean tryMakeUniform()
+        {
+            if (this.storage == null)
+            {
+                return true;
+            }
+
+            int localId = this.getUniformLocalId();
+
+            if (localId == -1)
+            {
+                return false;
+            }
+
+            this.makeUniform(localId);
+
+            return true;
+        }
+
+        /**
+         * @return the local ID that fills the entire section storage, or -1 if there is more than one.
+         * Must only be called for sections that are not uniform yet.
+         */
+        public int getUniformLocalId()
+        {
+            final int firstLocalId = this.storage.getAt(0);
+
+            for (int i = 1; i < this.volume; ++i)
+            {
+                if (this.storage.getAt(i) != firstLocalId)
+                {
+                    return -1;
+                }
+            }
+
+            return firstLocalId;
+        }
+
+        /**
+         * Drops the backing storage, and fills the section with the given local palette entry
+         */
+        public void makeUniform(int localId)
+        {
+            this.uniformId = this.localToGlobal[localId];
+            this.storage = null;
+            this.localToGlobal = new int[0];
+            this.localPaletteSize = 0;
+            this.globalToLocal = null;
+        }
+
+        public boolean containsGlobalId(int globalId)
+        {
+            if (this.storage == null)
+            {
+                return this.uniformId == globalId;
+            }
+
+            return this.getExistingLocalId(globalId) != -1;
+        }
+
+        public void replaceGlobalId(int fromId, int toId)
+        {
+            if (this.storage == null)
+            {
+                if (this.uniformId == fromId)
+                {
+                    this.uniformId = toId;
+                }
+
+                return;
+            }
+
+            int fromLocalId = this.getExistingLocalId(fromId);
+
+            if (fromLocalId == -1)
+            {
+                return;
+            }
+
+            int toLocalId = this.getExistingLocalId(toId);
+
+            // Just remap the local palette entry
+            if (toLocalId == -1)
+            {
+                this.localToGlobal[fromLocalId] = toId;
+
+                if (this.globalToLocal != null)
+                {
+                    this.globalToLocal.remove(fromId);
+                    this.globalToLocal.put(toId, fromLocalId);
+                }
+
+                return;
+            }
+
+            PackedIntArray storage = this.storage;
+
+            for (int i = 0; i < this.volume; ++i)
+            {
+                if (storage.getAt(i) == fromLocalId)
+                {
+                    storage.setAt(i, toLocalId);
+                }
+            }
+        }
+
+        protected int getExistingLocalId(int globalId)
+        {
+            if (this.globalToLocal != null)
+            {
+                return this.globalToLocal.get(globalId);
+            }
+
+            for (int i = 0; i < this.localPaletteSize; ++i)
+            {
+                if (this.localToGlobal[i] == globalId)
+                {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        /**
+         * Remaps the global IDs using the given map, and drops any unused local palette entries,
+         * shrinking the storage bit width if possible.
+         * @return true if the section is uniform after the call
+         */
+        public boolean compact(int[] globalIdMap)
+        {
+            if (this.storage == null)
+            {
+                this.uniformId = globalIdMap[this.uniformId];
+                return true;
+            }
+
+            long[] localCounts = this.storage.getValueCounts();
+            final int oldSize = Math.min(this.localPaletteSize, localCounts.length);
+            int[] localIdMap = new int[this.localPaletteSize];
+            int[] newLocalToGlobal = new int[Math.max(oldSize, 1)];
+            int newSize = 0;
+
+            for (int localId = 0; localId < oldSize; ++localId)
+            {
+                if (localCounts[localId] > 0)
+                {
+                    localIdMap[localId] = newSize;
+                    newLocalToGlobal[newSize++] = globalIdMap[this.localToGlobal[localId]];
+                }
+            }
+
+            if (newSize == 1)
+            {
+                this.uniformId = newLocalToGlobal[0];
+                this.storage = null;
+                this.localToGlobal = new int[0];
+                this.localPaletteSize = 0;
+                this.globalToLocal = null;
+                return true;
+            }
+
+            int bits = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(newSize - 1));
+
+            if (newSize != this.localPaletteSize || bits != this.storage.getEntryBitWidth())
+            {
+                PackedIntArray oldStorage = this.storage;
+                PackedIntArray newStorage = oldStorage.createNewArray(bits, this.volume);
+
+                for (int i = 0; i < this.volume; ++i)
+                {
+                    newStorage.setAt(i, localIdMap[oldStorage.getAt(i)]);
+                }
+
+                this.storage = newStorage;
+            }
+
+            this.localToGlobal = newLocalToGlobal;
+            this.localPaletteSize = newSize;
+            this.globalToLocal = null;
+
+            if (newSize > MAX_LINEAR_LOOKUP_SIZE)
+            {
+                this.globalToLocal = new Int2IntOpenHashMap(newSize * 2);
+                this.globalToLocal.defaultReturnValue(-1);
+
+                for (int i = 0; i < newSize; ++i)
+                {
+                    this.globalToLocal.put(this.localToGlobal[i], i);
+                }
+            }
+
+            return false;
+        }
+
+        public void addBlockCounts(long[] counts)
+        {
+            if (this.storage == null)
+            {
+                counts[this.uniformId] += this.volume;
+                return;
+            }
+
+            long[] localCounts = this.storage.getValueCounts();
+            final int size = Math.min(this.localPaletteSize, localCounts.length);
+
+            for (int localId = 0; localId < size; ++localId)
+            {
+                counts[this.localToGlobal[localId]] += localCounts[localId];
+            }
+        }
+
+        public long getEstimatedHeapSize()
+        {
+            // The object headers and fields, and the local palette arrays
+            long size = 48L + this.localToGlobal.length * 4L;
+
+            if (this.storage != null)
+            {
+                size += this.storage.getHeapSize();
+            }
+
+            if (this.globalToLocal != null)
+            {
+                size += this.globalToLocal.size() * 16L;
+            }
+
+            return size;
+        }
+
+        public Section copy()
+        {
+            Section copy = new Section(this.width, this.volume / (this.width * this.depth), this.depth);
+
+            copy.uniformId = this.uniformId;
+            copy.storage = this.storage != null ? this.storage.copy() : null;
+            copy.localToGlobal = this.localToGlobal.clone();
+            copy.localPaletteSize = this.localPaletteSize;
+            copy.globalToLocal = this.globalToLocal != null ? this.globalToLocal.clone() : null;
+
+            return copy;
+        }
+    }
+}
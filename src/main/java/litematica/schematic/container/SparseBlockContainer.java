@@ -1,13 +1,23 @@
 package litematica.schematic.container;
 
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
 
 import malilib.util.position.Vec3i;
 import malilib.util.world.BlockState;
 
 public class SparseBlockContainer extends BaseBlockContainer
 {
-    protected final Long2ObjectOpenHashMap<BlockState> blocks = new Long2ObjectOpenHashMap<>();
+    /** The mutable storage, used while the container is being built or edited */
+    @Nullable protected Long2IntOpenHashMap blocks = createMap(16);
+    /** The frozen storage, sorted by the position key (which gives a y, z, x order) */
+    protected long[] frozenPositions = new long[0];
+    protected int[] frozenIds = new int[0];
+    /** True if the storage is shared with a snapshot, and needs to be copied before modifying it */
+    protected boolean storageShared;
 
     public SparseBlockContainer(Vec3i size)
     {
@@ -20,43 +30,334 @@ public class SparseBlockContainer extends BaseBlockContainer
     @Override
     public BlockState getBlockState(int x, int y, int z)
     {
-        long pos = getPosAsLong(x, y, z);
-        BlockState state = this.blocks.get(pos);
+        int id = this.getStateId(getPosAsLong(x, y, z));
+        BlockState state = id >= 0 ? this.palette.getValue(id) : null;
         return state != null ? state : AIR_BLOCK_STATE;
     }
 
     @Override
     public void setBlockState(int x, int y, int z, BlockState state)
     {
-        long pos = getPosAsLong(x, y, z);
-        BlockState oldState = this.blocks.put(pos, state);
-        this.updateBlockCounts(state, oldState);
+        if (this.blocks == null)
+        {
+            this.unfreeze();
+        }
+
+        int id = this.palette.idFor(state);
+        int oldId = this.getWritableMap().put(getPosAsLong(x, y, z), id);
+        this.updateBlockCounts(id, oldId);
     }
 
-    protected void updateBlockCounts(BlockState newState, BlockState oldState)
+    protected int getStateId(long pos)
     {
-        int id = this.palette.idFor(newState);
+        if (this.blocks != null)
+        {
+            return this.blocks.get(pos);
+        }
 
-        if (id >= this.blockCounts.length)
+        int index = Arrays.binarySearch(this.frozenPositions, pos);
+        return index >= 0 ? this.frozenIds[index] : -1;
+    }
+
+    protected void updateBlockCounts(int newId, int oldId)
+    {
+        if (newId >= this.blockCounts.length)
         {
             long[] oldArr = this.blockCounts;
-            this.blockCounts = new long[oldArr.length * 2];
+            this.blockCounts = new long[Math.max(oldArr.length * 2, newId + 1)];
             System.arraycopy(oldArr, 0, this.blockCounts, 0, oldArr.length);
         }
 
-        if (oldState != newState)
+        if (oldId != newId)
+        {
+            if (oldId >= 0)
+            {
+                --this.blockCounts[oldId];
+            }
+
+            ++this.blockCounts[newId];
+        }
+    }
+
+    @Override
+    public long replaceAll(BlockState from, BlockState to)
+    {
+        int fromId = this.getExistingPaletteId(from);
+
+        if (fromId == -1 || from.equals(to))
+        {
+            return 0;
+        }
+
+        // Air is also implicit in all the positions that don't have anything stored
+        if (from.equals(AIR_BLOCK_STATE))
+        {
+            return super.replaceAll(from, to);
+        }
+
+        long count = this.getBlockCountForId(fromId);
+        int toId = this.getExistingPaletteId(to);
+
+        // The new state is not in the palette yet, so it can just take over the ID of the old state
+        if (toId == -1)
         {
-            if (oldState != null)
+            this.palette.overrideMapping(fromId, to);
+            return count;
+        }
+
+        if (this.blocks != null)
+        {
+            ObjectIterator<Long2IntMap.Entry> iter = this.getWritableMap().long2IntEntrySet().fastIterator();
+
+            while (iter.hasNext())
             {
-                int oldId = this.palette.idFor(oldState);
+                Long2IntMap.Entry entry = iter.next();
 
-                if (oldId >= 0)
+                if (entry.getIntValue() == fromId)
                 {
-                    --this.blockCounts[oldId];
+                    entry.setValue(toId);
                 }
             }
+        }
+        else
+        {
+            int[] ids = this.getWritableFrozenIds();
+            final int length = ids.length;
+
+            for (int i = 0; i < length; ++i)
+            {
+                if (ids[i] == fromId)
+                {
+                    ids[i] = toId;
+                }
+            }
+        }
+
+        this.blockCounts[toId] += count;
+        this.blockCounts[fromId] = 0;
+
+        return count;
+    }
+
+    @Override
+    public void compactPalette()
+    {
+        final int oldSize = this.palette.getSize();
+        int[] idMap = new int[oldSize];
+        NonResizingHashMapPalette<BlockState> newPalette = new NonResizingHashMapPalette<>(Math.max(oldSize, 16));
+        long[] newCounts = new long[Math.max(oldSize, 16)];
+
+        for (int id = 0; id < oldSize; ++id)
+        {
+            BlockState state = this.palette.getValue(id);
+
+            if (state != null && id < this.blockCounts.length && this.blockCounts[id] > 0)
+            {
+                int newId = newPalette.idFor(state);
+                idMap[id] = newId;
+                newCounts[newId] += this.blockCounts[id];
+            }
+        }
+
+        if (newPalette.getSize() == oldSize)
+        {
+            return;
+        }
+
+        if (this.blocks != null)
+        {
+            ObjectIterator<Long2IntMap.Entry> iter = this.getWritableMap().long2IntEntrySet().fastIterator();
+
+            while (iter.hasNext())
+            {
+                Long2IntMap.Entry entry = iter.next();
+                entry.setValue(idMap[entry.getIntValue()]);
+            }
+        }
+        else
+        {
+            int[] ids = this.getWritableFrozenIds();
+            final int length = ids.length;
+
+            for (int i = 0; i < length; ++i)
+            {
+                ids[i] = idMap[ids[i]];
+            }
+        }
+
+        this.palette = newPalette;
+        this.blockCounts = newCounts;
+    }
+
+    /**
+     * @return the number of positions that have a block state set in this container
+     */
+    public int getStoredBlockCount()
+    {
+        return this.blocks != null ? this.blocks.size() : this.frozenPositions.length;
+    }
+
+    @Override
+    public long getEstimatedHeapSize()
+    {
+        // The hash map has a long key and an int value array, and a load factor of 0.75
+        long size = this.blocks != null ? this.blocks.size() * 16L : this.frozenPositions.length * 12L;
+        return super.getEstimatedHeapSize() + size;
+    }
+
+    public boolean isFrozen()
+    {
+        return this.blocks == null;
+    }
+
+    /**
+     * Converts the storage into compact sorted primitive arrays.
+     * This should be called once the container has been fully built,
+     * for example after reading a schematic or after creating one from the world.
+     * Any later modifications will automatically convert the storage back to the mutable form.
+     */
+    public void freeze()
+    {
+        if (this.blocks == null)
+        {
+            return;
+        }
+
+        final int count = this.blocks.size();
+        long[] positions = new long[count];
+        int[] ids = new int[count];
+        int i = 0;
+
+        for (long pos : this.blocks.keySet())
+        {
+            positions[i++] = pos;
+        }
+
+        Arrays.sort(positions);
+
+        for (i = 0; i < count; ++i)
+        {
+            ids[i] = this.blocks.get(positions[i]);
+        }
+
+        this.frozenPositions = positions;
+        this.frozenIds = ids;
+        this.blocks = null;
+        this.storageShared = false;
+    }
+
+    @Override
+    public void optimizeStorage()
+    {
+        this.freeze();
+    }
+
+    protected void unfreeze()
+    {
+        final int count = this.frozenPositions.length;
+        Long2IntOpenHashMap map = createMap(count);
+
+        for (int i = 0; i < count; ++i)
+        {
+            map.put(this.frozenPositions[i], this.frozenIds[i]);
+        }
+
+        this.blocks = map;
+        this.frozenPositions = new long[0];
+        this.frozenIds = new int[0];
+        this.storageShared = false;
+    }
+
+    /**
+     * @return the mutable storage for modifying it. The storage must not be frozen.
+     * If the storage is shared with a snapshot, then it is copied first.
+     */
+    protected Long2IntOpenHashMap getWritableMap()
+    {
+        if (this.storageShared)
+        {
+            this.blocks = this.blocks.clone();
+            this.storageShared = false;
+        }
+
+        return this.blocks;
+    }
+
+    /**
+     * @return the frozen ID array for modifying it. The positions array is never modified in place,
+     * so only the ID array is copied if the storage is shared with a snapshot.
+     */
+    protected int[] getWritableFrozenIds()
+    {
+        if (this.storageShared)
+        {
+            this.frozenIds = this.frozenIds.clone();
+            this.storageShared = false;
+        }
+
+        return this.frozenIds;
+    }
+
+    /**
+     * Iterates over all the stored blocks in the position order (y, z, x).
+     * In the non-frozen state this requires sorting the positions first.
+     */
+    public void forEachBlock(BlockConsumer consumer)
+    {
+        long[] positions;
+        int[] ids;
+
+        if (this.blocks != null)
+        {
+            positions = this.blocks.keySet().toLongArray();
+            Arrays.sort(positions);
+            ids = new int[positions.length];
+
+            for (int i = 0; i < positions.length; ++i)
+            {
+                ids[i] = this.blocks.get(positions[i]);
+            }
+        }
+        else
+        {
+            positions = this.frozenPositions;
+            ids = this.frozenIds;
+        }
+
+        final int count = positions.length;
+
+        for (int i = 0; i < count; ++i)
+        {
+            long pos = positions[i];
+            BlockState state = this.palette.getValue(ids[i]);
+
+            consumer.accept(getXFromLong(pos), getYFromLong(pos), getZFromLong(pos),
+                            state != null ? state : AIR_BLOCK_STATE);
+        }
+    }
+
+    /**
+     * Iterates over all the stored blocks without any specific order
+     * (or in the position order, if the container is frozen).
+     */
+    public void forEachBlockUnordered(BlockConsumer consumer)
+    {
+        if (this.blocks == null)
+        {
+            this.forEachBlock(consumer);
+            return;
+        }
 
-            ++this.blockCounts[id];
+        ObjectIterator<Long2IntMap.Entry> iter = this.blocks.long2IntEntrySet().fastIterator();
+
+        while (iter.hasNext())
+        {
+            Long2IntMap.Entry entry = iter.next();
+            long pos = entry.getLongKey();
+            BlockState state = this.palette.getValue(entry.getIntValue());
+
+            consumer.accept(getXFromLong(pos), getYFromLong(pos), getZFromLong(pos),
+                            state != null ? state : AIR_BLOCK_STATE);
         }
     }
 
@@ -64,20 +365,54 @@ public class SparseBlockContainer extends BaseBlockContainer
     public BlockContainer copy()
     {
         SparseBlockContainer copy = new SparseBlockContainer(this.size);
-        copy.blocks.putAll(this.blocks);
+
+        if (this.blocks != null)
+        {
+            copy.blocks = this.blocks.clone();
+        }
+        else
+        {
+            copy.blocks = null;
+            copy.frozenPositions = this.frozenPositions.clone();
+            copy.frozenIds = this.frozenIds.clone();
+        }
+
         copy.blockCounts = this.blockCounts.clone();
         copy.palette = this.palette.copy(null);
         return copy;
     }
 
+    /**
+     * The snapshot shares the block storage (either form) with this container,
+     * and the storage is only copied once either container modifies it.
+     * Freezing or unfreezing the storage creates a new storage, so it doesn't need a copy.
+     */
+    @Override
+    public SparseBlockContainer createSnapshot()
+    {
+        SparseBlockContainer snapshot = new SparseBlockContainer(this.size);
+
+        snapshot.blocks = this.blocks;
+        snapshot.frozenPositions = this.frozenPositions;
+        snapshot.frozenIds = this.frozenIds;
+        snapshot.blockCounts = this.blockCounts.clone();
+        snapshot.palette = this.palette.copy(null);
+        snapshot.storageShared = true;
+        this.storageShared = true;
+
+        return snapshot;
+    }
+
     @Override
     protected void calculateBlockCountsIfNeeded()
     {
     }
 
-    public Long2ObjectOpenHashMap<BlockState> getBlockMap()
+    protected static Long2IntOpenHashMap createMap(int expectedSize)
     {
-        return this.blocks;
+        Long2IntOpenHashMap map = new Long2IntOpenHashMap(expectedSize);
+        map.defaultReturnValue(-1);
+        return map;
     }
 
     public static long getPosAsLong(int x, int y, int z)
@@ -99,4 +434,9 @@ public class SparseBlockContainer extends BaseBlockContainer
     {
         return (int) ((data >>> 24) & 0xFFFFFF);
     }
+
+    public interface BlockConsumer
+    {
+        void accept(int x, int y, int z, BlockState state);
+    }
 }
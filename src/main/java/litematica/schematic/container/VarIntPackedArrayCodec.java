@@ -0,0 +1,249 @@
+package litematica.schematic.container;
+
+import java.util.Arrays;
+
+/**
+ * Converts between the varint encoded byte arrays (used by the Sponge schematic format)
+ * and the packed int array storage of the block containers.
+ * The values are read from and written to the backing long array of an
+ * {@link AlignedLongBackedIntArray} one long at a time, and the varints are
+ * encoded and decoded inline, without going through a ByteBuf for every value.
+ * When all the values fit in 7 bits (ie. palettes with at most 128 entries),
+ * every varint is a single byte, and a separate loop without any varint handling is used.
+ */
+public class VarIntPackedArrayCodec
+{
+    /**
+     * @return the number of bytes that the given value takes as a varint
+     */
+    public static int getVarIntSize(int value)
+    {
+        int size = 1;
+
+        while ((value & ~0x7F) != 0)
+        {
+            value >>>= 7;
+            ++size;
+        }
+
+        return size;
+    }
+
+    /**
+     * Encodes all the values in the array as varints
+     * @param maxValue the largest value that can be in the array, ie. the highest palette id in use
+     * @return the varint byte array, the length of which is exactly the encoded length of the values
+     */
+    public static byte[] encode(PackedIntArray array, int maxValue)
+    {
+        final int volume = (int) array.size();
+
+        if (maxValue < 128)
+        {
+            byte[] out = new byte[volume];
+
+            if (array instanceof AlignedLongBackedIntArray)
+            {
+                encodeSingleByteAligned((AlignedLongBackedIntArray) array, out);
+            }
+            else
+            {
+                for (int i = 0; i < volume; ++i)
+                {
+                    out[i] = (byte) array.getAt(i);
+                }
+            }
+
+            return out;
+        }
+
+        byte[] out = new byte[getVarIntSize(maxValue) * volume];
+        int pos;
+
+        if (array instanceof AlignedLongBackedIntArray)
+        {
+            pos = encodeAligned((AlignedLongBackedIntArray) array, out);
+        }
+        else
+        {
+            pos = 0;
+
+            for (int i = 0; i < volume; ++i)
+            {
+                pos = writeVarInt(out, pos, array.getAt(i));
+            }
+        }
+
+        return pos == out.length ? out : Arrays.copyOf(out, pos);
+    }
+
+    protected static void encodeSingleByteAligned(AlignedLongBackedIntArray array, byte[] out)
+    {
+        final long[] longs = array.getBackingLongArray();
+        final int bits = array.getEntryBitWidth();
+        final int valuesPerLong = 64 / bits;
+        final long mask = (1L << bits) - 1L;
+        final int volume = out.length;
+        int index = 0;
+
+        for (int i = 0; i < longs.length && index < volume; ++i)
+        {
+            long word = longs[i];
+            final int end = Math.min(volume, index + valuesPerLong);
+
+            for (; index < end; ++index)
+            {
+                out[index] = (byte) (word & mask);
+                word >>>= bits;
+            }
+        }
+    }
+
+    protected static int encodeAligned(AlignedLongBackedIntArray array, byte[] out)
+    {
+        final long[] longs = array.getBackingLongArray();
+        final int bits = array.getEntryBitWidth();
+        final int valuesPerLong = 64 / bits;
+        final long mask = (1L << bits) - 1L;
+        final int volume = (int) array.size();
+        int index = 0;
+        int pos = 0;
+
+        for (int i = 0; i < longs.length && index < volume; ++i)
+        {
+            long word = longs[i];
+            final int end = Math.min(volume, index + valuesPerLong);
+
+            for (; index < end; ++index)
+            {
+                int value = (int) (word & mask);
+                word >>>= bits;
+
+                if (value < 128)
+                {
+                    out[pos++] = (byte) value;
+                }
+                else
+                {
+                    pos = writeVarInt(out, pos, value);
+                }
+            }
+        }
+
+        return pos;
+    }
+
+    protected static int writeVarInt(byte[] out, int pos, int value)
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            out[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out[pos++] = (byte) value;
+
+        return pos;
+    }
+
+    /**
+     * Decodes the varints from the data into the array, and counts the occurrences of each value.
+     * The number of values read is the size of the array.
+     * @param countsOut the value counts array, the length of which must be larger than the largest value in the data.
+     *                  This should be (1 << entryBitWidth) of the array, as that is also used to pick the single byte path.
+     * @throws RuntimeException if the data is malformed, ie. if it ends before all the values have been read,
+     *         if a varint is too long, or if it has a value that doesn't fit in the counts array
+     */
+    public static void decode(byte[] data, AlignedLongBackedIntArray array, long[] countsOut)
+    {
+        final int volume = (int) array.size();
+
+        if (data.length < volume)
+        {
+            throw new IllegalArgumentException("Varint array too short: " + data.length + " < " + volume);
+        }
+
+        final long[] longs = array.getBackingLongArray();
+        final int bits = array.getEntryBitWidth();
+        final int valuesPerLong = 64 / bits;
+
+        // With only single byte varints, there is exactly one byte per value
+        if (countsOut.length <= 128)
+        {
+            decodeSingleByte(data, longs, bits, valuesPerLong, volume, countsOut);
+            return;
+        }
+
+        int index = 0;
+        int pos = 0;
+
+        for (int i = 0; i < longs.length && index < volume; ++i)
+        {
+            final int end = Math.min(volume, index + valuesPerLong);
+            long word = 0;
+            int shift = 0;
+
+            for (; index < end; ++index)
+            {
+                int value = data[pos++];
+
+                // Multi-byte varint
+                if (value < 0)
+                {
+                    value &= 0x7F;
+                    int valueShift = 7;
+                    int b;
+
+                    do
+                    {
+                        if (pos >= data.length || valueShift > 28)
+                        {
+                            throw new IllegalArgumentException("Invalid varint at byte " + pos);
+                        }
+
+                        b = data[pos++];
+                        value |= (b & 0x7F) << valueShift;
+                        valueShift += 7;
+                    }
+                    while (b < 0);
+                }
+
+                ++countsOut[value];
+                word |= (long) value << shift;
+                shift += bits;
+            }
+
+            longs[i] = word;
+        }
+
+        if (index < volume)
+        {
+            throw new IllegalArgumentException("Varint array too short, read " + index + " of " + volume + " values");
+        }
+    }
+
+    protected static void decodeSingleByte(byte[] data, long[] longs, int bits, int valuesPerLong,
+                                           int volume, long[] countsOut)
+    {
+        int index = 0;
+
+        for (int i = 0; i < longs.length && index < volume; ++i)
+        {
+            final int end = Math.min(volume, index + valuesPerLong);
+            long word = 0;
+            int shift = 0;
+
+            for (; index < end; ++index)
+            {
+                // A negative value means a multi-byte varint, which is invalid for this palette size,
+                // and will throw on the counts array access
+                int value = data[index];
+                ++countsOut[value];
+                word |= (long) value << shift;
+                shift += bits;
+            }
+
+            longs[i] = word;
+        }
+    }
+}
@@ -54,6 +54,7 @@ public class SchematicPlacement extends BasePlacement
     @Nullable protected MaterialListBase materialList;
     @Nullable protected SchematicVerifier verifier;
 
+    protected boolean holdsSchematicReference;
     protected boolean locked;
     protected boolean regionPlacementsModified;
     protected boolean repeatedPlacement;
@@ -210,8 +211,22 @@ public class SchematicPlacement extends BasePlacement
         // they have a different set of subregions or some regions are in different locations etc.
         // this.storeModifiedSubRegions();
 
+        LoadedSchematic oldSchematic = this.loadedSchematic;
         this.loadedSchematic = loadedSchematic;
 
+        if (this.holdsSchematicReference && oldSchematic != loadedSchematic)
+        {
+            if (loadedSchematic != null)
+            {
+                loadedSchematic.retain();
+            }
+
+            if (oldSchematic != null)
+            {
+                SchematicHolder.INSTANCE.onSchematicReleased(oldSchematic);
+            }
+        }
+
         if (loadedSchematic != null)
         {
             this.schematicFileOpt = loadedSchematic.file;
@@ -229,9 +244,46 @@ public class SchematicPlacement extends BasePlacement
         LoadedSchematic loadedSchematic = loadedSchematicOpt.isPresent() ? loadedSchematicOpt.get() : null;
         this.setSchematic(loadedSchematic);
 
+        // The schematic may be a shared instance that was loaded from another file with identical contents
+        this.schematicFileOpt = Optional.of(file);
+
         return this.isSchematicLoaded();
     }
 
+    /**
+     * Called when this placement is added to the placement manager.
+     * While added, this placement holds a reference to its schematic (also if it's loaded later),
+     * so that the schematic can be unloaded once no placements are using it anymore.
+     */
+    void acquireSchematicReference()
+    {
+        if (this.holdsSchematicReference == false)
+        {
+            this.holdsSchematicReference = true;
+
+            if (this.loadedSchematic != null)
+            {
+                this.loadedSchematic.retain();
+            }
+        }
+    }
+
+    /**
+     * Called when this placement is removed from the placement manager
+     */
+    void releaseSchematicReference()
+    {
+        if (this.holdsSchematicReference)
+        {
+            this.holdsSchematicReference = false;
+
+            if (this.loadedSchematic != null)
+            {
+                SchematicHolder.INSTANCE.onSchematicReleased(this.loadedSchematic);
+            }
+        }
+    }
+
     protected void loadSchematicFromFileIfEnabled()
     {
         if (this.enabled &&
@@ -355,6 +355,7 @@ public class SchematicPlacementManager
         }
 
         this.schematicPlacements.add(placement);
+        placement.acquireSchematicReference();
         this.addVisiblePlacement(placement);
         this.addTouchedChunksFor(placement);
 
@@ -439,6 +440,12 @@ public class SchematicPlacementManager
             this.updateOverlayRendererIfEnabled(placement);
         }
 
+        // This may unload the schematic, if this was the last placement using it
+        if (removed)
+        {
+            placement.releaseSchematicReference();
+        }
+
         return removed;
     }
 
@@ -995,7 +1002,7 @@ public class SchematicPlacementManager
         }
     }
 
-    protected void markChunksForRebuild(LongSet chunks)
+    public void markChunksForRebuild(LongSet chunks)
     {
         //System.out.printf("rebuilding %d chunks: %s\n", chunks.size(), chunks);
         this.chunksToRebuild.addAll(chunks);
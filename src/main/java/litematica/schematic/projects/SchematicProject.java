@@ -5,6 +5,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 import javax.annotation.Nullable;
 import com.google.common.collect.ImmutableList;
 import com.google.gson.JsonArray;
@@ -14,21 +15,28 @@ import com.google.gson.JsonPrimitive;
 
 import malilib.listener.TaskCompletionListener;
 import malilib.overlay.message.MessageDispatcher;
+import malilib.util.FileNameUtils;
 import malilib.util.FileUtils;
 import malilib.util.data.json.JsonUtils;
+import malilib.util.data.tag.CompoundData;
+import malilib.util.data.tag.util.DataFileUtils;
 import malilib.util.game.wrap.GameWrap;
 import malilib.util.position.BlockPos;
 import malilib.util.position.Vec3i;
+import litematica.config.Configs;
 import litematica.data.DataManager;
 import litematica.scheduler.TaskScheduler;
 import litematica.scheduler.task.LocalCreateSchematicTask;
 import litematica.schematic.LoadedSchematic;
 import litematica.schematic.Schematic;
 import litematica.schematic.SchematicSaveSettings;
+import litematica.schematic.SchematicSaveSettings.CompressionMode;
 import litematica.schematic.SchematicType;
 import litematica.schematic.placement.SchematicPlacement;
-import litematica.schematic.util.SchematicFileUtils;
+import litematica.schematic.placement.SchematicPlacementManager;
+import litematica.schematic.util.SchematicEditJournal;
 import litematica.schematic.util.SchematicPlacingUtils;
+import litematica.schematic.util.SchematicSaveService;
 import litematica.selection.AreaSelection;
 import litematica.selection.AreaSelectionManager;
 import litematica.selection.AreaSelectionSimple;
@@ -52,6 +60,11 @@ public class SchematicProject
     private boolean dirty;
     @Nullable
     private SchematicPlacement currentPlacement;
+    /** The schematic of the latest version written in this session, kept as the base for the next delta */
+    @Nullable
+    private Schematic lastWrittenSchematic;
+    @Nullable
+    private SchematicVersion lastWrittenVersion;
 
     public SchematicProject(Path directory, Path projectFile)
     {
@@ -207,9 +220,16 @@ public class SchematicProject
         {
             if (this.currentVersionId != this.lastCheckedOutVersion)
             {
+                if (this.trySwitchPlacementVersionInPlace(this.lastCheckedOutVersion, this.currentVersionId))
+                {
+                    this.updateVersionTimeStamp(this.currentPlacement.getLoadedSchematic());
+                    this.lastCheckedOutVersion = this.currentVersionId;
+                    return;
+                }
+
                 this.removeCurrentPlacement();
 
-                Optional<LoadedSchematic> opt = LoadedSchematic.tryLoadSchematic(this.directory.resolve(version.getFileName()));
+                Optional<LoadedSchematic> opt = this.loadVersionSchematic(this.currentVersionId);
 
                 if (opt.isPresent())
                 {
@@ -218,16 +238,7 @@ public class SchematicProject
                     this.currentPlacement = SchematicPlacement.create(loadedSchematic, areaPosition, version.getName(), true, false);
                     this.currentPlacement.setShouldBeSaved(false);
                     DataManager.getSchematicPlacementManager().addSchematicPlacement(this.currentPlacement, false);
-
-                    long time = loadedSchematic.schematic.getMetadata().getTimeCreated();
-
-                    if (time != version.getTimeStamp())
-                    {
-                        version = new SchematicVersion(this, version.getName(), version.getFileName(),
-                                                       version.getAreaOffset(), version.getVersion(), time);
-                        this.versions.set(this.currentVersionId, version);
-                        this.dirty = true;
-                    }
+                    this.updateVersionTimeStamp(loadedSchematic);
                 }
                 else
                 {
@@ -239,6 +250,154 @@ public class SchematicProject
         }
     }
 
+    private void updateVersionTimeStamp(LoadedSchematic loadedSchematic)
+    {
+        SchematicVersion version = this.getCurrentVersion();
+        long time = loadedSchematic.schematic.getMetadata().getTimeCreated();
+
+        if (version != null && time != version.getTimeStamp())
+        {
+            version = new SchematicVersion(this, version.getName(), version.getFileName(), version.getDeltaFileName(),
+                                           version.getAreaOffset(), version.getVersion(), time);
+            this.versions.set(this.currentVersionId, version);
+            this.dirty = true;
+        }
+    }
+
+    /**
+     * Tries to move the schematic of the current placement from the version <b>fromIndex</b>
+     * to the version <b>toIndex</b> by applying the version deltas to it in place.
+     * @return true if the placement was successfully switched to the new version
+     */
+    private boolean trySwitchPlacementVersionInPlace(int fromIndex, int toIndex)
+    {
+        if (this.currentPlacement == null ||
+            fromIndex < 0 || fromIndex >= this.versions.size() ||
+            toIndex < 0 || toIndex >= this.versions.size() ||
+            Math.abs(toIndex - fromIndex) > Configs.Generic.SCHEMATIC_VCS_KEYFRAME_INTERVAL.getIntegerValue())
+        {
+            return false;
+        }
+
+        SchematicPlacementManager manager = DataManager.getSchematicPlacementManager();
+        LoadedSchematic loadedSchematic = this.currentPlacement.getLoadedSchematic();
+
+        if (loadedSchematic.wasModifiedSinceSaved() ||
+            manager.getAllSchematicPlacements().contains(this.currentPlacement) == false)
+        {
+            return false;
+        }
+
+        int minIndex = Math.min(fromIndex, toIndex);
+        int maxIndex = Math.max(fromIndex, toIndex);
+        List<SchematicVersionDelta> deltas = new ArrayList<>();
+
+        // Load all the deltas first, so that the schematic isn't left in a partially switched state
+        for (int i = minIndex + 1; i <= maxIndex; ++i)
+        {
+            Optional<SchematicVersionDelta> delta = this.loadDelta(this.versions.get(i));
+
+            if (delta.isPresent() == false)
+            {
+                return false;
+            }
+
+            deltas.add(delta.get());
+        }
+
+        Schematic schematic = loadedSchematic.schematic;
+
+        if (toIndex > fromIndex)
+        {
+            for (SchematicVersionDelta delta : deltas)
+            {
+                delta.applyForward(schematic);
+            }
+        }
+        else
+        {
+            for (int i = deltas.size() - 1; i >= 0; --i)
+            {
+                deltas.get(i).applyBackward(schematic);
+            }
+        }
+
+        // The journaled edits were made against the previous version
+        SchematicEditJournal.INSTANCE.removeOperationsOf(loadedSchematic);
+
+        SchematicVersion version = this.versions.get(toIndex);
+        this.currentPlacement.setName(version.getName());
+        manager.setOrigin(this.currentPlacement, this.origin.add(version.getAreaOffset()));
+        manager.markAllPlacementsOfSchematicForRebuild(loadedSchematic);
+
+        return true;
+    }
+
+    /**
+     * Loads the schematic of the given version, by loading the closest
+     * preceding keyframe version and then applying the deltas after it.
+     * The returned schematic is not associated with any file, as the
+     * version files must not be overwritten.
+     */
+    private Optional<LoadedSchematic> loadVersionSchematic(int index)
+    {
+        int keyframeIndex = index;
+
+        while (keyframeIndex >= 0 && this.versions.get(keyframeIndex).isKeyframe() == false)
+        {
+            --keyframeIndex;
+        }
+
+        if (keyframeIndex < 0)
+        {
+            return Optional.empty();
+        }
+
+        Path file = this.directory.resolve(this.versions.get(keyframeIndex).getFileName());
+        Optional<LoadedSchematic> opt = LoadedSchematic.tryLoadSchematic(file);
+
+        if (opt.isPresent() == false)
+        {
+            return Optional.empty();
+        }
+
+        Schematic schematic = opt.get().schematic;
+
+        for (int i = keyframeIndex + 1; i <= index; ++i)
+        {
+            Optional<SchematicVersionDelta> delta = this.loadDelta(this.versions.get(i));
+
+            if (delta.isPresent() == false)
+            {
+                return Optional.empty();
+            }
+
+            delta.get().applyForward(schematic);
+        }
+
+        return Optional.of(new LoadedSchematic(schematic));
+    }
+
+    private Optional<SchematicVersionDelta> loadDelta(SchematicVersion version)
+    {
+        if (version.hasDelta() == false)
+        {
+            return Optional.empty();
+        }
+
+        Path file = this.directory.resolve(version.getDeltaFileName());
+        CompoundData data = DataFileUtils.readCompoundDataFromNbtFile(file);
+
+        if (data == null)
+        {
+            MessageDispatcher.error().translate("litematica.error.schematic_projects.failed_to_load_delta",
+                                                file.toAbsolutePath().toString());
+            return Optional.empty();
+        }
+
+        return SchematicVersionDelta.fromData(data);
+    }
+
     public void pasteToWorld()
     {
         if (this.currentPlacement != null)
@@ -345,13 +504,68 @@ public class SchematicProject
     protected void writeSchematicToFileAndAddVersion(Schematic schematic, String fileName, String name, Vec3i areaOffset)
     {
         int versionNumber = this.versions.size() + 1;
-        Path outFile = this.directory.resolve(fileName);
+        int index = this.versions.size();
+        Schematic baseSchematic = index > 0 ? this.getDeltaBaseSchematic(index - 1).orElse(null) : null;
+        boolean createDelta = baseSchematic != null && SchematicVersionDelta.isCompatible(baseSchematic, schematic);
+        boolean keyframe = createDelta == false || this.isKeyframeDue(index);
+        String fullFileName = keyframe ? fileName : "";
+        String deltaFileName = createDelta ? getDeltaFileName(fileName) : null;
+
+        Runnable writeDelta = () -> {
+            if (deltaFileName != null)
+            {
+                Supplier<Optional<CompoundData>> dataSupplier = () -> SchematicVersionDelta.create(baseSchematic, schematic).map(SchematicVersionDelta::write);
+                SchematicSaveService.INSTANCE.saveDataAsync(deltaFileName, this.directory.resolve(deltaFileName), dataSupplier, "",
+                                                            CompressionMode.STANDARD, success -> this.onVersionWritten(success, schematic, fullFileName, deltaFileName, name, areaOffset, versionNumber));
+            }
+            else
+            {
+                this.onVersionWritten(true, schematic, fullFileName, null, name, areaOffset, versionNumber);
+            }
+        };
+
+        if (keyframe)
+        {
+            Path outFile = this.directory.resolve(fileName);
+
+            // The newly created schematic isn't accessible from anywhere else, so it doesn't need a snapshot.
+            // The delta is only computed after the full schematic has been written, by the same save thread.
+            if (SchematicSaveService.INSTANCE.saveAsync(schematic, outFile, false, CompressionMode.STANDARD, false,
+                                                        success -> this.onKeyframeWritten(success, writeDelta, fileName, versionNumber)) == false)
+            {
+                this.onVersionWritten(false, schematic, fileName, null, name, areaOffset, versionNumber);
+            }
+        }
+        else
+        {
+            writeDelta.run();
+        }
+    }
 
-        if (SchematicFileUtils.writeToFile(schematic, outFile, false))
+    protected void onKeyframeWritten(boolean success, Runnable writeDelta, String fileName, int versionNumber)
+    {
+        if (success)
+        {
+            writeDelta.run();
+        }
+        else
+        {
+            this.saveInProgress = false;
+            MessageDispatcher.error("litematica.message.schematic_projects.version_save_failed", versionNumber, fileName);
+        }
+    }
+
+    protected void onVersionWritten(boolean success, Schematic schematic, String fileName, @Nullable String deltaFileName,
+                                    String name, Vec3i areaOffset, int versionNumber)
+    {
+        if (success)
         {
-            SchematicVersion version = new SchematicVersion(this, name, fileName, areaOffset,
+            SchematicVersion version = new SchematicVersion(this, name, fileName, deltaFileName, areaOffset,
                                                             versionNumber, System.currentTimeMillis());
             this.versions.add(version);
+            // Nothing else has access to the newly created schematic, so it can be used as-is as the next delta base
+            this.lastWrittenSchematic = schematic;
+            this.lastWrittenVersion = version;
             this.switchVersion(this.versions.size() - 1, true);
             this.cacheCurrentAreaFromPlacement();
             this.saveInProgress = false;
@@ -360,8 +574,50 @@ public class SchematicProject
         }
         else
         {
-            MessageDispatcher.error("litematica.message.schematic_projects.version_save_failed", versionNumber, fileName);
+            this.saveInProgress = false;
+            String file = fileName.isEmpty() && deltaFileName != null ? deltaFileName : fileName;
+            MessageDispatcher.error("litematica.message.schematic_projects.version_save_failed", versionNumber, file);
+        }
+    }
+
+    /**
+     * @return true if the version at the given index should be saved as a full keyframe,
+     * based on the distance to the previous keyframe version
+     */
+    private boolean isKeyframeDue(int index)
+    {
+        int interval = Configs.Generic.SCHEMATIC_VCS_KEYFRAME_INTERVAL.getIntegerValue();
+        int previousKeyframe = index - 1;
+
+        while (previousKeyframe >= 0 && this.versions.get(previousKeyframe).isKeyframe() == false)
+        {
+            --previousKeyframe;
+        }
+
+        return previousKeyframe < 0 || index - previousKeyframe >= interval;
+    }
+
+    /**
+     * Returns the schematic of the given version, to be used as the old side of a new delta.
+     * This is either the schematic of the latest version written in this session, or a snapshot
+     * of the current placement, if it still has that version unmodified.
+     * The version is not reconstructed from its files here, as this is called on the main thread,
+     * instead the new version is then saved as a keyframe.
+     */
+    private Optional<Schematic> getDeltaBaseSchematic(int index)
+    {
+        if (this.lastWrittenSchematic != null && this.lastWrittenVersion == this.versions.get(index))
+        {
+            return Optional.of(this.lastWrittenSchematic);
+        }
+
+        if (this.currentPlacement != null && this.lastCheckedOutVersion == index &&
+            this.currentPlacement.getLoadedSchematic().wasModifiedSinceSaved() == false)
+        {
+            return Optional.of(this.currentPlacement.getLoadedSchematic().schematic.createSnapshot());
         }
+
+        return Optional.empty();
     }
 
     private String getNextFileName(SchematicType type)
@@ -371,9 +627,9 @@ public class SchematicProject
         while (version <= 100000)
         {
             String name = String.format("%s_%05d.%s", this.projectName, version, type.getFileNameExtension());
-            Path file = this.directory.resolve(name);
 
-            if (Files.exists(file) == false)
+            if (Files.exists(this.directory.resolve(name)) == false &&
+                Files.exists(this.directory.resolve(getDeltaFileName(name))) == false)
             {
                 return name;
             }
@@ -384,6 +640,11 @@ public class SchematicProject
         return this.projectName + "_" + "error";
     }
 
+    private static String getDeltaFileName(String schematicFileName)
+    {
+        return FileNameUtils.getFileNameWithoutExtension(schematicFileName) + "." + SchematicVersionDelta.FILE_NAME_EXTENSION;
+    }
+
     public void clear()
     {
         this.origin = BlockPos.ORIGIN;
@@ -393,6 +654,8 @@ public class SchematicProject
         this.lastSeenArea = new AreaSelection();
         this.lastCheckedOutVersion = -1;
         this.currentVersionId = -1;
+        this.lastWrittenSchematic = null;
+        this.lastWrittenVersion = null;
         this.saveInProgress = false;
     }
 
@@ -13,16 +13,24 @@ public class SchematicVersion
     protected final SchematicProject project;
     protected final String name;
     protected final String fileName;
+    @Nullable protected final String deltaFileName;
     protected final Vec3i areaOffset;
     protected final int version;
     protected final long timeStamp;
 
     SchematicVersion(SchematicProject project, String name, String fileName,
                      Vec3i areaOffset, int version, long timeStamp)
+    {
+        this(project, name, fileName, null, areaOffset, version, timeStamp);
+    }
+
+    SchematicVersion(SchematicProject project, String name, String fileName, @Nullable String deltaFileName,
+                     Vec3i areaOffset, int version, long timeStamp)
     {
         this.project = project;
         this.name = name;
         this.fileName = fileName;
+        this.deltaFileName = deltaFileName;
         this.areaOffset = areaOffset;
         this.version = version;
         this.timeStamp = timeStamp;
@@ -38,11 +46,37 @@ public class SchematicVersion
         return this.name;
     }
 
+    /**
+     * @return the name of the full schematic file of this version,
+     * or an empty string if this version is only stored as a delta from the previous version
+     */
     public String getFileName()
     {
         return this.fileName;
     }
 
+    /**
+     * @return the name of the file containing the delta from the previous version, if any
+     */
+    @Nullable
+    public String getDeltaFileName()
+    {
+        return this.deltaFileName;
+    }
+
+    /**
+     * @return true if this version is stored as a full schematic file (a keyframe)
+     */
+    public boolean isKeyframe()
+    {
+        return this.fileName.isEmpty() == false;
+    }
+
+    public boolean hasDelta()
+    {
+        return this.deltaFileName != null;
+    }
+
     public Vec3i getAreaOffset()
     {
         return this.areaOffset;
@@ -64,6 +98,12 @@ public class SchematicVersion
 
         obj.add("name", new JsonPrimitive(this.name));
         obj.add("file_name", new JsonPrimitive(this.fileName));
+
+        if (this.deltaFileName != null)
+        {
+            obj.add("delta_file_name", new JsonPrimitive(this.deltaFileName));
+        }
+
         obj.add("area_offset", JsonUtils.blockPosToJson(this.areaOffset));
         obj.add("version", new JsonPrimitive(this.version));
         obj.add("timestamp", new JsonPrimitive(this.timeStamp));
@@ -82,10 +122,16 @@ public class SchematicVersion
         {
             String name = JsonUtils.getString(obj, "name");
             String fileName = JsonUtils.getString(obj, "file_name");
+            String deltaFileName = JsonUtils.hasString(obj, "delta_file_name") ? JsonUtils.getString(obj, "delta_file_name") : null;
             int version = JsonUtils.getInteger(obj, "version");
             long timeStamp = JsonUtils.getLong(obj, "timestamp");
 
-            return new SchematicVersion(project, name, fileName, areaOffset, version, timeStamp);
+            if (fileName.isEmpty() && deltaFileName == null)
+            {
+                return null;
+            }
+
+            return new SchematicVersion(project, name, fileName, deltaFileName, areaOffset, version, timeStamp);
         }
 
         return null;
@@ -0,0 +1,696 @@
+package litematica.schematic.projects;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import malilib.util.data.Constants;
+import malilib.util.data.tag.CompoundData;
+import malilib.util.data.tag.DataView;
+import malilib.util.data.tag.ListData;
+import malilib.util.data.tag.LongArrayData;
+import malilib.util.data.tag.util.DataTypeUtils;
+import malilib.util.game.BlockUtils;
+import malilib.util.position.BlockPos;
+import malilib.util.position.Vec3d;
+import malilib.util.position.Vec3i;
+import malilib.util.world.BlockState;
+import malilib.util.world.ScheduledBlockTickData;
+import litematica.schematic.BaseSchematic;
+import litematica.schematic.Schematic;
+import litematica.schematic.SchematicMetadata;
+import litematica.schematic.SchematicRegion;
+import litematica.schematic.container.AdaptiveBlockContainer;
+import litematica.schematic.container.ArrayBlockContainer;
+import litematica.schematic.container.BlockContainer;
+import litematica.schematic.container.PackedIntArray;
+import litematica.schematic.data.EntityData;
+
+/**
+ * The differences between two consecutive versions of a schematic project.
+ * The delta stores both the old and the new values of everything that changed,
+ * so it can be applied in both directions to move a loaded version in place
+ * to the next or to the previous version.
+ * A delta can only be created between two schematics that have the exact same
+ * region layout (region names, positions and sizes).
+ */
+public class SchematicVersionDelta
+{
+    public static final String FILE_NAME_EXTENSION = "ltdelta";
+    public static final int CURRENT_DELTA_VERSION = 1;
+
+    protected final Map<String, RegionDelta> regionDeltas = new HashMap<>();
+    protected CompoundData oldMetadata = new CompoundData();
+    protected CompoundData newMetadata = new CompoundData();
+
+    protected SchematicVersionDelta()
+    {
+    }
+
+    public long getChangedBlockCount()
+    {
+        long count = 0;
+
+        for (RegionDelta delta : this.regionDeltas.values())
+        {
+            count += delta.positions.length;
+        }
+
+        return count;
+    }
+
+    /**
+     * Moves the given schematic, which must be the old version of this delta, to the new version
+     */
+    public void applyForward(Schematic schematic)
+    {
+        this.apply(schematic, true);
+    }
+
+    /**
+     * Moves the given schematic, which must be the new version of this delta, back to the old version
+     */
+    public void applyBackward(Schematic schematic)
+    {
+        this.apply(schematic, false);
+    }
+
+    protected void apply(Schematic schematic, boolean forward)
+    {
+        for (Map.Entry<String, SchematicRegion> entry : schematic.getRegions().entrySet())
+        {
+            RegionDelta delta = this.regionDeltas.get(entry.getKey());
+
+            if (delta != null)
+            {
+                delta.apply(entry.getValue(), forward);
+            }
+        }
+
+        schematic.getMetadata().read(forward ? this.newMetadata : this.oldMetadata);
+    }
+
+    public CompoundData write()
+    {
+        CompoundData data = new CompoundData();
+        CompoundData regionsTag = new CompoundData();
+
+        for (Map.Entry<String, RegionDelta> entry : this.regionDeltas.entrySet())
+        {
+            regionsTag.put(entry.getKey(), entry.getValue().write());
+        }
+
+        data.putInt("Version", CURRENT_DELTA_VERSION);
+        data.putInt("DataVersion", BaseSchematic.CURRENT_MINECRAFT_DATA_VERSION);
+        data.put("OldMetadata", this.oldMetadata);
+        data.put("NewMetadata", this.newMetadata);
+        data.put("Regions", regionsTag);
+
+        return data;
+    }
+
+    public static Optional<SchematicVersionDelta> fromData(DataView data)
+    {
+        if (data.getIntOrDefault("Version", -1) != CURRENT_DELTA_VERSION ||
+            data.contains("Regions", Constants.NBT.TAG_COMPOUND) == false)
+        {
+            return Optional.empty();
+        }
+
+        SchematicVersionDelta delta = new SchematicVersionDelta();
+        DataView regionsTag = data.getCompound("Regions");
+        int dataVersion = data.getIntOrDefault("DataVersion", BaseSchematic.CURRENT_MINECRAFT_DATA_VERSION);
+
+        delta.oldMetadata = data.getCompound("OldMetadata").copy();
+        delta.newMetadata = data.getCompound("NewMetadata").copy();
+
+        for (String regionName : regionsTag.getKeys())
+        {
+            delta.regionDeltas.put(regionName, RegionDelta.fromData(regionsTag.getCompound(regionName), dataVersion));
+        }
+
+        return Optional.of(delta);
+    }
+
+    /**
+     * @return true if a delta can be created between the two schematics,
+     * ie. if they have the same region names, positions and sizes
+     */
+    public static boolean isCompatible(Schematic oldSchematic, Schematic newSchematic)
+    {
+        Map<String, SchematicRegion> oldRegions = oldSchematic.getRegions();
+        Map<String, SchematicRegion> newRegions = newSchematic.getRegions();
+
+        if (oldRegions.keySet().equals(newRegions.keySet()) == false)
+        {
+            return false;
+        }
+
+        for (Map.Entry<String, SchematicRegion> entry : oldRegions.entrySet())
+        {
+            SchematicRegion oldRegion = entry.getValue();
+            SchematicRegion newRegion = newRegions.get(entry.getKey());
+
+            if (oldRegion.getRelativePosition().equals(newRegion.getRelativePosition()) == false ||
+                oldRegion.getSize().equals(newRegion.getSize()) == false ||
+                oldRegion.getBlockContainer().getSize().equals(newRegion.getBlockContainer().getSize()) == false)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Creates the delta between the two schematics.
+     * @return the delta, or an empty Optional if the schematics are not compatible
+     */
+    public static Optional<SchematicVersionDelta> create(Schematic oldSchematic, Schematic newSchematic)
+    {
+        if (isCompatible(oldSchematic, newSchematic) == false)
+        {
+            return Optional.empty();
+        }
+
+        SchematicVersionDelta delta = new SchematicVersionDelta();
+        Map<String, SchematicRegion> newRegions = newSchematic.getRegions();
+
+        for (Map.Entry<String, SchematicRegion> entry : oldSchematic.getRegions().entrySet())
+        {
+            SchematicRegion newRegion = newRegions.get(entry.getKey());
+            delta.regionDeltas.put(entry.getKey(), RegionDelta.create(entry.getValue(), newRegion));
+        }
+
+        delta.oldMetadata = writeMetadata(oldSchematic.getMetadata());
+        delta.newMetadata = writeMetadata(newSchematic.getMetadata());
+
+        return Optional.of(delta);
+    }
+
+    protected static CompoundData writeMetadata(SchematicMetadata metadata)
+    {
+        return metadata.write(new CompoundData());
+    }
+
+    protected static class RegionDelta
+    {
+        protected final List<BlockState> palette = new ArrayList<>();
+        protected final Map<BlockPos, CompoundData> oldBlockEntities = new HashMap<>();
+        protected final Map<BlockPos, CompoundData> newBlockEntities = new HashMap<>();
+        protected long[] positions = new long[0];
+        /** The old palette id in the upper 32 bits, the new palette id in the lower 32 bits */
+        protected long[] ids = new long[0];
+        @Nullable protected List<EntityData> oldEntities;
+        @Nullable protected List<EntityData> newEntities;
+        @Nullable protected Map<BlockPos, ScheduledBlockTickData> oldBlockTicks;
+        @Nullable protected Map<BlockPos, ScheduledBlockTickData> newBlockTicks;
+
+        protected void apply(SchematicRegion region, boolean forward)
+        {
+            BlockContainer container = region.getBlockContainer();
+            Vec3i size = container.getSize();
+            final long sizeX = size.getX();
+            final long sizeLayer = sizeX * size.getZ();
+            final int shift = forward ? 0 : 32;
+            final int count = this.positions.length;
+
+            for (int i = 0; i < count; ++i)
+            {
+                long index = this.positions[i];
+                int x = (int) (index % sizeX);
+                int y = (int) (index / sizeLayer);
+                int z = (int) ((index % sizeLayer) / sizeX);
+                int id = (int) (this.ids[i] >>> shift);
+
+                container.setBlockState(x, y, z, this.palette.get(id));
+            }
+
+            Map<BlockPos, CompoundData> blockEntities = region.getBlockEntityMap();
+            Map<BlockPos, CompoundData> removed = forward ? this.oldBlockEntities : this.newBlockEntities;
+            Map<BlockPos, CompoundData> added = forward ? this.newBlockEntities : this.oldBlockEntities;
+
+            removed.keySet().forEach(blockEntities::remove);
+            added.forEach((pos, data) -> blockEntities.put(pos, data.copy()));
+
+            List<EntityData> entities = forward ? this.newEntities : this.oldEntities;
+
+            if (entities != null)
+            {
+                List<EntityData> entityList = region.getEntityList();
+                entityList.clear();
+                entities.forEach(e -> entityList.add(e.copy()));
+            }
+
+            Map<BlockPos, ScheduledBlockTickData> blockTicks = forward ? this.newBlockTicks : this.oldBlockTicks;
+
+            if (blockTicks != null)
+            {
+                Map<BlockPos, ScheduledBlockTickData> tickMap = region.getBlockTickMap();
+                tickMap.clear();
+                tickMap.putAll(blockTicks);
+            }
+        }
+
+        protected static RegionDelta create(SchematicRegion oldRegion, SchematicRegion newRegion)
+        {
+            RegionDelta delta = new RegionDelta();
+
+            delta.readBlockChanges(oldRegion.getBlockContainer(), newRegion.getBlockContainer());
+
+            Map<BlockPos, CompoundData> oldBlockEntities = oldRegion.getBlockEntityMap();
+            Map<BlockPos, CompoundData> newBlockEntities = newRegion.getBlockEntityMap();
+            Set<BlockPos> positions = new HashSet<>(oldBlockEntities.keySet());
+            positions.addAll(newBlockEntities.keySet());
+
+            for (BlockPos pos : positions)
+            {
+                CompoundData oldData = oldBlockEntities.get(pos);
+                CompoundData newData = newBlockEntities.get(pos);
+
+                if (Objects.equals(oldData, newData) == false)
+                {
+                    if (oldData != null)
+                    {
+                        delta.oldBlockEntities.put(pos, oldData.copy());
+                    }
+
+                    if (newData != null)
+                    {
+                        delta.newBlockEntities.put(pos, newData.copy());
+                    }
+                }
+            }
+
+            if (areEntityListsEqual(oldRegion.getEntityList(), newRegion.getEntityList()) == false)
+            {
+                delta.oldEntities = copyEntityList(oldRegion.getEntityList());
+                delta.newEntities = copyEntityList(newRegion.getEntityList());
+            }
+
+            if (areBlockTickMapsEqual(oldRegion.getBlockTickMap(), newRegion.getBlockTickMap()) == false)
+            {
+                delta.oldBlockTicks = new HashMap<>(oldRegion.getBlockTickMap());
+                delta.newBlockTicks = new HashMap<>(newRegion.getBlockTickMap());
+            }
+
+            return delta;
+        }
+
+        protected void readBlockChanges(BlockContainer oldContainer, BlockContainer newContainer)
+        {
+            BlockContainer oldStorage = AdaptiveBlockContainer.unwrap(oldContainer);
+            BlockContainer newStorage = AdaptiveBlockContainer.unwrap(newContainer);
+            Object2IntOpenHashMap<BlockState> paletteIds = new Object2IntOpenHashMap<>();
+            LongArrayList positions = new LongArrayList();
+            LongArrayList ids = new LongArrayList();
+            paletteIds.defaultReturnValue(-1);
+
+            if (oldStorage instanceof ArrayBlockContainer && newStorage instanceof ArrayBlockContainer)
+            {
+                this.readBlockChangesArray((ArrayBlockContainer) oldStorage, (ArrayBlockContainer) newStorage,
+                                           paletteIds, positions, ids);
+            }
+            else
+            {
+                this.readBlockChangesGeneric(oldContainer, newContainer, paletteIds, positions, ids);
+            }
+
+            this.positions = positions.toLongArray();
+            this.ids = ids.toLongArray();
+        }
+
+        protected void readBlockChangesArray(ArrayBlockContainer oldContainer,
+                                             ArrayBlockContainer newContainer,
+                                             Object2IntOpenHashMap<BlockState> paletteIds,
+                                             LongArrayList positionsOut,
+                                             LongArrayList idsOut)
+        {
+            List<BlockState> oldMapping = oldContainer.getPalette().getMapping();
+            List<BlockState> newMapping = newContainer.getPalette().getMapping();
+            final int oldPaletteSize = oldMapping.size();
+            final int newPaletteSize = newMapping.size();
+            int[] oldToNewId = new int[oldPaletteSize];
+            int[] oldToDeltaId = new int[oldPaletteSize];
+            int[] newToDeltaId = new int[newPaletteSize];
+            Object2IntOpenHashMap<BlockState> newIds = new Object2IntOpenHashMap<>(newPaletteSize);
+            newIds.defaultReturnValue(-1);
+
+            for (int id = 0; id < newPaletteSize; ++id)
+            {
+                newIds.putIfAbsent(getState(newMapping, id), id);
+                newToDeltaId[id] = -1;
+            }
+
+            // Map the old palette ids to the new palette ids, so that the storage
+            // values can be compared directly without looking up the block states
+            for (int id = 0; id < oldPaletteSize; ++id)
+            {
+                oldToNewId[id] = newIds.getInt(getState(oldMapping, id));
+                oldToDeltaId[id] = -1;
+            }
+
+            PackedIntArray oldStorage = oldContainer.getIntStorage();
+            PackedIntArray newStorage = newContainer.getIntStorage();
+            final long size = Math.min(oldStorage.size(), newStorage.size());
+
+            for (long index = 0; index < size; ++index)
+            {
+                int oldId = oldStorage.getAt(index);
+                int newId = newStorage.getAt(index);
+
+                if (oldId >= oldPaletteSize || newId >= newPaletteSize)
+                {
+                    BlockState oldState = getState(oldMapping, oldId);
+                    BlockState newState = getState(newMapping, newId);
+
+                    if (oldState.equals(newState) == false)
+                    {
+                        this.addChange(index, oldState, newState, paletteIds, positionsOut, idsOut);
+                    }
+                }
+                else if (oldToNewId[oldId] != newId && getState(oldMapping, oldId).equals(getState(newMapping, newId)) == false)
+                {
+                    if (oldToDeltaId[oldId] == -1)
+                    {
+                        oldToDeltaId[oldId] = this.getDeltaPaletteId(getState(oldMapping, oldId), paletteIds);
+                    }
+
+                    if (newToDeltaId[newId] == -1)
+                    {
+                        newToDeltaId[newId] = this.getDeltaPaletteId(getState(newMapping, newId), paletteIds);
+                    }
+
+                    positionsOut.add(index);
+                    idsOut.add(packIds(oldToDeltaId[oldId], newToDeltaId[newId]));
+                }
+            }
+        }
+
+        protected void readBlockChangesGeneric(BlockContainer oldContainer,
+                                               BlockContainer newContainer,
+                                               Object2IntOpenHashMap<BlockState> paletteIds,
+                                               LongArrayList positionsOut,
+                                               LongArrayList idsOut)
+        {
+            Vec3i size = oldContainer.getSize();
+            final int sizeX = size.getX();
+            final int sizeY = size.getY();
+            final int sizeZ = size.getZ();
+            long index = 0;
+
+            for (int y = 0; y < sizeY; ++y)
+            {
+                for (int z = 0; z < sizeZ; ++z)
+                {
+                    for (int x = 0; x < sizeX; ++x, ++index)
+                    {
+                        BlockState oldState = oldContainer.getBlockState(x, y, z);
+                        BlockState newState = newContainer.getBlockState(x, y, z);
+
+                        if (oldState.equals(newState) == false)
+                        {
+                            this.addChange(index, oldState, newState, paletteIds, positionsOut, idsOut);
+                        }
+                    }
+                }
+            }
+        }
+
+        protected void addChange(long index, BlockState oldState, BlockState newState,
+                                 Object2IntOpenHashMap<BlockState> paletteIds,
+                                 LongArrayList positionsOut, LongArrayList idsOut)
+        {
+            int oldId = this.getDeltaPaletteId(oldState, paletteIds);
+            int newId = this.getDeltaPaletteId(newState, paletteIds);
+
+            positionsOut.add(index);
+            idsOut.add(packIds(oldId, newId));
+        }
+
+        protected int getDeltaPaletteId(BlockState state, Object2IntOpenHashMap<BlockState> paletteIds)
+        {
+            int id = paletteIds.getInt(state);
+
+            if (id == -1)
+            {
+                id = this.palette.size();
+                this.palette.add(state);
+                paletteIds.put(state, id);
+            }
+
+            return id;
+        }
+
+        protected CompoundData write()
+        {
+            CompoundData tag = new CompoundData();
+            ListData paletteList = new ListData(Constants.NBT.TAG_COMPOUND);
+
+            for (BlockState state : this.palette)
+            {
+                CompoundData stateTag = new CompoundData();
+                BlockUtils.writeBlockState(stateTag, state);
+                paletteList.add(stateTag);
+            }
+
+            tag.put("Palette", paletteList);
+            tag.put("Positions", new LongArrayData(this.positions));
+            tag.put("Ids", new LongArrayData(this.ids));
+            tag.put("OldTileEntities", writeBlockEntities(this.oldBlockEntities));
+            tag.put("NewTileEntities", writeBlockEntities(this.newBlockEntities));
+
+            if (this.oldEntities != null && this.newEntities != null)
+            {
+                tag.put("OldEntities", writeEntities(this.oldEntities));
+                tag.put("NewEntities", writeEntities(this.newEntities));
+            }
+
+            if (this.oldBlockTicks != null && this.newBlockTicks != null)
+            {
+                tag.put("OldBlockTicks", writeBlockTicks(this.oldBlockTicks));
+                tag.put("NewBlockTicks", writeBlockTicks(this.newBlockTicks));
+            }
+
+            return tag;
+        }
+
+        protected static RegionDelta fromData(DataView tag, int dataVersion)
+        {
+            RegionDelta delta = new RegionDelta();
+            ListData paletteList = tag.getList("Palette", Constants.NBT.TAG_COMPOUND);
+            final int paletteSize = paletteList.size();
+
+            for (int i = 0; i < paletteSize; ++i)
+            {
+                delta.palette.add(BlockState.ofData(paletteList.getCompoundAt(i), dataVersion));
+            }
+
+            delta.positions = tag.getLongArray("Positions");
+            delta.ids = tag.getLongArray("Ids");
+
+            if (delta.positions.length != delta.ids.length)
+            {
+                delta.positions = new long[0];
+                delta.ids = new long[0];
+            }
+
+            readBlockEntities(tag.getList("OldTileEntities", Constants.NBT.TAG_COMPOUND), delta.oldBlockEntities);
+            readBlockEntities(tag.getList("NewTileEntities", Constants.NBT.TAG_COMPOUND), delta.newBlockEntities);
+
+            if (tag.contains("OldEntities", Constants.NBT.TAG_LIST) && tag.contains("NewEntities", Constants.NBT.TAG_LIST))
+            {
+                delta.oldEntities = readEntities(tag.getList("OldEntities", Constants.NBT.TAG_COMPOUND));
+                delta.newEntities = readEntities(tag.getList("NewEntities", Constants.NBT.TAG_COMPOUND));
+            }
+
+            if (tag.contains("OldBlockTicks", Constants.NBT.TAG_LIST) && tag.contains("NewBlockTicks", Constants.NBT.TAG_LIST))
+            {
+                delta.oldBlockTicks = readBlockTicks(tag.getList("OldBlockTicks", Constants.NBT.TAG_COMPOUND));
+                delta.newBlockTicks = readBlockTicks(tag.getList("NewBlockTicks", Constants.NBT.TAG_COMPOUND));
+            }
+
+            return delta;
+        }
+
+        protected static BlockState getState(List<BlockState> mapping, int id)
+        {
+            BlockState state = id >= 0 && id < mapping.size() ? mapping.get(id) : null;
+            return state != null ? state : BlockState.AIR;
+        }
+
+        protected static long packIds(int oldId, int newId)
+        {
+            return ((long) oldId << 32) | ((long) newId & 0xFFFFFFFFL);
+        }
+
+        protected static boolean areEntityListsEqual(List<EntityData> list1, List<EntityData> list2)
+        {
+            if (list1.size() != list2.size())
+            {
+                return false;
+            }
+
+            for (int i = 0; i < list1.size(); ++i)
+            {
+                EntityData e1 = list1.get(i);
+                EntityData e2 = list2.get(i);
+
+                if (e1.pos.equals(e2.pos) == false || e1.data.equals(e2.data) == false)
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        protected static boolean areBlockTickMapsEqual(Map<BlockPos, ScheduledBlockTickData> map1,
+                                                       Map<BlockPos, ScheduledBlockTickData> map2)
+        {
+            if (map1.size() != map2.size())
+            {
+                return false;
+            }
+
+            for (Map.Entry<BlockPos, ScheduledBlockTickData> entry : map1.entrySet())
+            {
+                ScheduledBlockTickData t1 = entry.getValue();
+                ScheduledBlockTickData t2 = map2.get(entry.getKey());
+
+                if (t2 == null ||
+                    t1.blockName.equals(t2.blockName) == false ||
+                    t1.priority != t2.priority ||
+                    t1.delay != t2.delay ||
+                    t1.tickId != t2.tickId)
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        protected static List<EntityData> copyEntityList(List<EntityData> list)
+        {
+            List<EntityData> copy = new ArrayList<>(list.size());
+            list.forEach(e -> copy.add(e.copy()));
+            return copy;
+        }
+
+        protected static ListData writeBlockEntities(Map<BlockPos, CompoundData> blockEntityMap)
+        {
+            ListData list = new ListData(Constants.NBT.TAG_COMPOUND);
+
+            for (Map.Entry<BlockPos, CompoundData> entry : blockEntityMap.entrySet())
+            {
+                CompoundData compound = entry.getValue().copy();
+                DataTypeUtils.putVec3i(compound, entry.getKey());
+                list.add(compound);
+            }
+
+            return list;
+        }
+
+        protected static void readBlockEntities(ListData list, Map<BlockPos, CompoundData> blockEntityMapOut)
+        {
+            final int size = list.size();
+
+            for (int i = 0; i < size; ++i)
+            {
+                CompoundData beData = list.getCompoundAt(i).copy();
+                BlockPos pos = DataTypeUtils.readBlockPos(beData);
+                DataTypeUtils.removeBlockPosFromTag(beData);
+
+                if (pos != null)
+                {
+                    blockEntityMapOut.put(pos, beData);
+                }
+            }
+        }
+
+        protected static ListData writeEntities(List<EntityData> entityList)
+        {
+            ListData list = new ListData(Constants.NBT.TAG_COMPOUND);
+
+            for (EntityData entityData : entityList)
+            {
+                CompoundData tag = entityData.data.copy();
+                DataTypeUtils.writeVec3dToListTag(tag, entityData.pos);
+                list.add(tag);
+            }
+
+            return list;
+        }
+
+        protected static List<EntityData> readEntities(ListData list)
+        {
+            List<EntityData> entityList = new ArrayList<>();
+            final int size = list.size();
+
+            for (int i = 0; i < size; ++i)
+            {
+                CompoundData entityData = list.getCompoundAt(i).copy();
+                Vec3d pos = DataTypeUtils.readVec3dFromListTag(entityData);
+
+                if (pos != null)
+                {
+                    entityList.add(new EntityData(pos, entityData));
+                }
+            }
+
+            return entityList;
+        }
+
+        protected static ListData writeBlockTicks(Map<BlockPos, ScheduledBlockTickData> blockTicksMap)
+        {
+            ListData list = new ListData(Constants.NBT.TAG_COMPOUND);
+
+            for (ScheduledBlockTickData entry : blockTicksMap.values())
+            {
+                CompoundData tag = new CompoundData();
+
+                tag.putString("Block", entry.blockName);
+                tag.putInt("Priority", entry.priority);
+                tag.putLong("Time", entry.delay);
+                tag.putLong("TickId", entry.tickId);
+                DataTypeUtils.putVec3i(tag, entry.pos);
+
+                list.add(tag);
+            }
+
+            return list;
+        }
+
+        protected static Map<BlockPos, ScheduledBlockTickData> readBlockTicks(ListData list)
+        {
+            Map<BlockPos, ScheduledBlockTickData> tickMap = new HashMap<>();
+            final int size = list.size();
+
+            for (int i = 0; i < size; ++i)
+            {
+                CompoundData tag = list.getCompoundAt(i);
+                BlockPos pos = DataTypeUtils.readBlockPos(tag);
+
+                if (pos != null)
+                {
+                    ScheduledBlockTickData entry = new ScheduledBlockTickData(pos, tag.getString("Block"),
+                                                                              tag.getInt("Priority"),
+                                                                              tag.getLong("Time"),
+                                                                              tag.getLong("TickId"));
+                    tickMap.put(pos, entry);
+                }
+            }
+
+            return tickMap;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package litematica.schematic.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+import malilib.util.FileNameUtils;
+import malilib.util.data.tag.CompoundData;
+import malilib.util.data.tag.converter.DataConverterNbt;
+import litematica.Litematica;
+import litematica.schematic.LitematicaSchematic;
+import litematica.schematic.Schematic;
+import litematica.schematic.container.OffHeapTightIntArray;
+
+/**
+ * Reads normal (non-sectioned) litematic files so that the large BlockStates arrays
+ * are read directly from the file stream into off-heap storage,
+ * instead of first reading them into long arrays on the heap.
+ * The rest of the data is read normally.
+ */
+public class LitematicaFileReader
+{
+    /**
+     * @return true if the file should be read via this reader, ie. if it's a non-sectioned
+     * litematic file and the off-heap storage is enabled
+     */
+    public static boolean shouldReadFile(Path file)
+    {
+        return LitematicaSchematic.FILE_NAME_EXTENSION.equalsIgnoreCase(FileNameUtils.getFileNameExtension(file.getFileName().toString())) &&
+               OffHeapTightIntArray.shouldUseOffHeapStorage(Long.MAX_VALUE) &&
+               SectionedSchematicFile.getSectionDataStart(file) < 0;
+    }
+
+    /**
+     * @return the schematic, or empty if reading the file failed
+     */
+    public static Optional<Schematic> readFromFile(Path file)
+    {
+        LitematicaSchematic schematic = new LitematicaSchematic();
+
+        if (readInto(schematic, file))
+        {
+            return Optional.of(schematic);
+        }
+
+        return Optional.empty();
+    }
+
+    public static boolean readInto(LitematicaSchematic schematic, Path file)
+    {
+        Map<String, LongBuffer[]> blockStates = new HashMap<>();
+        CompoundData data = readData(file, blockStates);
+
+        if (data == null)
+        {
+            return false;
+        }
+
+        return schematic.readWithOffHeapBlockStates(data, blockStates);
+    }
+
+    @Nullable
+    protected static CompoundData readData(Path file, Map<String, LongBuffer[]> blockStatesOut)
+    {
+        NbtStreamReader.LongArrayHandler handler = (path, length, in) -> readBlockStates(path, length, in, blockStatesOut);
+
+        try (InputStream is = new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file), 65536), 65536))
+        {
+            NBTTagCompound tag = new NbtStreamReader(is, handler).readRoot();
+            return DataConverterNbt.fromVanillaCompound(tag);
+        }
+        catch (Exception e)
+        {
+            Litematica.LOGGER.warn("LitematicaFileReader: Failed to read the schematic file '{}'", file.toAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads the Regions/[name]/BlockStates arrays that are large enough
+     * for the off-heap storage directly into off-heap segments
+     */
+    protected static boolean readBlockStates(List<String> path, int length, DataInput in,
+                                             Map<String, LongBuffer[]> blockStatesOut) throws IOException
+    {
+        // A long array can hold at most 64 entries per long, with one bit per entry.
+        // If the actual region volume ends up being below the threshold,
+        // then the data gets copied to the heap when the container is created.
+        if (path.size() != 3 ||
+            path.get(0).equals("Regions") == false ||
+            path.get(2).equals("BlockStates") == false ||
+            OffHeapTightIntArray.shouldUseOffHeapStorage(length * 64L) == false)
+        {
+            return false;
+        }
+
+        blockStatesOut.put(path.get(1), OffHeapTightIntArray.readSegments(in, length));
+
+        return true;
+    }
+}
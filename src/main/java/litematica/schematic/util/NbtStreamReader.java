@@ -0,0 +1,228 @@
+package litematica.schematic.util;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagByte;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagDouble;
+import net.minecraft.nbt.NBTTagFloat;
+import net.minecraft.nbt.NBTTagInt;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagLong;
+import net.minecraft.nbt.NBTTagLongArray;
+import net.minecraft.nbt.NBTTagShort;
+import net.minecraft.nbt.NBTTagString;
+
+import malilib.util.data.Constants;
+
+/**
+ * Reads uncompressed NBT data from an input stream, like the vanilla reader,
+ * but passes the long array tags inside compound tags to a {@link LongArrayHandler} first.
+ * The handler can read the array contents directly from the stream to wherever it wants,
+ * for example to off-heap storage, in which case the tag is left out of the returned data.
+ * This is the reading counterpart of {@link NbtStreamWriter}.
+ */
+public class NbtStreamReader
+{
+    public static final int MAX_DEPTH = 512;
+
+    protected final DataInputStream in;
+    protected final LongArrayHandler longArrayHandler;
+    protected final List<String> path = new ArrayList<>();
+
+    public NbtStreamReader(InputStream is, LongArrayHandler longArrayHandler)
+    {
+        this.in = new DataInputStream(is);
+        this.longArrayHandler = longArrayHandler;
+    }
+
+    /**
+     * Reads the root compound tag. The name of the root tag is ignored.
+     */
+    public NBTTagCompound readRoot() throws IOException
+    {
+        int type = this.in.readByte();
+
+        if (type != Constants.NBT.TAG_COMPOUND)
+        {
+            throw new IOException("The root tag is not a compound tag, but type " + type);
+        }
+
+        this.in.readUTF();
+
+        return this.readCompound(0);
+    }
+
+    protected NBTTagCompound readCompound(int depth) throws IOException
+    {
+        if (depth > MAX_DEPTH)
+        {
+            throw new IOException("Tried to read NBT tag with too high complexity, depth > " + MAX_DEPTH);
+        }
+
+        NBTTagCompound tag = new NBTTagCompound();
+
+        while (true)
+        {
+            int type = this.in.readByte();
+
+            if (type == Constants.NBT.TAG_END)
+            {
+                return tag;
+            }
+
+            String name = this.in.readUTF();
+            this.path.add(name);
+
+            if (type == Constants.NBT.TAG_LONG_ARRAY)
+            {
+                int length = this.in.readInt();
+
+                if (this.longArrayHandler.readLongArray(this.path, length, this.in) == false)
+                {
+                    tag.setTag(name, new NBTTagLongArray(this.readLongs(length)));
+                }
+            }
+            else
+            {
+                tag.setTag(name, this.readPayload(type, depth + 1));
+            }
+
+            this.path.remove(this.path.size() - 1);
+        }
+    }
+
+    protected NBTBase readPayload(int type, int depth) throws IOException
+    {
+        switch (type)
+        {
+            case Constants.NBT.TAG_BYTE:        return new NBTTagByte(this.in.readByte());
+            case Constants.NBT.TAG_SHORT:       return new NBTTagShort(this.in.readShort());
+            case Constants.NBT.TAG_INT:         return new NBTTagInt(this.in.readInt());
+            case Constants.NBT.TAG_LONG:        return new NBTTagLong(this.in.readLong());
+            case Constants.NBT.TAG_FLOAT:       return new NBTTagFloat(this.in.readFloat());
+            case Constants.NBT.TAG_DOUBLE:      return new NBTTagDouble(this.in.readDouble());
+            case Constants.NBT.TAG_STRING:      return new NBTTagString(this.in.readUTF());
+            case Constants.NBT.TAG_LIST:        return this.readList(depth);
+            case Constants.NBT.TAG_COMPOUND:    return this.readCompound(depth);
+            case Constants.NBT.TAG_LONG_ARRAY:  return new NBTTagLongArray(this.readLongs(this.in.readInt()));
+
+            case Constants.NBT.TAG_BYTE_ARRAY:
+            {
+                byte[] arr = new byte[this.readLength()];
+                this.in.readFully(arr);
+                return new NBTTagByteArray(arr);
+            }
+
+            case Constants.NBT.TAG_INT_ARRAY:
+            {
+                int[] arr = new int[this.readLength()];
+
+                for (int i = 0; i < arr.length; ++i)
+                {
+                    arr[i] = this.in.readInt();
+                }
+
+                return new NBTTagIntArray(arr);
+            }
+
+            default:
+                throw new IOException("Invalid NBT tag type: " + type);
+        }
+    }
+
+    protected NBTTagList readList(int depth) throws IOException
+    {
+        if (depth > MAX_DEPTH)
+        {
+            throw new IOException("Tried to read NBT tag with too high complexity, depth > " + MAX_DEPTH);
+        }
+
+        int elementType = this.in.readByte();
+        int count = this.readLength();
+        NBTTagList list = new NBTTagList();
+
+        if (elementType == Constants.NBT.TAG_END && count > 0)
+        {
+            throw new IOException("Missing the element type in a list tag");
+        }
+
+        for (int i = 0; i < count; ++i)
+        {
+            list.appendTag(this.readPayload(elementType, depth + 1));
+        }
+
+        return list;
+    }
+
+    protected long[] readLongs(int length) throws IOException
+    {
+        if (length < 0)
+        {
+            throw new IOException("Invalid array length: " + length);
+        }
+
+        long[] arr = new long[length];
+
+        for (int i = 0; i < length; ++i)
+        {
+            arr[i] = this.in.readLong();
+        }
+
+        return arr;
+    }
+
+    protected int readLength() throws IOException
+    {
+        int length = this.in.readInt();
+
+        if (length < 0)
+        {
+            throw new IOException("Invalid length: " + length);
+        }
+
+        return length;
+    }
+
+    /**
+     * Skips the given number of bytes in the input
+     */
+    public static void skipFully(DataInput in, long length) throws IOException
+    {
+        while (length > 0)
+        {
+            int skipped = in.skipBytes((int) Math.min(length, Integer.MAX_VALUE));
+
+            if (skipped <= 0)
+            {
+                // skipBytes() can also return 0 before the end of the stream, this detects the actual end
+                in.readByte();
+                skipped = 1;
+            }
+
+            length -= skipped;
+        }
+    }
+
+    public interface LongArrayHandler
+    {
+        /**
+         * Called for each long array tag inside a compound tag, after the array length has been read.
+         * If this returns true, then the handler must have read (or skipped) exactly
+         * length * 8 bytes from the input, and the tag is left out of the data.
+         * @param path the names of the compound tags from the root tag down to the array tag,
+         *             with the array tag's own name as the last entry
+         * @return true if the array contents were consumed by the handler,
+         *         false if the array should be read as a normal tag
+         */
+        boolean readLongArray(List<String> path, int length, DataInput in) throws IOException;
+    }
+}
@@ -0,0 +1,156 @@
+package litematica.schematic.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+
+import malilib.util.data.Constants;
+import malilib.util.data.tag.CompoundData;
+import malilib.util.data.tag.converter.DataConverterNbt;
+import litematica.schematic.container.OffHeapTightIntArray;
+
+/**
+ * Writes uncompressed NBT data directly to an output stream, one tag at a time,
+ * without building the full tag tree in memory first.
+ * The caller is responsible for the correct structure, ie. for ending each
+ * compound tag, and for writing the announced number of entries to each list.
+ * The entries of a compound list are started by just writing their tags,
+ * and they are ended via {@link #endCompound()}.
+ */
+public class NbtStreamWriter
+{
+    protected final DataOutputStream out;
+    protected final ByteArrayOutputStream scratchBuffer = new ByteArrayOutputStream(4096);
+
+    public NbtStreamWriter(OutputStream os)
+    {
+        this.out = new DataOutputStream(os);
+    }
+
+    protected void writeTagHeader(int type, String name) throws IOException
+    {
+        this.out.writeByte(type);
+        this.out.writeUTF(name);
+    }
+
+    public void beginCompound(String name) throws IOException
+    {
+        this.writeTagHeader(Constants.NBT.TAG_COMPOUND, name);
+    }
+
+    public void endCompound() throws IOException
+    {
+        this.out.writeByte(Constants.NBT.TAG_END);
+    }
+
+    /**
+     * Starts a list tag. The given number of entries of the given type must be written after this.
+     */
+    public void beginList(String name, int elementType, int count) throws IOException
+    {
+        this.writeTagHeader(Constants.NBT.TAG_LIST, name);
+        this.out.writeByte(count > 0 ? elementType : Constants.NBT.TAG_END);
+        this.out.writeInt(count);
+    }
+
+    public void writeInt(String name, int value) throws IOException
+    {
+        this.writeTagHeader(Constants.NBT.TAG_INT, name);
+        this.out.writeInt(value);
+    }
+
+    public void writeString(String name, String value) throws IOException
+    {
+        this.writeTagHeader(Constants.NBT.TAG_STRING, name);
+        this.out.writeUTF(value);
+    }
+
+    public void writeIntList(String name, int... values) throws IOException
+    {
+        this.beginList(name, Constants.NBT.TAG_INT, values.length);
+
+        for (int value : values)
+        {
+            this.out.writeInt(value);
+        }
+    }
+
+    public void writeDoubleList(String name, double... values) throws IOException
+    {
+        this.beginList(name, Constants.NBT.TAG_DOUBLE, values.length);
+
+        for (double value : values)
+        {
+            this.out.writeDouble(value);
+        }
+    }
+
+    public void writeLongArray(String name, long[] values) throws IOException
+    {
+        this.writeTagHeader(Constants.NBT.TAG_LONG_ARRAY, name);
+        this.out.writeInt(values.length);
+
+        for (long value : values)
+        {
+            this.out.writeLong(value);
+        }
+    }
+
+    /**
+     * Writes the data of the off-heap array as a long array tag, without copying all of it to the heap first
+     * @throws IOException if the data has more longs than an NBT long array can hold
+     */
+    public void writeLongArray(String name, OffHeapTightIntArray array) throws IOException
+    {
+        long length = array.getLongCount();
+
+        if (length > Integer.MAX_VALUE)
+        {
+            throw new IOException("The data length (" + length + ") is larger than the max NBT long array length");
+        }
+
+        this.writeTagHeader(Constants.NBT.TAG_LONG_ARRAY, name);
+        this.out.writeInt((int) length);
+        array.writeLongs(this.out);
+    }
+
+    /**
+     * Writes the given data as a named compound tag
+     */
+    public void writeCompound(String name, CompoundData data) throws IOException
+    {
+        this.writeTagHeader(Constants.NBT.TAG_COMPOUND, name);
+        this.writeCompoundPayload(data, true);
+    }
+
+    /**
+     * Writes all the tags in the given compound directly into the currently open compound tag
+     */
+    public void writeCompoundContents(CompoundData data) throws IOException
+    {
+        this.writeCompoundPayload(data, false);
+    }
+
+    protected void writeCompoundPayload(CompoundData data, boolean includeEndTag) throws IOException
+    {
+        NBTTagCompound tag = DataConverterNbt.toVanillaCompound(data);
+
+        this.scratchBuffer.reset();
+        CompressedStreamTools.write(tag, new DataOutputStream(this.scratchBuffer));
+
+        // The vanilla writer writes the root tag type and an empty name (3 bytes) before the payload,
+        // and the payload ends in the end tag
+        byte[] bytes = this.scratchBuffer.toByteArray();
+        int length = bytes.length - 3 - (includeEndTag ? 0 : 1);
+        this.out.write(bytes, 3, length);
+    }
+
+    public void flush() throws IOException
+    {
+        this.out.flush();
+    }
+}
@@ -0,0 +1,371 @@
+package litematica.schematic.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import javax.annotation.Nullable;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+
+import malilib.util.data.tag.CompoundData;
+import malilib.util.data.tag.converter.DataConverterNbt;
+import litematica.Litematica;
+
+/**
+ * Writes NBT data as a gzip stream, compressing the serialized data in independent blocks
+ * on a thread pool, similar to what pigz does.
+ * Each block is primed with the last 32 KiB of the previous block as the deflate dictionary,
+ * and all but the last block end in a sync flush, so the concatenated blocks form
+ * one valid deflate stream, and the output is a normal single-member gzip file.
+ */
+public class ParallelGzipWriter
+{
+    public static final int BLOCK_SIZE = 128 * 1024;
+    public static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(getThreadCount(),
+            new ThreadFactoryBuilder().setNameFormat("Litematica Schematic Compressor %d").setDaemon(true).build());
+
+    public static boolean writeCompoundDataToFile(Path file, CompoundData data, String rootTagName, int level)
+    {
+        try (BlockCompressingOutputStream os = new BlockCompressingOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file)), level))
+        {
+            writeNbt(data, rootTagName, os);
+            os.finish();
+            return true;
+        }
+        catch (Exception e)
+        {
+            Litematica.LOGGER.warn("Failed to write compressed NBT data to file '{}'", file.toAbsolutePath(), e);
+        }
+
+        return false;
+    }
+
+    /**
+     * Writes the data into the stream in the uncompressed NBT format, using the given name for the root tag
+     */
+    public static void writeNbt(CompoundData data, String rootTagName, OutputStream os) throws IOException
+    {
+        NBTTagCompound tag = DataConverterNbt.toVanillaCompound(data);
+        DataOutputStream dos = new DataOutputStream(new RootTagNameOutputStream(os, rootTagName));
+        CompressedStreamTools.write(tag, dos);
+        dos.flush();
+    }
+
+    /**
+     * Serializes the data into the uncompressed NBT format, using the given name for the root tag.
+     * This is meant for small amounts of data, larger data should be written
+     * via {@link #writeNbt(CompoundData, String, OutputStream)} directly to the output stream.
+     */
+    public static byte[] serializeToNbt(CompoundData data, String rootTagName) throws IOException
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(64 * 1024);
+        writeNbt(data, rootTagName, bos);
+        return bos.toByteArray();
+    }
+
+    /**
+     * Writes the data as one complete gzip member
+     */
+    public static void writeCompressed(byte[] data, int level, OutputStream os) throws IOException
+    {
+        BlockCompressingOutputStream gzipStream = new BlockCompressingOutputStream(os, level);
+        gzipStream.write(data, 0, data.length);
+        gzipStream.finish();
+    }
+
+    /**
+     * Compresses the data as one complete raw deflate stream on the thread pool
+     */
+    public static Future<byte[]> compressAsync(byte[] data, int level)
+    {
+        return EXECUTOR.submit(() -> compressBlock(data, 0, data.length, level, true));
+    }
+
+    protected static byte[] compressBlock(byte[] data, int start, int length, int level, boolean last)
+    {
+        int dictLength = Math.min(DICTIONARY_SIZE, start);
+        return compressBlock(data, start - dictLength, dictLength, data, start, length, level, last);
+    }
+
+    protected static byte[] compressBlock(byte[] dictionary, int dictStart, int dictLength,
+                                          byte[] data, int start, int length, int level, boolean last)
+    {
+        Deflater deflater = new Deflater(level, true);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(length / 2 + 64);
+        byte[] buf = new byte[16384];
+
+        try
+        {
+            if (dictLength > 0)
+            {
+                deflater.setDictionary(dictionary, dictStart, dictLength);
+            }
+
+            deflater.setInput(data, start, length);
+
+            if (last)
+            {
+                deflater.finish();
+
+                while (deflater.finished() == false)
+                {
+                    int count = deflater.deflate(buf);
+                    bos.write(buf, 0, count);
+                }
+            }
+            else
+            {
+                int count;
+
+                // The sync flush byte-aligns the output, so the next block can be appended directly
+                do
+                {
+                    count = deflater.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+                    bos.write(buf, 0, count);
+                }
+                while (count == buf.length);
+            }
+        }
+        finally
+        {
+            deflater.end();
+        }
+
+        return bos.toByteArray();
+    }
+
+    protected static void writeHeader(OutputStream os) throws IOException
+    {
+        // Magic, CM = deflate, no flags, no mtime, no extra flags, OS = unknown
+        os.write(new byte[] { 0x1F, (byte) 0x8B, 8, 0, 0, 0, 0, 0, 0, (byte) 0xFF });
+    }
+
+    protected static void writeIntLE(int value, OutputStream os) throws IOException
+    {
+        os.write(value & 0xFF);
+        os.write((value >>> 8) & 0xFF);
+        os.write((value >>> 16) & 0xFF);
+        os.write((value >>> 24) & 0xFF);
+    }
+
+    private static int getThreadCount()
+    {
+        return Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    /**
+     * A gzip output stream, which collects the written data into blocks of BLOCK_SIZE,
+     * and compresses each full block on the thread pool while the next block is being written.
+     * Only a limited number of blocks are kept in flight, so the memory use does not depend on the data size.
+     * {@link #finish()} must be called to write the last block and the gzip trailer.
+     */
+    public static class BlockCompressingOutputStream extends OutputStream
+    {
+        protected final ArrayDeque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+        protected final CRC32 crc = new CRC32();
+        protected final OutputStream out;
+        protected final int maxPendingBlocks;
+        protected final int level;
+        @Nullable protected byte[] previousBlock;
+        protected byte[] block = new byte[BLOCK_SIZE];
+        protected int blockLength;
+        protected long totalLength;
+        protected boolean finished;
+
+        public BlockCompressingOutputStream(OutputStream out, int level) throws IOException
+        {
+            this.out = out;
+            this.level = level;
+            this.maxPendingBlocks = getThreadCount() * 2;
+
+            writeHeader(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            this.block[this.blockLength++] = (byte) b;
+            this.crc.update(b);
+            ++this.totalLength;
+
+            if (this.blockLength == BLOCK_SIZE)
+            {
+                this.submitBlock(false);
+            }
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException
+        {
+            this.crc.update(data, offset, length);
+            this.totalLength += length;
+
+            while (length > 0)
+            {
+                int count = Math.min(length, BLOCK_SIZE - this.blockLength);
+                System.arraycopy(data, offset, this.block, this.blockLength, count);
+                this.blockLength += count;
+                offset += count;
+                length -= count;
+
+                if (this.blockLength == BLOCK_SIZE)
+                {
+                    this.submitBlock(false);
+                }
+            }
+        }
+
+        protected void submitBlock(boolean last) throws IOException
+        {
+            // The previous block is only read for the dictionary, and the current block
+            // is not written to anymore after this, so neither array is reused
+            final byte[] dictionary = this.previousBlock;
+            final int dictLength = dictionary != null ? DICTIONARY_SIZE : 0;
+            final byte[] data = this.block;
+            final int length = this.blockLength;
+            final int level = this.level;
+
+            this.pendingBlocks.add(EXECUTOR.submit(() -> compressBlock(dictionary, BLOCK_SIZE - dictLength, dictLength,
+                                                                       data, 0, length, level, last)));
+            this.previousBlock = data;
+            this.block = last ? data : new byte[BLOCK_SIZE];
+            this.blockLength = 0;
+
+            while (this.pendingBlocks.size() > this.maxPendingBlocks ||
+                   (this.pendingBlocks.isEmpty() == false && this.pendingBlocks.peekFirst().isDone()))
+            {
+                this.writeNextBlock();
+            }
+        }
+
+        protected void writeNextBlock() throws IOException
+        {
+            try
+            {
+                this.out.write(this.pendingBlocks.removeFirst().get());
+            }
+            catch (InterruptedException | ExecutionException e)
+            {
+                this.cancelPendingBlocks();
+                throw new IOException("Failed to compress the data", e);
+            }
+        }
+
+        protected void cancelPendingBlocks()
+        {
+            this.pendingBlocks.forEach(f -> f.cancel(true));
+            this.pendingBlocks.clear();
+        }
+
+        /**
+         * Compresses the last block, and writes out all the remaining data and the gzip trailer.
+         * This does not close the underlying stream.
+         */
+        public void finish() throws IOException
+        {
+            if (this.finished)
+            {
+                return;
+            }
+
+            this.submitBlock(true);
+
+            while (this.pendingBlocks.isEmpty() == false)
+            {
+                this.writeNextBlock();
+            }
+
+            // The ISIZE field is the uncompressed size modulo 2^32
+            writeIntLE((int) this.crc.getValue(), this.out);
+            writeIntLE((int) this.totalLength, this.out);
+            this.out.flush();
+            this.finished = true;
+        }
+
+        /**
+         * Closes the underlying stream. If {@link #finish()} was not called, then
+         * the pending blocks are discarded and the output is left incomplete.
+         */
+        @Override
+        public void close() throws IOException
+        {
+            this.cancelPendingBlocks();
+            this.out.close();
+        }
+    }
+
+    /**
+     * Replaces the empty root tag name that the vanilla NBT writer writes
+     * (the tag type byte followed by a zero length UTF string) with the given name,
+     * and passes everything else through as-is.
+     */
+    protected static class RootTagNameOutputStream extends FilterOutputStream
+    {
+        protected final String rootTagName;
+        protected int headerBytes;
+
+        protected RootTagNameOutputStream(OutputStream out, String rootTagName)
+        {
+            super(out);
+
+            this.rootTagName = rootTagName;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            if (this.headerBytes < 3)
+            {
+                this.writeHeaderByte(b);
+            }
+            else
+            {
+                this.out.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException
+        {
+            while (length > 0 && this.headerBytes < 3)
+            {
+                this.writeHeaderByte(data[offset++]);
+                --length;
+            }
+
+            if (length > 0)
+            {
+                this.out.write(data, offset, length);
+            }
+        }
+
+        protected void writeHeaderByte(int b) throws IOException
+        {
+            // Keep the tag type byte, and write the name in place of the empty name
+            if (this.headerBytes == 0)
+            {
+                this.out.write(b);
+                new DataOutputStream(this.out).writeUTF(this.rootTagName);
+            }
+
+            ++this.headerBytes;
+        }
+    }
+}
@@ -0,0 +1,1027 @@
+package litematica.schematic.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.init.Blocks;
+
+import malilib.overlay.message.MessageDispatcher;
+import malilib.util.FileNameUtils;
+import malilib.util.FileUtils;
+import malilib.util.StringUtils;
+import malilib.util.data.json.JsonUtils;
+import malilib.util.data.tag.CompoundData;
+import malilib.util.data.tag.util.DataFileUtils;
+import malilib.util.position.Vec3i;
+import malilib.util.world.BlockState;
+import litematica.Litematica;
+import litematica.render.infohud.IInfoHudRenderer;
+import litematica.render.infohud.InfoHud;
+import litematica.render.infohud.RenderPhase;
+import litematica.schematic.LoadedSchematic;
+import litematica.schematic.Schematic;
+import litematica.schematic.SchematicMetadata;
+import litematica.schematic.SchematicRegion;
+import litematica.schematic.SchematicSaveSettings.CompressionMode;
+import litematica.schematic.SchematicType;
+import litematica.schematic.container.BlockContainer;
+import litematica.util.LitematicaDirectories;
+
+/**
+ * Analyzes and optionally converts all the schematic files in a directory tree on background threads,
+ * without going through any screens. The job settings are read from a JSON file, see {@link BatchJob}.
+ * For every file, the metadata and the block counts are written to CSV and/or JSON reports,
+ * and the schematic can be converted to another format, re-saved in the current format version
+ * and/or re-saved with the stale palette entries removed.
+ * The memory use is bounded by the number of worker threads, as each worker only holds one schematic
+ * at a time, and by a limit on the total size of the input files that are queued or being processed.
+ * The reports are written as the files finish, so nothing accumulates in memory with the library size.
+ */
+public class SchematicBatchProcessor implements IInfoHudRenderer
+{
+    public static final SchematicBatchProcessor INSTANCE = new SchematicBatchProcessor();
+
+    protected final ExecutorService coordinator = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("Litematica Batch Coordinator %d").setDaemon(true).build());
+    protected final AtomicInteger processedCount = new AtomicInteger();
+    protected final AtomicInteger convertedCount = new AtomicInteger();
+    protected final AtomicInteger failedCount = new AtomicInteger();
+    protected volatile int foundCount;
+    protected volatile boolean running;
+    protected volatile boolean cancelled;
+    protected long startTime;
+
+    protected SchematicBatchProcessor()
+    {
+    }
+
+    public static Path getJobFile()
+    {
+        return LitematicaDirectories.getBatchProcessingDirectory().resolve("batch_job.json");
+    }
+
+    public boolean isRunning()
+    {
+        return this.running;
+    }
+
+    /**
+     * Reads the job settings from the job file, and starts the job.
+     * If the job file doesn't exist yet, then it is created with the default settings
+     * for the user to edit, and nothing is started.
+     */
+    public boolean startFromJobFile()
+    {
+        Path file = getJobFile();
+
+        if (Files.exists(file) == false)
+        {
+            LitematicaDirectories.createDirectoriesIfMissingOrPrintError(file.getParent());
+            JsonUtils.writeJsonToFile(new BatchJob().toJson(), file);
+            MessageDispatcher.generic("litematica.message.info.batch_processing.job_file_created", file.toAbsolutePath());
+            return false;
+        }
+
+        JsonElement element = JsonUtils.parseJsonFile(file);
+
+        if (element == null || element.isJsonObject() == false)
+        {
+            MessageDispatcher.error("litematica.message.error.batch_processing.invalid_job_file", file.toAbsolutePath());
+            return false;
+        }
+
+        return this.start(BatchJob.fromJson(element.getAsJsonObject()));
+    }
+
+    public boolean start(BatchJob job)
+    {
+        if (this.running)
+        {
+            MessageDispatcher.warning().translate("litematica.message.warn.batch_processing.already_running");
+            return false;
+        }
+
+        if (Files.isDirectory(job.inputDirectory) == false)
+        {
+            MessageDispatcher.error("litematica.message.error.batch_processing.input_directory_not_found",
+                                    job.inputDirectory.toAbsolutePath());
+            return false;
+        }
+
+        BatchReportWriter report;
+
+        try
+        {
+            report = new BatchReportWriter(job);
+        }
+        catch (IOException e)
+        {
+            String key = "litematica.message.error.batch_processing.failed_to_create_reports";
+            MessageDispatcher.error().console(e).translate(key, e.getMessage());
+            return false;
+        }
+
+        this.processedCount.set(0);
+        this.convertedCount.set(0);
+        this.failedCount.set(0);
+        this.foundCount = 0;
+        this.cancelled = false;
+        this.running = true;
+        this.startTime = System.currentTimeMillis();
+
+        InfoHud.getInstance().addInfoHudRenderer(this, true);
+        MessageDispatcher.generic("litematica.message.info.batch_processing.started", job.inputDirectory.toAbsolutePath());
+
+        this.coordinator.execute(() -> this.run(job, report));
+
+        return true;
+    }
+
+    /**
+     * Stops the current job after the files that are already being processed have finished
+     */
+    public void cancel()
+    {
+        if (this.running && this.cancelled == false)
+        {
+            this.cancelled = true;
+            MessageDispatcher.warning().translate("litematica.message.warn.batch_processing.cancelling");
+        }
+    }
+
+    protected void run(BatchJob job, BatchReportWriter report)
+    {
+        ExecutorService workers = Executors.newFixedThreadPool(job.threads,
+                new ThreadFactoryBuilder().setNameFormat("Litematica Batch Worker %d").setDaemon(true).build());
+        // These limit the number of files, and their total size, that are queued or being processed at once
+        Semaphore queueSlots = new Semaphore(job.threads * 2);
+        Semaphore inputSizeKiB = new Semaphore(job.getMaxInputKiB());
+        boolean success = true;
+
+        try (Stream<Path> stream = Files.walk(job.inputDirectory))
+        {
+            Iterator<Path> iter = stream.filter(SchematicType.SCHEMATIC_FILE_FILTER).iterator();
+
+            while (iter.hasNext() && this.cancelled == false)
+            {
+                Path file = iter.next();
+
+                if (job.isInOutputDirectory(file))
+                {
+                    continue;
+                }
+
+                // A file larger than the limit takes the entire limit, and is then processed alone
+                final int permits = (int) Math.max(1L, Math.min(job.getMaxInputKiB(), LoadedSchematic.getFileSize(file) / 1024L));
+
+                queueSlots.acquire();
+                inputSizeKiB.acquire(permits);
+                ++this.foundCount;
+
+                workers.execute(() -> {
+                    try
+                    {
+                        this.processFile(job, file, report);
+                    }
+                    finally
+                    {
+                        inputSizeKiB.release(permits);
+                        queueSlots.release();
+                    }
+                });
+            }
+        }
+        catch (IOException e)
+        {
+            Litematica.LOGGER.warn("Batch processing: Failed to list the files in '{}'", job.inputDirectory.toAbsolutePath(), e);
+            success = false;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            success = false;
+        }
+        finally
+        {
+            workers.shutdown();
+
+            try
+            {
+                workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            report.close();
+        }
+
+        final boolean finalSuccess = success;
+        Minecraft.getMinecraft().addScheduledTask(() -> this.onFinished(job, finalSuccess));
+    }
+
+    protected void onFinished(BatchJob job, boolean success)
+    {
+        this.running = false;
+        InfoHud.getInstance().removeInfoHudRenderer(this, false);
+
+        if (success == false)
+        {
+            MessageDispatcher.error("litematica.message.error.batch_processing.failed_to_list_files",
+                                    job.inputDirectory.toAbsolutePath());
+        }
+
+        String time = String.format("%.1f", (System.currentTimeMillis() - this.startTime) / 1000.0);
+        Object[] args = { this.processedCount.get(), this.convertedCount.get(), this.failedCount.get(),
+                          time, job.reportDirectory.toAbsolutePath() };
+
+        if (this.cancelled)
+        {
+            MessageDispatcher.warning().translate("litematica.message.warn.batch_processing.cancelled", args);
+        }
+        else
+        {
+            MessageDispatcher.success().translate("litematica.message.success.batch_processing.finished", args);
+        }
+    }
+
+    protected void processFile(BatchJob job, Path file, BatchReportWriter report)
+    {
+        if (this.cancelled)
+        {
+            return;
+        }
+
+        BatchFileResult result = new BatchFileResult(job.inputDirectory.relativize(file).toString(),
+                                                     LoadedSchematic.getFileSize(file));
+
+        // The schematic readers and writers can't send their messages from the worker threads,
+        // so they are collected into the report instead
+        try (SchematicMessages.Collector messages = SchematicMessages.collect())
+        {
+            try
+            {
+                this.processSchematic(job, file, result);
+            }
+            catch (Exception e)
+            {
+                Litematica.LOGGER.warn("Batch processing: Exception while processing the schematic '{}'", file.toAbsolutePath(), e);
+                result.status = BatchFileStatus.FAILED;
+                result.error = String.valueOf(e.getMessage());
+            }
+
+            result.readMessages(messages, file);
+        }
+
+        if (result.status == BatchFileStatus.CONVERTED)
+        {
+            this.convertedCount.incrementAndGet();
+        }
+        else if (result.status.isFailure)
+        {
+            this.failedCount.incrementAndGet();
+        }
+
+        this.processedCount.incrementAndGet();
+        report.write(result);
+    }
+
+    protected void processSchematic(BatchJob job, Path file, BatchFileResult result) throws IOException
+    {
+        Optional<Schematic> schematicOpt = readSchematic(file, result);
+
+        if (schematicOpt.isPresent() == false)
+        {
+            result.status = BatchFileStatus.READ_FAILED;
+            return;
+        }
+
+        Schematic schematic = schematicOpt.get();
+        result.readSchematicInfo(schematic);
+
+        if (job.convert == false)
+        {
+            result.status = BatchFileStatus.ANALYZED;
+            return;
+        }
+
+        SchematicType outputType = job.outputType != null ? job.outputType : schematic.getType();
+        int version = getOutputVersion(schematic, outputType, job.schematicVersion);
+        boolean typeChanged = outputType != schematic.getType();
+        boolean versionChanged = version != SchematicMetadata.DEFAULT_UNSET_VERSION &&
+                                 version != schematic.getMetadata().getSchematicVersion();
+        boolean compact = job.compactPalettes && result.stalePaletteEntries > 0;
+
+        if (typeChanged == false && versionChanged == false && compact == false)
+        {
+            result.status = BatchFileStatus.UNCHANGED;
+            return;
+        }
+
+        Schematic outputSchematic = schematic;
+
+        if (typeChanged)
+        {
+            int regionCount = schematic.getRegions().size();
+
+            if (regionCount != 1 && outputType.getSupportsMultipleRegions() == false)
+            {
+                result.status = BatchFileStatus.CONVERT_FAILED;
+                result.error = "The output type only supports one region, the schematic has " + regionCount;
+                return;
+            }
+
+            Optional<Schematic> convertedOpt = outputType.createSchematicFromRegions(schematic.getRegions());
+
+            if (convertedOpt.isPresent() == false)
+            {
+                result.status = BatchFileStatus.CONVERT_FAILED;
+                result.error = "Failed to create the schematic in the output type";
+                return;
+            }
+
+            outputSchematic = convertedOpt.get();
+            SchematicMetadata meta = outputSchematic.getMetadata();
+            meta.copyFrom(schematic.getMetadata());
+            meta.setTimeModifiedToNow();
+        }
+
+        if (version != SchematicMetadata.DEFAULT_UNSET_VERSION)
+        {
+            outputSchematic.getMetadata().setSchematicVersion(version);
+        }
+
+        if (job.compactPalettes)
+        {
+            for (SchematicRegion region : outputSchematic.getRegions().values())
+            {
+                region.getBlockContainer().compactPalette();
+            }
+        }
+
+        Path outputFile = job.getOutputFile(file, outputSchematic);
+        Files.createDirectories(outputFile.getParent());
+
+        if (writeSchematic(outputSchematic, outputFile, job.overwrite, job.compression, result))
+        {
+            result.status = BatchFileStatus.CONVERTED;
+            result.outputFile = outputFile.toAbsolutePath().toString();
+        }
+        else
+        {
+            result.status = BatchFileStatus.WRITE_FAILED;
+        }
+    }
+
+    /**
+     * Reads the schematic the same way as {@link LoadedSchematic#tryLoadSchematic(Path)},
+     * but records the reason of a failure in the result, instead of it getting lost.
+     * The messages of the format readers are collected by {@link #processFile(BatchJob, Path, BatchReportWriter)}.
+     */
+    protected static Optional<Schematic> readSchematic(Path file, BatchFileResult result)
+    {
+        if (SectionedSchematicFile.getSectionDataStart(file) >= 0)
+        {
+            Optional<Schematic> schematicOpt = SectionedSchematicFile.readFromFile(file);
+
+            if (schematicOpt.isPresent() == false)
+            {
+                result.error = "Failed to read the sectioned schematic file";
+            }
+
+            return schematicOpt;
+        }
+
+        if (LitematicaFileReader.shouldReadFile(file))
+        {
+            Optional<Schematic> schematicOpt = LitematicaFileReader.readFromFile(file);
+
+            if (schematicOpt.isPresent() == false)
+            {
+                result.error = "Failed to read the litematic file";
+            }
+
+            return schematicOpt;
+        }
+
+        CompoundData data = DataFileUtils.readCompoundDataFromNbtFile(file);
+
+        if (data == null)
+        {
+            result.error = "Failed to read the NBT data from the file";
+            return Optional.empty();
+        }
+
+        Optional<SchematicType> typeOpt = SchematicType.getTypeFromData(file, data);
+
+        if (typeOpt.isPresent() == false)
+        {
+            result.error = "Unrecognized schematic type";
+            return Optional.empty();
+        }
+
+        Optional<Schematic> schematicOpt = typeOpt.get().createSchematicFromData(data);
+
+        if (schematicOpt.isPresent() == false)
+        {
+            result.error = "Failed to read the schematic data";
+        }
+
+        return schematicOpt;
+    }
+
+    /**
+     * Writes the schematic the same way as {@link SchematicFileUtils#writeToFile(Schematic, Path, boolean, CompressionMode)},
+     * but only uses the file helpers that don't report via the MessageDispatcher,
+     * and records the reason of a failure in the result instead.
+     */
+    protected static boolean writeSchematic(Schematic schematic, Path file, boolean overwrite,
+                                            CompressionMode compression, BatchFileResult result)
+    {
+        if (Files.exists(file))
+        {
+            if (overwrite == false)
+            {
+                result.error = "The output file already exists";
+                return false;
+            }
+
+            if (Files.isWritable(file) == false)
+            {
+                result.error = "The output file is not writable";
+                return false;
+            }
+        }
+
+        if (schematic.getRegions().isEmpty())
+        {
+            result.error = "The schematic has no regions";
+            return false;
+        }
+
+        if (SchematicFileUtils.supportsDirectWrite(schematic))
+        {
+            if (SchematicFileUtils.writeStreamToFile(schematic, file, compression) == false)
+            {
+                result.error = "Failed to write the file";
+                return false;
+            }
+
+            return true;
+        }
+
+        Optional<CompoundData> data = schematic.write();
+
+        if (data.isPresent() == false || data.get().size() == 0)
+        {
+            result.error = "Failed to serialize the schematic";
+            return false;
+        }
+
+        if (SchematicFileUtils.writeDataToFile(data.get(), schematic.getRootTagName(), file, compression) == false)
+        {
+            result.error = "Failed to write the file";
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the schematic version to save the schematic as in the given output type,
+     * or {@link SchematicMetadata#DEFAULT_UNSET_VERSION} if the type doesn't have different versions.
+     * Without an explicitly requested version, the schematic's current version is kept
+     * if it's still a savable version, so that only old versions get re-encoded.
+     */
+    protected static int getOutputVersion(Schematic schematic, SchematicType outputType, int requestedVersion)
+    {
+        List<Integer> versions = outputType.getSavableVersions();
+
+        if (versions.isEmpty())
+        {
+            return SchematicMetadata.DEFAULT_UNSET_VERSION;
+        }
+
+        if (versions.contains(requestedVersion))
+        {
+            return requestedVersion;
+        }
+
+        int currentVersion = schematic.getMetadata().getSchematicVersion();
+
+        if (outputType == schematic.getType() && versions.contains(currentVersion))
+        {
+            return currentVersion;
+        }
+
+        return outputType.getDefaultSaveVersion();
+    }
+
+    @Override
+    public boolean getShouldRenderText(RenderPhase phase)
+    {
+        return phase == RenderPhase.POST && this.running;
+    }
+
+    @Override
+    public boolean shouldRenderInGuis()
+    {
+        return true;
+    }
+
+    @Override
+    public List<String> getText(RenderPhase phase)
+    {
+        List<String> lines = new ArrayList<>();
+        String time = String.format("%.1f", (System.currentTimeMillis() - this.startTime) / 1000.0);
+
+        lines.add(StringUtils.translate("litematica.hud.batch_processing.progress",
+                                        this.processedCount.get(), this.foundCount,
+                                        this.convertedCount.get(), this.failedCount.get(), time));
+
+        return lines;
+    }
+
+    /**
+     * The settings of a batch job. The paths in the job file can be absolute,
+     * or relative to the game directory.
+     */
+    public static class BatchJob
+    {
+        protected Path inputDirectory = LitematicaDirectories.getSchematicsBaseDirectory();
+        protected Path outputDirectory = LitematicaDirectories.getBatchProcessingDirectory().resolve("output");
+        protected Path reportDirectory = LitematicaDirectories.getBatchProcessingDirectory().resolve("reports");
+        @Nullable protected SchematicType outputType;
+        protected CompressionMode compression = CompressionMode.STANDARD;
+        protected int schematicVersion = SchematicMetadata.DEFAULT_UNSET_VERSION;
+        protected int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        protected int maxInputMiB = 64;
+        protected boolean convert = true;
+        protected boolean compactPalettes = true;
+        protected boolean overwrite;
+        protected boolean csvReport = true;
+        protected boolean jsonReport = true;
+
+        protected int getMaxInputKiB()
+        {
+            return this.maxInputMiB * 1024;
+        }
+
+        protected boolean isInOutputDirectory(Path file)
+        {
+            Path outputDir = this.outputDirectory.toAbsolutePath().normalize();
+
+            // Converting in place, the written files are also valid input files
+            if (outputDir.equals(this.inputDirectory.toAbsolutePath().normalize()))
+            {
+                return false;
+            }
+
+            return file.toAbsolutePath().normalize().startsWith(outputDir);
+        }
+
+        /**
+         * @return the output file for the given input file, in the same relative sub-directory
+         * under the output directory, and with the file name extension of the output schematic's type
+         */
+        protected Path getOutputFile(Path inputFile, Schematic schematic)
+        {
+            Path relativeDir = this.inputDirectory.relativize(inputFile).getParent();
+            Path dir = relativeDir != null ? this.outputDirectory.resolve(relativeDir.toString()) : this.outputDirectory;
+            String name = FileNameUtils.getFileNameWithoutExtension(inputFile.getFileName().toString());
+
+            return SchematicFileUtils.getFileWithExtension(schematic, dir.resolve(name));
+        }
+
+        public JsonObject toJson()
+        {
+            JsonObject obj = new JsonObject();
+
+            obj.addProperty("input_directory", this.inputDirectory.toAbsolutePath().toString());
+            obj.addProperty("output_directory", this.outputDirectory.toAbsolutePath().toString());
+            obj.addProperty("report_directory", this.reportDirectory.toAbsolutePath().toString());
+            obj.addProperty("output_type", this.outputType != null ? this.outputType.getFileNameExtension() : "");
+            obj.addProperty("schematic_version", this.schematicVersion);
+            obj.addProperty("compression", this.compression.getName());
+            obj.addProperty("convert", this.convert);
+            obj.addProperty("compact_palettes", this.compactPalettes);
+            obj.addProperty("overwrite", this.overwrite);
+            obj.addProperty("csv_report", this.csvReport);
+            obj.addProperty("json_report", this.jsonReport);
+            obj.addProperty("threads", this.threads);
+            obj.addProperty("max_input_mib", this.maxInputMiB);
+
+            return obj;
+        }
+
+        public static BatchJob fromJson(JsonObject obj)
+        {
+            BatchJob job = new BatchJob();
+
+            job.inputDirectory = getPath(obj, "input_directory", job.inputDirectory);
+            job.outputDirectory = getPath(obj, "output_directory", job.outputDirectory);
+            job.reportDirectory = getPath(obj, "report_directory", job.reportDirectory);
+            job.outputType = getTypeFromExtension(JsonUtils.getStringOrDefault(obj, "output_type", ""));
+            job.schematicVersion = JsonUtils.getIntegerOrDefault(obj, "schematic_version", job.schematicVersion);
+            job.compression = CompressionMode.findValueByName(JsonUtils.getStringOrDefault(obj, "compression", ""), CompressionMode.VALUES);
+            job.convert = JsonUtils.getBooleanOrDefault(obj, "convert", job.convert);
+            job.compactPalettes = JsonUtils.getBooleanOrDefault(obj, "compact_palettes", job.compactPalettes);
+            job.overwrite = JsonUtils.getBooleanOrDefault(obj, "overwrite", job.overwrite);
+            job.csvReport = JsonUtils.getBooleanOrDefault(obj, "csv_report", job.csvReport);
+            job.jsonReport = JsonUtils.getBooleanOrDefault(obj, "json_report", job.jsonReport);
+            job.threads = Math.max(1, Math.min(64, JsonUtils.getIntegerOrDefault(obj, "threads", job.threads)));
+            job.maxInputMiB = Math.max(1, Math.min(65536, JsonUtils.getIntegerOrDefault(obj, "max_input_mib", job.maxInputMiB)));
+
+            return job;
+        }
+
+        protected static Path getPath(JsonObject obj, String name, Path defaultValue)
+        {
+            String str = JsonUtils.getStringOrDefault(obj, name, "");
+
+            if (str.trim().isEmpty())
+            {
+                return defaultValue;
+            }
+
+            Path path = Paths.get(str);
+
+            return path.isAbsolute() ? path : FileUtils.getMinecraftDirectory().resolve(path);
+        }
+
+        @Nullable
+        protected static SchematicType getTypeFromExtension(String extension)
+        {
+            if (extension.isEmpty())
+            {
+                return null;
+            }
+
+            List<SchematicType> types = SchematicType.getPossibleTypesFromFileName("file." + extension);
+
+            if (types.isEmpty())
+            {
+                Litematica.LOGGER.warn("Batch processing: Unknown output schematic type '{}', keeping the original types", extension);
+                return null;
+            }
+
+            return types.get(0);
+        }
+    }
+
+    protected enum BatchFileStatus
+    {
+        ANALYZED        ("analyzed",        false),
+        UNCHANGED       ("unchanged",       false),
+        CONVERTED       ("converted",       false),
+        READ_FAILED     ("read_failed",     true),
+        CONVERT_FAILED  ("convert_failed",  true),
+        WRITE_FAILED    ("write_failed",    true),
+        FAILED          ("failed",          true);
+
+        protected final String name;
+        protected final boolean isFailure;
+
+        BatchFileStatus(String name, boolean isFailure)
+        {
+            this.name = name;
+            this.isFailure = isFailure;
+        }
+    }
+
+    protected static class BatchFileResult
+    {
+        protected final Object2LongOpenHashMap<BlockState> blockCounts = new Object2LongOpenHashMap<>();
+        protected final String file;
+        protected final long fileSize;
+        protected BatchFileStatus status = BatchFileStatus.FAILED;
+        protected String type = "";
+        protected String name = "";
+        protected String author = "";
+        protected String outputFile = "";
+        protected String error = "";
+        protected final List<String> messages = new ArrayList<>();
+        protected Vec3i enclosingSize = Vec3i.ZERO;
+        protected int schematicVersion = SchematicMetadata.DEFAULT_UNSET_VERSION;
+        protected int minecraftDataVersion;
+        protected int regionCount;
+        protected long totalVolume;
+        protected long totalBlocks;
+        protected long blockEntityCount;
+        protected long entityCount;
+        protected int stalePaletteEntries;
+
+        protected BatchFileResult(String file, long fileSize)
+        {
+            this.file = file;
+            this.fileSize = fileSize;
+        }
+
+        protected void readSchematicInfo(Schematic schematic)
+        {
+            SchematicMetadata meta = schematic.getMetadata();
+
+            this.type = schematic.getType().getFileNameExtension();
+            this.name = meta.getSchematicName();
+            this.author = meta.getAuthor();
+            this.schematicVersion = meta.getSchematicVersion();
+            this.minecraftDataVersion = meta.getMinecraftVersion().dataVersion;
+            this.regionCount = schematic.getRegions().size();
+            this.totalVolume = meta.getTotalVolume();
+
+            if (meta.getEnclosingSize() != null)
+            {
+                this.enclosingSize = meta.getEnclosingSize();
+            }
+
+            for (SchematicRegion region : schematic.getRegions().values())
+            {
+                BlockContainer container = region.getBlockContainer();
+
+                // Same source for the counts as the material lists use
+                for (Map.Entry<BlockState, Long> entry : container.getBlockCountsMap().entrySet())
+                {
+                    long count = entry.getValue().longValue();
+
+                    if (count > 0)
+                    {
+                        this.blockCounts.addTo(entry.getKey(), count);
+                    }
+                    else
+                    {
+                        ++this.stalePaletteEntries;
+                    }
+                }
+
+                this.blockEntityCount += region.getBlockEntityMap().size();
+                this.entityCount += region.getEntityList().size();
+            }
+
+            for (Object2LongMap.Entry<BlockState> entry : this.blockCounts.object2LongEntrySet())
+            {
+                if (entry.getKey().vanillaState().getBlock() != Blocks.AIR)
+                {
+                    this.totalBlocks += entry.getLongValue();
+                }
+            }
+        }
+
+        protected void readMessages(SchematicMessages.Collector collector, Path file)
+        {
+            for (SchematicMessages.Message message : collector.getMessages())
+            {
+                if (message.exception != null)
+                {
+                    Litematica.LOGGER.warn("Batch processing: Exception while processing the schematic '{}'",
+                                           file.toAbsolutePath(), message.exception);
+                }
+
+                this.messages.add(message.getTranslatedMessage());
+            }
+        }
+
+        /**
+         * @return the block counts with the block state strings, sorted by the count, largest first
+         */
+        protected List<Map.Entry<String, Long>> getSortedBlockCounts()
+        {
+            List<Map.Entry<String, Long>> list = new ArrayList<>();
+
+            for (Object2LongMap.Entry<BlockState> entry : this.blockCounts.object2LongEntrySet())
+            {
+                String state = entry.getKey().vanillaState().toString();
+                list.add(new AbstractMap.SimpleEntry<>(state, entry.getLongValue()));
+            }
+
+            list.sort((e1, e2) -> Long.compare(e2.getValue(), e1.getValue()));
+
+            return list;
+        }
+    }
+
+    /**
+     * Writes the results to the report files as they come in.
+     * The CSV report is split into a summary file with one line per schematic,
+     * and a block counts file with one line per block state per schematic.
+     */
+    protected static class BatchReportWriter
+    {
+        @Nullable protected final BufferedWriter summaryCsv;
+        @Nullable protected final BufferedWriter blockCountsCsv;
+        @Nullable protected final BufferedWriter json;
+        protected boolean firstJsonEntry = true;
+        protected boolean failed;
+
+        protected BatchReportWriter(BatchJob job) throws IOException
+        {
+            Files.createDirectories(job.reportDirectory);
+
+            String baseName = "batch_" + new SimpleDateFormat("yyyy-MM-dd_HH.mm.ss").format(new Date());
+
+            if (job.csvReport)
+            {
+                this.summaryCsv = Files.newBufferedWriter(job.reportDirectory.resolve(baseName + "_schematics.csv"), StandardCharsets.UTF_8);
+                this.blockCountsCsv = Files.newBufferedWriter(job.reportDirectory.resolve(baseName + "_block_counts.csv"), StandardCharsets.UTF_8);
+                this.summaryCsv.write("file,type,schematic_version,mc_data_version,name,author,regions,size_x,size_y,size_z," +
+                                      "total_volume,total_blocks,block_entities,entities,file_size,stale_palette_entries," +
+                                      "status,output_file,error,messages\n");
+                this.blockCountsCsv.write("file,block_state,count\n");
+            }
+            else
+            {
+                this.summaryCsv = null;
+                this.blockCountsCsv = null;
+            }
+
+            if (job.jsonReport)
+            {
+                this.json = Files.newBufferedWriter(job.reportDirectory.resolve(baseName + ".json"), StandardCharsets.UTF_8);
+                this.json.write("[\n");
+            }
+            else
+            {
+                this.json = null;
+            }
+        }
+
+        protected synchronized void write(BatchFileResult result)
+        {
+            if (this.failed)
+            {
+                return;
+            }
+
+            try
+            {
+                List<Map.Entry<String, Long>> blockCounts = result.getSortedBlockCounts();
+
+                if (this.summaryCsv != null && this.blockCountsCsv != null)
+                {
+                    this.writeCsv(result, blockCounts);
+                }
+
+                if (this.json != null)
+                {
+                    this.writeJson(result, blockCounts);
+                }
+            }
+            catch (IOException e)
+            {
+                Litematica.LOGGER.warn("Batch processing: Failed to write to the report files", e);
+                this.failed = true;
+            }
+        }
+
+        protected void writeCsv(BatchFileResult result, List<Map.Entry<String, Long>> blockCounts) throws IOException
+        {
+            Vec3i size = result.enclosingSize;
+            String file = escapeCsv(result.file);
+
+            this.summaryCsv.write(String.join(",", file,
+                                              result.type,
+                                              String.valueOf(result.schematicVersion),
+                                              String.valueOf(result.minecraftDataVersion),
+                                              escapeCsv(result.name),
+                                              escapeCsv(result.author),
+                                              String.valueOf(result.regionCount),
+                                              String.valueOf(size.getX()),
+                                              String.valueOf(size.getY()),
+                                              String.valueOf(size.getZ()),
+                                              String.valueOf(result.totalVolume),
+                                              String.valueOf(result.totalBlocks),
+                                              String.valueOf(result.blockEntityCount),
+                                              String.valueOf(result.entityCount),
+                                              String.valueOf(result.fileSize),
+                                              String.valueOf(result.stalePaletteEntries),
+                                              result.status.name,
+                                              escapeCsv(result.outputFile),
+                                              escapeCsv(result.error),
+                                              escapeCsv(String.join(" | ", result.messages))));
+            this.summaryCsv.write('\n');
+
+            for (Map.Entry<String, Long> entry : blockCounts)
+            {
+                this.blockCountsCsv.write(file + "," + escapeCsv(entry.getKey()) + "," + entry.getValue() + "\n");
+            }
+        }
+
+        protected void writeJson(BatchFileResult result, List<Map.Entry<String, Long>> blockCounts) throws IOException
+        {
+            JsonObject obj = new JsonObject();
+            JsonObject countsObj = new JsonObject();
+
+            obj.addProperty("file", result.file);
+            obj.addProperty("type", result.type);
+            obj.addProperty("schematic_version", result.schematicVersion);
+            obj.addProperty("mc_data_version", result.minecraftDataVersion);
+            obj.addProperty("name", result.name);
+            obj.addProperty("author", result.author);
+            obj.addProperty("regions", result.regionCount);
+            obj.addProperty("size_x", result.enclosingSize.getX());
+            obj.addProperty("size_y", result.enclosingSize.getY());
+            obj.addProperty("size_z", result.enclosingSize.getZ());
+            obj.addProperty("total_volume", result.totalVolume);
+            obj.addProperty("total_blocks", result.totalBlocks);
+            obj.addProperty("block_entities", result.blockEntityCount);
+            obj.addProperty("entities", result.entityCount);
+            obj.addProperty("file_size", result.fileSize);
+            obj.addProperty("stale_palette_entries", result.stalePaletteEntries);
+            obj.addProperty("status", result.status.name);
+
+            if (result.outputFile.isEmpty() == false)
+            {
+                obj.addProperty("output_file", result.outputFile);
+            }
+
+            if (result.error.isEmpty() == false)
+            {
+                obj.addProperty("error", result.error);
+            }
+
+            if (result.messages.isEmpty() == false)
+            {
+                JsonArray messagesArr = new JsonArray();
+                result.messages.forEach(messagesArr::add);
+                obj.add("messages", messagesArr);
+            }
+
+            for (Map.Entry<String, Long> entry : blockCounts)
+            {
+                countsObj.addProperty(entry.getKey(), entry.getValue());
+            }
+
+            obj.add("block_counts", countsObj);
+
+            if (this.firstJsonEntry == false)
+            {
+                this.json.write(",\n");
+            }
+
+            this.json.write(obj.toString());
+            this.firstJsonEntry = false;
+        }
+
+        protected synchronized void close()
+        {
+            try
+            {
+                if (this.summaryCsv != null)
+                {
+                    this.summaryCsv.close();
+                }
+
+                if (this.blockCountsCsv != null)
+                {
+                    this.blockCountsCsv.close();
+                }
+
+                if (this.json != null)
+                {
+                    this.json.write("\n]\n");
+                    this.json.close();
+                }
+            }
+            catch (IOException e)
+            {
+                Litematica.LOGGER.warn("Batch processing: Failed to close the report files", e);
+            }
+        }
+
+        protected static String escapeCsv(String value)
+        {
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0)
+            {
+                return "\"" + value.replace("\"", "\"\"") + "\"";
+            }
+
+            return value;
+        }
+    }
+}
@@ -0,0 +1,527 @@
+package litematica.schematic.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import malilib.overlay.message.MessageDispatcher;
+import malilib.util.data.EnabledCondition;
+import malilib.util.position.BlockPos;
+import malilib.util.position.ChunkPos;
+import malilib.util.position.Vec3i;
+import malilib.util.world.BlockState;
+import litematica.config.Configs;
+import litematica.data.DataManager;
+import litematica.schematic.LoadedSchematic;
+import litematica.schematic.SchematicMetadata;
+import litematica.schematic.SchematicRegion;
+import litematica.schematic.container.BlockContainer;
+import litematica.schematic.placement.SchematicPlacement;
+import litematica.schematic.placement.SchematicPlacementManager;
+import litematica.schematic.placement.SubRegionPlacement;
+
+/**
+ * An undo/redo journal for the Schematic Edit mode operations.
+ * Each operation only stores the positions it changed, as runs of consecutive container indices
+ * that had the same old state and got the same new state, using a small per-operation palette.
+ * A region-wide replacement done via the container's palette is stored as just the replace rule,
+ * if it can be reversed by the opposite replacement, ie. if the new state did not exist in the region before.
+ * The total size of the stored operations is limited by the configured memory budget,
+ * and the oldest operations are discarded first.
+ */
+public class SchematicEditJournal
+{
+    public static final SchematicEditJournal INSTANCE = new SchematicEditJournal();
+
+    protected final ArrayDeque<EditOperation> undoOperations = new ArrayDeque<>();
+    protected final ArrayDeque<EditOperation> redoOperations = new ArrayDeque<>();
+    protected long usedMemory;
+
+    public static long getMemoryBudget()
+    {
+        return Configs.Generic.SCHEMATIC_EDIT_UNDO_MEMORY.getIntegerValue() * 1024L * 1024L;
+    }
+
+    /**
+     * @return a new operation for recording the changes made to the given schematic,
+     * or null if the journal is disabled
+     */
+    @Nullable
+    public EditOperation startOperation(LoadedSchematic loadedSchematic)
+    {
+        long budget = getMemoryBudget();
+
+        if (budget <= 0)
+        {
+            // Any older operations could not be undone correctly past this unrecorded change
+            this.removeOperationsOf(loadedSchematic);
+            return null;
+        }
+
+        return new EditOperation(loadedSchematic, budget);
+    }
+
+    /**
+     * Adds the finished operation to the journal, and discards any operations that were undone before it
+     */
+    public void finishOperation(@Nullable EditOperation operation)
+    {
+        if (operation == null || operation.isEmpty())
+        {
+            return;
+        }
+
+        if (operation.exceededBudget)
+        {
+            // The earlier operations of the schematic can't be undone in order past this one
+            this.removeOperationsOf(operation.loadedSchematic);
+            MessageDispatcher.warning().translate("litematica.message.warn.schematic_edit_journal.operation_too_large");
+            return;
+        }
+
+        operation.totalBlocksAfter = operation.loadedSchematic.schematic.getMetadata().getTotalBlocks();
+
+        for (EditOperation op : this.redoOperations)
+        {
+            this.usedMemory -= op.memoryUsage;
+        }
+
+        this.redoOperations.clear();
+        this.undoOperations.addLast(operation);
+        this.usedMemory += operation.memoryUsage;
+
+        long budget = getMemoryBudget();
+
+        while (this.usedMemory > budget && this.undoOperations.isEmpty() == false)
+        {
+            this.usedMemory -= this.undoOperations.removeFirst().memoryUsage;
+        }
+    }
+
+    public boolean undo()
+    {
+        EditOperation operation = this.undoOperations.pollLast();
+
+        if (operation == null)
+        {
+            MessageDispatcher.warning().translate("litematica.message.warn.schematic_edit_journal.nothing_to_undo");
+            return false;
+        }
+
+        operation.apply(false);
+        this.redoOperations.addLast(operation);
+        MessageDispatcher.success().translate("litematica.message.info.schematic_edit_journal.undone", operation.changedBlocks);
+
+        return true;
+    }
+
+    public boolean redo()
+    {
+        EditOperation operation = this.redoOperations.pollLast();
+
+        if (operation == null)
+        {
+            MessageDispatcher.warning().translate("litematica.message.warn.schematic_edit_journal.nothing_to_redo");
+            return false;
+        }
+
+        operation.apply(true);
+        this.undoOperations.addLast(operation);
+        MessageDispatcher.success().translate("litematica.message.info.schematic_edit_journal.redone", operation.changedBlocks);
+
+        return true;
+    }
+
+    /**
+     * Removes all the operations of the given schematic. This needs to be called when
+     * the schematic gets unloaded, or changed in any other way than via the journaled operations.
+     */
+    public void removeOperationsOf(LoadedSchematic loadedSchematic)
+    {
+        this.removeOperationsOf(loadedSchematic, this.undoOperations);
+        this.removeOperationsOf(loadedSchematic, this.redoOperations);
+    }
+
+    protected void removeOperationsOf(LoadedSchematic loadedSchematic, ArrayDeque<EditOperation> operations)
+    {
+        Iterator<EditOperation> iter = operations.iterator();
+
+        while (iter.hasNext())
+        {
+            EditOperation op = iter.next();
+
+            if (op.loadedSchematic == loadedSchematic)
+            {
+                this.usedMemory -= op.memoryUsage;
+                iter.remove();
+            }
+        }
+    }
+
+    public void clear()
+    {
+        this.undoOperations.clear();
+        this.redoOperations.clear();
+        this.usedMemory = 0;
+    }
+
+    public static class EditOperation
+    {
+        protected final LoadedSchematic loadedSchematic;
+        protected final List<RegionChange> changes = new ArrayList<>();
+        protected final long memoryBudget;
+        protected final long totalBlocksBefore;
+        protected long totalBlocksAfter;
+        protected long changedBlocks;
+        protected long memoryUsage;
+        protected boolean exceededBudget;
+        @Nullable protected BlockRunChange lastBlockChange;
+
+        protected EditOperation(LoadedSchematic loadedSchematic, long memoryBudget)
+        {
+            this.loadedSchematic = loadedSchematic;
+            this.memoryBudget = memoryBudget;
+            this.totalBlocksBefore = loadedSchematic.schematic.getMetadata().getTotalBlocks();
+            this.totalBlocksAfter = this.totalBlocksBefore;
+        }
+
+        public boolean isEmpty()
+        {
+            return this.changes.isEmpty() && this.exceededBudget == false;
+        }
+
+        /**
+         * Records a change of a single position. This must be called before the change is made to the container.
+         */
+        public void recordBlockChange(String regionName, BlockContainer container,
+                                      int x, int y, int z, BlockState oldState, BlockState newState)
+        {
+            if (this.exceededBudget || oldState.equals(newState))
+            {
+                return;
+            }
+
+            BlockRunChange change = this.lastBlockChange;
+
+            if (change == null || change.regionName.equals(regionName) == false)
+            {
+                change = new BlockRunChange(regionName, container.getSize());
+                this.changes.add(change);
+                this.lastBlockChange = change;
+            }
+
+            this.memoryUsage += change.add(x, y, z, oldState, newState);
+            ++this.changedBlocks;
+
+            if (this.memoryUsage > this.memoryBudget)
+            {
+                this.exceededBudget = true;
+                this.changes.clear();
+                this.lastBlockChange = null;
+            }
+        }
+
+        /**
+         * @return true if a replacement of <b>from</b> with <b>to</b> in the entire container
+         * can be recorded as just the replace rule, ie. if there are no existing <b>to</b> states in the container
+         */
+        public static boolean canRecordAsReplaceRule(BlockContainer container, BlockState to)
+        {
+            return container.getBlockCountsMap().getLong(to) == 0;
+        }
+
+        /**
+         * Records a replacement of every <b>from</b> state in the region with the <b>to</b> state
+         */
+        public void recordReplaceRule(String regionName, BlockState from, BlockState to, long count)
+        {
+            if (this.exceededBudget == false && count > 0)
+            {
+                this.changes.add(new ReplaceRuleChange(regionName, from, to));
+                this.lastBlockChange = null;
+                this.memoryUsage += 64;
+                this.changedBlocks += count;
+            }
+        }
+
+        protected void apply(boolean forward)
+        {
+            SchematicMetadata metadata = this.loadedSchematic.schematic.getMetadata();
+            LongOpenHashSet chunks = new LongOpenHashSet();
+
+            if (forward)
+            {
+                for (RegionChange change : this.changes)
+                {
+                    this.applyChange(change, true, chunks);
+                }
+            }
+            else
+            {
+                for (int i = this.changes.size() - 1; i >= 0; --i)
+                {
+                    this.applyChange(this.changes.get(i), false, chunks);
+                }
+            }
+
+            metadata.setTotalBlocks(forward ? this.totalBlocksAfter : this.totalBlocksBefore);
+            metadata.setTimeModifiedToNow();
+            this.loadedSchematic.setModifiedSinceSaved();
+
+            DataManager.getSchematicPlacementManager().markChunksForRebuild(chunks);
+        }
+
+        protected void applyChange(RegionChange change, boolean forward, LongOpenHashSet chunksOut)
+        {
+            SchematicRegion region = this.loadedSchematic.schematic.getRegions().get(change.regionName);
+
+            if (region == null)
+            {
+                return;
+            }
+
+            BlockContainer container = region.getBlockContainer();
+            change.apply(container, forward);
+
+            Vec3i size = container.getSize();
+            BlockPos min = change.getMinPos();
+            BlockPos max = change.getMaxPos(size);
+            addTouchedChunks(this.loadedSchematic, change.regionName, region.getSize(), min, max, chunksOut);
+        }
+
+        /**
+         * Adds the chunks of all the placements of the schematic that contain the given container area in the region
+         */
+        protected static void addTouchedChunks(LoadedSchematic loadedSchematic, String regionName, Vec3i regionSize,
+                                               BlockPos min, BlockPos max, LongOpenHashSet chunksOut)
+        {
+            SchematicPlacementManager manager = DataManager.getSchematicPlacementManager();
+
+            for (SchematicPlacement placement : manager.getAllPlacementsOfSchematic(loadedSchematic))
+            {
+                SubRegionPlacement regionPlacement = placement.getSubRegion(regionName);
+
+                if (regionPlacement == null ||
+                    placement.matchesRequirement(EnabledCondition.ENABLED) == false ||
+                    regionPlacement.matchesRequirement(EnabledCondition.ENABLED) == false)
+                {
+                    continue;
+                }
+
+                BlockPos pos1 = SchematicUtils.getWorldPositionFromSchematicContainerPosition(min, placement, regionPlacement, regionSize);
+                BlockPos pos2 = SchematicUtils.getWorldPositionFromSchematicContainerPosition(max, placement, regionPlacement, regionSize);
+                final int minCX = Math.min(pos1.getX(), pos2.getX()) >> 4;
+                final int minCZ = Math.min(pos1.getZ(), pos2.getZ()) >> 4;
+                final int maxCX = Math.max(pos1.getX(), pos2.getX()) >> 4;
+                final int maxCZ = Math.max(pos1.getZ(), pos2.getZ()) >> 4;
+
+                for (int cz = minCZ; cz <= maxCZ; ++cz)
+                {
+                    for (int cx = minCX; cx <= maxCX; ++cx)
+                    {
+                        chunksOut.add(ChunkPos.asLong(cx, cz));
+                    }
+                }
+            }
+        }
+    }
+
+    protected abstract static class RegionChange
+    {
+        protected final String regionName;
+
+        protected RegionChange(String regionName)
+        {
+            this.regionName = regionName;
+        }
+
+        protected abstract void apply(BlockContainer container, boolean forward);
+
+        protected abstract BlockPos getMinPos();
+
+        protected abstract BlockPos getMaxPos(Vec3i containerSize);
+    }
+
+    /**
+     * The changed positions of one region, as runs of consecutive container indices (in the y, z, x order)
+     * which all had the same old state and got the same new state
+     */
+    protected static class BlockRunChange extends RegionChange
+    {
+        protected final List<BlockState> palette = new ArrayList<>();
+        protected final Object2IntOpenHashMap<BlockState> paletteIds = new Object2IntOpenHashMap<>();
+        protected final LongArrayList runStarts = new LongArrayList();
+        protected final IntArrayList runLengths = new IntArrayList();
+        /** The old palette id in the upper 32 bits, the new palette id in the lower 32 bits */
+        protected final LongArrayList runIds = new LongArrayList();
+        protected final int sizeX;
+        protected final int sizeZ;
+        protected final long sizeLayer;
+        protected int minX = Integer.MAX_VALUE;
+        protected int minY = Integer.MAX_VALUE;
+        protected int minZ = Integer.MAX_VALUE;
+        protected int maxX = Integer.MIN_VALUE;
+        protected int maxY = Integer.MIN_VALUE;
+        protected int maxZ = Integer.MIN_VALUE;
+
+        protected BlockRunChange(String regionName, Vec3i containerSize)
+        {
+            super(regionName);
+
+            this.sizeX = containerSize.getX();
+            this.sizeZ = containerSize.getZ();
+            this.sizeLayer = (long) this.sizeX * this.sizeZ;
+            this.paletteIds.defaultReturnValue(-1);
+        }
+
+        /**
+         * @return the number of bytes of memory the change used
+         */
+        protected long add(int x, int y, int z, BlockState oldState, BlockState newState)
+        {
+            long memory = 0;
+            int oldId = this.paletteIds.getInt(oldState);
+            int newId = this.paletteIds.getInt(newState);
+
+            if (oldId == -1)
+            {
+                oldId = this.addPaletteEntry(oldState);
+                memory += 32;
+            }
+
+            if (newId == -1)
+            {
+                newId = this.addPaletteEntry(newState);
+                memory += 32;
+            }
+
+            long index = (long) y * this.sizeLayer + (long) z * this.sizeX + x;
+            long ids = ((long) oldId << 32) | ((long) newId & 0xFFFFFFFFL);
+            int last = this.runStarts.size() - 1;
+
+            this.minX = Math.min(this.minX, x);
+            this.minY = Math.min(this.minY, y);
+            this.minZ = Math.min(this.minZ, z);
+            this.maxX = Math.max(this.maxX, x);
+            this.maxY = Math.max(this.maxY, y);
+            this.maxZ = Math.max(this.maxZ, z);
+
+            if (last >= 0 &&
+                this.runIds.getLong(last) == ids &&
+                this.runStarts.getLong(last) + this.runLengths.getInt(last) == index)
+            {
+                this.runLengths.set(last, this.runLengths.getInt(last) + 1);
+                return memory;
+            }
+
+            this.runStarts.add(index);
+            this.runLengths.add(1);
+            this.runIds.add(ids);
+
+            // One long, one int and one long per run
+            return memory + 20;
+        }
+
+        protected int addPaletteEntry(BlockState state)
+        {
+            int id = this.palette.size();
+            this.palette.add(state);
+            this.paletteIds.put(state, id);
+            return id;
+        }
+
+        @Override
+        protected void apply(BlockContainer container, boolean forward)
+        {
+            final int shift = forward ? 0 : 32;
+            final int count = this.runStarts.size();
+
+            for (int i = 0; i < count; ++i)
+            {
+                BlockState state = this.palette.get((int) (this.runIds.getLong(i) >>> shift));
+                long index = this.runStarts.getLong(i);
+                int length = this.runLengths.getInt(i);
+                int x = (int) (index % this.sizeX);
+                int y = (int) (index / this.sizeLayer);
+                int z = (int) ((index % this.sizeLayer) / this.sizeX);
+
+                for (int j = 0; j < length; ++j)
+                {
+                    container.setBlockState(x, y, z, state);
+
+                    if (++x >= this.sizeX)
+                    {
+                        x = 0;
+
+                        if (++z >= this.sizeZ)
+                        {
+                            z = 0;
+                            ++y;
+                        }
+                    }
+                }
+            }
+        }
+
+        @Override
+        protected BlockPos getMinPos()
+        {
+            return new BlockPos(this.minX, this.minY, this.minZ);
+        }
+
+        @Override
+        protected BlockPos getMaxPos(Vec3i containerSize)
+        {
+            return new BlockPos(this.maxX, this.maxY, this.maxZ);
+        }
+    }
+
+    /**
+     * A replacement of all the <b>from</b> states in the region with the <b>to</b> state,
+     * where the region did not have any <b>to</b> states before, so that the opposite replacement undoes it
+     */
+    protected static class ReplaceRuleChange extends RegionChange
+    {
+        protected final BlockState from;
+        protected final BlockState to;
+
+        protected ReplaceRuleChange(String regionName, BlockState from, BlockState to)
+        {
+            super(regionName);
+
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void apply(BlockContainer container, boolean forward)
+        {
+            if (forward)
+            {
+                container.replaceAll(this.from, this.to);
+            }
+            else
+            {
+                container.replaceAll(this.to, this.from);
+            }
+        }
+
+        @Override
+        protected BlockPos getMinPos()
+        {
+            return BlockPos.ORIGIN;
+        }
+
+        @Override
+        protected BlockPos getMaxPos(Vec3i containerSize)
+        {
+            return new BlockPos(containerSize.getX() - 1, containerSize.getY() - 1, containerSize.getZ() - 1);
+        }
+    }
+}
@@ -45,6 +45,7 @@ import litematica.schematic.placement.SchematicPlacement;
 import litematica.schematic.placement.SchematicPlacementManager;
 import litematica.schematic.placement.SchematicPlacementManager.PlacementPart;
 import litematica.schematic.placement.SubRegionPlacement;
+import litematica.schematic.util.SchematicEditJournal.EditOperation;
 import litematica.tool.ToolMode;
 import litematica.util.RayTraceUtils;
 import litematica.util.RayTraceUtils.RayTraceWrapper;
@@ -418,11 +419,21 @@ public class SchematicEditUtils
 
                             totalBlocks += increment;
 
-                            container.setBlockState(posSchematic.getX(), posSchematic.getY(), posSchematic.getZ(), BlockState.of(state));
+                            BlockState newState = BlockState.of(state);
+                            EditOperation operation = SchematicEditJournal.INSTANCE.startOperation(loadedSchematic);
+
+                            if (operation != null)
+                            {
+                                operation.recordBlockChange(regionName, container, posSchematic.getX(), posSchematic.getY(),
+                                                            posSchematic.getZ(), stateOriginal, newState);
+                            }
+
+                            container.setBlockState(posSchematic.getX(), posSchematic.getY(), posSchematic.getZ(), newState);
 
                             metadata.setTotalBlocks(totalBlocks);
                             metadata.setTimeModifiedToNow();
                             loadedSchematic.setModifiedSinceSaved();
+                            SchematicEditJournal.INSTANCE.finishOperation(operation);
 
                             DataManager.getSchematicPlacementManager().markChunkForRebuild(ChunkPos.asLong(cpos.getX(), cpos.getZ()));
 
@@ -484,6 +495,7 @@ public class SchematicEditUtils
 
                             state = SchematicUtils.getUntransformedBlockState(state, schematicPlacement, regionName);
                             BlockState newState = BlockState.of(state);
+                            EditOperation operation = SchematicEditJournal.INSTANCE.startOperation(loadedSchematic);
 
                             for (int y = minY; y <= maxY; ++y)
                             {
@@ -504,6 +516,11 @@ public class SchematicEditUtils
 
                                         totalBlocks += increment;
 
+                                        if (operation != null)
+                                        {
+                                            operation.recordBlockChange(regionName, container, x, y, z, stateOriginal, newState);
+                                        }
+
                                         container.setBlockState(x, y, z, newState);
                                     }
                                 }
@@ -513,6 +530,7 @@ public class SchematicEditUtils
                             metadata.setTotalBlocks(totalBlocks);
                             metadata.setTimeModifiedToNow();
                             loadedSchematic.setModifiedSinceSaved();
+                            SchematicEditJournal.INSTANCE.finishOperation(operation);
 
                             DataManager.getSchematicPlacementManager().markAllPlacementsOfSchematicForRebuild(loadedSchematic);
 
@@ -598,6 +616,8 @@ public class SchematicEditUtils
             increment = stateNewIn.getBlock() != Blocks.AIR ? 1 : 0;
         }
 
+        EditOperation operation = SchematicEditJournal.INSTANCE.startOperation(loadedSchematic);
+
         for (String regionName : regions)
         {
             SchematicRegion region = schematic.getRegions().get(regionName);
@@ -620,6 +640,7 @@ public class SchematicEditUtils
 
             if (pair == null)
             {
+                SchematicEditJournal.INSTANCE.finishOperation(operation);
                 return false;
             }
 
@@ -644,6 +665,7 @@ public class SchematicEditUtils
             {
                 System.out.printf("OUT OF BOUNDS == region: %s, sx: %d, sy: %s, sz: %d, ex: %d, ey: %d, ez: %d - size x: %d y: %d z: %d =============\n",
                         regionName, startX, startY, startZ, endX, endY, endZ, size.getX(), size.getY(), size.getZ());
+                SchematicEditJournal.INSTANCE.finishOperation(operation);
                 return false;
             }
 
@@ -653,26 +675,43 @@ public class SchematicEditUtils
             BlockState stateOriginal = BlockState.of(SchematicUtils.getUntransformedBlockState(stateOriginalIn, schematicPlacement, regionName));
             BlockState stateNew = BlockState.of(SchematicUtils.getUntransformedBlockState(stateNewIn, schematicPlacement, regionName));
 
-            for (int y = startY; y <= endY; ++y)
+            // The entire region is within the layer range, let the container remap its palette.
+            // The undo journal can then store just the replace rule, if the new state is not already in the region.
+            if (startX == 0 && startY == 0 && startZ == 0 &&
+                endX == size.getX() - 1 &&
+                endY == size.getY() - 1 &&
+                endZ == size.getZ() - 1 &&
+                (operation == null || EditOperation.canRecordAsReplaceRule(container, stateNew)))
             {
-                for (int z = startZ; z <= endZ; ++z)
+                long count = container.replaceAll(stateOriginal, stateNew);
+
+                if (operation != null)
                 {
-                    for (int x = startX; x <= endX; ++x)
-                    {
-                        if (container.getBlockState(x, y, z) == stateOriginal)
-                        {
-                            container.setBlockState(x, y, z, stateNew);
-                            totalBlocks += increment;
-                        }
-                    }
+                    operation.recordReplaceRule(regionName, stateOriginal, stateNew, count);
                 }
+
+                totalBlocks += count * increment;
+                continue;
             }
+
+            // Only part of the region is within the layer range, the palette-based containers
+            // can still compare the raw palette IDs in a single pass over the box.
+            BlockContainer.PositionListener listener = null;
+
+            if (operation != null)
+            {
+                listener = (x, y, z) -> operation.recordBlockChange(regionName, container, x, y, z, stateOriginal, stateNew);
+            }
+
+            long count = container.replaceAllInBox(stateOriginal, stateNew, containerStart, containerEnd, listener);
+            totalBlocks += count * increment;
         }
 
         SchematicMetadata metadata = schematic.getMetadata();
         metadata.setTotalBlocks(totalBlocks);
         metadata.setTimeModifiedToNow();
         loadedSchematic.setModifiedSinceSaved();
+        SchematicEditJournal.INSTANCE.finishOperation(operation);
 
         return true;
     }
@@ -1,13 +1,22 @@
 package litematica.schematic.util;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 import malilib.overlay.message.MessageDispatcher;
 import malilib.util.data.tag.CompoundData;
 import malilib.util.data.tag.util.DataFileUtils;
+import litematica.Litematica;
+import litematica.schematic.LitematicaSchematic;
 import litematica.schematic.Schematic;
+import litematica.schematic.SchematicSaveSettings.CompressionMode;
 
 public class SchematicFileUtils
 {
@@ -18,6 +27,18 @@ public class SchematicFileUtils
             return false;
         }
 
+        if (schematic instanceof LitematicaSchematic && LitematicaFileReader.shouldReadFile(file))
+        {
+            if (LitematicaFileReader.readInto((LitematicaSchematic) schematic, file))
+            {
+                return true;
+            }
+
+            MessageDispatcher.error("litematica.error.schematic_read.cant_read_nbt",
+                                    file.toAbsolutePath().toString());
+            return false;
+        }
+
         CompoundData data = DataFileUtils.readCompoundDataFromNbtFile(file);
 
         if (data == null)
@@ -27,10 +48,92 @@ public class SchematicFileUtils
             return false;
         }
 
+        SectionedSchematicFile.FileSource source = SectionedSchematicFile.createFileSource(file);
+
+        if (source != null && schematic instanceof LitematicaSchematic)
+        {
+            return ((LitematicaSchematic) schematic).readSectioned(data, source);
+        }
+
         return schematic.read(data);
     }
 
     public static boolean writeToFile(Schematic schematic, Path file, boolean overwrite)
+    {
+        return writeToFile(schematic, file, overwrite, CompressionMode.STANDARD);
+    }
+
+    public static boolean writeToFile(Schematic schematic, Path file, boolean overwrite, CompressionMode compression)
+    {
+        file = getFileWithExtension(schematic, file);
+
+        if (canWriteToFile(file, overwrite) == false)
+        {
+            return false;
+        }
+
+        if (supportsDirectWrite(schematic))
+        {
+            if (writeStreamToFile(schematic, file, compression))
+            {
+                return true;
+            }
+
+            MessageDispatcher.error("litematica.message.error.schematic_save.write_failed",
+                                    file.getFileName().toString());
+            return false;
+        }
+
+        try
+        {
+            Optional<CompoundData> data = schematic.write();
+
+            if (data.isPresent() == false || data.get().size() == 0)
+            {
+                MessageDispatcher.error("litematica.message.error.schematic_save.serializing_failed.empty");
+                return false;
+            }
+
+            return writeDataToFile(data.get(), schematic.getRootTagName(), file, compression);
+        }
+        catch (Exception e)
+        {
+            String key = "litematica.message.error.schematic_save.serializing_failed.exception";
+            MessageDispatcher.error().console(e).translate(key, e.getMessage());
+        }
+
+        return false;
+    }
+
+    /**
+     * Writes the changed metadata of the schematic to its existing file.
+     * @param onlyMetadataChanged if true, then only the Metadata tag in the file is replaced when possible,
+     *                            see {@link SchematicMetadataWriter}. Otherwise, or if that fails,
+     *                            the entire schematic is written to the file.
+     */
+    public static boolean writeMetadataToFile(Schematic schematic, Path file, boolean onlyMetadataChanged)
+    {
+        if (onlyMetadataChanged && SchematicMetadataWriter.replaceMetadataInFile(schematic, file))
+        {
+            return true;
+        }
+
+        return writeToFile(schematic, file, true);
+    }
+
+    /**
+     * @return true if the schematic is written directly to the file via {@link #writeStreamToFile(Schematic, Path, CompressionMode)},
+     * instead of serializing it into a data tree first
+     */
+    public static boolean supportsDirectWrite(Schematic schematic)
+    {
+        return schematic.supportsStreamingWrite() || SectionedSchematicFile.shouldWriteSectioned(schematic);
+    }
+
+    /**
+     * @return the given file, with the schematic type's file name extension appended, if it was missing
+     */
+    public static Path getFileWithExtension(Schematic schematic, Path file)
     {
         String fileName = file.getFileName().toString();
         String extension = schematic.getType().getFileNameExtension();
@@ -41,6 +144,11 @@ public class SchematicFileUtils
             file = file.getParent().resolve(fileName);
         }
 
+        return file;
+    }
+
+    public static boolean canWriteToFile(Path file, boolean overwrite)
+    {
         if (overwrite == false && Files.exists(file))
         {
             MessageDispatcher.error("litematica.error.schematic_write.file_exists",
@@ -55,24 +163,139 @@ public class SchematicFileUtils
             return false;
         }
 
-        try
+        return true;
+    }
+
+    /**
+     * Writes the data first to a temporary file next to the target file,
+     * and then moves it over the target file. This way an existing file is
+     * never left partially written, if the write fails or the game crashes mid-write.
+     * This method does not use the MessageDispatcher, so it's safe to call from other threads.
+     */
+    public static boolean writeDataToFile(CompoundData data, String rootTagName, Path file, CompressionMode compression)
+    {
+        Path tempFile = file.resolveSibling(file.getFileName().toString() + ".tmp");
+        boolean success;
+
+        if (compression.isParallel())
         {
-            Optional<CompoundData> data = schematic.write();
+            success = ParallelGzipWriter.writeCompoundDataToFile(tempFile, data, rootTagName, compression.getLevel());
+        }
+        else
+        {
+            success = DataFileUtils.writeCompoundDataToCompressedNbtFile(tempFile, data, rootTagName);
+        }
 
-            if (data.isPresent() == false || data.get().size() == 0)
+        return moveTempFile(tempFile, file, success);
+    }
+
+    /**
+     * Writes the schematic directly to the compressed file via {@link Schematic#writeToStream(NbtStreamWriter)},
+     * using a temporary file the same way as {@link #writeDataToFile(CompoundData, String, Path, CompressionMode)}.
+     * With the parallel compression modes the data is compressed in blocks on the compression thread pool
+     * while the schematic is still being written, see {@link ParallelGzipWriter.BlockCompressingOutputStream}.
+     * Schematics in the sectioned format are written via {@link SectionedSchematicFile} instead.
+     * This method does not use the MessageDispatcher, so it's safe to call from other threads.
+     */
+    public static boolean writeStreamToFile(Schematic schematic, Path file, CompressionMode compression)
+    {
+        if (SectionedSchematicFile.shouldWriteSectioned(schematic))
+        {
+            return SectionedSchematicFile.writeToFile((LitematicaSchematic) schematic, file, compression);
+        }
+
+        Path tempFile = file.resolveSibling(file.getFileName().toString() + ".tmp");
+        boolean success = false;
+
+        try
+        {
+            if (compression.isParallel())
             {
-                MessageDispatcher.error("litematica.message.error.schematic_save.serializing_failed.empty");
-                return false;
+                try (ParallelGzipWriter.BlockCompressingOutputStream os = new ParallelGzipWriter.BlockCompressingOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(tempFile)), compression.getLevel()))
+                {
+                    // The NBT writer does lots of small writes, so they are buffered in front of the block stream
+                    success = writeSchematicToStream(schematic, new BufferedOutputStream(os, 65536));
+                    os.finish();
+                }
+            }
+            else
+            {
+                try (OutputStream os = new LeveledGzipOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)),
+                                                                   compression.getLevel()))
+                {
+                    success = writeSchematicToStream(schematic, os);
+                }
             }
-
-            return DataFileUtils.writeCompoundDataToCompressedNbtFile(file, data.get(), schematic.getRootTagName());
         }
         catch (Exception e)
         {
-            String key = "litematica.message.error.schematic_save.serializing_failed.exception";
-            MessageDispatcher.error().console(e).translate(key, e.getMessage());
+            Litematica.LOGGER.warn("Failed to write the schematic to file '{}'", tempFile.toAbsolutePath(), e);
+            success = false;
+        }
+
+        return moveTempFile(tempFile, file, success);
+    }
+
+    protected static boolean writeSchematicToStream(Schematic schematic, OutputStream os) throws IOException
+    {
+        NbtStreamWriter writer = new NbtStreamWriter(os);
+        writer.beginCompound(schematic.getRootTagName());
+        boolean success = schematic.writeToStream(writer);
+        writer.endCompound();
+        writer.flush();
+
+        return success;
+    }
+
+    /**
+     * Moves the temporary file over the target file if the write was successful,
+     * otherwise just deletes the temporary file.
+     */
+    protected static boolean moveTempFile(Path tempFile, Path file, boolean success)
+    {
+        try
+        {
+            if (success)
+            {
+                moveFile(tempFile, file);
+                return true;
+            }
+        }
+        catch (IOException e)
+        {
+            Litematica.LOGGER.warn("Failed to move the temporary file '{}' to '{}'",
+                                   tempFile.toAbsolutePath(), file.toAbsolutePath(), e);
+        }
+
+        try
+        {
+            Files.deleteIfExists(tempFile);
         }
+        catch (IOException ignore) {}
 
         return false;
     }
+
+    protected static void moveFile(Path from, Path to) throws IOException
+    {
+        try
+        {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException e)
+        {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    protected static class LeveledGzipOutputStream extends GZIPOutputStream
+    {
+        public LeveledGzipOutputStream(OutputStream os, int level) throws IOException
+        {
+            super(os, 65536);
+
+            this.def.setLevel(level);
+        }
+    }
 }
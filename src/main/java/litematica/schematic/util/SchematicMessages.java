@@ -0,0 +1,189 @@
+package litematica.schematic.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+
+import net.minecraft.client.Minecraft;
+
+import malilib.overlay.message.MessageDispatcher;
+import malilib.util.StringUtils;
+
+/**
+ * The messages of the schematic readers and writers, which can run on the background threads.
+ * On the main thread the messages are sent directly via the MessageDispatcher.
+ * A background thread can collect the messages of the calls it makes via {@link #collect()},
+ * and then either dispatch them on the main thread, or record them somewhere else, like a report.
+ * The messages from a background thread that isn't collecting them are
+ * sent via a scheduled task on the main thread.
+ */
+public class SchematicMessages
+{
+    private static final ThreadLocal<Collector> COLLECTOR = new ThreadLocal<>();
+
+    public static void error(String translationKey, Object... args)
+    {
+        add(new Message(Level.ERROR, -1, null, translationKey, args));
+    }
+
+    public static void error(int displayTimeMs, String translationKey, Object... args)
+    {
+        add(new Message(Level.ERROR, displayTimeMs, null, translationKey, args));
+    }
+
+    /**
+     * Sends the error message, and also prints the exception to the console
+     */
+    public static void error(Throwable exception, String translationKey, Object... args)
+    {
+        add(new Message(Level.ERROR, -1, exception, translationKey, args));
+    }
+
+    public static void warning(String translationKey, Object... args)
+    {
+        add(new Message(Level.WARNING, -1, null, translationKey, args));
+    }
+
+    /**
+     * Starts collecting the messages from the current thread, until the returned collector is closed.
+     * Should be used with try-with-resources.
+     */
+    public static Collector collect()
+    {
+        Collector collector = new Collector(COLLECTOR.get());
+        COLLECTOR.set(collector);
+        return collector;
+    }
+
+    protected static void add(Message message)
+    {
+        Collector collector = COLLECTOR.get();
+
+        if (collector != null)
+        {
+            collector.messages.add(message);
+        }
+        else if (Minecraft.getMinecraft().isCallingFromMinecraftThread())
+        {
+            message.dispatch();
+        }
+        else
+        {
+            Minecraft.getMinecraft().addScheduledTask(message::dispatch);
+        }
+    }
+
+    public static class Collector implements AutoCloseable
+    {
+        @Nullable protected final Collector previous;
+        protected final List<Message> messages = new ArrayList<>();
+
+        protected Collector(@Nullable Collector previous)
+        {
+            this.previous = previous;
+        }
+
+        public List<Message> getMessages()
+        {
+            return Collections.unmodifiableList(this.messages);
+        }
+
+        public boolean hasErrors()
+        {
+            for (Message message : this.messages)
+            {
+                if (message.level == Level.ERROR)
+                {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Sends all the collected messages. Must be called on the main thread.
+         */
+        public void dispatchAll()
+        {
+            for (Message message : this.messages)
+            {
+                message.dispatch();
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            if (this.previous != null)
+            {
+                COLLECTOR.set(this.previous);
+            }
+            else
+            {
+                COLLECTOR.remove();
+            }
+        }
+    }
+
+    public static class Message
+    {
+        public final Level level;
+        public final int displayTimeMs;
+        @Nullable public final Throwable exception;
+        public final String translationKey;
+        public final Object[] args;
+
+        protected Message(Level level, int displayTimeMs, @Nullable Throwable exception,
+                          String translationKey, Object... args)
+        {
+            this.level = level;
+            this.displayTimeMs = displayTimeMs;
+            this.exception = exception;
+            this.translationKey = translationKey;
+            this.args = args;
+        }
+
+        public String getTranslatedMessage()
+        {
+            return StringUtils.translate(this.translationKey, this.args);
+        }
+
+        /**
+         * Sends the message via the MessageDispatcher. Must be called on the main thread.
+         */
+        public void dispatch()
+        {
+            if (this.level == Level.ERROR)
+            {
+                if (this.exception != null)
+                {
+                    MessageDispatcher.error().console(this.exception).translate(this.translationKey, this.args);
+                }
+                else if (this.displayTimeMs > 0)
+                {
+                    MessageDispatcher.error(this.displayTimeMs).translate(this.translationKey, this.args);
+                }
+                else
+                {
+                    MessageDispatcher.error().translate(this.translationKey, this.args);
+                }
+            }
+            else if (this.displayTimeMs > 0)
+            {
+                MessageDispatcher.warning(this.displayTimeMs).translate(this.translationKey, this.args);
+            }
+            else
+            {
+                MessageDispatcher.warning().translate(this.translationKey, this.args);
+            }
+        }
+    }
+
+    public enum Level
+    {
+        ERROR,
+        WARNING
+    }
+}
@@ -0,0 +1,390 @@
+package litematica.schematic.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import malilib.util.data.Constants;
+import malilib.util.data.tag.CompoundData;
+import litematica.Litematica;
+import litematica.schematic.Schematic;
+import litematica.schematic.SchematicSaveSettings.CompressionMode;
+import litematica.schematic.SchematicType;
+
+/**
+ * Replaces only the Metadata compound tag in an existing schematic file,
+ * without reading or serializing the rest of the schematic.
+ * The file is written as two concatenated gzip members, where the first member
+ * contains the root tag header and the Metadata tag, and the second member contains
+ * all the other tags of the root compound. The gzip readers read the concatenated
+ * members as one continuous stream, so the file is still a normal compressed NBT file.
+ * When the file already uses that layout, the compressed second member is copied over
+ * as-is, so the cost of the update only depends on the size of the metadata.
+ * Other files are converted to that layout on the first metadata update, which
+ * copies the other tags over as raw bytes, but needs to decompress and re-compress them once.
+ */
+public class SchematicMetadataWriter
+{
+    public static final String METADATA_TAG_NAME = "Metadata";
+
+    /**
+     * Replaces the Metadata tag in the given existing schematic file
+     * with the current metadata of the given schematic.
+     * @return true if the metadata was written, false if the schematic type or the file
+     *         is not supported, or on errors. The caller should then write the entire schematic instead.
+     */
+    public static boolean replaceMetadataInFile(Schematic schematic, Path file)
+    {
+        if (schematic.getType() != SchematicType.LITEMATICA ||
+            Files.isRegularFile(file) == false ||
+            Files.isWritable(file) == false ||
+            SectionedSchematicFile.getSectionDataStart(file) >= 0)
+        {
+            return false;
+        }
+
+        Path tempFile = file.resolveSibling(file.getFileName().toString() + ".tmp");
+        boolean success = false;
+
+        try
+        {
+            byte[] fileData = Files.readAllBytes(file);
+            CompoundData data = new CompoundData();
+            data.put(METADATA_TAG_NAME, schematic.getMetadata().write(new CompoundData()));
+
+            try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tempFile)))
+            {
+                success = writeWithNewMetadata(fileData, data, os);
+            }
+
+            if (success)
+            {
+                SchematicFileUtils.moveFile(tempFile, file);
+                return true;
+            }
+        }
+        catch (Exception e)
+        {
+            Litematica.LOGGER.warn("Failed to replace the metadata in the schematic file '{}'", file.toAbsolutePath(), e);
+        }
+
+        try
+        {
+            Files.deleteIfExists(tempFile);
+        }
+        catch (IOException ignore) {}
+
+        return false;
+    }
+
+    /**
+     * Writes the compressed schematic file data to the output stream,
+     * with the Metadata tag replaced by the one in the given root compound.
+     * @return false if the file data is not in a supported format
+     */
+    protected static boolean writeWithNewMetadata(byte[] fileData, CompoundData metadataRoot, OutputStream os)
+            throws IOException, DataFormatException
+    {
+        int headerLength = getGzipHeaderLength(fileData);
+
+        if (headerLength < 0)
+        {
+            return false;
+        }
+
+        Inflater inflater = new Inflater(true);
+        byte[] firstMember;
+        int firstMemberEnd;
+
+        try
+        {
+            inflater.setInput(fileData, headerLength, fileData.length - headerLength);
+            firstMember = inflate(inflater, fileData.length * 4);
+
+            if (firstMember == null)
+            {
+                return false;
+            }
+
+            // The 8 byte member trailer has the CRC32 and the uncompressed size
+            firstMemberEnd = fileData.length - inflater.getRemaining() + 8;
+        }
+        finally
+        {
+            inflater.end();
+        }
+
+        boolean hasMoreMembers = firstMemberEnd < fileData.length;
+        ByteBuffer buf = ByteBuffer.wrap(firstMember);
+        String rootTagName = readRootTagName(buf);
+
+        if (rootTagName == null)
+        {
+            return false;
+        }
+
+        List<TagEntry> entries = readEntries(buf);
+        int level = CompressionMode.STANDARD.getLevel();
+        byte[] head = ParallelGzipWriter.serializeToNbt(metadataRoot, rootTagName);
+
+        // Strip the end tag of the root compound, it is written at the end of the second member instead
+        head = Arrays.copyOf(head, head.length - 1);
+
+        // Already in the split layout, the other tags can be copied over without decompressing them
+        if (hasMoreMembers &&
+            buf.hasRemaining() == false &&
+            entries.size() == 1 &&
+            entries.get(0).type == Constants.NBT.TAG_COMPOUND &&
+            entries.get(0).name.equals(METADATA_TAG_NAME))
+        {
+            ParallelGzipWriter.writeCompressed(head, level, os);
+            os.write(fileData, firstMemberEnd, fileData.length - firstMemberEnd);
+            return true;
+        }
+
+        byte[] fullData = firstMember;
+
+        if (hasMoreMembers)
+        {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(firstMember.length * 2);
+            bos.write(firstMember);
+
+            try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(fileData, firstMemberEnd, fileData.length - firstMemberEnd)))
+            {
+                copyStream(is, bos);
+            }
+
+            fullData = bos.toByteArray();
+            buf = ByteBuffer.wrap(fullData);
+            readRootTagName(buf);
+            entries = readEntries(buf);
+        }
+
+        ByteArrayOutputStream rest = new ByteArrayOutputStream(fullData.length);
+
+        for (TagEntry entry : entries)
+        {
+            if (entry.name.equals(METADATA_TAG_NAME) == false)
+            {
+                rest.write(fullData, entry.start, entry.end - entry.start);
+            }
+        }
+
+        rest.write(Constants.NBT.TAG_END);
+
+        ParallelGzipWriter.writeCompressed(head, level, os);
+        ParallelGzipWriter.writeCompressed(rest.toByteArray(), level, os);
+
+        return true;
+    }
+
+    /**
+     * @return the length of the gzip member header at the start of the data, or -1 if the data is not in the gzip format
+     */
+    protected static int getGzipHeaderLength(byte[] data)
+    {
+        if (data.length < 18 || data[0] != 0x1F || data[1] != (byte) 0x8B || data[2] != 8)
+        {
+            return -1;
+        }
+
+        int flags = data[3];
+        int pos = 10;
+
+        // FEXTRA
+        if ((flags & 0x04) != 0)
+        {
+            pos += 2 + ((data[pos] & 0xFF) | ((data[pos + 1] & 0xFF) << 8));
+        }
+
+        // FNAME and FCOMMENT are zero-terminated strings
+        for (int flag : new int[] { 0x08, 0x10 })
+        {
+            if ((flags & flag) != 0)
+            {
+                while (pos < data.length && data[pos] != 0)
+                {
+                    ++pos;
+                }
+
+                ++pos;
+            }
+        }
+
+        // FHCRC
+        if ((flags & 0x02) != 0)
+        {
+            pos += 2;
+        }
+
+        return pos < data.length ? pos : -1;
+    }
+
+    /**
+     * Inflates the data until the end of the current deflate stream
+     * @return the inflated data, or null if the data ended before the end of the deflate stream
+     */
+    protected static byte[] inflate(Inflater inflater, int sizeHint) throws DataFormatException
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(sizeHint);
+        byte[] buf = new byte[65536];
+
+        while (inflater.finished() == false)
+        {
+            int count = inflater.inflate(buf);
+
+            if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+            {
+                return null;
+            }
+
+            bos.write(buf, 0, count);
+        }
+
+        return bos.toByteArray();
+    }
+
+    protected static void copyStream(InputStream is, OutputStream os) throws IOException
+    {
+        byte[] buf = new byte[65536];
+        int count;
+
+        while ((count = is.read(buf)) > 0)
+        {
+            os.write(buf, 0, count);
+        }
+    }
+
+    /**
+     * Reads the root compound tag's type and name
+     * @return the root tag name, or null if the root tag is not a compound tag
+     */
+    protected static String readRootTagName(ByteBuffer buf)
+    {
+        if (buf.remaining() < 3 || buf.get() != Constants.NBT.TAG_COMPOUND)
+        {
+            return null;
+        }
+
+        return readString(buf);
+    }
+
+    /**
+     * Reads the positions of the tags in the compound tag, until the end tag or the end of the data
+     */
+    protected static List<TagEntry> readEntries(ByteBuffer buf) throws IOException
+    {
+        List<TagEntry> entries = new ArrayList<>();
+
+        while (buf.hasRemaining())
+        {
+            int start = buf.position();
+            int type = buf.get() & 0xFF;
+
+            if (type == Constants.NBT.TAG_END)
+            {
+                break;
+            }
+
+            String name = readString(buf);
+            skipPayload(buf, type);
+            entries.add(new TagEntry(name, type, start, buf.position()));
+        }
+
+        return entries;
+    }
+
+    protected static String readString(ByteBuffer buf)
+    {
+        int length = buf.getShort() & 0xFFFF;
+        String str = new String(buf.array(), buf.position(), length, StandardCharsets.UTF_8);
+        skip(buf, length);
+        return str;
+    }
+
+    protected static void skipPayload(ByteBuffer buf, int type) throws IOException
+    {
+        switch (type)
+        {
+            case Constants.NBT.TAG_END:         break;
+            case Constants.NBT.TAG_BYTE:        skip(buf, 1); break;
+            case Constants.NBT.TAG_SHORT:       skip(buf, 2); break;
+            case Constants.NBT.TAG_INT:
+            case Constants.NBT.TAG_FLOAT:       skip(buf, 4); break;
+            case Constants.NBT.TAG_LONG:
+            case Constants.NBT.TAG_DOUBLE:      skip(buf, 8); break;
+            case Constants.NBT.TAG_BYTE_ARRAY:  skip(buf, buf.getInt()); break;
+            case Constants.NBT.TAG_STRING:      skip(buf, buf.getShort() & 0xFFFF); break;
+            case Constants.NBT.TAG_INT_ARRAY:   skip(buf, buf.getInt() * 4L); break;
+            case Constants.NBT.TAG_LONG_ARRAY:  skip(buf, buf.getInt() * 8L); break;
+
+            case Constants.NBT.TAG_LIST:
+            {
+                int elementType = buf.get() & 0xFF;
+                int count = buf.getInt();
+
+                for (int i = 0; i < count; ++i)
+                {
+                    skipPayload(buf, elementType);
+                }
+
+                break;
+            }
+
+            case Constants.NBT.TAG_COMPOUND:
+            {
+                int tagType;
+
+                while ((tagType = buf.get() & 0xFF) != Constants.NBT.TAG_END)
+                {
+                    skip(buf, buf.getShort() & 0xFFFF);
+                    skipPayload(buf, tagType);
+                }
+
+                break;
+            }
+
+            default:
+                throw new IOException("Invalid NBT tag type " + type);
+        }
+    }
+
+    protected static void skip(ByteBuffer buf, long length) throws IOException
+    {
+        if (length < 0 || length > buf.remaining())
+        {
+            throw new IOException("Unexpected end of the NBT data");
+        }
+
+        buf.position(buf.position() + (int) length);
+    }
+
+    protected static class TagEntry
+    {
+        protected final String name;
+        protected final int type;
+        protected final int start;
+        protected final int end;
+
+        protected TagEntry(String name, int type, int start, int end)
+        {
+            this.name = name;
+            this.type = type;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
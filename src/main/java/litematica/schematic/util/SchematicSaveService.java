@@ -0,0 +1,283 @@
+package litematica.schematic.util;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import net.minecraft.client.Minecraft;
+
+import malilib.overlay.message.MessageDispatcher;
+import malilib.util.StringUtils;
+import malilib.util.data.tag.CompoundData;
+import litematica.Litematica;
+import litematica.render.infohud.IInfoHudRenderer;
+import litematica.render.infohud.InfoHud;
+import litematica.render.infohud.RenderPhase;
+import litematica.schematic.Schematic;
+import litematica.schematic.SchematicSaveSettings.CompressionMode;
+
+/**
+ * Saves schematics to files on a background thread, so that the serialization,
+ * compression and file IO don't stall the game.
+ * Loaded schematics that can still be modified while the save is in progress
+ * should be saved via a snapshot, see {@link Schematic#createSnapshot()}.
+ * The result listeners are always called on the main thread.
+ */
+public class SchematicSaveService implements IInfoHudRenderer
+{
+    public static final SchematicSaveService INSTANCE = new SchematicSaveService();
+
+    protected final ExecutorService executor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("Litematica Schematic Saver %d").setDaemon(true).build());
+    protected final List<SaveJob> activeJobs = new CopyOnWriteArrayList<>();
+
+    protected SchematicSaveService()
+    {
+    }
+
+    /**
+     * Saves the schematic to the given file on the background thread.
+     * @param takeSnapshot if true, then a snapshot of the schematic is taken on the calling thread,
+     *                     so that the schematic can be modified while the save is in progress.
+     *                     This can be false for newly created schematics that nothing else has access to yet.
+     * @param resultListener called on the main thread with the result once the save has finished
+     * @return true if the save was started, false if the file can't be written to,
+     *         or the schematic type can't hold the regions of the schematic
+     */
+    public boolean saveAsync(Schematic schematic, Path file, boolean overwrite, CompressionMode compression,
+                             boolean takeSnapshot, Consumer<Boolean> resultListener)
+    {
+        Path outputFile = SchematicFileUtils.getFileWithExtension(schematic, file);
+
+        if (SchematicFileUtils.canWriteToFile(outputFile, overwrite) == false ||
+            checkRegionCount(schematic) == false)
+        {
+            return false;
+        }
+
+        Schematic schematicToSave = takeSnapshot ? schematic.createSnapshot() : schematic;
+        String name = outputFile.getFileName().toString();
+
+        // Streamed and sectioned schematics are written straight to the file without building the data tree first
+        if (SchematicFileUtils.supportsDirectWrite(schematicToSave))
+        {
+            this.startJob(new SaveJob(null, schematicToSave, schematicToSave.getRootTagName(),
+                                      outputFile, compression, name), resultListener);
+        }
+        else
+        {
+            this.saveDataAsync(name, outputFile, schematicToSave::write, schematicToSave.getRootTagName(),
+                               compression, resultListener);
+        }
+
+        return true;
+    }
+
+    /**
+     * Serializes the data via the data supplier and writes it to the given file on the background thread.
+     * The data supplier must not access anything that can be modified on the main thread.
+     * @param resultListener called on the main thread with the result once the save has finished
+     */
+    public void saveDataAsync(String displayName, Path file, Supplier<Optional<CompoundData>> dataSupplier,
+                              String rootTagName, CompressionMode compression, Consumer<Boolean> resultListener)
+    {
+        this.startJob(new SaveJob(dataSupplier, null, rootTagName, file, compression, displayName), resultListener);
+    }
+
+    /**
+     * Checks the region count on the calling thread before the job is queued,
+     * since the schematic writers can't report it from the save thread
+     */
+    protected static boolean checkRegionCount(Schematic schematic)
+    {
+        int regionCount = schematic.getRegions().size();
+
+        if (regionCount == 0)
+        {
+            MessageDispatcher.error("litematica.message.error.schematic_save.no_regions");
+            return false;
+        }
+
+        if (regionCount != 1 && schematic.getType().getSupportsMultipleRegions() == false)
+        {
+            MessageDispatcher.error("litematica.message.error.schematic_save.wrong_region_count", regionCount, 1);
+            return false;
+        }
+
+        return true;
+    }
+
+    protected void startJob(SaveJob job, Consumer<Boolean> resultListener)
+    {
+        if (this.activeJobs.isEmpty())
+        {
+            InfoHud.getInstance().addInfoHudRenderer(this, true);
+        }
+
+        this.activeJobs.add(job);
+        this.executor.execute(() -> {
+            boolean success;
+
+            // The schematic writers can't send their messages from the save thread,
+            // so they are collected and sent once the job has finished
+            try (SchematicMessages.Collector messages = SchematicMessages.collect())
+            {
+                success = this.runJob(job);
+                job.messages = messages;
+            }
+
+            Minecraft.getMinecraft().addScheduledTask(() -> this.onJobFinished(job, success, resultListener));
+        });
+    }
+
+    protected boolean runJob(SaveJob job)
+    {
+        try
+        {
+            if (job.streamedSchematic != null)
+            {
+                job.stage = SaveStage.WRITING;
+
+                if (SchematicFileUtils.writeStreamToFile(job.streamedSchematic, job.file, job.compression))
+                {
+                    return true;
+                }
+
+                job.errorKey = "litematica.message.error.schematic_save.write_failed";
+                return false;
+            }
+
+            job.stage = SaveStage.SERIALIZING;
+            Optional<CompoundData> data = job.dataSupplier.get();
+
+            if (data.isPresent() == false || data.get().size() == 0)
+            {
+                job.errorKey = "litematica.message.error.schematic_save.serializing_failed.empty";
+                return false;
+            }
+
+            job.stage = SaveStage.WRITING;
+
+            if (SchematicFileUtils.writeDataToFile(data.get(), job.rootTagName, job.file, job.compression))
+            {
+                return true;
+            }
+
+            job.errorKey = "litematica.message.error.schematic_save.write_failed";
+        }
+        catch (Exception e)
+        {
+            Litematica.LOGGER.warn("Exception while saving the schematic '{}'", job.file.toAbsolutePath(), e);
+            job.errorKey = "litematica.message.error.schematic_save.serializing_failed.exception";
+            job.errorMessage = String.valueOf(e.getMessage());
+        }
+
+        return false;
+    }
+
+    protected void onJobFinished(SaveJob job, boolean success, Consumer<Boolean> resultListener)
+    {
+        this.activeJobs.remove(job);
+
+        if (this.activeJobs.isEmpty())
+        {
+            InfoHud.getInstance().removeInfoHudRenderer(this, false);
+        }
+
+        if (job.messages != null)
+        {
+            job.messages.dispatchAll();
+        }
+
+        if (success == false && job.errorKey != null)
+        {
+            String arg = job.errorMessage != null ? job.errorMessage : job.displayName;
+            MessageDispatcher.error(job.errorKey, arg);
+        }
+
+        resultListener.accept(success);
+    }
+
+    public boolean hasActiveSaves()
+    {
+        return this.activeJobs.isEmpty() == false;
+    }
+
+    @Override
+    public boolean getShouldRenderText(RenderPhase phase)
+    {
+        return phase == RenderPhase.POST && this.activeJobs.isEmpty() == false;
+    }
+
+    @Override
+    public boolean shouldRenderInGuis()
+    {
+        return true;
+    }
+
+    @Override
+    public List<String> getText(RenderPhase phase)
+    {
+        List<String> lines = new ArrayList<>();
+        long currentTime = System.currentTimeMillis();
+
+        for (SaveJob job : this.activeJobs)
+        {
+            String stage = StringUtils.translate(job.stage.translationKey);
+            String time = String.format("%.1f", (currentTime - job.startTime) / 1000.0);
+            lines.add(StringUtils.translate("litematica.hud.schematic_save.progress", job.displayName, stage, time));
+        }
+
+        return lines;
+    }
+
+    protected static class SaveJob
+    {
+        @Nullable protected final Supplier<Optional<CompoundData>> dataSupplier;
+        @Nullable protected final Schematic streamedSchematic;
+        protected final String rootTagName;
+        protected final Path file;
+        protected final CompressionMode compression;
+        protected final String displayName;
+        protected final long startTime;
+        protected volatile SaveStage stage = SaveStage.QUEUED;
+        protected volatile String errorKey;
+        protected volatile String errorMessage;
+        @Nullable protected volatile SchematicMessages.Collector messages;
+
+        protected SaveJob(@Nullable Supplier<Optional<CompoundData>> dataSupplier,
+                          @Nullable Schematic streamedSchematic, String rootTagName,
+                          Path file, CompressionMode compression, String displayName)
+        {
+            this.dataSupplier = dataSupplier;
+            this.streamedSchematic = streamedSchematic;
+            this.rootTagName = rootTagName;
+            this.file = file;
+            this.compression = compression;
+            this.displayName = displayName;
+            this.startTime = System.currentTimeMillis();
+        }
+    }
+
+    protected enum SaveStage
+    {
+        QUEUED      ("litematica.hud.schematic_save.stage.queued"),
+        SERIALIZING ("litematica.hud.schematic_save.stage.serializing"),
+        WRITING     ("litematica.hud.schematic_save.stage.writing");
+
+        protected final String translationKey;
+
+        SaveStage(String translationKey)
+        {
+            this.translationKey = translationKey;
+        }
+    }
+}
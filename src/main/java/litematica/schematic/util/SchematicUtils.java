@@ -61,6 +61,34 @@ public class SchematicUtils
                             MathUtils.clamp(startZ, 0, size.getZ() - 1));
     }
 
+    /**
+     * @return the world position of the given position within the block container of the region.
+     * This is the reverse of {@link #getSchematicContainerPositionFromWorldPosition}, without any clamping.
+     */
+    public static BlockPos getWorldPositionFromSchematicContainerPosition(BlockPos containerPos,
+                                                                          SchematicPlacement schematicPlacement,
+                                                                          SubRegionPlacement regionPlacement, Vec3i regionSize)
+    {
+        BlockPos origin = schematicPlacement.getPosition();
+        BlockPos regionPos = regionPlacement.getPosition();
+
+        // These are the untransformed relative positions
+        BlockPos posEndRel = (new BlockPos(PositionUtils.getRelativeEndPositionFromAreaSize(regionSize))).add(regionPos);
+        BlockPos posMinRel = malilib.util.position.PositionUtils.getMinCorner(regionPos, posEndRel);
+
+        // The transformed sub-region origin position
+        BlockPos regionPosTransformed = PositionUtils.getTransformedBlockPos(regionPos, schematicPlacement.getMirror(), schematicPlacement.getRotation());
+
+        // The offset relative to the sub-region's origin corner, in the untransformed orientation
+        BlockPos relPos = containerPos.add(posMinRel.subtract(regionPos));
+
+        relPos = PositionUtils.getTransformedPlacementPosition(relPos, schematicPlacement, regionPlacement);
+
+        return new BlockPos(relPos.getX() + origin.getX() + regionPosTransformed.getX(),
+                            relPos.getY() + origin.getY() + regionPosTransformed.getY(),
+                            relPos.getZ() + origin.getZ() + regionPosTransformed.getZ());
+    }
+
     @Nullable
     private static BlockPos getReverseTransformedWorldPosition(BlockPos worldPos,
                                                                SchematicPlacement schematicPlacement,
@@ -0,0 +1,580 @@
+package litematica.schematic.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
+import malilib.util.data.Constants;
+import malilib.util.data.palette.Palette;
+import malilib.util.data.tag.CompoundData;
+import malilib.util.data.tag.DataView;
+import malilib.util.data.tag.ListData;
+import malilib.util.data.tag.LongArrayData;
+import malilib.util.data.tag.util.DataFileUtils;
+import malilib.util.game.BlockUtils;
+import malilib.util.position.Vec3i;
+import malilib.util.world.BlockState;
+import litematica.Litematica;
+import litematica.schematic.LitematicaSchematic;
+import litematica.schematic.Schematic;
+import litematica.schematic.SchematicRegion;
+import litematica.schematic.SchematicSaveSettings.CompressionMode;
+import litematica.schematic.container.AdaptiveBlockContainer;
+import litematica.schematic.container.BaseBlockContainer;
+import litematica.schematic.container.BlockContainer;
+import litematica.schematic.container.LazySectionedBlockContainer;
+import litematica.schematic.container.SectionedBlockContainer;
+
+/**
+ * Reads and writes the sectioned litematic format (schematic version 5).
+ * The file starts with a normal gzip member that contains a complete NBT root compound
+ * with everything except the block data. Each region tag in it has the block state palette,
+ * the block counts of the region and an index of the block data sections.
+ * The block data of each 16x16x16 section follows after that first member,
+ * as separately compressed raw deflate streams.
+ * The gzip header of the first member has an extra field with the file offset where the section data starts.
+ * <br><br>
+ * Because the first member is a complete NBT file, the metadata and the type can be read
+ * by any NBT reader without touching the block data. The sections are read on demand
+ * by {@link LazySectionedBlockContainer}s, and sections that haven't been modified
+ * are copied over as-is, still compressed, when the schematic is saved again.
+ */
+public class SectionedSchematicFile
+{
+    public static final String SECTION_OFFSETS_TAG_NAME = "SectionOffsets";
+    public static final String BLOCK_COUNTS_TAG_NAME = "BlockCounts";
+
+    // Gzip header with the FEXTRA flag, the extra field length, the 'LS' subfield id, its length and the 8 byte offset
+    protected static final int HEADER_LENGTH = 10 + 2 + 4 + 8;
+    protected static final int MAX_SECTIONS_IN_FLIGHT = 256;
+
+    /** Guards the section reads against the file being replaced in the middle of a read */
+    protected static final Object FILE_LOCK = new Object();
+
+    /**
+     * @return true if the schematic should be saved in the sectioned format,
+     * ie. it's a Litematica schematic with the sectioned schematic version set in the metadata
+     */
+    public static boolean shouldWriteSectioned(Schematic schematic)
+    {
+        return schematic instanceof LitematicaSchematic &&
+               schematic.getMetadata().getSchematicVersion() == LitematicaSchematic.SECTIONED_SCHEMATIC_VERSION;
+    }
+
+    /**
+     * @return the section data source for the given file, or null if the file is not a sectioned schematic file
+     */
+    @Nullable
+    public static FileSource createFileSource(Path file)
+    {
+        long dataStart = getSectionDataStart(file);
+        return dataStart >= 0 ? new FileSource(file, dataStart) : null;
+    }
+
+    /**
+     * @return the file offset where the section data starts, or -1 if the file is not a sectioned schematic file
+     */
+    public static long getSectionDataStart(Path file)
+    {
+        byte[] header = new byte[HEADER_LENGTH];
+
+        try (InputStream is = Files.newInputStream(file))
+        {
+            int pos = 0;
+            int count;
+
+            while (pos < header.length && (count = is.read(header, pos, header.length - pos)) > 0)
+            {
+                pos += count;
+            }
+
+            if (pos < header.length)
+            {
+                return -1;
+            }
+        }
+        catch (IOException e)
+        {
+            return -1;
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+
+        if (header[0] != 0x1F || header[1] != (byte) 0x8B || header[2] != 8 ||
+            (header[3] & 0x04) == 0 ||
+            buf.getShort(10) != 12 ||
+            header[12] != 'L' || header[13] != 'S' ||
+            buf.getShort(14) != 8)
+        {
+            return -1;
+        }
+
+        return buf.getLong(16);
+    }
+
+    /**
+     * Reads the sectioned schematic file. Only the first gzip member is read,
+     * the block data is read on demand later.
+     * @return the schematic, or empty if the file is not a sectioned schematic file or reading it failed
+     */
+    public static Optional<Schematic> readFromFile(Path file)
+    {
+        FileSource source = createFileSource(file);
+
+        if (source == null)
+        {
+            return Optional.empty();
+        }
+
+        CompoundData data = DataFileUtils.readCompoundDataFromNbtFile(file);
+        LitematicaSchematic schematic = new LitematicaSchematic();
+
+        if (data != null && schematic.readSectioned(data, source))
+        {
+            return Optional.of(schematic);
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Writes the schematic to the file in the sectioned format, using a temporary file
+     * the same way as {@link SchematicFileUtils#writeDataToFile(CompoundData, String, Path, CompressionMode)}.
+     * The sections are compressed on the thread pool of the {@link ParallelGzipWriter}.
+     * If the schematic was read from the same file, then its lazy containers
+     * are switched over to the section positions in the new file.
+     * This method does not use the MessageDispatcher, so it's safe to call from other threads.
+     */
+    public static boolean writeToFile(LitematicaSchematic schematic, Path file, CompressionMode compression)
+    {
+        Path tempFile = file.resolveSibling(file.getFileName().toString() + ".tmp");
+        Path sectionsFile = file.resolveSibling(file.getFileName().toString() + ".sections.tmp");
+        List<RegionRebind> rebinds = new ArrayList<>();
+        final int level = compression.getLevel();
+        long dataStart = -1;
+
+        try
+        {
+            CompoundData regionsTag = new CompoundData();
+            long dataLength = 0;
+
+            try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(sectionsFile)))
+            {
+                for (Map.Entry<String, SchematicRegion> entry : schematic.getRegions().entrySet())
+                {
+                    SchematicRegion region = entry.getValue();
+                    BlockContainer container = AdaptiveBlockContainer.unwrap(region.getBlockContainer());
+                    CompoundData regionTag = schematic.writeRegionTagWithoutBlocks(region);
+                    List<BlockState> filePalette = getFilePalette(container);
+                    long[] offsets = new long[getSectionCount(container.getSize()) + 1];
+
+                    writeRegionPaletteAndCounts(container, filePalette, regionTag);
+                    dataLength = writeSections(container, getFileIds(filePalette), offsets, dataLength, level, os);
+                    regionTag.put(SECTION_OFFSETS_TAG_NAME, new LongArrayData(offsets));
+                    regionsTag.put(entry.getKey(), regionTag);
+
+                    if (container instanceof LazySectionedBlockContainer &&
+                        ((LazySectionedBlockContainer) container).getSource() instanceof RegionSource)
+                    {
+                        RegionSource source = (RegionSource) ((LazySectionedBlockContainer) container).getSource();
+
+                        if (source.fileSource.isFile(file))
+                        {
+                            rebinds.add(new RegionRebind(source, offsets));
+                        }
+                    }
+                }
+            }
+
+            CompoundData root = new CompoundData();
+            root.putInt("Version", LitematicaSchematic.SECTIONED_SCHEMATIC_VERSION);
+            root.putInt("MinecraftDataVersion", schematic.getMinecraftDataVersion());
+            root.put("Metadata", schematic.getMetadata().write(new CompoundData()));
+            root.put("Regions", regionsTag);
+
+            byte[] nbt = ParallelGzipWriter.serializeToNbt(root, schematic.getRootTagName());
+            byte[] deflated = ParallelGzipWriter.compressBlock(nbt, 0, nbt.length, level, true);
+            CRC32 crc = new CRC32();
+            crc.update(nbt, 0, nbt.length);
+            dataStart = HEADER_LENGTH + deflated.length + 8;
+
+            try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tempFile)))
+            {
+                writeHeader(dataStart, os);
+                os.write(deflated);
+                ParallelGzipWriter.writeIntLE((int) crc.getValue(), os);
+                ParallelGzipWriter.writeIntLE(nbt.length, os);
+                Files.copy(sectionsFile, os);
+            }
+        }
+        catch (Exception e)
+        {
+            Litematica.LOGGER.warn("Failed to write the sectioned schematic to file '{}'", tempFile.toAbsolutePath(), e);
+            dataStart = -1;
+        }
+        finally
+        {
+            try
+            {
+                Files.deleteIfExists(sectionsFile);
+            }
+            catch (IOException ignore) {}
+        }
+
+        synchronized (FILE_LOCK)
+        {
+            if (SchematicFileUtils.moveTempFile(tempFile, file, dataStart >= 0) == false)
+            {
+                return false;
+            }
+
+            for (RegionRebind rebind : rebinds)
+            {
+                rebind.source.rebind(dataStart, rebind.offsets);
+            }
+        }
+
+        return true;
+    }
+
+    protected static int getSectionCount(Vec3i size)
+    {
+        final int mask = SectionedBlockContainer.SECTION_SIZE - 1;
+        final int shift = SectionedBlockContainer.SECTION_SHIFT;
+
+        return ((size.getX() + mask) >> shift) * ((size.getY() + mask) >> shift) * ((size.getZ() + mask) >> shift);
+    }
+
+    /**
+     * Lazy containers keep their palette as-is, because the unmodified sections
+     * are copied over with their existing palette IDs. Other containers get
+     * a compacted palette, with air as ID 0.
+     */
+    protected static List<BlockState> getFilePalette(BlockContainer container)
+    {
+        List<BlockState> list = new ArrayList<>();
+
+        if (container instanceof LazySectionedBlockContainer)
+        {
+            for (BlockState state : container.getPalette().getMapping())
+            {
+                list.add(state != null ? state : BaseBlockContainer.AIR_BLOCK_STATE);
+            }
+
+            return list;
+        }
+
+        // Skip the stale palette entries without compacting the palette of the container being saved
+        Object2LongOpenHashMap<BlockState> counts = container.getBlockCountsMap();
+        Palette<BlockState> palette = container.getPalette();
+        final int size = palette.getSize();
+        list.add(BaseBlockContainer.AIR_BLOCK_STATE);
+
+        for (int id = 0; id < size; ++id)
+        {
+            BlockState state = palette.getValue(id);
+
+            if (state != null && state != BaseBlockContainer.AIR_BLOCK_STATE &&
+                counts.getLong(state) > 0 && list.contains(state) == false)
+            {
+                list.add(state);
+            }
+        }
+
+        return list;
+    }
+
+    protected static Object2IntOpenHashMap<BlockState> getFileIds(List<BlockState> filePalette)
+    {
+        Object2IntOpenHashMap<BlockState> fileIds = new Object2IntOpenHashMap<>(filePalette.size());
+        final int size = filePalette.size();
+
+        for (int id = 0; id < size; ++id)
+        {
+            fileIds.putIfAbsent(filePalette.get(id), id);
+        }
+
+        return fileIds;
+    }
+
+    protected static void writeRegionPaletteAndCounts(BlockContainer container, List<BlockState> filePalette,
+                                                      CompoundData regionTag)
+    {
+        long[] counts;
+
+        if (container instanceof LazySectionedBlockContainer)
+        {
+            counts = ((LazySectionedBlockContainer) container).getBlockCountsArray();
+        }
+        else
+        {
+            Object2IntOpenHashMap<BlockState> fileIds = getFileIds(filePalette);
+            Object2LongOpenHashMap<BlockState> countsMap = container.getBlockCountsMap();
+            counts = new long[filePalette.size()];
+
+            for (Object2LongMap.Entry<BlockState> entry : countsMap.object2LongEntrySet())
+            {
+                counts[fileIds.getInt(entry.getKey())] += entry.getLongValue();
+            }
+        }
+
+        ListData paletteTag = new ListData(Constants.NBT.TAG_COMPOUND);
+
+        for (BlockState state : filePalette)
+        {
+            CompoundData stateTag = new CompoundData();
+            BlockUtils.writeBlockState(stateTag, state);
+            paletteTag.add(stateTag);
+        }
+
+        regionTag.put("BlockStatePalette", paletteTag);
+        regionTag.put(BLOCK_COUNTS_TAG_NAME, new LongArrayData(counts));
+    }
+
+    /**
+     * Writes the sections of the container to the output stream, and fills in the section offsets.
+     * The offsets array has one extra entry at the end, so that the length of each section is
+     * the difference to the next offset. All-air sections have a length of 0.
+     * @return the new data length after the written sections
+     */
+    protected static long writeSections(BlockContainer container, Object2IntOpenHashMap<BlockState> fileIds,
+                                        long[] offsets, long dataLength, int level, OutputStream os)
+            throws IOException, InterruptedException, ExecutionException
+    {
+        Vec3i size = container.getSize();
+        final int shift = SectionedBlockContainer.SECTION_SHIFT;
+        final int countX = (size.getX() + SectionedBlockContainer.SECTION_SIZE - 1) >> shift;
+        final int countY = (size.getY() + SectionedBlockContainer.SECTION_SIZE - 1) >> shift;
+        final int countZ = (size.getZ() + SectionedBlockContainer.SECTION_SIZE - 1) >> shift;
+        LazySectionedBlockContainer lazyContainer = null;
+        RegionSource rawSource = null;
+        ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>();
+        int writtenCount = 0;
+        int index = 0;
+
+        if (container instanceof LazySectionedBlockContainer)
+        {
+            lazyContainer = (LazySectionedBlockContainer) container;
+
+            if (lazyContainer.getSource() instanceof RegionSource)
+            {
+                rawSource = (RegionSource) lazyContainer.getSource();
+            }
+        }
+
+        for (int sy = 0; sy < countY; ++sy)
+        {
+            for (int sz = 0; sz < countZ; ++sz)
+            {
+                for (int sx = 0; sx < countX; ++sx)
+                {
+                    // The unmodified sections of a lazy container are copied over still compressed
+                    if (rawSource != null && lazyContainer.isSectionUnmodified(index))
+                    {
+                        byte[] compressed = rawSource.hasSection(index) ? rawSource.readCompressedSection(index) : new byte[0];
+                        inFlight.add(CompletableFuture.completedFuture(compressed));
+                    }
+                    else
+                    {
+                        byte[] data = LazySectionedBlockContainer.encodeSection(container, sx, sy, sz, fileIds);
+                        inFlight.add(data != null ? ParallelGzipWriter.compressAsync(data, level) :
+                                                    CompletableFuture.completedFuture(new byte[0]));
+                    }
+
+                    ++index;
+
+                    while (inFlight.size() >= MAX_SECTIONS_IN_FLIGHT)
+                    {
+                        dataLength = writeSection(inFlight.poll().get(), offsets, writtenCount++, dataLength, os);
+                    }
+                }
+            }
+        }
+
+        while (inFlight.isEmpty() == false)
+        {
+            dataLength = writeSection(inFlight.poll().get(), offsets, writtenCount++, dataLength, os);
+        }
+
+        offsets[writtenCount] = dataLength;
+
+        return dataLength;
+    }
+
+    protected static long writeSection(byte[] compressed, long[] offsets, int index, long dataLength, OutputStream os)
+            throws IOException
+    {
+        offsets[index] = dataLength;
+        os.write(compressed);
+        return dataLength + compressed.length;
+    }
+
+    protected static void writeHeader(long dataStart, OutputStream os) throws IOException
+    {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+
+        // Magic, CM = deflate, FLG = FEXTRA, no mtime, no extra flags, OS = unknown
+        buf.put(new byte[] { 0x1F, (byte) 0x8B, 8, 0x04, 0, 0, 0, 0, 0, (byte) 0xFF });
+        buf.putShort((short) 12);
+        buf.put((byte) 'L').put((byte) 'S');
+        buf.putShort((short) 8);
+        buf.putLong(dataStart);
+
+        os.write(buf.array());
+    }
+
+    /**
+     * The sectioned schematic file that the lazy containers of one schematic read their sections from
+     */
+    public static class FileSource
+    {
+        protected final Path file;
+        protected long dataStart;
+
+        protected FileSource(Path file, long dataStart)
+        {
+            this.file = file;
+            this.dataStart = dataStart;
+        }
+
+        protected boolean isFile(Path file)
+        {
+            return this.file.toAbsolutePath().normalize().equals(file.toAbsolutePath().normalize());
+        }
+
+        /**
+         * Creates the lazy block container for the region, from the section index and the block counts in the region tag.
+         * The palette still needs to be read into the container.
+         * @return the container, or null if the section index or the block counts are missing or invalid
+         */
+        @Nullable
+        public LazySectionedBlockContainer createContainer(DataView regionTag, Vec3i size)
+        {
+            long[] offsets = regionTag.getLongArray(SECTION_OFFSETS_TAG_NAME);
+            long[] counts = regionTag.getLongArray(BLOCK_COUNTS_TAG_NAME);
+
+            if (offsets == null || counts == null || offsets.length != getSectionCount(size) + 1)
+            {
+                return null;
+            }
+
+            return new LazySectionedBlockContainer(size, new RegionSource(this, offsets), counts);
+        }
+    }
+
+    /**
+     * The sections of one region in a sectioned schematic file
+     */
+    public static class RegionSource implements LazySectionedBlockContainer.SectionSource
+    {
+        protected final FileSource fileSource;
+        protected volatile long[] offsets;
+
+        protected RegionSource(FileSource fileSource, long[] offsets)
+        {
+            this.fileSource = fileSource;
+            this.offsets = offsets;
+        }
+
+        @Override
+        public boolean hasSection(int sectionIndex)
+        {
+            long[] offsets = this.offsets;
+            return offsets[sectionIndex + 1] > offsets[sectionIndex];
+        }
+
+        @Override
+        public byte[] readSection(int sectionIndex) throws IOException
+        {
+            byte[] compressed = this.readCompressedSection(sectionIndex);
+            Inflater inflater = new Inflater(true);
+
+            try
+            {
+                inflater.setInput(compressed);
+                byte[] data = SchematicMetadataWriter.inflate(inflater, compressed.length * 4);
+
+                if (data == null)
+                {
+                    throw new IOException("Truncated section data for section " + sectionIndex);
+                }
+
+                return data;
+            }
+            catch (DataFormatException e)
+            {
+                throw new IOException("Invalid section data for section " + sectionIndex, e);
+            }
+            finally
+            {
+                inflater.end();
+            }
+        }
+
+        /**
+         * @return the still compressed data of the section
+         */
+        public byte[] readCompressedSection(int sectionIndex) throws IOException
+        {
+            synchronized (FILE_LOCK)
+            {
+                long[] offsets = this.offsets;
+                long start = this.fileSource.dataStart + offsets[sectionIndex];
+                ByteBuffer buf = ByteBuffer.allocate((int) (offsets[sectionIndex + 1] - offsets[sectionIndex]));
+
+                try (FileChannel channel = FileChannel.open(this.fileSource.file, StandardOpenOption.READ))
+                {
+                    while (buf.hasRemaining())
+                    {
+                        if (channel.read(buf, start + buf.position()) < 0)
+                        {
+                            throw new IOException("Unexpected end of the file while reading section " + sectionIndex);
+                        }
+                    }
+                }
+
+                return buf.array();
+            }
+        }
+
+        protected void rebind(long dataStart, long[] offsets)
+        {
+            this.fileSource.dataStart = dataStart;
+            this.offsets = offsets;
+        }
+    }
+
+    protected static class RegionRebind
+    {
+        protected final RegionSource source;
+        protected final long[] offsets;
+
+        protected RegionRebind(RegionSource source, long[] offsets)
+        {
+            this.source = source;
+            this.offsets = offsets;
+        }
+    }
+}
@@ -56,8 +56,9 @@ public class SchematicVerifier implements IInfoHudRenderer
     protected final HashSet<BlockStatePair> ignoredPairs = new HashSet<>();
     protected final HashSet<VerifierResultType> visibleCategories = new HashSet<>();
 
-    protected final ArrayList<BlockPairTypePosition> allSelectedPositions = new ArrayList<>();
+    protected final SelectedPositionIndex selectedPositionIndex = new SelectedPositionIndex();
     protected final ArrayList<BlockPairTypePosition> closestSelectedPositions = new ArrayList<>();
+    protected final Long2ObjectOpenHashMap<BlockPairTypePosition> closestSelectedPositionsByPos = new Long2ObjectOpenHashMap<>();
 
     protected final ArrayList<String> infoHudLines = new ArrayList<>();
     protected RunStatus status = RunStatus.STOPPED;
@@ -67,6 +68,7 @@ public class SchematicVerifier implements IInfoHudRenderer
     @Nullable protected TaskCompletionListener completionListener;
     @Nullable protected EventListener statusChangeListener;
     @Nullable BlockPos lastSortPosition;
+    protected int closestSelectedPositionsVersion;
     protected boolean autoRefresh;
     protected boolean countsDirty;
     protected boolean infoHudEnabled;
@@ -439,6 +441,34 @@ public class SchematicVerifier implements IInfoHudRenderer
         return this.closestSelectedPositions;
     }
 
+    /**
+     * @return the entry from the current closest selected positions list
+     * that is at the given position, or null if there is no such entry
+     */
+    @Nullable
+    public BlockPairTypePosition getClosestSelectedPositionAt(int x, int y, int z)
+    {
+        return this.closestSelectedPositionsByPos.get(SelectedPositionIndex.getPositionKey(x, y, z));
+    }
+
+    /**
+     * @return true if the current closest selected positions list is not empty.
+     * This does not update the list, see {@link #getClosestSelectedPositions(BlockPos)}.
+     */
+    public boolean hasClosestSelectedPositions()
+    {
+        return this.closestSelectedPositions.isEmpty() == false;
+    }
+
+    /**
+     * @return a counter that changes every time the list returned by
+     * {@link #getClosestSelectedPositions(BlockPos)} gets updated
+     */
+    public int getClosestSelectedPositionsVersion()
+    {
+        return this.closestSelectedPositionsVersion;
+    }
+
     protected void clear()
     {
         this.boxesInChunks.clear();
@@ -453,8 +483,10 @@ public class SchematicVerifier implements IInfoHudRenderer
         this.calculatedSelectedPairs.clear();
         this.ignoredPairs.clear();
 
-        this.allSelectedPositions.clear();
+        this.selectedPositionIndex.clear();
         this.closestSelectedPositions.clear();
+        this.closestSelectedPositionsByPos.clear();
+        ++this.closestSelectedPositionsVersion;
 
         this.status = RunStatus.STOPPED;
     }
@@ -544,7 +576,7 @@ public class SchematicVerifier implements IInfoHudRenderer
     protected void updateSelectedPositions()
     {
         this.updateSelectedPairsIfDirty();
-        this.allSelectedPositions.clear();
+        this.selectedPositionIndex.clear();
 
         for (long chunkPosLong : this.resultsPerChunk.keySet())
         {
@@ -556,7 +588,7 @@ public class SchematicVerifier implements IInfoHudRenderer
                 {
                     for (int relPos : results.get(pair))
                     {
-                        this.allSelectedPositions.add(BlockPairTypePosition.of(pair, chunkPosLong, relPos));
+                        this.selectedPositionIndex.add(BlockPairTypePosition.of(pair, chunkPosLong, relPos));
                     }
                 }
             }
@@ -586,13 +618,19 @@ public class SchematicVerifier implements IInfoHudRenderer
     protected void updateClosestPositions(BlockPos referencePos)
     {
         this.closestSelectedPositions.clear();
+        this.closestSelectedPositionsByPos.clear();
 
         int max = Configs.InfoOverlays.VERIFIER_ERROR_HIGHLIGHT_MAX_POSITIONS.getIntegerValue();
-        int endIndex = Math.min(max, this.allSelectedPositions.size());
-        this.allSelectedPositions.sort(new BlockPairTypePositionComparator(referencePos, true));
-        this.closestSelectedPositions.addAll(this.allSelectedPositions.subList(0, endIndex));
+        this.selectedPositionIndex.getClosestPositions(referencePos, max, this.closestSelectedPositions);
+
+        for (BlockPairTypePosition entry : this.closestSelectedPositions)
+        {
+            this.closestSelectedPositionsByPos.put(SelectedPositionIndex.getPositionKey(entry.posLong), entry);
+        }
+
         this.selectedClosestPositionsDirty = false;
         this.lastSortPosition = referencePos;
+        ++this.closestSelectedPositionsVersion;
     }
 
     protected void updateInfoHudLines()
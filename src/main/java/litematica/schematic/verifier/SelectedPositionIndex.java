@@ -0,0 +1,168 @@
+package litematica.schematic.verifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import malilib.util.position.BlockPos;
+import malilib.util.position.PositionUtils;
+
+/**
+ * A chunk column bucketed spatial index of the selected verifier result positions.
+ * The closest positions query only needs to look at the positions in the
+ * chunk columns that can contain positions closer than the current k-th closest candidate,
+ * instead of sorting all the positions.
+ */
+class SelectedPositionIndex
+{
+    protected final Long2ObjectOpenHashMap<Bucket> buckets = new Long2ObjectOpenHashMap<>();
+    protected final ArrayList<Bucket> bucketList = new ArrayList<>();
+    protected int size;
+
+    public void clear()
+    {
+        this.buckets.clear();
+        this.bucketList.clear();
+        this.size = 0;
+    }
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    public void add(BlockPairTypePosition entry)
+    {
+        int x = PositionUtils.unpackX(entry.posLong);
+        int y = PositionUtils.unpackY(entry.posLong);
+        int z = PositionUtils.unpackZ(entry.posLong);
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+        long key = (long) chunkX << 32 | (chunkZ & 0xFFFFFFFFL);
+        Bucket bucket = this.buckets.get(key);
+
+        if (bucket == null)
+        {
+            bucket = new Bucket(chunkX, chunkZ, y);
+            this.buckets.put(key, bucket);
+            this.bucketList.add(bucket);
+        }
+
+        bucket.add(entry, y);
+        ++this.size;
+    }
+
+    /**
+     * Adds the (at most) <b>maxCount</b> closest positions to the given reference position
+     * to the output list, sorted by their distance, closest first.
+     */
+    public void getClosestPositions(BlockPos referencePos, int maxCount, List<BlockPairTypePosition> outputList)
+    {
+        if (maxCount <= 0 || this.size == 0)
+        {
+            return;
+        }
+
+        final int refX = referencePos.getX();
+        final int refY = referencePos.getY();
+        final int refZ = referencePos.getZ();
+
+        for (Bucket bucket : this.bucketList)
+        {
+            bucket.updateDistances(refX, refY, refZ);
+        }
+
+        this.bucketList.sort((b1, b2) -> Long.compare(b1.minDistanceSq, b2.minDistanceSq));
+
+        ArrayList<BlockPairTypePosition> candidates = new ArrayList<>();
+        long maxDistanceBound = Long.MAX_VALUE;
+        long farthestAdded = 0;
+
+        for (Bucket bucket : this.bucketList)
+        {
+            // All the positions in the remaining buckets are farther away than at least
+            // maxCount of the already collected candidates
+            if (bucket.minDistanceSq > maxDistanceBound)
+            {
+                break;
+            }
+
+            candidates.addAll(bucket.positions);
+
+            if (maxDistanceBound == Long.MAX_VALUE)
+            {
+                farthestAdded = Math.max(farthestAdded, bucket.maxDistanceSq);
+
+                if (candidates.size() >= maxCount)
+                {
+                    maxDistanceBound = farthestAdded;
+                }
+            }
+        }
+
+        candidates.sort(new BlockPairTypePositionComparator(referencePos, true));
+        outputList.addAll(candidates.subList(0, Math.min(maxCount, candidates.size())));
+    }
+
+    /**
+     * @return the index key for the given position, which is packed in the BlockPos long format
+     */
+    public static long getPositionKey(long posLong)
+    {
+        return getPositionKey(PositionUtils.unpackX(posLong), PositionUtils.unpackY(posLong), PositionUtils.unpackZ(posLong));
+    }
+
+    public static long getPositionKey(int x, int y, int z)
+    {
+        return ((long) x & 0x3FFFFFFL) << 38 | ((long) z & 0x3FFFFFFL) << 12 | ((long) y & 0xFFFL);
+    }
+
+    protected static class Bucket
+    {
+        protected final ArrayList<BlockPairTypePosition> positions = new ArrayList<>();
+        protected final int minX;
+        protected final int minZ;
+        protected int minY;
+        protected int maxY;
+        protected long minDistanceSq;
+        protected long maxDistanceSq;
+
+        protected Bucket(int chunkX, int chunkZ, int y)
+        {
+            this.minX = chunkX << 4;
+            this.minZ = chunkZ << 4;
+            this.minY = y;
+            this.maxY = y;
+        }
+
+        protected void add(BlockPairTypePosition entry, int y)
+        {
+            this.positions.add(entry);
+            this.minY = Math.min(this.minY, y);
+            this.maxY = Math.max(this.maxY, y);
+        }
+
+        protected void updateDistances(int refX, int refY, int refZ)
+        {
+            long nearX = getNearestDistance(refX, this.minX, this.minX + 15);
+            long nearY = getNearestDistance(refY, this.minY, this.maxY);
+            long nearZ = getNearestDistance(refZ, this.minZ, this.minZ + 15);
+            long farX = Math.max(Math.abs(refX - this.minX), Math.abs(refX - (this.minX + 15)));
+            long farY = Math.max(Math.abs(refY - this.minY), Math.abs(refY - this.maxY));
+            long farZ = Math.max(Math.abs(refZ - this.minZ), Math.abs(refZ - (this.minZ + 15)));
+
+            this.minDistanceSq = nearX * nearX + nearY * nearY + nearZ * nearZ;
+            this.maxDistanceSq = farX * farX + farY * farY + farZ * farZ;
+        }
+
+        protected static long getNearestDistance(int value, int min, int max)
+        {
+            if (value < min)
+            {
+                return min - value;
+            }
+
+            return value > max ? value - max : 0;
+        }
+    }
+}
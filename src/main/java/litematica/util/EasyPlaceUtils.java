@@ -3,10 +3,14 @@ package litematica.util;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
 import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
 
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockRedstoneComparator;
@@ -14,6 +18,7 @@ import net.minecraft.block.BlockRedstoneRepeater;
 import net.minecraft.block.BlockSlab;
 import net.minecraft.block.BlockStairs;
 import net.minecraft.block.BlockTrapDoor;
+import net.minecraft.block.material.Material;
 import net.minecraft.block.properties.IProperty;
 import net.minecraft.block.properties.PropertyDirection;
 import net.minecraft.block.state.IBlockState;
@@ -37,6 +42,7 @@ import malilib.util.game.RayTraceUtils.RayTraceFluidHandling;
 import malilib.util.game.wrap.EntityWrap;
 import malilib.util.game.wrap.GameWrap;
 import malilib.util.game.wrap.ItemWrap;
+import malilib.util.inventory.InventoryUtils;
 import malilib.util.position.BlockPos;
 import malilib.util.position.ChunkSectionPos;
 import malilib.util.position.Direction;
@@ -58,8 +64,13 @@ import litematica.world.SchematicWorldHandler;
 
 public class EasyPlaceUtils
 {
-    private static final List<PositionCache> EASY_PLACE_POSITIONS = new ArrayList<>();
+    private static final long EASY_PLACE_POSITION_TIMEOUT = 2000000000L;
+    private static final int EASY_PLACE_POSITION_SWEEP_THRESHOLD = 256;
+
+    /** The recently placed positions (as BlockPos.toLong()) mapped to the nanoTime when they expire */
+    private static final Long2LongOpenHashMap EASY_PLACE_POSITIONS = new Long2LongOpenHashMap();
     private static final HashMap<Block, Boolean> HAS_USE_ACTION_CACHE = new HashMap<>();
+    private static final Direction[] PLANNER_CLICK_SIDES = { Direction.DOWN, Direction.NORTH, Direction.SOUTH, Direction.WEST, Direction.EAST, Direction.UP };
 
     private static boolean isHandling;
     private static boolean isFirstClickEasyPlace;
@@ -123,13 +134,24 @@ public class EasyPlaceUtils
 
     public static void easyPlaceOnUseTick()
     {
+        boolean planner = Configs.Generic.EASY_PLACE_PLANNER.getBooleanValue();
+
         if (isHandling == false &&
-            Configs.Generic.EASY_PLACE_HOLD_ENABLED.getBooleanValue() &&
+            (planner || Configs.Generic.EASY_PLACE_HOLD_ENABLED.getBooleanValue()) &&
             shouldDoEasyPlaceActions() &&
             Keys.isKeyDown(GameWrap.getOptions().keyBindUseItem.getKeyCode()))
         {
             isHandling = true;
-            handleEasyPlace();
+
+            if (planner)
+            {
+                handleEasyPlacePlanner();
+            }
+            else
+            {
+                handleEasyPlace();
+            }
+
             isHandling = false;
         }
     }
@@ -486,6 +508,242 @@ public class EasyPlaceUtils
         return EnumActionResult.SUCCESS;
     }
 
+    /**
+     * Places all the missing schematic blocks within reach, up to the configured number of blocks per tick.
+     * The positions are placed from the bottom up and from near to far, and always by clicking
+     * on an existing adjacent block, so positions that don't have any adjacent blocks yet
+     * are retried after the other placements of the same tick have been done.
+     * Only the items that are already in the hands or in the hotbar are used.
+     * Slabs are left for the normal Easy Place handling, as they need the targeted half.
+     */
+    private static void handleEasyPlacePlanner()
+    {
+        EntityPlayerSP player = GameWrap.getClientPlayer();
+        WorldClient world = GameWrap.getClientWorld();
+        World schematicWorld = SchematicWorldHandler.getSchematicWorld();
+
+        if (player == null || world == null || schematicWorld == null)
+        {
+            return;
+        }
+
+        List<PlannedPosition> positions = getPlannedPositions(player, world, schematicWorld);
+        final int maxPlacements = Configs.Generic.EASY_PLACE_PLANNER_RATE.getIntegerValue();
+        int placedCount = 0;
+        boolean progress = true;
+
+        // Each placement can add the supporting block for some of the remaining positions
+        while (progress && placedCount < maxPlacements && positions.isEmpty() == false)
+        {
+            List<PlannedPosition> remaining = new ArrayList<>();
+            progress = false;
+
+            for (PlannedPosition position : positions)
+            {
+                if (placedCount >= maxPlacements)
+                {
+                    break;
+                }
+
+                EnumActionResult result = placePlannedPosition(position, player, world);
+
+                if (result == EnumActionResult.SUCCESS)
+                {
+                    ++placedCount;
+                    progress = true;
+                }
+                else if (result == EnumActionResult.PASS)
+                {
+                    remaining.add(position);
+                }
+            }
+
+            positions = remaining;
+        }
+    }
+
+    private static List<PlannedPosition> getPlannedPositions(EntityPlayerSP player, World world, World schematicWorld)
+    {
+        List<PlannedPosition> positions = new ArrayList<>();
+        double reach = GameWrap.getInteractionManager().getBlockReachDistance();
+        double reachSq = reach * reach;
+        double eyeX = EntityWrap.getX(player);
+        double eyeY = EntityWrap.getY(player) + player.getEyeHeight();
+        double eyeZ = EntityWrap.getZ(player);
+        int range = (int) Math.ceil(reach);
+        int minX = (int) Math.floor(eyeX) - range;
+        int minY = Math.max((int) Math.floor(eyeY) - range, 0);
+        int minZ = (int) Math.floor(eyeZ) - range;
+        int maxX = (int) Math.floor(eyeX) + range;
+        int maxY = Math.min((int) Math.floor(eyeY) + range, 255);
+        int maxZ = (int) Math.floor(eyeZ) + range;
+        LayerRange layerRange = DataManager.getRenderLayerRange();
+        MaterialCache materialCache = MaterialCache.getInstance();
+        BlockPos.MutBlockPos mutablePos = new BlockPos.MutBlockPos();
+
+        for (int y = minY; y <= maxY; ++y)
+        {
+            for (int z = minZ; z <= maxZ; ++z)
+            {
+                for (int x = minX; x <= maxX; ++x)
+                {
+                    double dx = x + 0.5 - eyeX;
+                    double dy = y + 0.5 - eyeY;
+                    double dz = z + 0.5 - eyeZ;
+                    double distanceSq = dx * dx + dy * dy + dz * dz;
+
+                    if (distanceSq > reachSq || layerRange.isPositionWithinRange(x, y, z) == false)
+                    {
+                        continue;
+                    }
+
+                    mutablePos.set(x, y, z);
+                    IBlockState stateSchematic = schematicWorld.getBlockState(mutablePos);
+
+                    if (stateSchematic.getMaterial() == Material.AIR ||
+                        stateSchematic.getBlock() instanceof BlockSlab ||
+                        stateSchematic == world.getBlockState(mutablePos) ||
+                        PlacementUtils.isReplaceable(world, mutablePos, true) == false ||
+                        easyPlaceIsPositionCached(mutablePos))
+                    {
+                        continue;
+                    }
+
+                    ItemStack requiredStack = materialCache.getRequiredBuildItemForState(BlockState.of(stateSchematic));
+
+                    if (ItemWrap.notEmpty(requiredStack) && isItemInHandsOrHotbar(player, requiredStack))
+                    {
+                        positions.add(new PlannedPosition(new BlockPos(x, y, z), stateSchematic, requiredStack, distanceSq));
+                    }
+                }
+            }
+        }
+
+        // Bottom up, so that the lower blocks can support the blocks above them, and then from near to far
+        positions.sort(Comparator.comparingInt((PlannedPosition p) -> p.pos.getY()).thenComparingDouble(p -> p.distanceSq));
+
+        return positions;
+    }
+
+    /**
+     * @return SUCCESS if the block was placed, PASS if the position doesn't have
+     *         any adjacent blocks to click on yet, or FAIL if the position can't be placed
+     */
+    private static EnumActionResult placePlannedPosition(PlannedPosition position, EntityPlayerSP player, WorldClient world)
+    {
+        BlockPos targetPos = position.pos;
+
+        // The position may have been filled by an earlier placement, for example by a multi-block item
+        if (PlacementUtils.isReplaceable(world, targetPos, true) == false)
+        {
+            return EnumActionResult.FAIL;
+        }
+
+        HitPosition clickPosition = getPlannerClickPosition(targetPos, world);
+
+        if (clickPosition == null)
+        {
+            return EnumActionResult.PASS;
+        }
+
+        EnumHand hand = getHandForItemFromHotbar(player, position.requiredStack);
+
+        if (hand == null)
+        {
+            return EnumActionResult.FAIL;
+        }
+
+        BlockPos clickPos = clickPosition.getBlockPos();
+        Vec3d hitPos = applyCarpetProtocolHitVec(clickPos, position.stateSchematic, clickPosition.getExactPos());
+        boolean needsSneak = hasUseAction(world.getBlockState(clickPos).getBlock());
+        boolean didFakeSneak = needsSneak && EntityUtils.setFakedSneakingState(true);
+        EnumActionResult result = GameWrap.getInteractionManager().processRightClickBlock(player, world, clickPos, clickPosition.getSide().getVanillaDirection(), hitPos.toVanilla(), hand);
+
+        if (didFakeSneak)
+        {
+            EntityUtils.setFakedSneakingState(false);
+        }
+
+        if (result != EnumActionResult.SUCCESS)
+        {
+            return EnumActionResult.FAIL;
+        }
+
+        cacheEasyPlacePosition(targetPos);
+        player.swingArm(hand);
+
+        return EnumActionResult.SUCCESS;
+    }
+
+    @Nullable
+    private static HitPosition getPlannerClickPosition(BlockPos targetPos, World world)
+    {
+        // Prefer clicking on the block below, so that the block is placed as if it was built from the ground up
+        for (Direction side : PLANNER_CLICK_SIDES)
+        {
+            BlockPos posSide = targetPos.offset(side);
+
+            if (PlacementUtils.isReplaceable(world, posSide, false) == false)
+            {
+                Vec3d hitPos = getHitPositionForSidePosition(posSide, side);
+                return HitPosition.of(posSide, hitPos, side.getOpposite());
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets the hand that holds the given item, by switching to the hotbar slot
+     * that has the item, if it isn't already held. The items are never moved in the inventory.
+     * @return the hand holding the item, or null if the item is not in the hands or in the hotbar
+     */
+    @Nullable
+    private static EnumHand getHandForItemFromHotbar(EntityPlayerSP player, ItemStack stack)
+    {
+        boolean ignoreNbt = Configs.Generic.PICK_BLOCK_IGNORE_NBT.getBooleanValue();
+        EnumHand hand = EntityWrap.getUsedHandForItem(player, stack, ignoreNbt);
+
+        if (hand != null)
+        {
+            return hand;
+        }
+
+        int slot = getHotbarSlotWithItem(player, stack, ignoreNbt);
+
+        if (slot != -1)
+        {
+            InventoryUtils.setSelectedHotbarSlot(slot);
+            return EnumHand.MAIN_HAND;
+        }
+
+        return null;
+    }
+
+    private static boolean isItemInHandsOrHotbar(EntityPlayerSP player, ItemStack stack)
+    {
+        boolean ignoreNbt = Configs.Generic.PICK_BLOCK_IGNORE_NBT.getBooleanValue();
+
+        return EntityWrap.getUsedHandForItem(player, stack, ignoreNbt) != null ||
+               getHotbarSlotWithItem(player, stack, ignoreNbt) != -1;
+    }
+
+    private static int getHotbarSlotWithItem(EntityPlayerSP player, ItemStack stack, boolean ignoreNbt)
+    {
+        for (int slot = 0; slot < 9; ++slot)
+        {
+            ItemStack stackInSlot = player.inventory.getStackInSlot(slot);
+
+            if (ItemStack.areItemsEqual(stack, stackInSlot) &&
+                (ignoreNbt || ItemStack.areItemStackTagsEqual(stack, stackInSlot)))
+            {
+                return slot;
+            }
+        }
+
+        return -1;
+    }
+
     private static boolean clientBlockIsSameMaterialSingleSlab(IBlockState stateSchematic, IBlockState stateClient)
     {
         Block blockSchematic = stateSchematic.getBlock();
@@ -684,61 +942,57 @@ public class EasyPlaceUtils
     }
 
     private static boolean easyPlaceIsPositionCached(BlockPos pos)
+    {
+        long key = pos.toLong();
+
+        if (EASY_PLACE_POSITIONS.containsKey(key) == false)
+        {
+            return false;
+        }
+
+        if (System.nanoTime() - EASY_PLACE_POSITIONS.get(key) > 0)
+        {
+            EASY_PLACE_POSITIONS.remove(key);
+            return false;
+        }
+
+        return true;
+    }
+
+    private static void cacheEasyPlacePosition(BlockPos pos)
     {
         long currentTime = System.nanoTime();
-        boolean cached = false;
 
-        for (int i = 0; i < EASY_PLACE_POSITIONS.size(); ++i)
+        // Remove the expired entries once there are a fair amount, so that the map doesn't keep growing
+        if (EASY_PLACE_POSITIONS.size() >= EASY_PLACE_POSITION_SWEEP_THRESHOLD)
         {
-            PositionCache val = EASY_PLACE_POSITIONS.get(i);
-            boolean expired = val.hasExpired(currentTime);
+            ObjectIterator<Long2LongMap.Entry> iter = EASY_PLACE_POSITIONS.long2LongEntrySet().fastIterator();
 
-            if (expired)
-            {
-                EASY_PLACE_POSITIONS.remove(i);
-                --i;
-            }
-            else if (val.getPos().equals(pos))
+            while (iter.hasNext())
             {
-                cached = true;
-
-                // Keep checking and removing old entries if there are a fair amount
-                if (EASY_PLACE_POSITIONS.size() < 16)
+                if (currentTime - iter.next().getLongValue() > 0)
                 {
-                    break;
+                    iter.remove();
                 }
             }
         }
 
-        return cached;
+        EASY_PLACE_POSITIONS.put(pos.toLong(), currentTime + EASY_PLACE_POSITION_TIMEOUT);
     }
 
-    private static void cacheEasyPlacePosition(BlockPos pos)
-    {
-        EASY_PLACE_POSITIONS.add(new PositionCache(pos, System.nanoTime(), 2000000000));
-    }
-
-    public static class PositionCache
+    private static class PlannedPosition
     {
         private final BlockPos pos;
-        private final long time;
-        private final long timeout;
+        private final IBlockState stateSchematic;
+        private final ItemStack requiredStack;
+        private final double distanceSq;
 
-        private PositionCache(BlockPos pos, long time, long timeout)
+        private PlannedPosition(BlockPos pos, IBlockState stateSchematic, ItemStack requiredStack, double distanceSq)
         {
             this.pos = pos;
-            this.time = time;
-            this.timeout = timeout;
-        }
-
-        public BlockPos getPos()
-        {
-            return this.pos;
-        }
-
-        public boolean hasExpired(long currentTime)
-        {
-            return currentTime - this.time > this.timeout;
+            this.stateSchematic = stateSchematic;
+            this.requiredStack = requiredStack;
+            this.distanceSq = distanceSq;
         }
     }
 }
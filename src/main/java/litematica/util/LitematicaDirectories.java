@@ -65,11 +65,21 @@ public class LitematicaDirectories
         return ConfigUtils.getConfigDirectory().resolve(Reference.MOD_ID);
     }
 
+    public static Path getBatchProcessingDirectory()
+    {
+        return getDataDirectory("batch_processing");
+    }
+
     public static Path getMaterialListDirectory()
     {
         return getDataDirectory("material_list");
     }
 
+    public static Path getOffHeapStorageDirectory()
+    {
+        return getDataDirectory("temp_block_storage");
+    }
+
     public static Path getPlacementSaveFilesDirectory()
     {
         Path dir = getPerWorldDataDirectory("placements");
@@ -28,6 +28,7 @@ import litematica.config.Hotkeys;
 import litematica.data.DataManager;
 import litematica.schematic.placement.SchematicPlacement;
 import litematica.schematic.verifier.BlockPairTypePosition;
+import litematica.schematic.verifier.SchematicVerifier;
 import litematica.selection.AreaSelection;
 import litematica.selection.BoxCorner;
 import litematica.selection.SelectionBox;
@@ -331,41 +332,75 @@ public class RayTraceUtils
     }
 
     /**
-     * Ray traces to the closest position on the given list
+     * Ray traces to the closest position on the verifier's current closest selected positions list.
+     * This walks the block positions along the look vector and looks up each of them,
+     * instead of checking every position on the list against the look vector.
      */
     @Nullable
-    public static BlockPairTypePosition traceToVerifierResultPositions(List<BlockPairTypePosition> posList, Entity entity, double range)
+    public static BlockPairTypePosition traceToVerifierResultPositions(SchematicVerifier verifier, Entity entity, double range)
     {
-        if (posList.isEmpty())
+        if (verifier.hasClosestSelectedPositions() == false)
         {
             return null;
         }
 
         Vec3d eyesPos = EntityWrap.getEntityEyePos(entity);
         Vec3d look = EntityWrap.getScaledLookVector(entity, range);
-        Vec3d lookEndPos = eyesPos.add(look);
+        final double startX = eyesPos.x;
+        final double startY = eyesPos.y;
+        final double startZ = eyesPos.z;
+        final double dirX = look.x;
+        final double dirY = look.y;
+        final double dirZ = look.z;
+
+        int x = (int) Math.floor(startX);
+        int y = (int) Math.floor(startY);
+        int z = (int) Math.floor(startZ);
+        final int stepX = dirX > 0 ? 1 : -1;
+        final int stepY = dirY > 0 ? 1 : -1;
+        final int stepZ = dirZ > 0 ? 1 : -1;
+        // The values are in the range 0..1 along the look vector
+        final double deltaX = dirX != 0 ? Math.abs(1.0 / dirX) : Double.POSITIVE_INFINITY;
+        final double deltaY = dirY != 0 ? Math.abs(1.0 / dirY) : Double.POSITIVE_INFINITY;
+        final double deltaZ = dirZ != 0 ? Math.abs(1.0 / dirZ) : Double.POSITIVE_INFINITY;
+        double nextX = dirX != 0 ? (dirX > 0 ? x + 1 - startX : startX - x) * deltaX : Double.POSITIVE_INFINITY;
+        double nextY = dirY != 0 ? (dirY > 0 ? y + 1 - startY : startY - y) * deltaY : Double.POSITIVE_INFINITY;
+        double nextZ = dirZ != 0 ? (dirZ > 0 ? z + 1 - startZ : startZ - z) * deltaZ : Double.POSITIVE_INFINITY;
+        int maxSteps = (int) Math.ceil(range) * 3 + 3;
+
+        while (maxSteps-- > 0)
+        {
+            BlockPairTypePosition pos = verifier.getClosestSelectedPositionAt(x, y, z);
 
-        BlockPairTypePosition closestPos = null;
-        double closest = -1D;
-
-        for (BlockPairTypePosition pos : posList)
-        {
-            AxisAlignedBB bb = PositionUtils.createAABBForPosition(pos.posLong);
-            RayTraceResult hit = bb.calculateIntercept(eyesPos.toVanilla(), lookEndPos.toVanilla());
+            if (pos != null)
+            {
+                return pos;
+            }
 
-            if (hit != null)
+            // Reached the end of the look vector
+            if (nextX > 1.0 && nextY > 1.0 && nextZ > 1.0)
             {
-                double dist = hit.hitVec.distanceTo(eyesPos.toVanilla());
+                break;
+            }
 
-                if (closest < 0 || dist < closest)
-                {
-                    closestPos = pos;
-                    closest = dist;
-                }
+            if (nextX < nextY && nextX < nextZ)
+            {
+                x += stepX;
+                nextX += deltaX;
+            }
+            else if (nextY < nextZ)
+            {
+                y += stepY;
+                nextY += deltaY;
+            }
+            else
+            {
+                z += stepZ;
+                nextZ += deltaZ;
             }
         }
 
-        return closestPos;
+        return null;
     }
 
     @Nullable
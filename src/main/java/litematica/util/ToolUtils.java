@@ -376,6 +376,8 @@ public class ToolUtils
             }
         }
 
+        // The cloned area is only kept in memory while it has a placement
+        loadedSchematic.setUnloadWhenUnused(true);
         SchematicHolder.INSTANCE.addSchematic(loadedSchematic, true);
 
         SchematicPlacement placement = SchematicPlacement.create(loadedSchematic, origin, name, true, false);
@@ -0,0 +1,171 @@
+package litematica.util.world;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import net.minecraft.world.NextTickListEntry;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+
+import malilib.util.game.wrap.GameWrap;
+import malilib.util.position.BlockPos;
+import malilib.util.position.IntBoundingBox;
+import malilib.util.position.Vec3i;
+import malilib.util.world.ScheduledBlockTickData;
+
+/**
+ * A snapshot of the pending block ticks within an area, bucketed per chunk column
+ * and sorted by the y-coordinate within each chunk.
+ * In 1.12 the WorldServer#getPendingBlockUpdates() method walks through all the pending ticks
+ * in the entire world on every call, so when reading the ticks of a large area one chunk at a time,
+ * it's a lot cheaper to fetch them all in one pass and then query this snapshot per box.
+ */
+public class PendingBlockTickSnapshot
+{
+    protected final Long2ObjectOpenHashMap<ChunkTicks> ticksPerChunk = new Long2ObjectOpenHashMap<>();
+    protected final long worldTick;
+
+    protected PendingBlockTickSnapshot(long worldTick)
+    {
+        this.worldTick = worldTick;
+    }
+
+    /**
+     * Reads all the pending ticks within the given box from the snapshot to the map,
+     * using the given base position as the origin for the relative positions.
+     * The delays are relative to the world tick when the snapshot was created.
+     */
+    public void readBlockTicksToMap(IntBoundingBox box, Vec3i basePosition, Map<BlockPos, ScheduledBlockTickData> blockTickMap)
+    {
+        for (int cx = box.minX >> 4; cx <= (box.maxX >> 4); ++cx)
+        {
+            for (int cz = box.minZ >> 4; cz <= (box.maxZ >> 4); ++cz)
+            {
+                ChunkTicks ticks = this.ticksPerChunk.get(getChunkKey(cx, cz));
+
+                if (ticks != null)
+                {
+                    ticks.readBlockTicksToMap(box, basePosition, this.worldTick, blockTickMap);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a snapshot of the pending block ticks within the given area.
+     * @return the snapshot, or null if the world is not a server world,
+     * and thus doesn't have the pending tick information
+     */
+    @Nullable
+    public static PendingBlockTickSnapshot create(World world, IntBoundingBox area)
+    {
+        if ((world instanceof WorldServer) == false)
+        {
+            return null;
+        }
+
+        // The vanilla method checks for "x < maxX" etc.
+        IntBoundingBox expandedBox = IntBoundingBox.createProper(
+                area.minX,     area.minY,     area.minZ,
+                area.maxX + 1, area.maxY + 1, area.maxZ + 1);
+        List<NextTickListEntry> pendingTicks = world.getPendingBlockUpdates(expandedBox.toVanillaBox(), false);
+        PendingBlockTickSnapshot snapshot = new PendingBlockTickSnapshot(GameWrap.getWorldTotalTick(world));
+
+        if (pendingTicks == null)
+        {
+            return snapshot;
+        }
+
+        Long2ObjectOpenHashMap<List<NextTickListEntry>> lists = new Long2ObjectOpenHashMap<>();
+
+        for (NextTickListEntry entry : pendingTicks)
+        {
+            int y = entry.position.getY();
+
+            // The getPendingBlockUpdates() method doesn't check the y-coordinate
+            if (y < area.minY || y > area.maxY)
+            {
+                continue;
+            }
+
+            long key = getChunkKey(entry.position.getX() >> 4, entry.position.getZ() >> 4);
+            lists.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+        }
+
+        for (Long2ObjectMap.Entry<List<NextTickListEntry>> mapEntry : lists.long2ObjectEntrySet())
+        {
+            snapshot.ticksPerChunk.put(mapEntry.getLongKey(), new ChunkTicks(mapEntry.getValue()));
+        }
+
+        return snapshot;
+    }
+
+    public static long getChunkKey(int chunkX, int chunkZ)
+    {
+        return (long) chunkX << 32 | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    protected static class ChunkTicks
+    {
+        protected final NextTickListEntry[] entries;
+        protected final int[] yPositions;
+
+        protected ChunkTicks(List<NextTickListEntry> list)
+        {
+            list.sort(Comparator.comparingInt(e -> e.position.getY()));
+
+            this.entries = list.toArray(new NextTickListEntry[0]);
+            this.yPositions = new int[this.entries.length];
+
+            for (int i = 0; i < this.entries.length; ++i)
+            {
+                this.yPositions[i] = this.entries[i].position.getY();
+            }
+        }
+
+        protected void readBlockTicksToMap(IntBoundingBox box, Vec3i basePosition, long currentWorldTick,
+                                           Map<BlockPos, ScheduledBlockTickData> blockTickMap)
+        {
+            final int count = this.entries.length;
+
+            for (int i = this.getFirstIndexAtOrAbove(box.minY); i < count && this.yPositions[i] <= box.maxY; ++i)
+            {
+                NextTickListEntry entry = this.entries[i];
+                int x = entry.position.getX();
+                int z = entry.position.getZ();
+
+                if (x >= box.minX && x <= box.maxX && z >= box.minZ && z <= box.maxZ)
+                {
+                    VanillaWorldBlockView.addBlockTickToMap(entry, basePosition, currentWorldTick, blockTickMap);
+                }
+            }
+        }
+
+        protected int getFirstIndexAtOrAbove(int y)
+        {
+            int low = 0;
+            int high = this.yPositions.length;
+
+            while (low < high)
+            {
+                int mid = (low + high) >>> 1;
+
+                if (this.yPositions[mid] < y)
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid;
+                }
+            }
+
+            return low;
+        }
+    }
+}
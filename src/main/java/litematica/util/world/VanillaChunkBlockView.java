@@ -1,6 +1,7 @@
 package litematica.util.world;
 
 import java.util.Map;
+import javax.annotation.Nullable;
 
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
@@ -17,11 +18,32 @@ public class VanillaChunkBlockView implements BlockView
 {
     protected final World world;
     protected final Chunk chunk;
+    @Nullable protected final PendingBlockTickSnapshot tickSnapshot;
 
     public VanillaChunkBlockView(World world, Chunk chunk)
+    {
+        this(world, chunk, null);
+    }
+
+    /**
+     * @param tickSnapshot if not null, then the pending block ticks are read from this snapshot
+     *                     instead of querying the world for each box separately
+     */
+    public VanillaChunkBlockView(World world, Chunk chunk, @Nullable PendingBlockTickSnapshot tickSnapshot)
     {
         this.world = world;
         this.chunk = chunk;
+        this.tickSnapshot = tickSnapshot;
+    }
+
+    public World getWorld()
+    {
+        return this.world;
+    }
+
+    public Chunk getChunk()
+    {
+        return this.chunk;
     }
 
     /*
@@ -48,6 +70,12 @@ public class VanillaChunkBlockView implements BlockView
     @Override
     public boolean readBlockTicksToMap(IntBoundingBox box, Vec3i basePosition, Map<BlockPos, ScheduledBlockTickData> map)
     {
+        if (this.tickSnapshot != null)
+        {
+            this.tickSnapshot.readBlockTicksToMap(box, basePosition, map);
+            return true;
+        }
+
         return VanillaWorldBlockView.readBlockTicksToMap(box, basePosition, map, this.world);
     }
 }
@@ -112,23 +112,31 @@ public class VanillaWorldBlockView implements BlockView
                 continue;
             }
 
-            BlockPos relPos = new BlockPos(entry.position.getX() - basePosition.getX(),
-                                           entry.position.getY() - basePosition.getY(),
-                                           entry.position.getZ() - basePosition.getZ());
+            addBlockTickToMap(entry, basePosition, currentWorldTick, blockTickMap);
+        }
 
-            // Store the delay, i.e. relative time
-            long delay = entry.scheduledTime - currentWorldTick;
-            long tickId = ((NextTickListEntryMixin) entry).litematica$getTickId();
+        return true;
+    }
 
-            ScheduledBlockTickData tickData = new ScheduledBlockTickData(relPos,
-                                                                         RegistryUtils.getBlockIdStr(entry.getBlock()),
-                                                                         entry.priority,
-                                                                         delay,
-                                                                         tickId);
+    public static void addBlockTickToMap(NextTickListEntry entry,
+                                         Vec3i basePosition,
+                                         long currentWorldTick,
+                                         Map<BlockPos, ScheduledBlockTickData> blockTickMap)
+    {
+        BlockPos relPos = new BlockPos(entry.position.getX() - basePosition.getX(),
+                                       entry.position.getY() - basePosition.getY(),
+                                       entry.position.getZ() - basePosition.getZ());
 
-            blockTickMap.put(relPos, tickData);
-        }
+        // Store the delay, i.e. relative time
+        long delay = entry.scheduledTime - currentWorldTick;
+        long tickId = ((NextTickListEntryMixin) entry).litematica$getTickId();
 
-        return true;
+        ScheduledBlockTickData tickData = new ScheduledBlockTickData(relPos,
+                                                                     RegistryUtils.getBlockIdStr(entry.getBlock()),
+                                                                     entry.priority,
+                                                                     delay,
+                                                                     tickId);
+
+        blockTickMap.put(relPos, tickData);
     }
 }
@@ -12,6 +12,7 @@ import malilib.util.game.wrap.GameWrap;
 import malilib.util.position.BlockPos;
 import malilib.util.position.ChunkPos;
 import malilib.util.position.ChunkSectionPos;
+import malilib.util.position.Direction;
 import malilib.util.position.LayerRange;
 import litematica.interfaces.IMixinChunkProviderClient;
 import litematica.render.LitematicaRenderer;
@@ -23,12 +24,18 @@ public class SchematicWorldRenderingNotifier implements LayerRangeChangeListener
     @Override
     public void updateAll()
     {
-        this.updateBetweenY(LayerRange.WORLD_VERTICAL_SIZE_MIN, LayerRange.WORLD_VERTICAL_SIZE_MAX);
+        this.markChunksBetweenY(LayerRange.WORLD_VERTICAL_SIZE_MIN, LayerRange.WORLD_VERTICAL_SIZE_MAX);
     }
 
     @Override
     public void updateBetweenX(int minX, int maxX)
     {
+        // The render chunks compiled in layer slices only need to change their draw ranges
+        if (LitematicaRenderer.getInstance().getWorldRenderer().onLayerRangeChanged(Direction.Axis.X))
+        {
+            return;
+        }
+
         World world = SchematicWorldHandler.getSchematicWorld();
         WorldClient clientWorld = GameWrap.getClientWorld();
 
@@ -58,6 +65,14 @@ public class SchematicWorldRenderingNotifier implements LayerRangeChangeListener
 
     @Override
     public void updateBetweenY(int minY, int maxY)
+    {
+        if (LitematicaRenderer.getInstance().getWorldRenderer().onLayerRangeChanged(Direction.Axis.Y) == false)
+        {
+            this.markChunksBetweenY(minY, maxY);
+        }
+    }
+
+    protected void markChunksBetweenY(int minY, int maxY)
     {
         World world = SchematicWorldHandler.getSchematicWorld();
         WorldClient clientWorld = GameWrap.getClientWorld();
@@ -82,6 +97,11 @@ public class SchematicWorldRenderingNotifier implements LayerRangeChangeListener
     @Override
     public void updateBetweenZ(int minZ, int maxZ)
     {
+        if (LitematicaRenderer.getInstance().getWorldRenderer().onLayerRangeChanged(Direction.Axis.Z))
+        {
+            return;
+        }
+
         World world = SchematicWorldHandler.getSchematicWorld();
         WorldClient clientWorld = GameWrap.getClientWorld();
 